@@ -0,0 +1,137 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.benchmark;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.red5.io.object.Deserializer;
+import org.red5.io.object.Input;
+import org.red5.io.object.Output;
+import org.red5.io.object.Serializer;
+
+/**
+ * AMF0 and AMF3 encoding and decoding of the payloads most commonly seen on a connection: the connect call, stream metadata and a small RPC.
+ *
+ * @author The Red5 Project
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AMFBenchmark {
+
+    @Param({ "AMF0", "AMF3" })
+    public String encoding;
+
+    @Param({ "connect", "onMetaData", "rpc" })
+    public String payload;
+
+    private List<Object> values;
+
+    private IoBuffer buf;
+
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        switch (payload) {
+            case "connect":
+                Map<String, Object> params = new HashMap<>();
+                params.put("app", "live");
+                params.put("flashVer", "FMLE/3.0 (compatible; FMSc/1.0)");
+                params.put("swfUrl", "rtmp://localhost:1935/live");
+                params.put("tcUrl", "rtmp://localhost:1935/live");
+                params.put("fpad", Boolean.FALSE);
+                params.put("capabilities", 239.0);
+                params.put("audioCodecs", 3575.0);
+                params.put("videoCodecs", 252.0);
+                params.put("videoFunction", 1.0);
+                params.put("pageUrl", null);
+                params.put("objectEncoding", 0.0);
+                values = Arrays.asList("connect", 1.0, params);
+                break;
+            case "onMetaData":
+                Map<String, Object> meta = new HashMap<>();
+                meta.put("duration", 0.0);
+                meta.put("width", 1920.0);
+                meta.put("height", 1080.0);
+                meta.put("videodatarate", 4500.0);
+                meta.put("framerate", 30.0);
+                meta.put("videocodecid", 7.0);
+                meta.put("audiodatarate", 160.0);
+                meta.put("audiosamplerate", 48000.0);
+                meta.put("audiosamplesize", 16.0);
+                meta.put("stereo", Boolean.TRUE);
+                meta.put("audiocodecid", 10.0);
+                meta.put("encoder", "obs-output module (libobs version 29.1.3)");
+                meta.put("filesize", 0.0);
+                values = Arrays.asList("onMetaData", meta);
+                break;
+            default:
+                values = Arrays.asList("sendMessage", 5.0, null, "user-1234", "Hello, this is a chat message", Arrays.asList(1, 2, 3, 4));
+        }
+        buf = IoBuffer.allocate(1024).setAutoExpand(true);
+        write();
+        encoded = new byte[buf.remaining()];
+        buf.get(encoded);
+    }
+
+    @Benchmark
+    public IoBuffer write() {
+        buf.clear();
+        Output out = output(buf);
+        for (Object value : values) {
+            Serializer.serialize(out, value);
+        }
+        return buf.flip();
+    }
+
+    @Benchmark
+    public void read(Blackhole bh) {
+        Input in = input(IoBuffer.wrap(encoded));
+        for (int i = 0; i < values.size(); i++) {
+            bh.consume(Deserializer.deserialize(in, Object.class));
+        }
+    }
+
+    @Benchmark
+    public void roundTrip(Blackhole bh) {
+        Input in = input(write());
+        for (int i = 0; i < values.size(); i++) {
+            bh.consume(Deserializer.deserialize(in, Object.class));
+        }
+    }
+
+    private Output output(IoBuffer buf) {
+        return "AMF3".equals(encoding) ? new org.red5.io.amf3.Output(buf) : new org.red5.io.amf.Output(buf);
+    }
+
+    private Input input(IoBuffer buf) {
+        return "AMF3".equals(encoding) ? new org.red5.io.amf3.Input(buf) : new org.red5.io.amf.Input(buf);
+    }
+
+}
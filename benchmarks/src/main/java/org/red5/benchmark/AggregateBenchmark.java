@@ -0,0 +1,89 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.red5.server.net.rtmp.event.Aggregate;
+import org.red5.server.net.rtmp.event.IRTMPEvent;
+import org.red5.server.net.rtmp.message.Constants;
+import org.red5.server.net.rtmp.message.Header;
+
+/**
+ * Splitting of aggregate messages, as sent by edge servers and some encoders, into their audio and video parts.
+ *
+ * @author The Red5 Project
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AggregateBenchmark {
+
+    @Param({ "8", "64" })
+    public int parts;
+
+    private byte[] data;
+
+    private Header header;
+
+    @Setup
+    public void setup() {
+        IoBuffer buf = IoBuffer.allocate(parts * 1024).setAutoExpand(true);
+        for (int i = 0; i < parts; i++) {
+            // alternate aac audio and avc video parts
+            boolean audio = i % 2 == 0;
+            int size = audio ? 256 : 2048;
+            buf.put(audio ? Constants.TYPE_AUDIO_DATA : Constants.TYPE_VIDEO_DATA);
+            putMediumInt(buf, size);
+            putMediumInt(buf, i * 20);
+            buf.put((byte) 0);
+            putMediumInt(buf, 0);
+            byte[] body = new byte[size];
+            body[0] = (byte) (audio ? 0xaf : 0x27);
+            buf.put(body);
+            buf.putInt(size + 11);
+        }
+        buf.flip();
+        data = new byte[buf.remaining()];
+        buf.get(data);
+        header = new Header();
+        header.setChannelId(5);
+        header.setStreamId(1);
+        header.setDataType(Constants.TYPE_AGGREGATE);
+    }
+
+    @Benchmark
+    public List<IRTMPEvent> getParts() {
+        Aggregate aggregate = new Aggregate(IoBuffer.wrap(data));
+        aggregate.setHeader(header);
+        return aggregate.getParts();
+    }
+
+    private static void putMediumInt(IoBuffer buf, int value) {
+        buf.put((byte) (value >>> 16));
+        buf.put((byte) (value >>> 8));
+        buf.put((byte) value);
+    }
+
+}
@@ -0,0 +1,38 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so every result reports the allocation rate and bytes allocated per operation next to the throughput. Accepts the usual JMH
+ * command line options, for example:
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar AMFBenchmark -f 1 -wi 3 -i 5
+ * </pre>
+ *
+ * The file based benchmarks use the fixtures of the io module by default and are expected to be run from the repository root; use <code>-p file=...</code> to read
+ * other media.
+ *
+ * @author The Red5 Project
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(cmdOptions);
+        builder.addProfiler(GCProfiler.class);
+        new Runner(builder.build()).run();
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.red5.io.flv.impl.FLVWriter;
+
+/**
+ * FLV finalization as FLVWriter.close runs it: a recorded .ser data file is appended to a new .flv file behind the header and metadata. Each invocation writes the data
+ * through a new writer, outside of the measurement. The default size is 2 GB and the files are created in the temporary directory; use <code>-p dir=...</code> to measure
+ * another disk and <code>-p sizeMb=...</code> for a smaller recording. Run it on two revisions of the io module to compare their finalization.
+ *
+ * @author The Red5 Project
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class FLVFinalizeBenchmark {
+
+    @Param({ "2048" })
+    public int sizeMb;
+
+    // directory for the files, the temporary directory if empty
+    @Param({ "" })
+    public String dir;
+
+    private Path flv;
+
+    private byte[] chunk;
+
+    private FLVWriter writer;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        Path parent = dir.isEmpty() ? Paths.get(System.getProperty("java.io.tmpdir")) : Paths.get(dir);
+        flv = parent.resolve("finalize-" + System.nanoTime() + ".flv");
+        chunk = new byte[1024 * 1024];
+        for (int i = 0; i < chunk.length; i++) {
+            chunk[i] = (byte) i;
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() throws IOException {
+        Files.deleteIfExists(flv);
+        // the writer creates the .ser data file next to the flv
+        writer = new FLVWriter(flv.toString());
+        for (int i = 0; i < sizeMb; i++) {
+            if (!writer.writeStream(chunk)) {
+                throw new IOException("Data file could not be written");
+            }
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() throws IOException {
+        Files.deleteIfExists(Paths.get(flv + ".ser"));
+        Files.deleteIfExists(Paths.get(flv + ".info"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws IOException {
+        Files.deleteIfExists(flv);
+    }
+
+    @Benchmark
+    public long close() throws IOException {
+        writer.close();
+        return Files.size(flv);
+    }
+
+}
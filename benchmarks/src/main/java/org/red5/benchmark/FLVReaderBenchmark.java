@@ -0,0 +1,67 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.red5.io.ITag;
+import org.red5.io.flv.impl.FLVReader;
+
+/**
+ * Sequential tag reads from an FLV file, starting over at the first tag once the end is reached.
+ *
+ * @author The Red5 Project
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FLVReaderBenchmark {
+
+    // position of the first tag, after the file header
+    private static final long FIRST_TAG = 9;
+
+    @Param({ "io/src/test/resources/fixtures/h264_aac.flv" })
+    public String file;
+
+    private FLVReader reader;
+
+    @Setup
+    public void setup() throws IOException {
+        reader = new FLVReader(Fixtures.resolve(file));
+    }
+
+    @TearDown
+    public void tearDown() {
+        reader.close();
+    }
+
+    @Benchmark
+    public ITag readTag() {
+        if (!reader.hasMoreTags()) {
+            reader.position(FIRST_TAG);
+        }
+        return reader.readTag();
+    }
+
+}
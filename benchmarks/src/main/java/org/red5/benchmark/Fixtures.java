@@ -0,0 +1,43 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.benchmark;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+
+/**
+ * Locates the media files read by the benchmarks.
+ *
+ * @author The Red5 Project
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * Resolves a path relative to the working directory, or to its parent when run from the benchmarks module.
+     *
+     * @param path
+     *            file path
+     * @return existing file
+     * @throws FileNotFoundException
+     *             if the file cannot be found
+     */
+    static File resolve(String path) throws FileNotFoundException {
+        File file = new File(path);
+        if (!file.exists() && !file.isAbsolute()) {
+            file = new File("..", path);
+        }
+        if (!file.exists()) {
+            throw new FileNotFoundException(path);
+        }
+        return file;
+    }
+
+}
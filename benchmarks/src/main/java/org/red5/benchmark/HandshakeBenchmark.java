@@ -0,0 +1,71 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.red5.client.net.rtmp.OutboundHandshake;
+import org.red5.server.net.rtmp.InboundHandshake;
+import org.red5.server.net.rtmp.message.Constants;
+
+/**
+ * Server side of the RTMP handshake: decoding C1 and creating S0+S1+S2, which for the encrypted types includes the DH key pair, the shared secret and the RC4 ciphers.
+ * The score is handshakes per second for each thread; to simulate a reconnect storm run it with as many threads as cores, for example
+ * <code>-t 8</code>, and compare with the pool disabled using <code>-jvmArgs -Drtmp.handshake.dh_pool_size=0</code>.
+ *
+ * @author The Red5 Project
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HandshakeBenchmark {
+
+    // client requests cycled through by the server handshakes
+    private static final int REQUESTS = 64;
+
+    // 3 plain, 6 encrypted
+    @Param({ "3", "6" })
+    public byte handshakeType;
+
+    private byte[][] requests;
+
+    private int index;
+
+    @Setup
+    public void setup() {
+        requests = new byte[REQUESTS][Constants.HANDSHAKE_SIZE];
+        for (int i = 0; i < REQUESTS; i++) {
+            IoBuffer c0c1 = new OutboundHandshake(handshakeType).generateClientRequest1();
+            // skip C0
+            c0c1.position(1);
+            c0c1.get(requests[i]);
+        }
+    }
+
+    @Benchmark
+    public IoBuffer serverHandshake() {
+        byte[] c1 = requests[index++ % REQUESTS];
+        return new InboundHandshake(handshakeType).decodeClientRequest1(IoBuffer.wrap(c1));
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.red5.io.ITag;
+import org.red5.io.mp4.impl.MP4Reader;
+
+/**
+ * Sequential tag reads from an MP4 file and seeks to its keyframes.
+ *
+ * @author The Red5 Project
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MP4ReaderBenchmark {
+
+    @Param({ "io/src/test/resources/fixtures/mov_h264.mp4" })
+    public String file;
+
+    private MP4Reader reader;
+
+    private long[] keyFrames;
+
+    private int seekIndex;
+
+    @Setup
+    public void setup() throws IOException {
+        reader = new MP4Reader(Fixtures.resolve(file));
+        keyFrames = reader.analyzeKeyFrames().positions;
+    }
+
+    @TearDown
+    public void tearDown() {
+        reader.close();
+    }
+
+    @Benchmark
+    public ITag readTag() {
+        if (!reader.hasMoreTags()) {
+            reader.position(keyFrames[0]);
+        }
+        return reader.readTag();
+    }
+
+    /**
+     * Seeks to the next keyframe in turn and reads the tags sent on a seek: the decoder configuration and the keyframe.
+     */
+    @Benchmark
+    public void seek(Blackhole bh) {
+        seekIndex = (seekIndex + 1) % keyFrames.length;
+        reader.position(keyFrames[seekIndex]);
+        bh.consume(reader.readTag());
+        bh.consume(reader.readTag());
+        bh.consume(reader.readTag());
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.red5.server.api.Red5;
+import org.red5.server.net.rtmp.RTMPConnection;
+import org.red5.server.net.rtmp.RTMPMinaConnection;
+import org.red5.server.net.rtmp.codec.RTMP;
+import org.red5.server.net.rtmp.codec.RTMPProtocolDecoder;
+import org.red5.server.net.rtmp.codec.RTMPProtocolEncoder;
+import org.red5.server.net.rtmp.event.VideoData;
+import org.red5.server.net.rtmp.message.Constants;
+import org.red5.server.net.rtmp.message.Header;
+import org.red5.server.net.rtmp.message.Packet;
+
+/**
+ * RTMP chunking of video messages by the encoder and reassembly by the decoder, at several chunk and message sizes.
+ *
+ * @author The Red5 Project
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RTMPCodecBenchmark {
+
+    private static final int CHANNEL_ID = 6;
+
+    // messages per decoded buffer
+    private static final int MESSAGES = 16;
+
+    @Param({ "128", "4096", "65536" })
+    public int chunkSize;
+
+    @Param({ "1024", "32768" })
+    public int messageSize;
+
+    private RTMPConnection conn;
+
+    private RTMPProtocolEncoder encoder;
+
+    private RTMPProtocolDecoder decoder;
+
+    private byte[] payload;
+
+    private byte[] encoded;
+
+    private int timestamp;
+
+    @Setup
+    public void setup() {
+        conn = new RTMPMinaConnection();
+        conn.getState().setState(RTMP.STATE_CONNECTED);
+        conn.getState().setWriteChunkSize(chunkSize);
+        conn.getState().setReadChunkSize(chunkSize);
+        Red5.setConnectionLocal(conn);
+        encoder = new RTMPProtocolEncoder();
+        decoder = new RTMPProtocolDecoder();
+        payload = new byte[messageSize];
+        // avc interframe
+        payload[0] = 0x27;
+        for (int i = 1; i < messageSize; i++) {
+            payload[i] = (byte) i;
+        }
+        // a run of messages on one channel, as read from a publisher
+        IoBuffer out = IoBuffer.allocate(MESSAGES * (messageSize + 64)).setAutoExpand(true);
+        for (int i = 0; i < MESSAGES; i++) {
+            out.put(encodePacket());
+        }
+        out.flip();
+        encoded = new byte[out.remaining()];
+        out.get(encoded);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Red5.setConnectionLocal(null);
+    }
+
+    @Benchmark
+    public IoBuffer encodePacket() {
+        Header header = new Header();
+        header.setChannelId(CHANNEL_ID);
+        header.setStreamId(1);
+        header.setDataType(Constants.TYPE_VIDEO_DATA);
+        // stay below the extended timestamp range, wrapping around starts a new stream header
+        timestamp = (timestamp + 33) % 0xff0000;
+        header.setTimer(timestamp);
+        VideoData video = new VideoData(IoBuffer.wrap(payload).asReadOnlyBuffer());
+        return encoder.encodePacket(new Packet(header, video));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Object> decodeBuffer() {
+        return decoder.decodeBuffer(conn, IoBuffer.wrap(encoded));
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.red5.server.api.Red5;
+import org.red5.server.net.rtmp.RTMPConnection;
+import org.red5.server.net.rtmp.RTMPMinaConnection;
+import org.red5.server.net.rtmp.codec.RTMP;
+import org.red5.server.net.rtmp.codec.RTMPProtocolEncoder;
+import org.red5.server.net.rtmp.event.VideoData;
+import org.red5.server.net.rtmp.message.Constants;
+import org.red5.server.net.rtmp.message.Header;
+import org.red5.server.net.rtmp.message.Packet;
+import org.red5.server.net.rtmpe.RTMPEUtils;
+
+/**
+ * Cost of a viewer session per video message: the message is encoded and, for the encrypted sessions, encrypted on the way out and decrypted on the way in as the
+ * RTMPE filter does. The <code>rtmpe-copy</code> session copies the messages into arrays for the ciphers, the <code>rtmpe</code> session runs the ciphers over the
+ * buffers.
+ *
+ * @author The Red5 Project
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RTMPEBenchmark {
+
+    @Param({ "plain", "rtmpe-copy", "rtmpe" })
+    public String session;
+
+    @Param({ "1024", "32768" })
+    public int messageSize;
+
+    private RTMPConnection conn;
+
+    private RTMPProtocolEncoder encoder;
+
+    private Cipher cipherOut;
+
+    private Cipher cipherIn;
+
+    private byte[] payload;
+
+    private int timestamp;
+
+    @Setup
+    public void setup() throws Exception {
+        conn = new RTMPMinaConnection();
+        conn.getState().setState(RTMP.STATE_CONNECTED);
+        conn.getState().setWriteChunkSize(4096);
+        Red5.setConnectionLocal(conn);
+        encoder = new RTMPProtocolEncoder();
+        SecretKeySpec key = new SecretKeySpec("0123456789abcdef".getBytes(), "RC4");
+        cipherOut = Cipher.getInstance("RC4");
+        cipherOut.init(Cipher.ENCRYPT_MODE, key);
+        cipherIn = Cipher.getInstance("RC4");
+        cipherIn.init(Cipher.DECRYPT_MODE, key);
+        payload = new byte[messageSize];
+        // avc interframe
+        payload[0] = 0x27;
+        for (int i = 1; i < messageSize; i++) {
+            payload[i] = (byte) i;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        Red5.setConnectionLocal(null);
+    }
+
+    @Benchmark
+    public IoBuffer message() throws Exception {
+        Header header = new Header();
+        header.setChannelId(6);
+        header.setStreamId(1);
+        header.setDataType(Constants.TYPE_VIDEO_DATA);
+        timestamp = (timestamp + 33) % 0xff0000;
+        header.setTimer(timestamp);
+        IoBuffer message = encoder.encodePacket(new Packet(header, new VideoData(IoBuffer.wrap(payload).asReadOnlyBuffer())));
+        switch (session) {
+            case "rtmpe-copy": {
+                byte[] plain = new byte[message.remaining()];
+                message.get(plain);
+                IoBuffer encrypted = IoBuffer.wrap(cipherOut.update(plain));
+                byte[] received = new byte[encrypted.remaining()];
+                encrypted.get(received);
+                return IoBuffer.wrap(cipherIn.update(received));
+            }
+            case "rtmpe":
+                return RTMPEUtils.decrypt(cipherIn, RTMPEUtils.encrypt(cipherOut, message));
+            default:
+                return message;
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.red5.server.net.rtmp.IRTMPHandler;
+import org.red5.server.net.rtmp.RTMPConnection;
+import org.red5.server.net.rtmp.RTMPMinaConnection;
+import org.red5.server.net.rtmp.event.Ping;
+import org.red5.server.net.rtmp.message.Header;
+import org.red5.server.net.rtmp.message.Packet;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Receive path of many idle-ish connections: every connection gets a few packets which are passed through its received packet queue to the handler. One operation
+ * hands all packets to the handler; throughput shows the sustained rate, single shot time the latency of a burst. With <code>shared=false</code> each connection
+ * starts its own receive thread, with <code>shared=true</code> the queues are drained by one work-stealing pool of <code>dispatchThreads</code> threads, which also
+ * sizes the message executor. The live and peak thread counts of each trial are printed when it ends.
+ *
+ * @author The Red5 Project
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SingleShotTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReceiveDispatchBenchmark {
+
+    private static final int PACKETS_PER_CONNECTION = 10;
+
+    @Param({ "1000", "10000" })
+    public int connections;
+
+    @Param({ "true", "false" })
+    public boolean shared;
+
+    @Param({ "1", "4", "16" })
+    public int dispatchThreads;
+
+    private ThreadPoolTaskExecutor executor;
+
+    private ForkJoinPool dispatcher;
+
+    private RTMPConnection[] conns;
+
+    private volatile CountDownLatch latch;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(dispatchThreads);
+        executor.setMaxPoolSize(dispatchThreads);
+        executor.setQueueCapacity(connections * PACKETS_PER_CONNECTION);
+        executor.initialize();
+        dispatcher = new ForkJoinPool(dispatchThreads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        IRTMPHandler handler = new IRTMPHandler() {
+
+            public void connectionOpened(RTMPConnection conn) {
+            }
+
+            public void messageReceived(RTMPConnection conn, Packet packet) throws Exception {
+                latch.countDown();
+            }
+
+            public void messageSent(RTMPConnection conn, Packet packet) {
+            }
+
+            public void connectionClosed(RTMPConnection conn) {
+            }
+
+        };
+        conns = new RTMPConnection[connections];
+        for (int i = 0; i < connections; i++) {
+            conns[i] = new RTMPMinaConnection();
+            conns[i].setHandler(handler);
+            conns[i].setExecutor(executor);
+            if (shared) {
+                conns[i].setReceiveDispatchExecutor(dispatcher);
+            }
+        }
+        threads.resetPeakThreadCount();
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        latch = new CountDownLatch(connections * PACKETS_PER_CONNECTION);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        System.out.printf("%nthreads - live: %d peak: %d%n", threads.getThreadCount(), threads.getPeakThreadCount());
+        for (RTMPConnection conn : conns) {
+            // stops the receive thread of the connection, if it has one
+            conn.closeConnection();
+        }
+        conns = null;
+        dispatcher.shutdown();
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public void receive() throws InterruptedException {
+        for (int p = 0; p < PACKETS_PER_CONNECTION; p++) {
+            for (RTMPConnection conn : conns) {
+                conn.handleMessageReceived(new Packet(new Header(), new Ping(Ping.PING_CLIENT, p)));
+            }
+        }
+        latch.await();
+    }
+
+}
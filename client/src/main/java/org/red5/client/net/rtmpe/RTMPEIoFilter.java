@@ -26,6 +26,7 @@ import org.red5.server.net.rtmp.ReadBuffer;
 import org.red5.server.net.rtmp.codec.RTMP;
 import org.red5.server.net.rtmp.message.Constants;
 import org.red5.server.net.rtmpe.EncryptedWriteRequest;
+import org.red5.server.net.rtmpe.RTMPEUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -151,11 +152,8 @@ public class RTMPEIoFilter extends IoFilterAdapter {
                             if (log.isDebugEnabled()) {
                                 log.debug("Decrypting message: {}", message);
                             }
-                            byte[] encrypted = new byte[message.remaining()];
-                            message.get(encrypted);
-                            message.free();
-                            byte[] plain = cipher.update(encrypted);
-                            IoBuffer messageDecrypted = IoBuffer.wrap(plain);
+                            // the read buffer is ours, decrypt it in place
+                            IoBuffer messageDecrypted = RTMPEUtils.decrypt(cipher, message);
                             if (log.isDebugEnabled()) {
                                 log.debug("Decrypted buffer: {}", messageDecrypted);
                             }
@@ -227,12 +225,10 @@ public class RTMPEIoFilter extends IoFilterAdapter {
                     if (log.isDebugEnabled()) {
                         log.debug("Encrypting {} bytes, message: {}", remaining, buf);
                     }
-                    byte[] plain = new byte[remaining];
-                    buf.get(plain);
-                    buf.free();
                     // encrypt and write
-                    byte[] encrypted = cipher.update(plain);
-                    buf = IoBuffer.wrap(encrypted);
+                    IoBuffer encrypted = RTMPEUtils.encrypt(cipher, buf);
+                    buf.free();
+                    buf = encrypted;
                     if (log.isDebugEnabled()) {
                         log.debug("Encrypted message: {}", buf);
                     }
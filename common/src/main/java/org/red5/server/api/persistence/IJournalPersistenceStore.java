@@ -0,0 +1,30 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.server.api.persistence;
+
+/**
+ * Storage for persistent objects which records the attribute changes of an object, so saving it only writes what changed since the previous
+ * save instead of the whole object.
+ *
+ * @author The Red5 Project
+ */
+public interface IJournalPersistenceStore extends IPersistenceStore {
+
+    /**
+     * Records a changed attribute of the given object; the change is written with the next save of the object.
+     *
+     * @param obj
+     *            Object the attribute belongs to
+     * @param name
+     *            Attribute name
+     * @param value
+     *            New attribute value or null if the attribute was removed
+     */
+    public void attributeChanged(IPersistable obj, String name, Object value);
+
+}
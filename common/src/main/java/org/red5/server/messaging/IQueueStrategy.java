@@ -0,0 +1,65 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.server.messaging;
+
+/**
+ * Knowledge about the messages of a pipe which queues messages for its consumers. The pipe decides what to drop from a full queue by the frame type of a message and
+ * keeps a queued message alive until it is delivered, without knowing how the messages are made up.
+ *
+ * @author The Red5 Project
+ */
+public interface IQueueStrategy {
+
+    /**
+     * Type of a queued message, as far as dropping it is concerned.
+     */
+    public static enum FrameType {
+        /** Video frame which starts a group of pictures */
+        KEYFRAME,
+        /** Video frame which depends on earlier frames */
+        INTERFRAME,
+        /** Video frame no other frame depends on */
+        DISPOSABLE_INTERFRAME,
+        /** Anything which is not video */
+        NONE
+    }
+
+    /**
+     * Returns the frame type of a message.
+     *
+     * @param message
+     *            message
+     * @return frame type, NONE for anything but video
+     */
+    FrameType getFrameType(IMessage message);
+
+    /**
+     * Retains a message which is queued for later delivery.
+     *
+     * @param message
+     *            message
+     */
+    void retain(IMessage message);
+
+    /**
+     * Releases a message which has been delivered or dropped from a queue.
+     *
+     * @param message
+     *            message
+     */
+    void release(IMessage message);
+
+    /**
+     * Closes whatever a consumer which was disconnected for falling behind is serving.
+     *
+     * @param consumer
+     *            consumer
+     */
+    void disconnect(IConsumer consumer);
+
+}
@@ -8,13 +8,28 @@
 package org.red5.server.messaging;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.red5.server.api.stream.consumer.IFileConsumer;
+import org.red5.server.messaging.IQueueStrategy.FrameType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * A simple in-memory version of push-push pipe. It is triggered by an active provider to push messages through it to an event-driven consumer.
+ * <br>
+ * By default messages are pushed to every consumer on the provider's thread. When an executor is set, each consumer gets a bounded queue instead, which is drained in order
+ * on the executor; a slow consumer then only fills its own queue and the overflow policy decides what happens when the queue is full. Recording consumers are never
+ * dropped from nor disconnected, their queues are not bounded. The queue strategy tells the pipe the frame type of a message and retains a queued message until it has
+ * been delivered or dropped, since the provider releases the message as soon as the push returns.
  *
  * @author Steven Gong (steven.gong@gmail.com)
  * @author Paul Gregoire (mondain@gmail.com)
@@ -23,6 +38,74 @@ public class InMemoryPushPushPipe extends AbstractPipe {
 
     private static final Logger log = LoggerFactory.getLogger(InMemoryPushPushPipe.class);
 
+    /**
+     * Strategy for messages which are neither video nor reference counted
+     */
+    private static final IQueueStrategy PLAIN = new IQueueStrategy() {
+
+        public FrameType getFrameType(IMessage message) {
+            return FrameType.NONE;
+        }
+
+        public void retain(IMessage message) {
+        }
+
+        public void release(IMessage message) {
+        }
+
+        public void disconnect(IConsumer consumer) {
+        }
+
+    };
+
+    /**
+     * Action taken when a consumer queue is full.
+     */
+    public static enum OverflowPolicy {
+        /**
+         * Drop disposable inter frames; once there are none left to drop, skip video to the next key frame
+         */
+        DROP_DISPOSABLE,
+        /**
+         * Discard the queued video and skip incoming video until the next key frame
+         */
+        DROP_TO_KEYFRAME,
+        /**
+         * Unsubscribe the consumer from the pipe and close its connection
+         */
+        DISCONNECT
+    }
+
+    /**
+     * Executor which drains the consumer queues; when null messages are pushed synchronously
+     */
+    private Executor executor;
+
+    /**
+     * Maximum number of messages queued for a single consumer
+     */
+    private int maxQueueSize = 256;
+
+    /**
+     * Action taken when a consumer queue is full
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_DISPOSABLE;
+
+    /**
+     * Maximum number of messages delivered by a single drain task, before it makes room for the other consumers
+     */
+    private int drainBatchSize = 32;
+
+    /**
+     * Classifies, retains and releases queued messages
+     */
+    private IQueueStrategy queueStrategy = PLAIN;
+
+    /**
+     * Queues of the consumers, only used when an executor is set
+     */
+    private final ConcurrentMap<IConsumer, ConsumerQueue> queues = new ConcurrentHashMap<>();
+
     public InMemoryPushPushPipe() {
         super();
     }
@@ -72,6 +155,18 @@ public class InMemoryPushPushPipe extends AbstractPipe {
         return null;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean unsubscribe(IConsumer consumer) {
+        boolean success = super.unsubscribe(consumer);
+        // removed after the consumer, see pushMessage
+        ConsumerQueue queue = queues.remove(consumer);
+        if (queue != null) {
+            queue.clear();
+        }
+        return success;
+    }
+
     /**
      * Pushes a message out to all the PushableConsumers.
      *
@@ -85,6 +180,13 @@ public class InMemoryPushPushPipe extends AbstractPipe {
             log.debug("pushMessage: {} to {} consumers", message, consumers.size());
         }
         for (IConsumer consumer : consumers) {
+            if (executor != null) {
+                ConsumerQueue queue = getQueue(consumer);
+                if (queue != null) {
+                    queue.offer(message);
+                }
+                continue;
+            }
             try {
                 ((IPushableConsumer) consumer).pushMessage(this, message);
             } catch (Throwable t) {
@@ -97,4 +199,335 @@ public class InMemoryPushPushPipe extends AbstractPipe {
         }
     }
 
+    /**
+     * Returns the queue of the given consumer, creating it on the first message. A queue created while the consumer unsubscribes is removed
+     * again, since the consumer left the consumer list before its queue was removed.
+     *
+     * @param consumer
+     *            consumer
+     * @return queue or null if the consumer is no longer subscribed
+     */
+    private ConsumerQueue getQueue(IConsumer consumer) {
+        ConsumerQueue queue = queues.get(consumer);
+        if (queue == null) {
+            queue = new ConsumerQueue((IPushableConsumer) consumer);
+            ConsumerQueue existing = queues.putIfAbsent(consumer, queue);
+            if (existing != null) {
+                return existing;
+            }
+            if (!consumers.contains(consumer)) {
+                queues.remove(consumer, queue);
+                return null;
+            }
+        }
+        return queue;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() {
+        for (ConsumerQueue queue : queues.values()) {
+            queue.clear();
+        }
+        queues.clear();
+        super.close();
+    }
+
+    /**
+     * Returns the number of messages waiting in the queue of the given consumer.
+     *
+     * @param consumer
+     *            consumer
+     * @return queued message count, 0 if the consumer has no queue
+     */
+    public int getQueueDepth(IConsumer consumer) {
+        ConsumerQueue queue = queues.get(consumer);
+        return queue != null ? queue.size() : 0;
+    }
+
+    /**
+     * Returns the number of messages waiting in the queue of each consumer.
+     *
+     * @return queued message count by consumer
+     */
+    public Map<IConsumer, Integer> getQueueDepths() {
+        Map<IConsumer, Integer> depths = new HashMap<>();
+        queues.forEach((consumer, queue) -> depths.put(consumer, queue.size()));
+        return Collections.unmodifiableMap(depths);
+    }
+
+    /**
+     * Returns the number of messages dropped from the queue of the given consumer because it was full.
+     *
+     * @param consumer
+     *            consumer
+     * @return dropped message count
+     */
+    public long getDroppedMessages(IConsumer consumer) {
+        ConsumerQueue queue = queues.get(consumer);
+        return queue != null ? queue.dropped.get() : 0L;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets the executor which delivers messages to the consumers. Setting an executor switches the pipe to queued delivery.
+     *
+     * @param executor
+     *            executor or null for synchronous delivery
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public void setMaxQueueSize(int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    public int getDrainBatchSize() {
+        return drainBatchSize;
+    }
+
+    /**
+     * Sets the number of messages a drain task delivers to its consumer before it is rescheduled, so a consumer with a long queue does not
+     * keep a thread of the shared executor to itself.
+     *
+     * @param drainBatchSize
+     *            number of messages
+     */
+    public void setDrainBatchSize(int drainBatchSize) {
+        this.drainBatchSize = Math.max(drainBatchSize, 1);
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public IQueueStrategy getQueueStrategy() {
+        return queueStrategy;
+    }
+
+    /**
+     * Sets the strategy which classifies the queued messages and keeps them alive until they are delivered. Set it along with the executor
+     * when the pushed messages are video or reference counted.
+     *
+     * @param queueStrategy
+     *            queue strategy
+     */
+    public void setQueueStrategy(IQueueStrategy queueStrategy) {
+        this.queueStrategy = queueStrategy != null ? queueStrategy : PLAIN;
+    }
+
+    /**
+     * Bounded message queue for a single consumer. Only one drain task per queue is scheduled at a time, so the consumer sees the messages in the order they were pushed.
+     */
+    private final class ConsumerQueue implements Runnable {
+
+        private final IPushableConsumer consumer;
+
+        // recordings get every message
+        private final boolean lossless;
+
+        private final ArrayDeque<IMessage> messages = new ArrayDeque<>();
+
+        private final AtomicLong dropped = new AtomicLong();
+
+        // video is skipped until the next key frame
+        private boolean waitForKeyframe;
+
+        // a drain task is scheduled or running
+        private boolean scheduled;
+
+        // the consumer is being disconnected, nothing is queued anymore
+        private boolean disconnected;
+
+        ConsumerQueue(IPushableConsumer consumer) {
+            this.consumer = consumer;
+            lossless = consumer instanceof IFileConsumer;
+        }
+
+        void offer(IMessage message) {
+            boolean disconnect = false;
+            synchronized (messages) {
+                if (disconnected) {
+                    return;
+                }
+                FrameType frameType = queueStrategy.getFrameType(message);
+                boolean video = frameType != FrameType.NONE;
+                if (waitForKeyframe && video) {
+                    if (frameType != FrameType.KEYFRAME) {
+                        dropped.incrementAndGet();
+                        return;
+                    }
+                    waitForKeyframe = false;
+                }
+                if (!lossless && messages.size() >= maxQueueSize) {
+                    switch (overflowPolicy) {
+                        case DISCONNECT:
+                            disconnect = disconnected = true;
+                            break;
+                        case DROP_DISPOSABLE:
+                            if (frameType == FrameType.DISPOSABLE_INTERFRAME) {
+                                dropped.incrementAndGet();
+                                return;
+                            }
+                            if (dropQueued(FrameType.DISPOSABLE_INTERFRAME)) {
+                                break;
+                            }
+                            // nothing disposable left, fall through and skip to the next key frame
+                        case DROP_TO_KEYFRAME:
+                            dropQueued(null);
+                            if (video && frameType != FrameType.KEYFRAME) {
+                                waitForKeyframe = true;
+                                dropped.incrementAndGet();
+                                return;
+                            }
+                            break;
+                    }
+                    // still full, e.g. the queue holds no video at all
+                    if (!disconnect && messages.size() >= maxQueueSize) {
+                        // the frames after a dropped video frame cannot be decoded before the next key frame
+                        waitForKeyframe |= video;
+                        dropped.incrementAndGet();
+                        return;
+                    }
+                }
+                if (!disconnect) {
+                    queueStrategy.retain(message);
+                    messages.add(message);
+                    if (!scheduled) {
+                        scheduled = true;
+                    } else {
+                        return;
+                    }
+                }
+            }
+            if (disconnect) {
+                log.warn("Consumer queue full, disconnecting {}", consumer);
+                disconnect();
+                return;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            try {
+                executor.execute(this);
+            } catch (Throwable t) {
+                log.warn("Consumer queue could not be scheduled for {}", consumer, t);
+                synchronized (messages) {
+                    scheduled = false;
+                }
+            }
+        }
+
+        /**
+         * Unsubscribes the consumer and closes its connection on the executor, the pushing thread is not held up by either.
+         */
+        private void disconnect() {
+            try {
+                executor.execute(this::close);
+            } catch (Throwable t) {
+                log.warn("Consumer {} could not be disconnected", consumer, t);
+            }
+        }
+
+        /**
+         * Unsubscribes the consumer and closes its connection, called on the executor.
+         */
+        private void close() {
+            unsubscribe(consumer);
+            queueStrategy.disconnect(consumer);
+        }
+
+        /**
+         * Removes queued video messages of the given frame type, or all queued video messages when the frame type is null.
+         *
+         * @return true if anything was removed
+         */
+        private boolean dropQueued(FrameType frameType) {
+            int count = 0;
+            for (Iterator<IMessage> it = messages.iterator(); it.hasNext();) {
+                IMessage queued = it.next();
+                FrameType queuedType = queueStrategy.getFrameType(queued);
+                if (queuedType != FrameType.NONE && (frameType == null || queuedType == frameType)) {
+                    it.remove();
+                    queueStrategy.release(queued);
+                    count++;
+                }
+            }
+            dropped.addAndGet(count);
+            return count > 0;
+        }
+
+        int size() {
+            synchronized (messages) {
+                return messages.size();
+            }
+        }
+
+        void clear() {
+            synchronized (messages) {
+                IMessage message;
+                while ((message = messages.poll()) != null) {
+                    queueStrategy.release(message);
+                }
+            }
+        }
+
+        /**
+         * Delivers up to drainBatchSize queued messages in order, then reschedules itself if more are waiting.
+         */
+        public void run() {
+            IMessage message;
+            for (int count = 0; count < drainBatchSize; count++) {
+                synchronized (messages) {
+                    message = messages.poll();
+                    if (message == null) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                try {
+                    consumer.pushMessage(InMemoryPushPushPipe.this, message);
+                } catch (IOException e) {
+                    if (lossless) {
+                        log.warn("Exception pushing message to consumer {}", consumer, e);
+                    } else {
+                        log.warn("Exception pushing message to consumer, disconnecting {}", consumer, e);
+                        synchronized (messages) {
+                            disconnected = true;
+                        }
+                        // already on the executor
+                        close();
+                        return;
+                    }
+                } catch (Throwable t) {
+                    log.error("Exception pushing message to consumer", t);
+                } finally {
+                    queueStrategy.release(message);
+                }
+            }
+            synchronized (messages) {
+                if (messages.isEmpty()) {
+                    scheduled = false;
+                    return;
+                }
+            }
+            // still scheduled, give the thread back to the other consumers and continue later
+            schedule();
+        }
+
+    }
+
 }
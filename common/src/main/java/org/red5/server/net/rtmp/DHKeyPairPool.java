@@ -0,0 +1,146 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.server.net.rtmp;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.crypto.spec.DHParameterSpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of Diffie-Hellman key pairs for the encrypted handshakes, generated ahead of time by a background thread so that a burst of handshakes does not have to wait for
+ * key generation. Each key pair is handed out once. When the pool is empty the key pair is generated by the caller. The pool size is set with the
+ * <code>rtmp.handshake.dh_pool_size</code> system property, a size of 0 disables the pool.
+ *
+ * @author The Red5 Project
+ */
+public final class DHKeyPairPool {
+
+    private static final Logger log = LoggerFactory.getLogger(DHKeyPairPool.class);
+
+    private static final DHKeyPairPool instance = new DHKeyPairPool(Integer.getInteger("rtmp.handshake.dh_pool_size", 64));
+
+    // generators are initialized once per thread, they are not safe for concurrent use
+    private static final ThreadLocal<KeyPairGenerator> generator = ThreadLocal.withInitial(() -> {
+        try {
+            KeyPairGenerator keyGen = KeyPairGenerator.getInstance("DH");
+            keyGen.initialize(new DHParameterSpec(RTMPHandshake.DH_MODULUS, RTMPHandshake.DH_BASE));
+            return keyGen;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("DH key pair generator is not available", e);
+        }
+    });
+
+    private final int size;
+
+    private final BlockingQueue<KeyPair> keyPairs;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private DHKeyPairPool(int size) {
+        this.size = size;
+        keyPairs = size > 0 ? new ArrayBlockingQueue<>(size) : null;
+    }
+
+    /**
+     * Returns the pool shared by all the handshakes.
+     *
+     * @return key pair pool
+     */
+    public static DHKeyPairPool getInstance() {
+        return instance;
+    }
+
+    /**
+     * Generates a new key pair in the calling thread.
+     *
+     * @return dh key pair
+     */
+    public static KeyPair generate() {
+        return generator.get().generateKeyPair();
+    }
+
+    /**
+     * Returns an unused key pair, generating one if none is ready. The first call starts the thread which fills the pool.
+     *
+     * @return dh key pair
+     */
+    public KeyPair take() {
+        if (keyPairs == null) {
+            return generate();
+        }
+        if (started.compareAndSet(false, true)) {
+            Thread filler = new Thread(this::fill, "DHKeyPairPool");
+            filler.setDaemon(true);
+            filler.setPriority(Thread.NORM_PRIORITY - 1);
+            filler.start();
+        }
+        KeyPair keyPair = keyPairs.poll();
+        if (keyPair != null) {
+            hits.increment();
+            return keyPair;
+        }
+        misses.increment();
+        return generate();
+    }
+
+    private void fill() {
+        log.debug("Filling DH key pair pool of size: {}", size);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                // blocks while the pool is full
+                keyPairs.put(generate());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+            log.warn("DH key pair generation failed, pool is no longer filled", t);
+        }
+    }
+
+    /**
+     * @return maximum number of key pairs kept ready
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return number of key pairs ready for use
+     */
+    public int getAvailable() {
+        return keyPairs != null ? keyPairs.size() : 0;
+    }
+
+    /**
+     * @return number of key pairs taken from the pool
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of key pairs generated by the caller because the pool was empty
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+}
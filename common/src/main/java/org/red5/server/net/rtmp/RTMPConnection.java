@@ -20,10 +20,12 @@ import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -72,6 +74,7 @@ import org.red5.server.service.PendingCall;
 import org.red5.server.so.FlexSharedObjectMessage;
 import org.red5.server.so.ISharedObjectEvent;
 import org.red5.server.so.SharedObjectMessage;
+import org.red5.server.so.SharedObjectUpdate;
 import org.red5.server.stream.AbstractClientStream;
 import org.red5.server.stream.ClientBroadcastStream;
 import org.red5.server.stream.OutputStream;
@@ -361,9 +364,25 @@ public abstract class RTMPConnection extends BaseConnection implements IStreamCa
     protected ScheduledFuture<?> keepAliveTask;
 
     /**
-     * Executor for received RTMP messages.
+     * Executor for received RTMP messages, created on first use when no shared receive dispatch executor is configured.
      */
-    protected transient ExecutorService receivedPacketExecutor = Executors.newSingleThreadExecutor();
+    protected transient ExecutorService receivedPacketExecutor;
+
+    /**
+     * Shared executor which drains the received packet queues of many connections. When set, no receive thread is created for this
+     * connection; a drain task is queued whenever packets are waiting and only one such task runs at a time per connection.
+     */
+    protected transient Executor receiveDispatchExecutor;
+
+    /**
+     * Whether or not a drain of the received packet queue is scheduled on the shared receive dispatch executor.
+     */
+    protected final AtomicBoolean receiveDispatchScheduled = new AtomicBoolean(false);
+
+    /**
+     * Maximum number of packets handled by a single drain task before yielding the shared executor to other connections.
+     */
+    private int receiveDispatchBatchSize = 32;
 
     /**
      * Future which takes packets from the queue and passes them to the handler.
@@ -1060,6 +1079,10 @@ public abstract class RTMPConnection extends BaseConnection implements IStreamCa
             if (decoderState != null) {
                 decoderState.stopDecoding();
             }
+            // let the receive thread exit, if this connection has one
+            if (receivedPacketExecutor != null) {
+                receivedPacketExecutor.shutdown();
+            }
         } else if (isDebug) {
             log.debug("Already closing..");
         }
@@ -1462,14 +1485,60 @@ public abstract class RTMPConnection extends BaseConnection implements IStreamCa
             // increment the queue size
             receivedQueueSizeUpdater.incrementAndGet(this);
         }
-        // create the future package for processing the queue as needed
-        if (receivedPacketFuture == null) {
+        if (receiveDispatchExecutor != null) {
+            // drain the queue on the shared executor
+            scheduleReceiveDispatch();
+        } else if (receivedPacketFuture == null) {
+            // create the future package for processing the queue as needed
             final RTMPConnection conn = this;
             prepareFuturePackage(packet, conn);//TODO
         }
     }
 
+    /**
+     * Queues a drain of the received packet queue on the shared receive dispatch executor, unless one is already queued or running.
+     */
+    private void scheduleReceiveDispatch() {
+        if (receiveDispatchScheduled.compareAndSet(false, true)) {
+            try {
+                receiveDispatchExecutor.execute(this::dispatchReceivedPackets);
+            } catch (RejectedExecutionException e) {
+                receiveDispatchScheduled.set(false);
+                log.warn("Receive dispatch rejected for {} queued: {}", sessionId, receivedQueueSize, e);
+            }
+        }
+    }
+
+    /**
+     * Passes up to receiveDispatchBatchSize queued packets to the handler in arrival order. Packets arriving during or after the drain
+     * are picked up by a new drain task, so the packets of this connection are never handled by two drain tasks at the same time.
+     */
+    private void dispatchReceivedPackets() {
+        try {
+            if (state.getState() < RTMP.STATE_ERROR) {
+                Packet p;
+                int count = 0;
+                while (count++ < receiveDispatchBatchSize && (p = receivedPacketQueue.poll()) != null) {
+                    createFuturePackage(p, this, p);
+                }
+            } else {
+                // same as the receive thread exiting, nothing more will be handled for this connection
+                receivedPacketQueue.clear();
+            }
+        } catch (Exception e) {
+            log.error("Error processing received message {} state: {}", sessionId, RTMP.states[getStateCode()], e);
+        } finally {
+            receiveDispatchScheduled.set(false);
+        }
+        if (!receivedPacketQueue.isEmpty()) {
+            scheduleReceiveDispatch();
+        }
+    }
+
     private void prepareFuturePackage(Packet packet, RTMPConnection conn) {
+        if (receivedPacketExecutor == null) {
+            receivedPacketExecutor = Executors.newSingleThreadExecutor();
+        }
         receivedPacketFuture = receivedPacketExecutor.submit(() -> {
             Thread.currentThread().setName(String.format("RTMPRecv@%s", sessionId));
             try {
@@ -1602,9 +1671,27 @@ public abstract class RTMPConnection extends BaseConnection implements IStreamCa
      *            shared object events
      */
     public void sendSharedObjectMessage(String name, int currentVersion, boolean persistent, Set<ISharedObjectEvent> events) {
+        sendSharedObjectMessage(name, currentVersion, persistent, events, null);
+    }
+
+    /**
+     * Send a shared object update which is shared with the other listeners of the shared object; the message body is encoded only once for
+     * all the connections with the same encoding.
+     *
+     * @param update
+     *            shared object update
+     */
+    public void sendSharedObjectMessage(SharedObjectUpdate update) {
+        sendSharedObjectMessage(update.getName(), update.getVersion(), update.isPersistent(), update.getEvents(), update);
+    }
+
+    private void sendSharedObjectMessage(String name, int currentVersion, boolean persistent, Set<ISharedObjectEvent> events, SharedObjectUpdate update) {
         // create a new sync message for every client to avoid concurrent access through multiple threads
         SharedObjectMessage syncMessage = state.getEncoding() == Encoding.AMF3 ? new FlexSharedObjectMessage(null, name, currentVersion, persistent) : new SharedObjectMessage(null, name, currentVersion, persistent);
         syncMessage.addEvents(events);
+        if (update != null) {
+            syncMessage.setUpdate(update);
+        }
         try {
             // get the channel for so updates
             Optional.ofNullable(getChannel(3)).ifPresent(c -> c.write(syncMessage));
@@ -1726,6 +1813,28 @@ public abstract class RTMPConnection extends BaseConnection implements IStreamCa
         this.executor = executor;
     }
 
+    public Executor getReceiveDispatchExecutor() {
+        return receiveDispatchExecutor;
+    }
+
+    /**
+     * Sets a shared executor for draining received packets, replacing the receive thread per connection.
+     *
+     * @param receiveDispatchExecutor
+     *            shared executor, such as a work-stealing pool
+     */
+    public void setReceiveDispatchExecutor(Executor receiveDispatchExecutor) {
+        this.receiveDispatchExecutor = receiveDispatchExecutor;
+    }
+
+    public int getReceiveDispatchBatchSize() {
+        return receiveDispatchBatchSize;
+    }
+
+    public void setReceiveDispatchBatchSize(int receiveDispatchBatchSize) {
+        this.receiveDispatchBatchSize = receiveDispatchBatchSize;
+    }
+
 
     /**
      * Registers deferred result.
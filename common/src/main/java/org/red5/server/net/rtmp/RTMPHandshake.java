@@ -9,10 +9,10 @@ package org.red5.server.net.rtmp;
 
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import java.security.KeyFactory;
 import java.security.KeyPair;
-import java.security.KeyPairGenerator;
 import java.security.PublicKey;
 import java.security.Security;
 import java.security.spec.KeySpec;
@@ -23,7 +23,6 @@ import javax.crypto.Cipher;
 import javax.crypto.KeyAgreement;
 import javax.crypto.Mac;
 import javax.crypto.interfaces.DHPublicKey;
-import javax.crypto.spec.DHParameterSpec;
 import javax.crypto.spec.DHPublicKeySpec;
 import javax.crypto.spec.SecretKeySpec;
 
@@ -118,6 +117,15 @@ public abstract class RTMPHandshake implements IHandshake {
 
     protected static final Random random = new Random();
 
+    // Mac instances are reused by the handshakes on the same thread, they are re-initialized with the key for each digest
+    private static final ThreadLocal<Mac> HMAC_SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance("Hmac-SHA256", BouncyCastleProvider.PROVIDER_NAME);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    });
+
     protected KeyAgreement keyAgreement;
 
     protected Cipher cipherOut;
@@ -222,11 +230,9 @@ public abstract class RTMPHandshake implements IHandshake {
      */
     protected KeyPair generateKeyPair() {
         KeyPair keyPair = null;
-        DHParameterSpec keySpec = new DHParameterSpec(DH_MODULUS, DH_BASE);
         try {
-            KeyPairGenerator keyGen = KeyPairGenerator.getInstance("DH");
-            keyGen.initialize(keySpec);
-            keyPair = keyGen.generateKeyPair();
+            // pre-generated keys are used once, then discarded
+            keyPair = DHKeyPairPool.getInstance().take();
             keyAgreement = KeyAgreement.getInstance("DH");
             // key agreement is initialized with "this" ends private key
             keyAgreement.init(keyPair.getPrivate());
@@ -372,16 +378,12 @@ public abstract class RTMPHandshake implements IHandshake {
             log.trace("calculateHMAC_SHA256 - keyLen: {} key: {}", keyLen, Hex.encodeHexString(Arrays.copyOf(key, keyLen)));
             //log.trace("calculateHMAC_SHA256 - digestOffset: {} digest: {}", digestOffset, Hex.encodeHexString(Arrays.copyOfRange(digest, digestOffset, digestOffset + DIGEST_LENGTH)));
         }
-        byte[] calcDigest;
         try {
-            Mac hmac = Mac.getInstance("Hmac-SHA256", BouncyCastleProvider.PROVIDER_NAME);
-            hmac.init(new SecretKeySpec(Arrays.copyOf(key, keyLen), "HmacSHA256"));
-            byte[] actualMessage = Arrays.copyOfRange(message, messageOffset, messageOffset + messageLen);
-            calcDigest = hmac.doFinal(actualMessage);
-            //if (log.isTraceEnabled()) {
-            //    log.trace("Calculated digest: {}", Hex.encodeHexString(calcDigest));
-            //}
-            System.arraycopy(calcDigest, 0, digest, digestOffset, DIGEST_LENGTH);
+            Mac hmac = HMAC_SHA256.get();
+            // keys shorter than the given length are zero padded
+            hmac.init(keyLen <= key.length ? new SecretKeySpec(key, 0, keyLen, "HmacSHA256") : new SecretKeySpec(Arrays.copyOf(key, keyLen), "HmacSHA256"));
+            hmac.update(message, messageOffset, messageLen);
+            hmac.doFinal(digest, digestOffset);
         } catch (InvalidKeyException e) {
             log.error("Invalid key", e);
         } catch (Exception e) {
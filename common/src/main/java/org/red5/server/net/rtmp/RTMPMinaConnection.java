@@ -146,6 +146,13 @@ public class RTMPMinaConnection extends RTMPConnection implements RTMPMinaConnec
         }
     }
 
+    /**
+     * Closes the connection, exposed as the close operation of the MXBean.
+     */
+    public void close() {
+        closeConnection();
+    }
+
     /**
      * Return MINA I/O session.
      *
@@ -50,30 +50,29 @@ public class RTMPMinaProtocolDecoder extends ProtocolDecoderAdapter {
             if (conn != null) {
                 // set the connection to local if its referred to by this session
                 Red5.setConnectionLocal(conn);
-                // copy data range from incoming
                 if (log.isTraceEnabled()) {
                     log.trace("Incomming: position {}, limit {}, remaining {}", new Object[] { in.position(), in.limit(), in.remaining() });
                 }
-                byte[] arr = new byte[in.remaining()];
-                in.get(arr);
-                // create a buffer and store it on the session
+                // data left over from the previous read, such as a partial chunk
                 IoBuffer buf = (IoBuffer) session.getAttribute("buffer");
-                if (buf == null) {
-                    buf = IoBuffer.allocate(arr.length);
-                    buf.setAutoExpand(true);
-                    session.setAttribute("buffer", buf);
+                IoBuffer source;
+                if (buf == null || buf.position() == 0) {
+                    // nothing is left over, decode straight from the incoming data; the decoder compacts what it cannot use to the front of the slice
+                    source = in.slice();
+                    in.position(in.limit());
+                } else {
+                    // append incoming to the leftover data
+                    buf.put(in);
+                    // flip so we can read
+                    buf.flip();
+                    source = buf;
                 }
-                // copy incoming into buffer
-                buf.put(arr);
-                // flip so we can read
-                buf.flip();
                 if (log.isTraceEnabled()) {
-                    //log.trace("Buffer before: {}", Hex.encodeHexString(arr));
-                    log.trace("Buffers info before: position {}, limit {}, remaining {}", new Object[] { buf.position(), buf.limit(), buf.remaining() });
+                    log.trace("Buffers info before: position {}, limit {}, remaining {}", new Object[] { source.position(), source.limit(), source.remaining() });
                 }
                 try {
                     // construct any objects from the decoded buffer
-                    List<?> objects = decoder.decodeBuffer(conn, buf);
+                    List<?> objects = decoder.decodeBuffer(conn, source);
                     log.trace("Decoded: {}", objects);
                     if (objects != null) {
                         int writeCount = 0;
@@ -89,9 +88,18 @@ public class RTMPMinaProtocolDecoder extends ProtocolDecoderAdapter {
                     // clear local
                     Red5.setConnectionLocal(null);
                 }
+                if (source != buf && source.position() > 0) {
+                    // keep the undecoded remainder for the next read, the incoming buffer is not ours to keep
+                    if (buf == null) {
+                        buf = IoBuffer.allocate(source.position());
+                        buf.setAutoExpand(true);
+                        session.setAttribute("buffer", buf);
+                    }
+                    source.flip();
+                    buf.put(source);
+                }
                 if (log.isTraceEnabled()) {
-                    //log.trace("Buffer after: {}", Hex.encodeHexString(Arrays.copyOfRange(buf.array(), buf.position(), buf.limit())));
-                    log.trace("Buffers info after: position {}, limit {}, remaining {}", new Object[] { buf.position(), buf.limit(), buf.remaining() });
+                    log.trace("Buffers info after: position {}, limit {}, remaining {}", new Object[] { source.position(), source.limit(), source.remaining() });
                 }
             } else {
                 log.debug("Closing and skipping decode for unregistered connection: {}", sessionId);
@@ -8,7 +8,6 @@
 package org.red5.server.net.rtmp.codec;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -134,7 +133,12 @@ public class RTMPProtocolDecoder implements Constants, IEventDecoder {
                     }
                 }
             } catch (Exception ex) {
-                log.warn("Failed to decodeBuffer: pos {}, limit {}, chunk size {}, buffer {}", position, buffer.limit(), conn.getState().getReadChunkSize(), Hex.encodeHexString(Arrays.copyOfRange(buffer.array(), position, buffer.limit())));
+                // copy with absolute positions, the buffer may be a slice or direct
+                byte[] data = new byte[buffer.limit() - position];
+                for (int i = 0; i < data.length; i++) {
+                    data[i] = buffer.get(position + i);
+                }
+                log.warn("Failed to decodeBuffer: pos {}, limit {}, chunk size {}, buffer {}", position, buffer.limit(), conn.getState().getReadChunkSize(), Hex.encodeHexString(data));
                 // catch any non-handshake exception in the decoding; close the connection
                 log.warn("Closing connection because decoding failed: {}", conn, ex);
                 // clear the buffer to eliminate memory leaks when we can't parse protocol
@@ -278,15 +282,14 @@ public class RTMPProtocolDecoder implements Constants, IEventDecoder {
             in.position(position);
             return null;
         }
-        // get the chunk from our input
-        byte[] chunk = Arrays.copyOfRange(in.array(), in.position(), in.position() + length);
         if (isTrace) {
-            log.trace("Read chunkSize: {}, length: {}, chunk: {}", readChunkSize, length, Hex.encodeHexString(chunk));
+            log.trace("Read chunkSize: {}, length: {}", readChunkSize, length);
         }
-        // move the position
-        in.skip(length);
-        // put the chunk into the packet
-        buf.put(chunk);
+        // put the chunk into the packet, copying directly from our input and moving its position
+        final int limit = in.limit();
+        in.limit(in.position() + length);
+        buf.put(in);
+        in.limit(limit);
         if (buf.hasRemaining()) {
             if (isTrace) {
                 log.trace("Packet is incomplete ({},{})", buf.remaining(), buf.limit());
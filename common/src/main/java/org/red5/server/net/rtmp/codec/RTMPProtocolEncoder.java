@@ -32,6 +32,7 @@ import org.red5.server.net.rtmp.event.FlexMessage;
 import org.red5.server.net.rtmp.event.FlexStreamSend;
 import org.red5.server.net.rtmp.event.IRTMPEvent;
 import org.red5.server.net.rtmp.event.Invoke;
+import org.red5.server.net.rtmp.event.ManageData;
 import org.red5.server.net.rtmp.event.Notify;
 import org.red5.server.net.rtmp.event.Ping;
 import org.red5.server.net.rtmp.event.SWFResponse;
@@ -40,6 +41,7 @@ import org.red5.server.net.rtmp.event.SetBuffer;
 import org.red5.server.net.rtmp.event.Unknown;
 import org.red5.server.net.rtmp.event.VideoData;
 import org.red5.server.net.rtmp.event.VideoData.FrameType;
+import org.red5.server.net.rtmp.message.ChunkedPayload;
 import org.red5.server.net.rtmp.message.Constants;
 import org.red5.server.net.rtmp.message.Header;
 import org.red5.server.net.rtmp.message.Packet;
@@ -50,6 +52,8 @@ import org.red5.server.net.rtmp.status.StatusObject;
 import org.red5.server.service.Call;
 import org.red5.server.so.ISharedObjectEvent;
 import org.red5.server.so.ISharedObjectMessage;
+import org.red5.server.so.SharedObjectMessage;
+import org.red5.server.so.SharedObjectUpdate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -158,22 +162,36 @@ public class RTMPProtocolEncoder implements Constants, IEventEncoder {
                 if (log.isTraceEnabled()) {
                     log.trace("Channel id: {} chunkSize: {}", channelId, chunkSize);
                 }
-                // attempt to properly guess the size of the buffer we'll need
-                int bufSize = dataLen + 18 + (numChunks * 2);
+                // size the buffer for the first header, the data and a basic header per continuation chunk; only an extended timestamp will need expansion
+                int bufSize = calculateHeaderSize(header, lastHeader) + dataLen + ((numChunks - 1) * getBasicHeaderSize(channelId));
                 //log.trace("Allocated buffer size: {}", bufSize);
                 out = IoBuffer.allocate(bufSize, false);
                 out.setAutoExpand(true);
-                do {
-                    // encode the header
-                    encodeHeader(header, lastHeader, out);
-                    // write a chunk
-                    byte[] buf = new byte[Math.min(chunkSize, data.remaining())];
-                    data.get(buf);
-                    //log.trace("Buffer: {}", Hex.encodeHexString(buf));
-                    out.put(buf);
-                    // move header over to last header
-                    lastHeader = header.clone();
-                } while (data.hasRemaining());
+                // encode the header for the first chunk
+                encodeHeader(header, lastHeader, out);
+                // move header over to last header, continuation chunks do not modify it
+                lastHeader = header.clone();
+                // payload chunks shared with other subscribers of the same live stream or listeners of the same shared object update
+                ChunkedPayload chunkedPayload = numChunks > 1 ? getChunkedPayload(message) : null;
+                if (chunkedPayload != null && !header.isExtended()) {
+                    // write all the chunks, the continuation headers are the same for every connection on this channel
+                    out.put(chunkedPayload.getChunks(data, channelId, chunkSize));
+                } else {
+                    final int dataLimit = data.limit();
+                    do {
+                        if (data.position() > 0) {
+                            // continuation header, same as encodeHeader with the last header being a copy of this one
+                            RTMPUtils.encodeHeaderByte(out, HEADER_CONTINUE, channelId);
+                            if (header.isExtended()) {
+                                out.putInt(header.getTimerBase());
+                            }
+                        }
+                        // write a chunk directly from the data
+                        data.limit(Math.min(data.position() + chunkSize, dataLimit));
+                        out.put(data);
+                        data.limit(dataLimit);
+                    } while (data.hasRemaining());
+                }
                 // collapse the time stamps on the last header after decode is complete
                 lastHeader.setTimerBase(lastHeader.getTimer());
                 // clear the delta
@@ -379,6 +397,22 @@ public class RTMPProtocolEncoder implements Constants, IEventEncoder {
         return RTMPUtils.getHeaderLength(headerType) + channelIdAdd;
     }
 
+    /**
+     * Returns the number of bytes used by a basic (type 3) header on the given channel.
+     *
+     * @param channelId
+     *            channel id
+     * @return basic header size
+     */
+    private static int getBasicHeaderSize(int channelId) {
+        if (channelId > 319) {
+            return 3;
+        } else if (channelId > 63) {
+            return 2;
+        }
+        return 1;
+    }
+
     /**
      * Encode RTMP header.
      *
@@ -618,31 +652,80 @@ public class RTMPProtocolEncoder implements Constants, IEventEncoder {
 
     /** {@inheritDoc} */
     public IoBuffer encodeFlexSharedObject(ISharedObjectMessage so) {
-        final IoBuffer out = IoBuffer.allocate(128);
-        out.setAutoExpand(true);
-        out.put((byte) 0x00); // unknown (not AMF version)
-        doEncodeSharedObject(so, out);
-        return out;
+        return encodeSharedObject(so, true);
     }
 
     /** {@inheritDoc} */
     public IoBuffer encodeSharedObject(ISharedObjectMessage so) {
+        return encodeSharedObject(so, false);
+    }
+
+    /**
+     * Encode a shared object message. The body of an update sent to several listeners is encoded by the first connection with a given encoding
+     * and reused by the others.
+     *
+     * @param so
+     *            shared object message
+     * @param flex
+     *            whether this is a flex shared object message
+     * @return encoded message
+     */
+    private IoBuffer encodeSharedObject(ISharedObjectMessage so, boolean flex) {
+        final Encoding encoding = Red5.getConnectionLocal().getEncoding();
+        final SharedObjectUpdate update = so instanceof SharedObjectMessage ? ((SharedObjectMessage) so).getUpdate() : null;
+        if (update != null) {
+            byte[] body = update.getBody(encoding);
+            if (body != null) {
+                return IoBuffer.wrap(body);
+            }
+        }
         final IoBuffer out = IoBuffer.allocate(128);
         out.setAutoExpand(true);
-        doEncodeSharedObject(so, out);
+        if (flex) {
+            out.put((byte) 0x00); // unknown (not AMF version)
+        }
+        doEncodeSharedObject(so, encoding, out);
+        if (update != null) {
+            out.flip();
+            byte[] body = new byte[out.remaining()];
+            out.get(body);
+            out.free();
+            return IoBuffer.wrap(update.setBody(encoding, body));
+        }
         return out;
     }
 
+    /**
+     * Returns the chunks of a message payload which are shared with other connections, if any.
+     *
+     * @param message
+     *            message
+     * @return shared chunked payload or null
+     */
+    private ChunkedPayload getChunkedPayload(IRTMPEvent message) {
+        if (message instanceof ManageData) {
+            return ((ManageData) message).getChunkedPayload();
+        }
+        if (message instanceof SharedObjectMessage) {
+            SharedObjectUpdate update = ((SharedObjectMessage) message).getUpdate();
+            if (update != null) {
+                return update.getChunkedPayload(Red5.getConnectionLocal().getEncoding());
+            }
+        }
+        return null;
+    }
+
     /**
      * Perform the actual encoding of the shared object contents.
      *
      * @param so
      *            shared object
+     * @param encoding
+     *            encoding of the attribute values
      * @param out
      *            output buffer
      */
-    private void doEncodeSharedObject(ISharedObjectMessage so, IoBuffer out) {
-        final Encoding encoding = Red5.getConnectionLocal().getEncoding();
+    private void doEncodeSharedObject(ISharedObjectMessage so, Encoding encoding, IoBuffer out) {
         final Output output = new org.red5.io.amf.Output(out);
         final Output amf3output = new org.red5.io.amf3.Output(out);
         output.putString(so.getName());
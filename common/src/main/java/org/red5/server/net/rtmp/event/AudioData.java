@@ -99,6 +99,7 @@ public class AudioData extends ManageData implements IStreamPacket {
             data.free();
             data = null;
         }
+        chunkedPayload = null;
     }
 
     @Override
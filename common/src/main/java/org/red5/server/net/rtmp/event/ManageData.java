@@ -1,12 +1,18 @@
 package org.red5.server.net.rtmp.event;
 
 import org.apache.mina.core.buffer.IoBuffer;
+import org.red5.server.net.rtmp.message.ChunkedPayload;
 import org.red5.server.stream.IStreamData;
 
 import java.io.*;
 
 public abstract class ManageData extends BaseEvent implements IStreamData<AudioData> {
 
+    /**
+     * Chunked payload shared with the other copies of this event, if any
+     */
+    protected transient volatile ChunkedPayload chunkedPayload;
+
     /**
      * Create video data event with given data buffer
      *
@@ -36,6 +42,44 @@ public abstract class ManageData extends BaseEvent implements IStreamData<AudioD
 
     public abstract void setData(IoBuffer data);
 
+    /**
+     * Returns the chunked payload shared by the copies of this event.
+     *
+     * @return chunked payload or null if the payload is not shared
+     */
+    public ChunkedPayload getChunkedPayload() {
+        return chunkedPayload;
+    }
+
+    /**
+     * Sets the chunked payload shared by the copies of this event.
+     *
+     * @param chunkedPayload
+     *            chunked payload
+     */
+    public void setChunkedPayload(ChunkedPayload chunkedPayload) {
+        this.chunkedPayload = chunkedPayload;
+    }
+
+    /**
+     * Returns the chunked payload for this event, creating it if needed. Used where an event is fanned out to many subscribers, so its payload is chunked once per
+     * chunk size rather than once per subscriber.
+     *
+     * @return chunked payload
+     */
+    public ChunkedPayload shareChunkedPayload() {
+        ChunkedPayload result = chunkedPayload;
+        if (result == null) {
+            synchronized (this) {
+                result = chunkedPayload;
+                if (result == null) {
+                    chunkedPayload = result = new ChunkedPayload();
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Duplicate this message / event.
      *
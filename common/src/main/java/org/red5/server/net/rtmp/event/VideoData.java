@@ -82,6 +82,19 @@ public class VideoData extends ManageData implements IoConstants, IStreamPacket
         setData(data);
     }
 
+    public VideoData(IoBuffer data, boolean copy) {
+        super(Type.STREAM_DATA);
+        if (copy) {
+            byte[] array = new byte[data.remaining()];
+            data.mark();
+            data.get(array);
+            data.reset();
+            setData(array);
+        } else {
+            setData(data);
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public byte getDataType() {
@@ -159,6 +172,7 @@ public class VideoData extends ManageData implements IoConstants, IStreamPacket
             localData.clear();
             localData.free();
         }
+        chunkedPayload = null;
     }
 
     @Override
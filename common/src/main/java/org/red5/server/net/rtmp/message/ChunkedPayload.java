@@ -0,0 +1,98 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.server.net.rtmp.message;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.red5.server.net.rtmp.RTMPUtils;
+
+/**
+ * Chunked form of a stream payload which is shared by every subscriber of a live stream. The payload is split into chunks once per chunk size and channel id, with the
+ * continuation (type 3) chunk headers already in place; an encoder only has to write the leading chunk header for its own connection and then copy the bytes in one go.
+ */
+public class ChunkedPayload {
+
+    /**
+     * Maximum number of chunk size / channel id combinations kept for a single payload
+     */
+    private static final int MAX_ENTRIES = 8;
+
+    /**
+     * Chunked bytes keyed by chunk size (upper 32 bits) and channel id (lower 32 bits)
+     */
+    private final ConcurrentMap<Long, byte[]> chunks = new ConcurrentHashMap<>(4);
+
+    /**
+     * Returns the payload body with continuation headers for the given channel and chunk size; the leading chunk header is not included. The chunked bytes are created from
+     * the given data on the first request and reused afterwards. The position of the data buffer is not modified.
+     *
+     * @param data
+     *            payload data
+     * @param channelId
+     *            channel id for the continuation headers
+     * @param chunkSize
+     *            chunk size
+     * @return chunked bytes
+     */
+    public byte[] getChunks(IoBuffer data, int channelId, int chunkSize) {
+        Long key = ((long) chunkSize << 32) | (channelId & 0xffffffffL);
+        byte[] result = chunks.get(key);
+        if (result == null) {
+            result = chunk(data, channelId, chunkSize);
+            if (chunks.size() < MAX_ENTRIES) {
+                byte[] existing = chunks.putIfAbsent(key, result);
+                if (existing != null) {
+                    result = existing;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of cached chunk size / channel id combinations.
+     *
+     * @return cached entry count
+     */
+    public int size() {
+        return chunks.size();
+    }
+
+    /**
+     * Splits the remaining data into chunks, inserting a type 3 header in front of every chunk but the first.
+     *
+     * @param data
+     *            payload data
+     * @param channelId
+     *            channel id
+     * @param chunkSize
+     *            chunk size
+     * @return chunked bytes
+     */
+    private static byte[] chunk(IoBuffer data, int channelId, int chunkSize) {
+        final IoBuffer src = data.duplicate();
+        final int dataLen = src.remaining();
+        final int numChunks = (int) Math.ceil(dataLen / (float) chunkSize);
+        final int basicHeaderLen = channelId > 319 ? 3 : (channelId > 63 ? 2 : 1);
+        final byte[] result = new byte[dataLen + ((numChunks - 1) * basicHeaderLen)];
+        final IoBuffer out = IoBuffer.wrap(result);
+        int limit = src.limit();
+        for (int i = 0; i < numChunks; i++) {
+            if (i > 0) {
+                RTMPUtils.encodeHeaderByte(out, Constants.HEADER_CONTINUE, channelId);
+            }
+            src.limit(Math.min(src.position() + chunkSize, limit));
+            out.put(src);
+            src.limit(limit);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.server.net.rtmpe;
+
+import java.nio.ByteBuffer;
+
+import javax.crypto.Cipher;
+import javax.crypto.ShortBufferException;
+
+import org.apache.mina.core.buffer.IoBuffer;
+
+/**
+ * Runs the RTMPE stream ciphers over the byte buffers of the messages, without copying the messages into intermediate arrays.
+ *
+ * @author The Red5 Project
+ */
+public class RTMPEUtils {
+
+    /**
+     * Decrypts the remaining bytes of a buffer in place. The buffer must not be shared, the read buffers of a session are not.
+     *
+     * @param cipher
+     *            decryption cipher
+     * @param message
+     *            encrypted message
+     * @return the given buffer, holding the decrypted message
+     * @throws ShortBufferException
+     *             if the cipher output does not fit, which does not happen for a stream cipher
+     */
+    public static IoBuffer decrypt(Cipher cipher, IoBuffer message) throws ShortBufferException {
+        ByteBuffer buf = message.buf();
+        // the cipher rejects the same buffer as input and output, duplicates share the contents
+        cipher.update(buf.duplicate(), buf.duplicate());
+        return message;
+    }
+
+    /**
+     * Encrypts the remaining bytes of a buffer into a newly allocated buffer, since outgoing messages may share their contents with the messages for other connections.
+     * The remaining bytes of the given buffer are consumed.
+     *
+     * @param cipher
+     *            encryption cipher
+     * @param message
+     *            message to encrypt
+     * @return buffer holding the encrypted message
+     * @throws ShortBufferException
+     *             if the cipher output does not fit, which does not happen for a stream cipher
+     */
+    public static IoBuffer encrypt(Cipher cipher, IoBuffer message) throws ShortBufferException {
+        IoBuffer encrypted = IoBuffer.allocate(cipher.getOutputSize(message.remaining()));
+        cipher.update(message.buf(), encrypted.buf());
+        encrypted.flip();
+        return encrypted;
+    }
+
+}
@@ -0,0 +1,277 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.server.persistence;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.red5.server.api.persistence.IJournalPersistenceStore;
+import org.red5.server.api.persistence.IPersistable;
+import org.red5.server.api.persistence.IPersistenceStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.TaskScheduler;
+
+/**
+ * Persistence store which passes saves on to another store after a delay, so that repeated saves of an object within the write-behind
+ * window are written once and the store is not called in the update path of the object. When the number of objects waiting to be saved
+ * exceeds its bound, the caller saves the waiting objects itself. Lookups, removals and closing the store save the waiting objects first.
+ *
+ * @author The Red5 Project
+ */
+public class WriteBehindPersistence implements IJournalPersistenceStore {
+
+    private static Logger log = LoggerFactory.getLogger(WriteBehindPersistence.class);
+
+    /**
+     * Store the saves are passed on to
+     */
+    private final IPersistenceStore store;
+
+    /**
+     * Scheduler for the deferred saves
+     */
+    private final TaskScheduler scheduler;
+
+    /**
+     * Write-behind window in milliseconds
+     */
+    private final long window;
+
+    /**
+     * Maximum number of objects waiting to be saved
+     */
+    private final int maxPending;
+
+    private final Statistics statistics;
+
+    /**
+     * Objects waiting to be saved
+     */
+    private final Set<IPersistable> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a write-behind store.
+     *
+     * @param store
+     *            Store the saves are passed on to
+     * @param scheduler
+     *            Scheduler for the deferred saves
+     * @param window
+     *            Write-behind window in milliseconds
+     * @param maxPending
+     *            Maximum number of objects waiting to be saved
+     * @param statistics
+     *            Statistics to update, may be shared between stores
+     */
+    public WriteBehindPersistence(IPersistenceStore store, TaskScheduler scheduler, long window, int maxPending, Statistics statistics) {
+        this.store = store;
+        this.scheduler = scheduler;
+        this.window = window;
+        this.maxPending = maxPending;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Returns the store the saves are passed on to.
+     *
+     * @return store
+     */
+    public IPersistenceStore getStore() {
+        return store;
+    }
+
+    /**
+     * Returns the number of objects waiting to be saved.
+     *
+     * @return pending object count
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /** {@inheritDoc} */
+    public boolean save(IPersistable object) {
+        statistics.requests.increment();
+        if (pending.add(object)) {
+            statistics.backlog.increment();
+            if (pending.size() > maxPending) {
+                log.debug("Write-behind backlog of {} objects, saving in the caller", pending.size());
+                flush();
+            } else {
+                try {
+                    scheduler.schedule(() -> flush(object), Instant.now().plusMillis(window));
+                } catch (TaskRejectedException e) {
+                    // scheduler is shutting down
+                    flush(object);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Saves the given object if it is waiting to be saved.
+     *
+     * @param object
+     *            persistable object
+     */
+    private void flush(IPersistable object) {
+        if (pending.remove(object)) {
+            statistics.backlog.decrement();
+            long start = System.nanoTime();
+            try {
+                if (!store.save(object)) {
+                    log.warn("Could not store {}", object);
+                }
+            } catch (Throwable t) {
+                log.error("Error while saving {}", object, t);
+            } finally {
+                statistics.saved(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Saves all the objects waiting to be saved.
+     */
+    public void flush() {
+        pending.forEach(this::flush);
+    }
+
+    /** {@inheritDoc} */
+    public void attributeChanged(IPersistable object, String name, Object value) {
+        // changes are recorded as they happen, only the save is deferred
+        if (store instanceof IJournalPersistenceStore) {
+            ((IJournalPersistenceStore) store).attributeChanged(object, name, value);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public IPersistable load(String name) {
+        flush();
+        return store.load(name);
+    }
+
+    /** {@inheritDoc} */
+    public boolean load(IPersistable object) {
+        flush();
+        return store.load(object);
+    }
+
+    /** {@inheritDoc} */
+    public boolean remove(IPersistable object) {
+        if (pending.remove(object)) {
+            statistics.backlog.decrement();
+        }
+        return store.remove(object);
+    }
+
+    /** {@inheritDoc} */
+    public boolean remove(String name) {
+        flush();
+        return store.remove(name);
+    }
+
+    /** {@inheritDoc} */
+    public Set<String> getObjectNames() {
+        flush();
+        return store.getObjectNames();
+    }
+
+    /** {@inheritDoc} */
+    public Collection<IPersistable> getObjects() {
+        flush();
+        return store.getObjects();
+    }
+
+    /** {@inheritDoc} */
+    public void notifyClose() {
+        flush();
+        store.notifyClose();
+    }
+
+    @Override
+    public String toString() {
+        return "WriteBehindPersistence [store=" + store + ", window=" + window + ", maxPending=" + maxPending + "]";
+    }
+
+    /**
+     * Save statistics of one or more write-behind stores.
+     */
+    public static class Statistics {
+
+        private final LongAdder requests = new LongAdder();
+
+        private final LongAdder saves = new LongAdder();
+
+        private final LongAdder saveNanos = new LongAdder();
+
+        private final AtomicLong maxSaveNanos = new AtomicLong();
+
+        private final LongAdder backlog = new LongAdder();
+
+        private void saved(long nanos) {
+            saves.increment();
+            saveNanos.add(nanos);
+            maxSaveNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        /**
+         * @return number of save requests
+         */
+        public long getSaveRequests() {
+            return requests.sum();
+        }
+
+        /**
+         * @return number of saves passed on to the stores
+         */
+        public long getSaves() {
+            return saves.sum();
+        }
+
+        /**
+         * @return save requests per save passed on to the stores
+         */
+        public double getCoalescingRatio() {
+            long count = saves.sum();
+            return count > 0 ? (double) requests.sum() / count : 0d;
+        }
+
+        /**
+         * @return average time spent in the stores per save in microseconds
+         */
+        public long getAverageSaveLatency() {
+            long count = saves.sum();
+            return count > 0 ? TimeUnit.NANOSECONDS.toMicros(saveNanos.sum() / count) : 0L;
+        }
+
+        /**
+         * @return longest time spent in a store for a save in microseconds
+         */
+        public long getMaxSaveLatency() {
+            return TimeUnit.NANOSECONDS.toMicros(maxSaveNanos.get());
+        }
+
+        /**
+         * @return number of objects waiting to be saved
+         */
+        public long getBacklog() {
+            return backlog.sum();
+        }
+
+    }
+
+}
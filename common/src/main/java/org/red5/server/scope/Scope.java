@@ -9,19 +9,19 @@ package org.red5.server.scope;
 
 import java.beans.ConstructorProperties;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.stream.Collectors;
 
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
@@ -490,6 +490,30 @@ public class Scope extends BasicScope implements IScope, IScopeStatistics, Scope
         return children.getBasicScope(type, name);
     }
 
+    /**
+     * Indexes the subscribe-side aliases of the stream published in a broadcast child scope, so broadcast lookups by alias do not walk the
+     * children. Called when a stream is attached to the scope and when the stream gets a new alias.
+     *
+     * @param child
+     *            broadcast child scope
+     */
+    public void addStreamAliases(IBasicScope child) {
+        if (children.contains(child)) {
+            children.addAliases(child);
+        }
+    }
+
+    /**
+     * Removes the subscribe-side aliases of the stream published in a broadcast child scope from the index, called before the stream clears
+     * its aliases.
+     *
+     * @param child
+     *            broadcast child scope
+     */
+    public void removeStreamAliases(IBasicScope child) {
+        children.removeAliases(child);
+    }
+
     /**
      * Return basic scope names matching given type.
      *
@@ -502,7 +526,7 @@ public class Scope extends BasicScope implements IScope, IScopeStatistics, Scope
             // if its broadcast type then also check aliases
             if (type == ScopeType.BROADCAST) {
                 final Set<String> broadcastNames = new HashSet<>();
-                Set<IBasicScope> broadcastScopes = children.stream().filter(child -> child.getType().equals(type)).collect(Collectors.toSet());
+                Set<IBasicScope> broadcastScopes = children.getBasicScopes(type);
                 broadcastScopes.forEach(bs -> {
                     // add the streams name
                     broadcastNames.add(bs.getName());
@@ -522,7 +546,7 @@ public class Scope extends BasicScope implements IScope, IScopeStatistics, Scope
                 });
                 return broadcastNames;
             } else {
-                return children.stream().filter(child -> child.getType().equals(type)).map(IBasicScope::getName).collect(Collectors.toSet());
+                return children.getNames(type);
             }
         }
         return getScopeNames();
@@ -1347,6 +1371,51 @@ public class Scope extends BasicScope implements IScope, IScopeStatistics, Scope
 
         private static final long serialVersionUID = 283917025588555L;
 
+        /**
+         * Child scopes by type and name, kept in step with the set so that lookups do not scan all the children
+         */
+        private transient Map<ScopeType, ConcurrentMap<String, IBasicScope>> index;
+
+        /**
+         * Broadcast child scopes by the subscribe-side aliases of their streams
+         */
+        private transient ConcurrentMap<String, IBasicScope> aliases;
+
+        ConcurrentScopeSet() {
+            createIndex();
+        }
+
+        private void createIndex() {
+            index = new EnumMap<>(ScopeType.class);
+            for (ScopeType type : ScopeType.values()) {
+                index.put(type, new ConcurrentHashMap<>());
+            }
+            aliases = new ConcurrentHashMap<>();
+        }
+
+        /**
+         * Rebuilds the index of the deserialized child scopes, it is not serialized with them.
+         */
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            createIndex();
+            for (IBasicScope scope : this) {
+                index.get(scope.getType()).put(scope.getName(), scope);
+                addAliases(scope);
+            }
+        }
+
+        /**
+         * Returns the child scopes of a given type by name.
+         *
+         * @param type
+         *            Scope type
+         * @return scopes by name
+         */
+        private Map<String, IBasicScope> byType(ScopeType type) {
+            return type != null ? index.get(type) : Collections.emptyMap();
+        }
+
         @Override
         public boolean add(IBasicScope scope) {
             boolean added = false;
@@ -1367,8 +1436,17 @@ public class Scope extends BasicScope implements IScope, IScopeStatistics, Scope
                 try {
                     // check #2 for entry
                     if (!contains(scope)) {
-                        // add the entry
-                        added = super.add(scope);
+                        // add the entry along with its index entries, under the lock of the name in the index
+                        boolean[] result = new boolean[1];
+                        index.get(scope.getType()).compute(scope.getName(), (name, current) -> {
+                            if (super.add(scope)) {
+                                addAliases(scope);
+                                result[0] = true;
+                                return scope;
+                            }
+                            return current;
+                        });
+                        added = result[0];
                         if (added) {
                             subscopeStats.increment();
                         } else {
@@ -1410,8 +1488,18 @@ public class Scope extends BasicScope implements IScope, IScopeStatistics, Scope
             } else {
                 log.debug("No handler found for {}", this);
             }
-            // remove the entry, ensure removed value is equal to the given object
-            if (super.remove(scope)) {
+            // remove the entry along with its index entries, under the lock of the name in the index
+            IBasicScope removed = (IBasicScope) scope;
+            boolean[] result = new boolean[1];
+            index.get(removed.getType()).compute(removed.getName(), (name, current) -> {
+                if (super.remove(removed)) {
+                    removeAliases(removed);
+                    result[0] = true;
+                    return null;
+                }
+                return current;
+            });
+            if (result[0]) {
                 subscopeStats.decrement();
                 return true;
             } else {
@@ -1420,6 +1508,43 @@ public class Scope extends BasicScope implements IScope, IScopeStatistics, Scope
             return false;
         }
 
+        @Override
+        public void clear() {
+            super.clear();
+            index.values().forEach(Map::clear);
+            aliases.clear();
+        }
+
+        /**
+         * Indexes the subscribe-side aliases of the stream published in a broadcast child scope.
+         *
+         * @param child
+         *            child scope
+         */
+        void addAliases(IBasicScope child) {
+            if (child instanceof IBroadcastScope) {
+                IClientBroadcastStream cbs = ((IBroadcastScope) child).getClientBroadcastStream();
+                if (cbs != null) {
+                    cbs.getAliases().forEach(alias -> aliases.put(alias, child));
+                }
+            }
+        }
+
+        /**
+         * Removes the subscribe-side aliases of the stream published in a broadcast child scope from the index.
+         *
+         * @param child
+         *            child scope
+         */
+        void removeAliases(IBasicScope child) {
+            if (child instanceof IBroadcastScope) {
+                IClientBroadcastStream cbs = ((IBroadcastScope) child).getClientBroadcastStream();
+                if (cbs != null) {
+                    cbs.getAliases().forEach(alias -> aliases.remove(alias, child));
+                }
+            }
+        }
+
         /**
          * Returns the scope names.
          *
@@ -1427,7 +1552,7 @@ public class Scope extends BasicScope implements IScope, IScopeStatistics, Scope
          */
         public Set<String> getNames() {
             Set<String> names = new HashSet<String>();
-            stream().forEach(child -> names.add(child.getName()));
+            index.values().forEach(scopes -> names.addAll(scopes.keySet()));
             return names;
         }
 
@@ -1441,7 +1566,7 @@ public class Scope extends BasicScope implements IScope, IScopeStatistics, Scope
                 log.debug("hasName: {}", name);
             }
             if (name != null) {
-                return stream().filter(child -> child.getName().equals(name)).findFirst().isPresent();
+                return getBasicScope(ScopeType.UNDEFINED, name) != null;
             } else {
                 log.info("Invalid scope name, null is not allowed");
             }
@@ -1456,7 +1581,18 @@ public class Scope extends BasicScope implements IScope, IScopeStatistics, Scope
          * @return set of scopes matching type
          */
         public Set<IBasicScope> getBasicScopes(ScopeType type) {
-            return stream().filter(child -> child.getType().equals(type)).collect(Collectors.toUnmodifiableSet());
+            return Set.copyOf(byType(type).values());
+        }
+
+        /**
+         * Returns the names of the child scopes for a given type.
+         *
+         * @param type
+         *            Scope type
+         * @return set of names
+         */
+        public Set<String> getNames(ScopeType type) {
+            return new HashSet<>(byType(type).keySet());
         }
 
         /**
@@ -1469,45 +1605,38 @@ public class Scope extends BasicScope implements IScope, IScopeStatistics, Scope
          * @return scope
          */
         public IBasicScope getBasicScope(ScopeType type, String name) {
-            Optional<IBasicScope> scope = null;
+            if (name == null) {
+                return null;
+            }
             // skip type check?
             if (ScopeType.UNDEFINED.equals(type)) {
-                scope = stream().filter(child -> child.getName().equals(name)).findFirst();
-            } else {
-                // if its broadcast type then allow an alias match in addition to the name match
-                if (ScopeType.BROADCAST.equals(type)) {
-                    // checks publish and subscribe aliases
-                    for (IBasicScope child : this) {
-                        // ensure type is broadcast type, since we'll pull out a cbs
-                        if (child.getType().equals(type)) {
-                            String childName = child.getName();
-                            IClientBroadcastStream cbs = ((IBroadcastScope) child).getClientBroadcastStream();
-                            if (cbs != null) {
-                                String pubName = cbs.getPublishedName();
-                                if (childName.equals(name)) {
-                                    log.debug("Scope found by name: {} on {}", name, pubName);
-                                    return child;
-                                } else if (cbs.containsAlias(name)) {
-                                    log.debug("Scope found with alias: {} on {}", name, pubName);
-                                    return child;
-                                } else {
-                                    log.debug("No match for name or alias of {} on published stream: {}", name, pubName);
-                                }
-                            } else {
-                                //log.debug("Broadcast scope: {} has no stream attached", name);
-                                if (childName.equals(name)) {
-                                    log.debug("Scope found by name: {} but has no stream", name);
-                                    return child;
-                                }
-                            }
-                        }
+                for (Map<String, IBasicScope> scopes : index.values()) {
+                    IBasicScope scope = scopes.get(name);
+                    if (scope != null) {
+                        return scope;
                     }
-                } else {
-                    scope = stream().filter(child -> child.getType().equals(type) && child.getName().equals(name)).findFirst();
                 }
+                return null;
+            }
+            Map<String, IBasicScope> scopes = byType(type);
+            IBasicScope scope = scopes.get(name);
+            if (scope != null) {
+                log.debug("Scope found by name: {}", name);
+                return scope;
             }
-            if (scope != null && scope.isPresent()) {
-                return scope.get();
+            // if its broadcast type then allow a subscribe alias match in addition to the name match
+            if (ScopeType.BROADCAST.equals(type)) {
+                IBasicScope child = aliases.get(name);
+                if (child != null) {
+                    IClientBroadcastStream cbs = ((IBroadcastScope) child).getClientBroadcastStream();
+                    if (cbs != null && cbs.containsAlias(name)) {
+                        log.debug("Scope found with alias: {} on {}", name, cbs.getPublishedName());
+                        return child;
+                    }
+                    // the stream dropped the alias
+                    aliases.remove(name, child);
+                }
+                log.debug("No match for name or alias of {}", name);
             }
             return null;
         }
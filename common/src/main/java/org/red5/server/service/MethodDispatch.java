@@ -0,0 +1,172 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.server.service;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.apache.commons.beanutils.ConversionException;
+import org.apache.commons.lang3.ClassUtils;
+import org.red5.io.utils.ConversionUtils;
+import org.red5.server.api.IConnection;
+
+/**
+ * A service method resolved for one set of runtime argument classes, along with the way the call arguments are mapped to its parameters.
+ * Instances are cached by {@link ReflectionUtils} so repeated calls skip the method search and the conversion checks for arguments that
+ * already have the parameter type.
+ *
+ * @author The Red5 Project
+ */
+final class MethodDispatch {
+
+    /**
+     * How call arguments are mapped to the method parameters.
+     */
+    enum Mapping {
+        /** arguments are passed as they are: no parameters or a single array parameter */
+        DIRECT,
+        /** arguments are converted to the parameter types */
+        CONVERT,
+        /** the connection is passed as the first parameter, followed by the converted arguments */
+        CONNECTION
+    }
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final Method method;
+
+    private final Mapping mapping;
+
+    private final Class<?>[] parameterTypes;
+
+    // wrapper types of the parameters, for the argument checks
+    private final Class<?>[] boxedTypes;
+
+    // whether each parameter needs a conversion for the argument classes this dispatch was resolved for
+    private final boolean[] converted;
+
+    private final boolean returnsVoid;
+
+    // null if the method is not accessible through a method handle, it is then invoked reflectively
+    private final MethodHandle invoker;
+
+    MethodDispatch(Method method, Mapping mapping, Class<?>[] argTypes) {
+        this.method = method;
+        this.mapping = mapping;
+        parameterTypes = method.getParameterTypes();
+        boxedTypes = new Class<?>[parameterTypes.length];
+        converted = new boolean[parameterTypes.length];
+        int offset = mapping == Mapping.CONNECTION ? 1 : 0;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            boxedTypes[i] = ClassUtils.primitiveToWrapper(parameterTypes[i]);
+            if (mapping != Mapping.DIRECT && i >= offset) {
+                Class<?> argType = argTypes[i - offset];
+                converted[i] = argType == null ? parameterTypes[i].isPrimitive() : !boxedTypes[i].isAssignableFrom(argType);
+            }
+        }
+        returnsVoid = method.getReturnType().equals(Void.TYPE);
+        MethodHandle handle = null;
+        try {
+            handle = MethodHandles.publicLookup().unreflect(method).asFixedArity().asSpreader(Object[].class, parameterTypes.length).asType(INVOKER_TYPE);
+        } catch (IllegalAccessException e) {
+            // not public, such as a method of a package private class; reflection reports the access error when invoked
+        }
+        invoker = handle;
+    }
+
+    Method getMethod() {
+        return method;
+    }
+
+    boolean returnsVoid() {
+        return returnsVoid;
+    }
+
+    /**
+     * Maps the call arguments to the method parameters.
+     *
+     * @param conn
+     *            current connection
+     * @param args
+     *            call arguments
+     * @return parameters
+     * @throws ConversionException
+     *             if an argument value cannot be converted to its parameter type
+     */
+    Object[] getParameters(IConnection conn, Object[] args) throws ConversionException {
+        switch (mapping) {
+            case CONVERT:
+                Object[] params = new Object[parameterTypes.length];
+                for (int i = 0; i < params.length; i++) {
+                    params[i] = converted[i] ? ConversionUtils.convert(args[i], parameterTypes[i]) : args[i];
+                }
+                return params;
+            case CONNECTION:
+                Object[] paramsWithConnection = new Object[parameterTypes.length];
+                paramsWithConnection[0] = conn;
+                for (int i = 1; i < paramsWithConnection.length; i++) {
+                    paramsWithConnection[i] = converted[i] ? ConversionUtils.convert(args[i - 1], parameterTypes[i]) : args[i - 1];
+                }
+                return paramsWithConnection;
+            default:
+                return args;
+        }
+    }
+
+    /**
+     * Invokes the method, with the same exception contract as {@link Method#invoke(Object, Object...)}.
+     *
+     * @param service
+     *            service object
+     * @param params
+     *            parameters
+     * @return method result, null for void methods
+     * @throws IllegalAccessException
+     *             if the method is not accessible
+     * @throws InvocationTargetException
+     *             if the method threw an exception
+     */
+    Object invoke(Object service, Object[] params) throws IllegalAccessException, InvocationTargetException {
+        if (invoker == null || !matches(params)) {
+            // reflection reports argument errors and applies primitive widening
+            return method.invoke(service, params);
+        }
+        Object[] arguments = params != null ? params : NO_ARGS;
+        try {
+            return (Object) invoker.invokeExact(service, arguments);
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    /**
+     * Returns whether the parameters can be passed to the method handle as they are.
+     */
+    private boolean matches(Object[] params) {
+        if ((params == null ? 0 : params.length) != parameterTypes.length) {
+            return false;
+        }
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (params[i] == null ? parameterTypes[i].isPrimitive() : !boxedTypes[i].isInstance(params[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "MethodDispatch [method=" + method + ", mapping=" + mapping + "]";
+    }
+
+}
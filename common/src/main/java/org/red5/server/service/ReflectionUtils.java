@@ -10,7 +10,9 @@ package org.red5.server.service;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.red5.io.utils.ConversionUtils;
@@ -31,6 +33,20 @@ public class ReflectionUtils {
     // used to prevent extra object creation when a method with a set of params is not found
     private static final Object[] NULL_RETURN = new Object[] { null, null };
 
+    // marks a method name without any candidate method for the argument count
+    private static final Object NO_METHODS = new Object();
+
+    // maximum number of cached dispatches per service class
+    private static final int MAX_DISPATCH_ENTRIES = Integer.getInteger("red5.service.dispatch.max_entries", 1024);
+
+    // resolved methods per service class, held by the class itself so they are dropped along with its classloader
+    private static final ClassValue<Map<DispatchKey, Object>> dispatchTables = new ClassValue<Map<DispatchKey, Object>>() {
+        @Override
+        protected Map<DispatchKey, Object> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
     // Note for .26 update is to ensure other service methods don't fail when a method is not found
     // See https://github.com/Red5/red5-server/commit/d4096a4d7b35b2b92905154a9e18edea04268fb4
 
@@ -109,7 +125,11 @@ public class ReflectionUtils {
     }
 
     /**
-     * Returns (method, params) for the given service or method name if found on a service or scope handler.
+     * Returns (method, params) for the given service or method name if found on a service or scope handler. When a method is found,
+     * the result has a third element holding the {@link MethodDispatch} used by {@link ServiceInvoker} to invoke it.
+     * <br>
+     * Resolved methods are cached per service class, method name and runtime argument classes, so repeated calls only convert the
+     * arguments that need it. The cache lives with the service class and goes away when its classloader is unloaded.
      *
      * @param conn current connection
      * @param call service call interested in the method
@@ -133,28 +153,32 @@ public class ReflectionUtils {
         final Object[] args = call.getArguments();
         // convert the args to their class types
         Class<?>[] callParams = ConversionUtils.convertParams(args);
-        // XXX(paul) someday this will be deprecated as its an extremely legacy feature to have a method with a
-        // connection as the first parameter
-        // build an array with the incoming args and the current connection as the first element
-        final Object[] argsWithConnection;
-        if (args != null) {
-            argsWithConnection = new Object[args.length + 1];
-            argsWithConnection[0] = conn;
-            for (int i = 0; i < args.length; i++) {
-                if (isDebug) {
-                    log.debug("Arg: {} type: {} => {}", i, (args[i] != null ? args[i].getClass().getName() : null), args[i]);
-                }
-                argsWithConnection[i + 1] = args[i];
+        // check the dispatch cache
+        final Class<?> serviceClass = service.getClass();
+        final Map<DispatchKey, Object> dispatchTable = dispatchTables.get(serviceClass);
+        final DispatchKey key = new DispatchKey(methodName, callParams, conn != null);
+        Object cached = dispatchTable.get(key);
+        if (cached == NO_METHODS) {
+            log.warn("Named method: {} not found in {}", methodName, service);
+            call.setStatus(Call.STATUS_METHOD_NOT_FOUND);
+            call.setException(new MethodNotFoundException(methodName, call.getArguments()));
+            return methodResult;
+        } else if (cached != null) {
+            MethodDispatch dispatch = (MethodDispatch) cached;
+            try {
+                return new Object[] { dispatch.getMethod(), dispatch.getParameters(conn, args), dispatch };
+            } catch (Exception e) {
+                // conversions depend on the argument values, not only their classes; search again
+                log.debug("Cached method {} does not accept the arguments, searching again", dispatch.getMethod(), e);
             }
-        } else {
-            argsWithConnection = conn != null ? new Object[] { conn } : new Object[0];
         }
         // get all the name matched methods once, then filter out the ones that contain a $
-        final Set<Method> methods = Arrays.stream(service.getClass().getMethods()).filter(m -> (m.getName().equals(methodName) && !m.getName().contains("$"))).filter(m -> m.getParameterCount() == 1 || m.getParameterCount() == callParams.length || m.getParameterCount() == (callParams.length + 1)).collect(Collectors.toUnmodifiableSet());
+        final Set<Method> methods = Arrays.stream(serviceClass.getMethods()).filter(m -> (m.getName().equals(methodName) && !m.getName().contains("$"))).filter(m -> m.getParameterCount() == 1 || m.getParameterCount() == callParams.length || m.getParameterCount() == (callParams.length + 1)).collect(Collectors.toUnmodifiableSet());
         if (methods.isEmpty()) {
             log.warn("Named method: {} not found in {}", methodName, service);
             call.setStatus(Call.STATUS_METHOD_NOT_FOUND);
             call.setException(new MethodNotFoundException(methodName, call.getArguments()));
+            cacheDispatch(dispatchTable, serviceClass, key, NO_METHODS);
         } else {
             if (isDebug) {
                 log.debug("Named method(s) {}: {} found in {}", methods.size(), methodName, service);
@@ -166,51 +190,43 @@ public class ReflectionUtils {
                 if (isTrace) {
                     log.trace("Method {} count - parameters: {} args: {}", methodName, paramCount, callParams.length);
                 }
+                MethodDispatch dispatch = null;
                 // if there are no args nor parameters
                 if ((args == null || args.length == 0) && paramCount == 0) {
                     if (isTrace) {
                         log.trace("Method {} matched - zero-length", methodName);
                     }
                     // fastest way to handle zero parameter methods
-                    methodResult = new Object[] { method, args };
-                    break;
-                }
-                // get the methods parameter types
-                Class<?>[] paramTypes = method.getParameterTypes();
-                // search for method with Object[] as the first and only parameter
-                if (paramCount == 1 && paramTypes[0].isArray()) {
-                    if (isTrace) {
-                        log.trace("Method {} matched - parameter 0 is an array", methodName);
-                    }
-                    methodResult = new Object[] { method, args };
-                    break;
-                }
-                // search for method matching parameters without a forced connection parameter
-                if (paramCount == callParams.length && !paramTypes[0].isAssignableFrom(IConnection.class)) {
-                    // attempt to convert the args to match the method
-                    try {
-                        Object[] convertedArgs = ConversionUtils.convertParams(args, paramTypes);
+                    dispatch = new MethodDispatch(method, MethodDispatch.Mapping.DIRECT, callParams);
+                } else {
+                    // get the methods parameter types
+                    Class<?>[] paramTypes = method.getParameterTypes();
+                    // search for method with Object[] as the first and only parameter
+                    if (paramCount == 1 && paramTypes[0].isArray()) {
                         if (isTrace) {
-                            log.trace("Found method {} {} - parameters: {}", methodName, method, paramTypes);
+                            log.trace("Method {} matched - parameter 0 is an array", methodName);
                         }
-                        methodResult = new Object[] { method, convertedArgs };
-                        break;
-                    } catch (Exception e) {
-                        log.warn("Method {} not found in {} with parameters {}", methodName, service, Arrays.asList(paramTypes), e);
+                        dispatch = new MethodDispatch(method, MethodDispatch.Mapping.DIRECT, callParams);
+                    } else if (paramCount == callParams.length && !paramTypes[0].isAssignableFrom(IConnection.class)) {
+                        // search for method matching parameters without a forced connection parameter
+                        dispatch = new MethodDispatch(method, MethodDispatch.Mapping.CONVERT, callParams);
+                    } else if (conn != null && paramCount == (callParams.length + 1) && paramTypes[0].isAssignableFrom(IConnection.class)) {
+                        // lastly try with connection at position 0 in parameters
+                        dispatch = new MethodDispatch(method, MethodDispatch.Mapping.CONNECTION, callParams);
                     }
                 }
-                // lastly try with connection at position 0 in parameters
-                if (conn != null && paramCount == (callParams.length + 1) && paramTypes[0].isAssignableFrom(IConnection.class)) {
+                if (dispatch != null) {
                     // attempt to convert the args to match the method
                     try {
-                        Object[] convertedArgs = ConversionUtils.convertParams(argsWithConnection, paramTypes);
+                        Object[] params = dispatch.getParameters(conn, args);
                         if (isTrace) {
-                            log.trace("Found method {} {} - parameters: {}", methodName, method, paramTypes);
+                            log.trace("Found method {} {} - parameters: {}", methodName, method, method.getParameterTypes());
                         }
-                        methodResult = new Object[] { method, convertedArgs };
+                        methodResult = new Object[] { method, params, dispatch };
+                        cacheDispatch(dispatchTable, serviceClass, key, dispatch);
                         break;
                     } catch (Exception e) {
-                        log.warn("Method {} not found in {} with parameters {}", methodName, service, Arrays.asList(paramTypes), e);
+                        log.warn("Method {} not found in {} with parameters {}", methodName, service, Arrays.asList(method.getParameterTypes()), e);
                     }
                 }
             }
@@ -226,4 +242,69 @@ public class ReflectionUtils {
         return methodResult;
     }
 
+    /**
+     * Adds a resolved method or the NO_METHODS marker to the dispatch table of a service class. Nothing is cached when the table is full,
+     * which bounds the entries created by clients calling made up method names, or when an argument class is not visible from the service
+     * classloader, since the entry would then keep another application's class alive.
+     */
+    private static void cacheDispatch(Map<DispatchKey, Object> dispatchTable, Class<?> serviceClass, DispatchKey key, Object value) {
+        if (dispatchTable.size() < MAX_DISPATCH_ENTRIES && key.isVisibleFrom(serviceClass.getClassLoader())) {
+            dispatchTable.put(key, value);
+        }
+    }
+
+    /**
+     * Dispatch table key: method name, runtime argument classes and whether a connection is available.
+     */
+    private static final class DispatchKey {
+
+        private final String methodName;
+
+        private final Class<?>[] argTypes;
+
+        private final boolean withConnection;
+
+        private final int hash;
+
+        DispatchKey(String methodName, Class<?>[] argTypes, boolean withConnection) {
+            this.methodName = methodName;
+            this.argTypes = argTypes;
+            this.withConnection = withConnection;
+            this.hash = 31 * (31 * methodName.hashCode() + Arrays.hashCode(argTypes)) + (withConnection ? 1 : 0);
+        }
+
+        boolean isVisibleFrom(ClassLoader loader) {
+            for (Class<?> argType : argTypes) {
+                if (argType != null && argType.getClassLoader() != null) {
+                    ClassLoader cl = loader;
+                    while (cl != null && cl != argType.getClassLoader()) {
+                        cl = cl.getParent();
+                    }
+                    if (cl == null) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof DispatchKey)) {
+                return false;
+            }
+            DispatchKey other = (DispatchKey) obj;
+            return hash == other.hash && withConnection == other.withConnection && methodName.equals(other.methodName) && Arrays.equals(argTypes, other.argTypes);
+        }
+
+    }
+
 }
@@ -125,6 +125,8 @@ public class ServiceInvoker implements IServiceInvoker {
             // get the parameters; the value at index 1 can be null, but the methodResult array will never be null
             @SuppressWarnings("null")
             Object[] params = (Object[]) methodResult[1];
+            // resolved method with its invoker
+            MethodDispatch dispatch = (MethodDispatch) methodResult[2];
             try {
                 /* XXX(paul) legacy flash logic for restricting access to methods
                 if (method.isAnnotationPresent(DeclarePrivate.class)) {
@@ -141,12 +143,12 @@ public class ServiceInvoker implements IServiceInvoker {
                 */
                 Object result = null;
                 log.debug("Invoking method: {}", method.toString());
-                if (method.getReturnType().equals(Void.TYPE)) {
-                    method.invoke(service, params);
+                if (dispatch.returnsVoid()) {
+                    dispatch.invoke(service, params);
                     call.setStatus(Call.STATUS_SUCCESS_VOID);
                     log.debug("result: void");
                 } else {
-                    result = method.invoke(service, params);
+                    result = dispatch.invoke(service, params);
                     call.setStatus(result == null ? Call.STATUS_SUCCESS_NULL : Call.STATUS_SUCCESS_RESULT);
                     log.debug("result: {}", result);
                 }
@@ -32,6 +32,7 @@ import org.red5.server.api.IAttributeStore;
 import org.red5.server.api.Red5;
 import org.red5.server.api.event.IEventListener;
 import org.red5.server.api.persistence.IPersistable;
+import org.red5.server.api.persistence.IJournalPersistenceStore;
 import org.red5.server.api.persistence.IPersistenceStore;
 import org.red5.server.api.scope.ScopeType;
 import org.red5.server.api.statistics.ISharedObjectStatistics;
@@ -335,6 +336,8 @@ public class SharedObject extends AttributeStore implements ISharedObjectStatist
                 // get all current sync events
                 final TreeSet<ISharedObjectEvent> events = new TreeSet<>(syncEvents);
                 syncEvents.removeAll(events);
+                // encoded once per connection encoding and shared by all the listeners
+                final SharedObjectUpdate update = new SharedObjectUpdate(name, currentVersion, persistent, events);
                 // updates all registered clients of this shared object
                 listeners.stream().filter(listener -> listener != source).forEach(listener -> {
                     final RTMPConnection con = (RTMPConnection) listener;
@@ -342,7 +345,7 @@ public class SharedObject extends AttributeStore implements ISharedObjectStatist
                     SharedObjectService.submitTask(() -> {
                         if (con.isConnected()) {
                             Red5.setConnectionLocal(con);
-                            con.sendSharedObjectMessage(name, currentVersion, persistent, events);
+                            con.sendSharedObjectMessage(update);
                             Red5.setConnectionLocal(null);
                         } else {
                             log.trace("Skipping {} connection: {}", RTMP.states[con.getStateCode()], con.getId());
@@ -376,6 +379,20 @@ public class SharedObject extends AttributeStore implements ISharedObjectStatist
         }
     }
 
+    /**
+     * Records an attribute change with a journaling store, which then only has to write the change when the shared object is saved.
+     *
+     * @param name
+     *            attribute name
+     * @param value
+     *            attribute value or null if removed
+     */
+    private void journal(String name, Object value) {
+        if (storage instanceof IJournalPersistenceStore) {
+            ((IJournalPersistenceStore) storage).attributeChanged(this, name, value);
+        }
+    }
+
     /**
      * Return an error message to the client.
      *
@@ -448,6 +465,7 @@ public class SharedObject extends AttributeStore implements ISharedObjectStatist
                     if (value == null) {
                         boolean removed = super.removeAttribute(name);
                         if (removed) {
+                            journal(name, null);
                             syncEvents.add(new SharedObjectEvent(Type.CLIENT_DELETE_DATA, name, null));
                             deleteStats.incrementAndGet();
                             result = true;
@@ -455,6 +473,8 @@ public class SharedObject extends AttributeStore implements ISharedObjectStatist
                     } else {
                         boolean set = super.setAttribute(name, value);
                         log.debug("Set attribute?: {}", set);
+                        // the value is stored even if it compares as unchanged
+                        journal(name, value);
                         if (set) {
                             // only sync if the attribute changed
                             syncEvents.add(new SharedObjectEvent(Type.CLIENT_UPDATE_DATA, name, value));
@@ -489,6 +509,9 @@ public class SharedObject extends AttributeStore implements ISharedObjectStatist
                     if (super.setAttribute(entry.getKey(), entry.getValue())) {
                         --valuesCount;
                     }
+                    if (entry.getKey() != null && entry.getValue() != null) {
+                        journal(entry.getKey(), entry.getValue());
+                    }
                 }
                 return (valuesCount == 0);
             } catch (Exception e) {
@@ -521,6 +544,7 @@ public class SharedObject extends AttributeStore implements ISharedObjectStatist
             final SharedObjectEvent event = new SharedObjectEvent(Type.CLIENT_DELETE_DATA, name, null);
             if (ownerMessage.addEvent(event)) {
                 if (super.removeAttribute(name)) {
+                    journal(name, null);
                     syncEvents.add(event);
                     deleteStats.incrementAndGet();
                     result = true;
@@ -823,6 +847,8 @@ public class SharedObject extends AttributeStore implements ISharedObjectStatist
     /** {@inheritDoc} */
     public void setDirty(boolean dirty) {
         log.trace("setDirty: {}", dirty);
+        // any of the attributes may have been modified in place
+        attributes.forEach(this::journal);
         notifyModified();
     }
 
@@ -833,6 +859,7 @@ public class SharedObject extends AttributeStore implements ISharedObjectStatist
         Object value = getAttribute(name);
         if (ownerMessage.addEvent(Type.CLIENT_UPDATE_ATTRIBUTE, name, null)) {
             // a null value means a removal the attribute
+            journal(name, value);
             if (value == null) {
                 syncEvents.add(new SharedObjectEvent(Type.CLIENT_DELETE_DATA, name, null));
                 deleteStats.incrementAndGet();
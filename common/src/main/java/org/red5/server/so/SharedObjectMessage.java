@@ -49,6 +49,11 @@ public class SharedObjectMessage extends BaseEvent implements ISharedObjectMessa
      */
     private boolean persistent;
 
+    /**
+     * Update shared with the other listeners of the shared object, holding the encoded body
+     */
+    private transient SharedObjectUpdate update;
+
     public SharedObjectMessage() {
     }
 
@@ -144,6 +149,25 @@ public class SharedObjectMessage extends BaseEvent implements ISharedObjectMessa
         this.persistent = persistent;
     }
 
+    /**
+     * Returns the update this message was created for, if it is sent to several listeners.
+     *
+     * @return shared update or null
+     */
+    public SharedObjectUpdate getUpdate() {
+        return update;
+    }
+
+    /**
+     * Setter for the update this message was created for; its encoded body is used in place of the events of this message.
+     *
+     * @param update
+     *            shared update
+     */
+    public void setUpdate(SharedObjectUpdate update) {
+        this.update = update;
+    }
+
     /** {@inheritDoc} */
     public boolean addEvent(ISharedObjectEvent.Type type, String key, Object value) {
         return events.add(new SharedObjectEvent(type, key, value));
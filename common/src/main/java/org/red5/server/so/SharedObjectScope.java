@@ -104,6 +104,8 @@ public class SharedObjectScope extends BasicScope implements ISharedObject, Stat
             tmp = opt.get();
             // set path
             tmp.setPath(path);
+            // the store may have attached itself rather than the store given here, such as the one behind a write-behind store
+            tmp.setStore(store);
         } else {
             // Create if it doesn't exist
             tmp = new SharedObject(name, path, persistent, store);
@@ -8,7 +8,10 @@
 package org.red5.server.so;
 
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.red5.server.api.IServer;
+import org.red5.server.api.listeners.ScopeListenerAdapter;
 import org.red5.server.api.persistence.IPersistable;
 import org.red5.server.api.persistence.IPersistenceStore;
 import org.red5.server.api.persistence.PersistenceUtils;
@@ -16,15 +19,20 @@ import org.red5.server.api.scope.IScope;
 import org.red5.server.api.scope.ScopeType;
 import org.red5.server.api.so.ISharedObject;
 import org.red5.server.api.so.ISharedObjectService;
+import org.red5.server.jmx.mxbeans.SharedObjectServiceMXBean;
 import org.red5.server.persistence.RamPersistence;
+import org.red5.server.persistence.WriteBehindPersistence;
+import org.red5.server.scope.Scope;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 /**
  * Shared object service
  */
-public class SharedObjectService implements ISharedObjectService {
+@ManagedResource(objectName = "org.red5.server:name=sharedObjectService,type=SharedObjectService")
+public class SharedObjectService implements ISharedObjectService, SharedObjectServiceMXBean {
 
     private Logger log = LoggerFactory.getLogger(SharedObjectService.class);
 
@@ -48,6 +56,26 @@ public class SharedObjectService implements ISharedObjectService {
      */
     private String persistenceClassName = "org.red5.server.persistence.RamPersistence";
 
+    /**
+     * Window in milliseconds within which repeated saves of a persistent shared object are written once, 0 to save immediately
+     */
+    private int writeBehindWindow;
+
+    /**
+     * Maximum number of persistent shared objects of a scope waiting to be saved
+     */
+    private int writeBehindMaxPending = 1000;
+
+    /**
+     * Statistics of the write-behind stores
+     */
+    private final WriteBehindPersistence.Statistics writeBehindStatistics = new WriteBehindPersistence.Statistics();
+
+    /**
+     * Whether the listener closing the stores of removed scopes has been added
+     */
+    private final AtomicBoolean scopeListenerAdded = new AtomicBoolean();
+
     /**
      * Pushes a task to the scheduler for single execution.
      *
@@ -68,6 +96,57 @@ public class SharedObjectService implements ISharedObjectService {
         persistenceClassName = name;
     }
 
+    /**
+     * @param writeBehindWindow
+     *            window in milliseconds within which repeated saves of a persistent shared object are written once, 0 to save immediately
+     */
+    public void setWriteBehindWindow(int writeBehindWindow) {
+        this.writeBehindWindow = writeBehindWindow;
+    }
+
+    /** {@inheritDoc} */
+    public int getWriteBehindWindow() {
+        return writeBehindWindow;
+    }
+
+    /**
+     * @param writeBehindMaxPending
+     *            maximum number of persistent shared objects of a scope waiting to be saved
+     */
+    public void setWriteBehindMaxPending(int writeBehindMaxPending) {
+        this.writeBehindMaxPending = writeBehindMaxPending;
+    }
+
+    /** {@inheritDoc} */
+    public long getSaveRequests() {
+        return writeBehindStatistics.getSaveRequests();
+    }
+
+    /** {@inheritDoc} */
+    public long getSaves() {
+        return writeBehindStatistics.getSaves();
+    }
+
+    /** {@inheritDoc} */
+    public double getCoalescingRatio() {
+        return writeBehindStatistics.getCoalescingRatio();
+    }
+
+    /** {@inheritDoc} */
+    public long getAverageSaveLatency() {
+        return writeBehindStatistics.getAverageSaveLatency();
+    }
+
+    /** {@inheritDoc} */
+    public long getMaxSaveLatency() {
+        return writeBehindStatistics.getMaxSaveLatency();
+    }
+
+    /** {@inheritDoc} */
+    public long getSaveBacklog() {
+        return writeBehindStatistics.getBacklog();
+    }
+
     /**
      * @param scheduler
      *            the scheduler to set
@@ -105,12 +184,41 @@ public class SharedObjectService implements ISharedObjectService {
                 log.warn("Could not create persistence store ({}) for shared objects, falling back to Ram persistence", persistenceClassName, err);
                 store = new RamPersistence(scope);
             }
+            if (writeBehindWindow > 0 && scheduler != null) {
+                store = new WriteBehindPersistence(store, scheduler, writeBehindWindow, writeBehindMaxPending, writeBehindStatistics);
+                addScopeListener(scope);
+            }
             scope.setAttribute(SO_PERSISTENCE_STORE, store);
             return store;
         }
         return (IPersistenceStore) scope.getAttribute(SO_PERSISTENCE_STORE);
     }
 
+    /**
+     * Adds a listener which saves the pending shared objects of a scope and closes its store when the scope is removed.
+     *
+     * @param scope
+     *            Scope
+     */
+    private void addScopeListener(IScope scope) {
+        IServer server = scope instanceof Scope ? ((Scope) scope).getServer() : null;
+        if (server != null && scopeListenerAdded.compareAndSet(false, true)) {
+            server.addListener(new ScopeListenerAdapter() {
+
+                @Override
+                public void notifyScopeRemoved(IScope removed) {
+                    Object store = removed.getAttribute(SO_PERSISTENCE_STORE);
+                    if (store instanceof WriteBehindPersistence) {
+                        log.debug("Closing shared object store of removed scope: {}", removed.getName());
+                        removed.removeAttribute(SO_PERSISTENCE_STORE);
+                        ((WriteBehindPersistence) store).notifyClose();
+                    }
+                }
+
+            });
+        }
+    }
+
     /** {@inheritDoc} */
     public boolean createSharedObject(IScope scope, String name, boolean persistent) {
         boolean added = hasSharedObject(scope, name);
@@ -0,0 +1,120 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.server.so;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.red5.server.api.IConnection.Encoding;
+import org.red5.server.net.rtmp.message.ChunkedPayload;
+
+/**
+ * A single version of shared object sync events which is sent to every listener of the shared object. The message body is encoded once per
+ * connection encoding by the first connection that writes it and reused by the others, which then only have to add their own chunk headers.
+ *
+ * @author The Red5 Project
+ */
+public class SharedObjectUpdate {
+
+    private final String name;
+
+    private final int version;
+
+    private final boolean persistent;
+
+    private final Set<ISharedObjectEvent> events;
+
+    /**
+     * Encoded message bodies keyed by connection encoding
+     */
+    private final ConcurrentMap<Encoding, byte[]> bodies = new ConcurrentHashMap<>(2);
+
+    /**
+     * Chunked message bodies keyed by connection encoding
+     */
+    private final ConcurrentMap<Encoding, ChunkedPayload> chunkedPayloads = new ConcurrentHashMap<>(2);
+
+    /**
+     * Creates an update for the given shared object version.
+     *
+     * @param name
+     *            shared object name
+     * @param version
+     *            shared object version
+     * @param persistent
+     *            persistence flag
+     * @param events
+     *            sync events, not to be modified afterwards
+     */
+    public SharedObjectUpdate(String name, int version, boolean persistent, Set<ISharedObjectEvent> events) {
+        this.name = name;
+        this.version = version;
+        this.persistent = persistent;
+        this.events = Collections.unmodifiableSet(events);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public boolean isPersistent() {
+        return persistent;
+    }
+
+    public Set<ISharedObjectEvent> getEvents() {
+        return events;
+    }
+
+    /**
+     * Returns the encoded message body for the given encoding.
+     *
+     * @param encoding
+     *            connection encoding
+     * @return encoded body or null if it has not been encoded yet
+     */
+    public byte[] getBody(Encoding encoding) {
+        return bodies.get(encoding);
+    }
+
+    /**
+     * Stores the encoded message body for the given encoding, unless another connection stored one first.
+     *
+     * @param encoding
+     *            connection encoding
+     * @param body
+     *            encoded body
+     * @return the body to use for the encoding
+     */
+    public byte[] setBody(Encoding encoding, byte[] body) {
+        byte[] existing = bodies.putIfAbsent(encoding, body);
+        return existing != null ? existing : body;
+    }
+
+    /**
+     * Returns the chunked form of the message body for the given encoding, shared by the connections with the same chunk size.
+     *
+     * @param encoding
+     *            connection encoding
+     * @return chunked payload
+     */
+    public ChunkedPayload getChunkedPayload(Encoding encoding) {
+        return chunkedPayloads.computeIfAbsent(encoding, e -> new ChunkedPayload());
+    }
+
+    @Override
+    public String toString() {
+        return "SharedObjectUpdate [name=" + name + ", version=" + version + ", persistent=" + persistent + ", events=" + events.size() + "]";
+    }
+
+}
@@ -37,6 +37,8 @@ import javax.management.StandardMBean;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.mina.core.buffer.IoBuffer;
+import org.red5.codec.AbstractVideo;
+import org.red5.codec.GOPCache;
 import org.red5.codec.IAudioStreamCodec;
 import org.red5.codec.IStreamCodecInfo;
 import org.red5.codec.IVideoStreamCodec;
@@ -47,7 +49,10 @@ import org.red5.server.api.Red5;
 import org.red5.server.api.event.IEvent;
 import org.red5.server.api.event.IEventDispatcher;
 import org.red5.server.api.event.IEventListener;
+import org.red5.server.api.scope.IBasicScope;
+import org.red5.server.api.scope.IBroadcastScope;
 import org.red5.server.api.scope.IScope;
+import org.red5.server.api.scope.ScopeType;
 import org.red5.server.api.statistics.IClientBroadcastStreamStatistics;
 import org.red5.server.api.statistics.support.StatisticsCounter;
 import org.red5.server.api.stream.IClientBroadcastStream;
@@ -76,6 +81,7 @@ import org.red5.server.net.rtmp.message.Constants;
 import org.red5.server.net.rtmp.message.Header;
 import org.red5.server.net.rtmp.status.Status;
 import org.red5.server.net.rtmp.status.StatusCodes;
+import org.red5.server.scope.Scope;
 import org.red5.server.stream.message.RTMPMessage;
 import org.red5.server.stream.message.StatusMessage;
 import org.slf4j.Logger;
@@ -108,6 +114,21 @@ public class ClientBroadcastStream extends AbstractClientStream implements IClie
      */
     protected boolean automaticRecording;
 
+    /**
+     * Whether or not the video codec caches the interframes since the last keyframe.
+     */
+    protected boolean gopCache;
+
+    /**
+     * Maximum number of interframes the video codec caches.
+     */
+    protected int gopCacheMaxFrames = GOPCache.DEFAULT_MAX_FRAMES;
+
+    /**
+     * Maximum number of interframe bytes the video codec caches.
+     */
+    protected int gopCacheMaxBytes = GOPCache.DEFAULT_MAX_BYTES;
+
     /**
      * Total number of bytes received.
      */
@@ -246,6 +267,10 @@ public class ClientBroadcastStream extends AbstractClientStream implements IClie
             setState(StreamState.CLOSED);
             // clear our aliases and from local registry
             if (aliases != null) {
+                IBasicScope broadcastScope = getBroadcastScope();
+                if (broadcastScope != null) {
+                    ((Scope) getScope()).removeStreamAliases(broadcastScope);
+                }
                 localAliases.removeAll(aliases);
                 aliases.clear();
             }
@@ -322,6 +347,10 @@ public class ClientBroadcastStream extends AbstractClientStream implements IClie
                             IVideoStreamCodec videoStreamCodec = null;
                             if (checkVideoCodec) {
                                 videoStreamCodec = VideoCodecFactory.getVideoCodec(buf);
+                                if (videoStreamCodec instanceof AbstractVideo) {
+                                    ((AbstractVideo) videoStreamCodec).setBufferInterframes(gopCache);
+                                    ((AbstractVideo) videoStreamCodec).setGOPCacheLimits(gopCacheMaxFrames, gopCacheMaxBytes);
+                                }
                                 if (info != null) {
                                     info.setVideoCodec(videoStreamCodec);
                                 }
@@ -502,6 +531,34 @@ public class ClientBroadcastStream extends AbstractClientStream implements IClie
         this.automaticRecording = automaticRecording;
     }
 
+    public boolean isGopCache() {
+        return gopCache;
+    }
+
+    /**
+     * @param gopCache
+     *            whether the video codec caches the interframes since the last keyframe, for new subscribers
+     */
+    public void setGopCache(boolean gopCache) {
+        this.gopCache = gopCache;
+    }
+
+    public int getGopCacheMaxFrames() {
+        return gopCacheMaxFrames;
+    }
+
+    public void setGopCacheMaxFrames(int gopCacheMaxFrames) {
+        this.gopCacheMaxFrames = gopCacheMaxFrames;
+    }
+
+    public int getGopCacheMaxBytes() {
+        return gopCacheMaxBytes;
+    }
+
+    public void setGopCacheMaxBytes(int gopCacheMaxBytes) {
+        this.gopCacheMaxBytes = gopCacheMaxBytes;
+    }
+
     /**
      * @param registerJMX
      *            the registerJMX to set
@@ -1017,11 +1074,32 @@ public class ClientBroadcastStream extends AbstractClientStream implements IClie
         }
         // check local registry first then attempt the add
         if (!localAliases.contains(alias) && aliases.add(alias)) {
+            // let the scope find the stream by the new alias
+            IBasicScope broadcastScope = getBroadcastScope();
+            if (broadcastScope != null) {
+                ((Scope) getScope()).addStreamAliases(broadcastScope);
+            }
             return true;
         }
         return false;
     }
 
+    /**
+     * Returns the broadcast scope this stream is published in, when the parent scope indexes the stream aliases.
+     *
+     * @return broadcast scope or null
+     */
+    private IBasicScope getBroadcastScope() {
+        IScope scope = getScope();
+        if (scope instanceof Scope && publishedName != null) {
+            IBasicScope broadcastScope = scope.getBasicScope(ScopeType.BROADCAST, publishedName);
+            if (broadcastScope instanceof IBroadcastScope && ((IBroadcastScope) broadcastScope).getClientBroadcastStream() == this) {
+                return broadcastScope;
+            }
+        }
+        return null;
+    }
+
     @Override
     public boolean hasAlias() {
         if (aliases != null && !aliases.isEmpty()) {
@@ -0,0 +1,54 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.server.stream;
+
+import org.red5.server.api.scope.IScopeService;
+
+/**
+ * A service waking up the subscriber streams when they have something to send, instead of each of them polling at a fixed rate. The tasks are run once at the
+ * requested time and schedule their next run themselves.
+ *
+ * @author The Red5 Project
+ */
+public interface IPacingService extends IScopeService {
+
+    public static String BEAN_NAME = "pacingService";
+
+    /**
+     * Schedule a task to run once.
+     *
+     * @param task
+     *            Task to run
+     * @param delay
+     *            Delay in milliseconds, the task runs on the next tick at the earliest
+     * @return handle to cancel the task
+     */
+    IPacedTask schedule(Runnable task, long delay);
+
+    /**
+     * A task scheduled on the pacing service.
+     */
+    public interface IPacedTask {
+
+        /**
+         * Cancel the task.
+         *
+         * @return true if the task was cancelled before it ran
+         */
+        boolean cancel();
+
+        /**
+         * Returns the time the task is due.
+         *
+         * @return due time in nanoseconds, as given by {@link System#nanoTime()}
+         */
+        long getDeadline();
+
+    }
+
+}
@@ -7,13 +7,21 @@
 
 package org.red5.server.stream;
 
+import org.red5.server.api.scope.IScope;
+import org.red5.server.api.scope.IScopeService;
+import org.red5.server.api.stream.IClientStream;
+
 /**
- * A service used to create and manage token buckets.
+ * A service used to create and manage token buckets. The buckets of the streams are chained to the buckets of their connection, their scopes and the server, so
+ * tokens are only handed out when every level has them.
  *
  * @author The Red5 Project
  * @author Steven Gong (steven.gong@gmail.com)
  */
-public interface ITokenBucketService {
+public interface ITokenBucketService extends IScopeService {
+
+    public static String BEAN_NAME = "tokenBucketService";
+
     public static final String KEY = "TokenBucketService";
 
     /**
@@ -27,6 +35,27 @@ public interface ITokenBucketService {
      */
     ITokenBucket createTokenBucket(long capacity, long speed);
 
+    /**
+     * Create the token bucket of a stream, chained to the buckets of its connection, its scopes and the server.
+     *
+     * @param stream
+     *            Stream the bucket paces
+     * @return null if none of the levels is limited
+     */
+    ITokenBucket createTokenBucket(IClientStream stream);
+
+    /**
+     * Limit the bandwidth of a scope and its child scopes, for example the scope of a tenant. The limit applies to the buckets created afterwards.
+     *
+     * @param scope
+     *            Scope to limit
+     * @param capacity
+     *            Capacity of the bucket.
+     * @param speed
+     *            Speed of the bucket. Bytes per millisecond.
+     */
+    void setScopeLimit(IScope scope, long capacity, long speed);
+
     /**
      * Remove this bucket.
      *
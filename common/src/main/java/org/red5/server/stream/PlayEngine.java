@@ -8,6 +8,7 @@
 package org.red5.server.stream;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +35,7 @@ import org.red5.server.api.scope.IScope;
 import org.red5.server.api.stream.IBroadcastStream;
 import org.red5.server.api.stream.IPlayItem;
 import org.red5.server.api.stream.IPlaylistSubscriberStream;
+import org.red5.server.api.stream.IStreamCapableConnection;
 import org.red5.server.api.stream.ISubscriberStream;
 import org.red5.server.api.stream.OperationNotSupportedException;
 import org.red5.server.api.stream.StreamState;
@@ -56,6 +58,7 @@ import org.red5.server.messaging.PipeConnectionEvent;
 import org.red5.server.net.rtmp.event.Aggregate;
 import org.red5.server.net.rtmp.event.AudioData;
 import org.red5.server.net.rtmp.event.IRTMPEvent;
+import org.red5.server.net.rtmp.event.ManageData;
 import org.red5.server.net.rtmp.event.Notify;
 import org.red5.server.net.rtmp.event.Ping;
 import org.red5.server.net.rtmp.event.VideoData;
@@ -64,9 +67,11 @@ import org.red5.server.net.rtmp.message.Constants;
 import org.red5.server.net.rtmp.message.Header;
 import org.red5.server.net.rtmp.status.Status;
 import org.red5.server.net.rtmp.status.StatusCodes;
+import org.red5.server.stream.IPacingService.IPacedTask;
 import org.red5.server.stream.message.RTMPMessage;
 import org.red5.server.stream.message.ResetMessage;
 import org.red5.server.stream.message.StatusMessage;
+import org.red5.server.util.ScopeUtils;
 import org.slf4j.Logger;
 
 /**
@@ -178,6 +183,11 @@ public final class PlayEngine implements IFilter, IPushableConsumer, IPipeConnec
      */
     private volatile String pullAndPush;
 
+    /**
+     * Pull and push task woken up by the pacing service, used instead of the push and pull job when the playback is paced.
+     */
+    private volatile PacedPullAndPush pacedPullAndPush;
+
     /**
      * Flag denoting whether or not the job that closes stream after buffer runs out is scheduled.
      */
@@ -208,11 +218,6 @@ public final class PlayEngine implements IFilter, IPushableConsumer, IPipeConnec
      */
     private int playDecision = 3;
 
-    /**
-     * Index of the buffered interframe to send instead of current frame
-     */
-    private int bufferedInterframeIdx = -1;
-
     /**
      * List of pending operations
      */
@@ -227,6 +232,28 @@ public final class PlayEngine implements IFilter, IPushableConsumer, IPipeConnec
 
     private boolean configsDone;
 
+    /**
+     * Live messages received while the cached group of pictures is replayed to a new subscriber, guarded by itself
+     */
+    private final List<IMessage> heldLiveMessages = new ArrayList<>();
+
+    // live messages are held back until the replay is done
+    private volatile boolean holdLiveMessages;
+
+    private ITokenBucketService tokenBucketService;
+
+    /**
+     * Bucket pacing the output of the stream, null if the bandwidth is not limited
+     */
+    private ITokenBucket tokenBucket;
+
+    /**
+     * Whether VOD playback is woken up by the pacing service when there is something to send, instead of polling every 10 ms
+     */
+    private boolean pacedPlayback;
+
+    private IPacingService pacingService;
+
     /**
      * Constructs a new PlayEngine.
      */
@@ -276,6 +303,16 @@ public final class PlayEngine implements IFilter, IPushableConsumer, IPipeConnec
         this.underrunTrigger = underrunTrigger;
     }
 
+    /**
+     * Set whether VOD playback is paced by the pacing service. Without a pacing service in the scope the push and pull job is used.
+     *
+     * @param pacedPlayback
+     *            true to wake up the playback when there is something to send
+     */
+    public void setPacedPlayback(boolean pacedPlayback) {
+        this.pacedPlayback = pacedPlayback;
+    }
+
     void setMessageOut(IMessageOutput msgOut) {
         this.msgOutReference.set(msgOut);
     }
@@ -297,6 +334,16 @@ public final class PlayEngine implements IFilter, IPushableConsumer, IPipeConnec
                 } else if (isDebug) {
                     log.debug("Message output was already set for stream: {}", subscriberStream);
                 }
+                tokenBucketService = (ITokenBucketService) ScopeUtils.getScopeService(subscriberStream.getScope(), ITokenBucketService.class, false);
+                if (tokenBucketService != null) {
+                    tokenBucket = tokenBucketService.createTokenBucket(subscriberStream);
+                }
+                if (pacedPlayback) {
+                    pacingService = (IPacingService) ScopeUtils.getScopeService(subscriberStream.getScope(), IPacingService.class, false);
+                    if (pacingService == null) {
+                        log.warn("Paced playback requested but no pacing service was found, falling back to polling");
+                    }
+                }
                 break;
             default:
                 throw new IllegalStateException(String.format("Cannot start in current state: %s", subscriberStream.getState()));
@@ -414,13 +461,15 @@ public final class PlayEngine implements IFilter, IPushableConsumer, IPipeConnec
                                     sendStartStatus(item);
                                 }
                                 sendNotifications = false;
-                                if (videoCodec.getNumInterframes() > 0 || videoCodec.getKeyframe() != null) {
-                                    bufferedInterframeIdx = 0;
+                                if (videoCodec.getKeyframe() != null) {
+                                    // playLive sends the cached keyframe and the interframes which follow it
                                     videoFrameDropper.reset(IFrameDropper.SEND_ALL);
                                 }
                             }
                         }
                     }
+                    // live frames arriving during the replay of the cached frames are sent after it
+                    holdLiveMessages = true;
                     // subscribe to stream (ClientBroadcastStream.onPipeConnectionEvent)
                     in.subscribe(this, null);
                     // execute the processes to get Live playback setup
@@ -519,11 +568,29 @@ public final class PlayEngine implements IFilter, IPushableConsumer, IPipeConnec
      * <li>Metadata</li>
      * <li>Decoder configurations (ie. AVC codec)</li>
      * <li>Most recent keyframe</li>
+     * <li>Interframes buffered since the keyframe</li>
      * </ul>
      *
      * @throws IOException
      */
     private final void playLive() throws IOException {
+        int lastReplayed = Integer.MIN_VALUE;
+        try {
+            lastReplayed = replayLive();
+        } finally {
+            releaseHeldLiveMessages(lastReplayed);
+        }
+    }
+
+    /**
+     * Sends the metadata, decoder configurations and cached frames of the live stream.
+     *
+     * @return timestamp of the last replayed video frame, Integer.MIN_VALUE if none was replayed
+     * @throws IOException
+     */
+    private int replayLive() throws IOException {
+        // timestamp of the last replayed video frame, older live frames were already sent
+        int lastReplayed = Integer.MIN_VALUE;
         // change state
         subscriberStream.setState(StreamState.PLAYING);
         IMessageInput in = msgInReference.get();
@@ -560,13 +627,23 @@ public final class PlayEngine implements IFilter, IPushableConsumer, IPipeConnec
                             log.debug("Pushing video decoder configuration");
                             sendMessage(RTMPMessage.build(conf, ts));
                         }
-                        // check for keyframes to send
+                        // check for keyframes to send, the frames share the payloads of the live stream
                         FrameData[] keyFrames = videoCodec.getKeyframes();
                         for (FrameData keyframe : keyFrames) {
                             log.debug("Keyframe is available");
-                            VideoData video = new VideoData(keyframe.getFrame(), true);
+                            VideoData video = new VideoData(keyframe.getFrame());
                             log.debug("Pushing keyframe");
-                            sendMessage(RTMPMessage.build(video, ts));
+                            lastReplayed = keyframe.getTimestamp() > 0 ? keyframe.getTimestamp() : ts;
+                            sendMessage(RTMPMessage.build(video, lastReplayed));
+                        }
+                        // replay the rest of the group so playback can start without waiting for the next keyframe
+                        if (keyFrames.length > 0) {
+                            FrameData[] interframes = videoCodec.getInterframes();
+                            log.debug("Pushing {} buffered interframes", interframes.length);
+                            for (FrameData interframe : interframes) {
+                                lastReplayed = interframe.getTimestamp();
+                                sendMessage(RTMPMessage.build(new VideoData(interframe.getFrame()), lastReplayed));
+                            }
                         }
                     } else {
                         log.debug("No video decoder configuration available");
@@ -592,6 +669,7 @@ public final class PlayEngine implements IFilter, IPushableConsumer, IPipeConnec
             throw new IOException(String.format("A message pipe is null - in: %b out: %b", (msgInReference == null), (msgOutReference == null)));
         }
         configsDone = true;
+        return lastReplayed;
     }
 
     /**
@@ -659,6 +737,7 @@ public final class PlayEngine implements IFilter, IPushableConsumer, IPipeConnec
         }
         if (in != null) {
             log.debug("Provider: {}", msgInReference.get());
+            holdLiveMessages = true;
             if (in.subscribe(this, null)) {
                 log.debug("Subscribed to {} provider", itemName);
                 // execute the processes to get Live playback setup
@@ -669,6 +748,7 @@ public final class PlayEngine implements IFilter, IPushableConsumer, IPipeConnec
                 }
             } else {
                 log.warn("Subscribe to {} provider failed", itemName);
+                releaseHeldLiveMessages(Integer.MIN_VALUE);
             }
         } else {
             log.warn("Provider was not found for {}", itemName);
@@ -821,6 +901,10 @@ public final class PlayEngine implements IFilter, IPushableConsumer, IPipeConnec
             subscriberStream.setState(StreamState.CLOSED);
             clearWaitJobs();
             releasePendingMessage();
+            if (tokenBucket != null) {
+                tokenBucketService.removeTokenBucket(tokenBucket);
+                tokenBucket = null;
+            }
             lastMessageTs = 0;
             // XXX is clear ping required?
             //sendClearPing();
@@ -871,7 +955,8 @@ public final class PlayEngine implements IFilter, IPushableConsumer, IPipeConnec
                 // too many messages already queued on the connection
                 return false;
             }
-            return true;
+            // check the bandwidth last, the tokens are taken
+            return acquireTokens(message);
         } else {
             String itemName = "Undefined";
             // if current item exists get the name to help debug this issue
@@ -883,6 +968,22 @@ public final class PlayEngine implements IFilter, IPushableConsumer, IPipeConnec
         }
     }
 
+    /**
+     * Takes the tokens for a message from the bucket of the stream, one token per byte.
+     *
+     * @param message
+     * @return true if the bandwidth is not limited or the tokens were taken, false otherwise
+     */
+    private boolean acquireTokens(IRTMPEvent message) {
+        final ITokenBucket bucket = tokenBucket;
+        return bucket == null || bucket.acquireToken(tokenCount(message), 0);
+    }
+
+    private static long tokenCount(IRTMPEvent message) {
+        IoBuffer data = ((IStreamData<?>) message).getData();
+        return data != null ? data.limit() : 0;
+    }
+
     /**
      * Estimate client buffer fill.
      *
@@ -929,12 +1030,41 @@ public final class PlayEngine implements IFilter, IPushableConsumer, IPipeConnec
      */
     private void ensurePullAndPushRunning() {
         log.trace("State should be PLAYING to running this task: {}", subscriberStream.getState());
-        if (pullMode && pullAndPush == null && subscriberStream.getState() == StreamState.PLAYING) {
-            // client buffer is at least 100ms
-            pullAndPush = subscriberStream.scheduleWithFixedDelay(new PullAndPushRunnable(), 10);
+        if (pullMode && subscriberStream.getState() == StreamState.PLAYING) {
+            if (pacingService != null) {
+                PacedPullAndPush paced = pacedPullAndPush;
+                if (paced == null) {
+                    pacedPullAndPush = paced = new PacedPullAndPush();
+                    paced.wake(0);
+                } else if (!pushPullRunning.get()) {
+                    // a pending operation was added, a running pull and push checks for them when done
+                    paced.wake(0);
+                }
+            } else if (pullAndPush == null) {
+                // client buffer is at least 100ms
+                pullAndPush = subscriberStream.scheduleWithFixedDelay(new PullAndPushRunnable(), 10);
+            }
         }
     }
 
+    /**
+     * Returns how long the pull and push may wait before trying to send the pending message again.
+     *
+     * @return delay in milliseconds
+     */
+    private long nextPullDelay() {
+        final long buffer = subscriberStream.getClientBufferDuration();
+        if (lastMessageTs > 0 && buffer > 0) {
+            // let the client buffer drain down to the requested length, it is then topped up to twice that length
+            final long excess = lastMessageTs - (System.currentTimeMillis() - playbackStart) - buffer;
+            if (excess > 0) {
+                return excess;
+            }
+        }
+        // held back by the connection or the bandwidth, try again on the next tick
+        return 0;
+    }
+
     /**
      * Clear all scheduled waiting jobs
      */
@@ -945,6 +1075,12 @@ public final class PlayEngine implements IFilter, IPushableConsumer, IPipeConnec
             releasePendingMessage();
             pullAndPush = null;
         }
+        PacedPullAndPush paced = pacedPullAndPush;
+        if (paced != null) {
+            pacedPullAndPush = null;
+            paced.cancel();
+            releasePendingMessage();
+        }
         if (waitLiveJob != null) {
             schedulingService.removeScheduledJob(waitLiveJob);
             waitLiveJob = null;
@@ -1021,6 +1157,10 @@ public final class PlayEngine implements IFilter, IPushableConsumer, IPipeConnec
         int eventTime = eventIn.getTimestamp();
         // get the incoming event source type and set on the outgoing event
         event.setSourceType(eventIn.getSourceType());
+        // live a/v events are fanned out to every subscriber, so share their chunked payload
+        if (event instanceof ManageData && eventIn.getSourceType() == Constants.SOURCE_TYPE_LIVE) {
+            ((ManageData) event).setChunkedPayload(((ManageData) eventIn).shareChunkedPayload());
+        }
         // instance the outgoing message
         RTMPMessage messageOut = RTMPMessage.build(event, eventTime);
         if (isTrace) {
@@ -1439,6 +1579,77 @@ public final class PlayEngine implements IFilter, IPushableConsumer, IPipeConnec
 
     /** {@inheritDoc} */
     public void pushMessage(IPipe pipe, IMessage message) throws IOException {
+        if (holdLiveMessages && holdLiveMessage(message)) {
+            return;
+        }
+        deliverMessage(message);
+    }
+
+    /**
+     * Holds a live message back while the cached frames are replayed.
+     *
+     * @param message
+     *            live message
+     * @return true if the message was held, false if the replay is done
+     */
+    private boolean holdLiveMessage(IMessage message) {
+        synchronized (heldLiveMessages) {
+            if (holdLiveMessages) {
+                if (message instanceof RTMPMessage) {
+                    // the provider releases the event once the push returns
+                    ((RTMPMessage) message).getBody().retain();
+                }
+                heldLiveMessages.add(message);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sends the live messages held back during the replay, skipping video the replay already covered, and stops holding. Pushes waiting for the lock are delivered
+     * after the held messages, so the order is kept.
+     *
+     * @param lastReplayed
+     *            timestamp of the last replayed video frame
+     */
+    private void releaseHeldLiveMessages(int lastReplayed) {
+        synchronized (heldLiveMessages) {
+            try {
+                for (IMessage message : heldLiveMessages) {
+                    try {
+                        if (message instanceof RTMPMessage) {
+                            IRTMPEvent body = ((RTMPMessage) message).getBody();
+                            if (body instanceof VideoData && body.getTimestamp() <= lastReplayed) {
+                                log.trace("Skipping replayed video frame at {}", body.getTimestamp());
+                                continue;
+                            }
+                        }
+                        deliverMessage(message);
+                    } catch (IOException e) {
+                        log.warn("Exception sending held live message", e);
+                    } finally {
+                        if (message instanceof RTMPMessage) {
+                            ((RTMPMessage) message).getBody().release();
+                        }
+                    }
+                }
+            } finally {
+                heldLiveMessages.clear();
+                holdLiveMessages = false;
+            }
+        }
+    }
+
+    /**
+     * Sends a message from the provider to the subscriber.
+     *
+     * @param message
+     *            message
+     * @throws IOException
+     *             on send failure
+     */
+    private void deliverMessage(IMessage message) throws IOException {
         if (!pullMode) {
             if (!configsDone) {
                 log.debug("dump early");
@@ -1452,6 +1663,8 @@ public final class PlayEngine implements IFilter, IPushableConsumer, IPipeConnec
             IRTMPEvent body = rtmpMessage.getBody();
             if (body instanceof IStreamData) {
                 final String subscribedStreamName = subscriberStream.getBroadcastStreamPublishName();
+                // whether the tokens of the message were taken already
+                boolean paced = false;
                 // the subscriber paused
                 if (subscriberStream.getState() == StreamState.PAUSED) {
                     if (log.isInfoEnabled() && shouldLogPacketDrop()) {
@@ -1518,18 +1731,15 @@ public final class PlayEngine implements IFilter, IPushableConsumer, IPipeConnec
                                     videoFrameDropper.dropPacket(rtmpMessage);
                                     return;
                                 }
-                                // we are ok to send, check if we should send buffered frame
-                                if (bufferedInterframeIdx > -1) {
-                                    IVideoStreamCodec.FrameData fd = videoCodec.getInterframe(bufferedInterframeIdx++);
-                                    if (fd != null) {
-                                        VideoData interframe = new VideoData(fd.getFrame());
-                                        interframe.setTimestamp(body.getTimestamp());
-                                        rtmpMessage = RTMPMessage.build(interframe);
-                                    } else {
-                                        // it means that new keyframe was received and we should send current frames instead of buffered
-                                        bufferedInterframeIdx = -1;
+                                if (!acquireTokens(body)) {
+                                    videoFrameDropper.dropPacket(rtmpMessage);
+                                    droppedPacketsCount++;
+                                    if (log.isInfoEnabled() && shouldLogPacketDrop()) {
+                                        log.info("Drop packet. Failed to acquire token. sessionId={} stream={} count={}", sessionId, subscribedStreamName, droppedPacketsCount);
                                     }
+                                    return;
                                 }
+                                paced = true;
                             }
                         }
                     }
@@ -1548,6 +1758,10 @@ public final class PlayEngine implements IFilter, IPushableConsumer, IPipeConnec
                         return;
                     }
                 }
+                if (!paced && tokenBucket != null) {
+                    // messages which cannot be dropped are sent anyway, they still count against the bandwidth
+                    tokenBucket.acquireTokenBestEffort(tokenCount(body));
+                }
                 sendMessage(rtmpMessage);
             } else {
                 throw new RuntimeException(String.format("Expected IStreamData but got %s (type %s)", body.getClass(), body.getDataType()));
@@ -1587,6 +1801,15 @@ public final class PlayEngine implements IFilter, IPushableConsumer, IPipeConnec
         return subscriberStream.getConnection().getPendingMessages();
     }
 
+    /**
+     * Returns the connection of the subscriber stream.
+     *
+     * @return connection
+     */
+    public IStreamCapableConnection getConnection() {
+        return subscriberStream.getConnection();
+    }
+
     public boolean isPullMode() {
         return pullMode;
     }
@@ -1871,98 +2094,169 @@ public final class PlayEngine implements IFilter, IPushableConsumer, IPipeConnec
     }
 
     /**
-     * Periodically triggered by executor to send messages to the client.
+     * Runs the pending operations, then pulls messages and sends them to the client until the client buffer is full or the connection is
+     * backed up.
+     *
+     * @return milliseconds after which the held back message may be sent, -1 if there is nothing to wait for
      */
-    private final class PullAndPushRunnable implements IScheduledJob {
-
-        /**
-         * Trigger sending of messages.
-         */
-        public void execute(ISchedulingService svc) {
-            // ensure the job is not already running
-            if (pushPullRunning.compareAndSet(false, true)) {
-                try {
-                    // handle any pending operations
-                    Runnable worker = null;
-                    while (!pendingOperations.isEmpty()) {
-                        log.debug("Pending operations: {}", pendingOperations.size());
-                        // remove the first operation and execute it
-                        worker = pendingOperations.remove();
-                        log.debug("Worker: {}", worker);
-                        // if the operation is seek, ensure it is the last request in the set
-                        while (worker instanceof SeekRunnable) {
-                            Runnable tmp = pendingOperations.peek();
-                            if (tmp != null && tmp instanceof SeekRunnable) {
-                                worker = pendingOperations.remove();
-                            } else {
-                                break;
-                            }
-                        }
-                        if (worker != null) {
-                            log.debug("Executing pending operation");
-                            worker.run();
+    private long pullAndPush() {
+        // ensure the job is not already running
+        if (pushPullRunning.compareAndSet(false, true)) {
+            long delay = -1;
+            try {
+                // handle any pending operations
+                Runnable worker = null;
+                while (!pendingOperations.isEmpty()) {
+                    log.debug("Pending operations: {}", pendingOperations.size());
+                    // remove the first operation and execute it
+                    worker = pendingOperations.remove();
+                    log.debug("Worker: {}", worker);
+                    // if the operation is seek, ensure it is the last request in the set
+                    while (worker instanceof SeekRunnable) {
+                        Runnable tmp = pendingOperations.peek();
+                        if (tmp != null && tmp instanceof SeekRunnable) {
+                            worker = pendingOperations.remove();
+                        } else {
+                            break;
                         }
                     }
-                    // receive then send if message is data (not audio or video)
-                    if (subscriberStream.getState() == StreamState.PLAYING && pullMode) {
-                        if (pendingMessage != null) {
-                            IRTMPEvent body = pendingMessage.getBody();
-                            if (okayToSendMessage(body)) {
-                                sendMessage(pendingMessage);
-                                releasePendingMessage();
-                            } else {
-                                return;
-                            }
+                    if (worker != null) {
+                        log.debug("Executing pending operation");
+                        worker.run();
+                    }
+                }
+                // receive then send if message is data (not audio or video)
+                if (subscriberStream.getState() == StreamState.PLAYING && pullMode) {
+                    if (pendingMessage != null) {
+                        IRTMPEvent body = pendingMessage.getBody();
+                        if (okayToSendMessage(body)) {
+                            sendMessage(pendingMessage);
+                            releasePendingMessage();
+                            // pull the following messages on the next run
+                            delay = 0;
                         } else {
-                            IMessage msg = null;
-                            IMessageInput in = msgInReference.get();
-                            do {
-                                msg = in.pullMessage();
-                                if (msg != null) {
-                                    if (msg instanceof RTMPMessage) {
-                                        RTMPMessage rtmpMessage = (RTMPMessage) msg;
-                                        if (checkSendMessageEnabled(rtmpMessage)) {
-                                            // Adjust timestamp when playing lists
-                                            IRTMPEvent body = rtmpMessage.getBody();
-                                            body.setTimestamp(body.getTimestamp() + timestampOffset);
-                                            if (okayToSendMessage(body)) {
-                                                log.trace("ts: {}", rtmpMessage.getBody().getTimestamp());
-                                                sendMessage(rtmpMessage);
-                                                IoBuffer data = ((IStreamData<?>) body).getData();
-                                                if (data != null) {
-                                                    data.free();
-                                                }
-                                                // continue to pull and feed
-                                            } else {
-                                                // ensure p/p executable scheduled and break to exit
-                                                pendingMessage = rtmpMessage;
-                                                ensurePullAndPushRunning();
-                                                break;
+                            delay = nextPullDelay();
+                        }
+                    } else {
+                        IMessage msg = null;
+                        IMessageInput in = msgInReference.get();
+                        do {
+                            msg = in.pullMessage();
+                            if (msg != null) {
+                                if (msg instanceof RTMPMessage) {
+                                    RTMPMessage rtmpMessage = (RTMPMessage) msg;
+                                    if (checkSendMessageEnabled(rtmpMessage)) {
+                                        // Adjust timestamp when playing lists
+                                        IRTMPEvent body = rtmpMessage.getBody();
+                                        body.setTimestamp(body.getTimestamp() + timestampOffset);
+                                        if (okayToSendMessage(body)) {
+                                            log.trace("ts: {}", rtmpMessage.getBody().getTimestamp());
+                                            sendMessage(rtmpMessage);
+                                            IoBuffer data = ((IStreamData<?>) body).getData();
+                                            if (data != null) {
+                                                data.free();
                                             }
+                                            // continue to pull and feed
+                                        } else {
+                                            // ensure p/p executable scheduled and break to exit
+                                            pendingMessage = rtmpMessage;
+                                            ensurePullAndPushRunning();
+                                            delay = nextPullDelay();
+                                            break;
                                         }
                                     }
-                                } else {
-                                    // No more packets to send
-                                    log.debug("Ran out of packets");
-                                    runDeferredStop();
                                 }
-                            } while (msg != null);
-                        }
+                            } else {
+                                // No more packets to send
+                                log.debug("Ran out of packets");
+                                runDeferredStop();
+                            }
+                        } while (msg != null);
                     }
-                } catch (IOException err) {
-                    // we couldn't get more data, stop stream.
-                    log.warn("Error while getting message", err);
-                    runDeferredStop();
-                } finally {
-                    // reset running flag
-                    pushPullRunning.compareAndSet(true, false);
                 }
-            } else {
-                log.debug("Push / pull already running");
+            } catch (IOException err) {
+                // we couldn't get more data, stop stream.
+                log.warn("Error while getting message", err);
+                runDeferredStop();
+            } finally {
+                // reset running flag
+                pushPullRunning.compareAndSet(true, false);
             }
+            return delay;
+        } else {
+            log.debug("Push / pull already running");
+        }
+        return -1;
+    }
+
+    /**
+     * Periodically triggered by executor to send messages to the client.
+     */
+    private final class PullAndPushRunnable implements IScheduledJob {
+
+        /**
+         * Trigger sending of messages.
+         */
+        public void execute(ISchedulingService svc) {
+            pullAndPush();
         }
     }
 
+    /**
+     * Pull and push woken up by the pacing service, only when a held back message is due to be sent or an operation is pending.
+     */
+    private final class PacedPullAndPush implements Runnable {
+
+        private IPacedTask next;
+
+        public void run() {
+            if (pacedPullAndPush != this) {
+                return;
+            }
+            synchronized (this) {
+                // the run that was scheduled is this one, unless a sooner run is due already
+                if (next != null && next.getDeadline() - System.nanoTime() <= 0) {
+                    next = null;
+                }
+            }
+            long delay = pullAndPush();
+            if (pacedPullAndPush == this) {
+                if (!pendingOperations.isEmpty() && subscriberStream.getState() == StreamState.PLAYING) {
+                    // added while running
+                    delay = 0;
+                }
+                if (delay >= 0) {
+                    wake(delay);
+                }
+            }
+        }
+
+        /**
+         * Schedule the next run. A run scheduled before is kept if it is due at the same time or sooner, so a wake up for a pending operation is not
+         * pushed back by a later one.
+         *
+         * @param delay
+         *            delay in milliseconds
+         */
+        synchronized void wake(long delay) {
+            if (next != null) {
+                if (next.getDeadline() - (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(delay, 0L))) <= 0) {
+                    return;
+                }
+                next.cancel();
+            }
+            next = pacingService.schedule(this, delay);
+        }
+
+        synchronized void cancel() {
+            if (next != null) {
+                next.cancel();
+                next = null;
+            }
+        }
+
+    }
+
     private class DeferredStopRunnable implements IScheduledJob {
 
         public void execute(ISchedulingService service) {
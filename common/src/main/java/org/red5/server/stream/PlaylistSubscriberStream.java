@@ -100,6 +100,11 @@ public class PlaylistSubscriberStream extends AbstractClientStream implements IP
      */
     protected int underrunTrigger = 10;
 
+    /**
+     * Whether VOD playback is woken up by the pacing service instead of polling.
+     */
+    protected boolean pacedPlayback;
+
     /**
      * Timestamp this stream was created.
      */
@@ -163,6 +168,16 @@ public class PlaylistSubscriberStream extends AbstractClientStream implements IP
         this.underrunTrigger = underrunTrigger;
     }
 
+    /**
+     * Set whether VOD playback is paced by the pacing service, waking up the stream only when it has something to send.
+     *
+     * @param pacedPlayback
+     *            true to use the pacing service
+     */
+    public void setPacedPlayback(boolean pacedPlayback) {
+        this.pacedPlayback = pacedPlayback;
+    }
+
     /** {@inheritDoc} */
     public void start() {
         //ensure the play engine exists
@@ -199,6 +214,8 @@ public class PlaylistSubscriberStream extends AbstractClientStream implements IP
         engine.setBufferCheckInterval(bufferCheckInterval);
         //set underrun trigger
         engine.setUnderrunTrigger(underrunTrigger);
+        // set paced playback
+        engine.setPacedPlayback(pacedPlayback);
         // set the max pending video frames to the play engine
         engine.setMaxPendingVideoFrames(maxPendingVideoFrames);
         // set the max sequential pending video frames to the play engine
@@ -60,6 +60,11 @@ public class SingleItemSubscriberStream extends AbstractClientStream implements
      */
     protected int underrunTrigger = 10;
 
+    /**
+     * Whether VOD playback is woken up by the pacing service instead of polling.
+     */
+    protected boolean pacedPlayback;
+
     /**
      * Timestamp this stream was created.
      */
@@ -186,6 +191,16 @@ public class SingleItemSubscriberStream extends AbstractClientStream implements
         this.underrunTrigger = underrunTrigger;
     }
 
+    /**
+     * Set whether VOD playback is paced by the pacing service, waking up the stream only when it has something to send.
+     *
+     * @param pacedPlayback
+     *            true to use the pacing service
+     */
+    public void setPacedPlayback(boolean pacedPlayback) {
+        this.pacedPlayback = pacedPlayback;
+    }
+
     public void start() {
         //ensure the play engine exists
         if (engine == null) {
@@ -221,6 +236,8 @@ public class SingleItemSubscriberStream extends AbstractClientStream implements
         engine.setBufferCheckInterval(bufferCheckInterval);
         //set underrun trigger
         engine.setUnderrunTrigger(underrunTrigger);
+        // set paced playback
+        engine.setPacedPlayback(pacedPlayback);
         // Start playback engine
         engine.start();
         // Notify subscribers on start
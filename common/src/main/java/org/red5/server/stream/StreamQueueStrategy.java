@@ -0,0 +1,77 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.server.stream;
+
+import org.red5.server.api.IConnection;
+import org.red5.server.messaging.IConsumer;
+import org.red5.server.messaging.IMessage;
+import org.red5.server.messaging.IQueueStrategy;
+import org.red5.server.net.rtmp.event.VideoData;
+import org.red5.server.stream.consumer.ConnectionConsumer;
+import org.red5.server.stream.message.RTMPMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Queue strategy for the pipes of a stream, which carry RTMP messages to play engines and connection consumers.
+ *
+ * @author The Red5 Project
+ */
+public class StreamQueueStrategy implements IQueueStrategy {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamQueueStrategy.class);
+
+    /**
+     * Shared instance, the strategy holds no state
+     */
+    public static final StreamQueueStrategy INSTANCE = new StreamQueueStrategy();
+
+    /** {@inheritDoc} */
+    public FrameType getFrameType(IMessage message) {
+        if (message instanceof RTMPMessage && ((RTMPMessage) message).getBody() instanceof VideoData) {
+            switch (((VideoData) ((RTMPMessage) message).getBody()).getFrameType()) {
+                case KEYFRAME:
+                    return FrameType.KEYFRAME;
+                case DISPOSABLE_INTERFRAME:
+                    return FrameType.DISPOSABLE_INTERFRAME;
+                default:
+                    return FrameType.INTERFRAME;
+            }
+        }
+        return FrameType.NONE;
+    }
+
+    /** {@inheritDoc} */
+    public void retain(IMessage message) {
+        if (message instanceof RTMPMessage) {
+            ((RTMPMessage) message).getBody().retain();
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void release(IMessage message) {
+        if (message instanceof RTMPMessage) {
+            ((RTMPMessage) message).getBody().release();
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void disconnect(IConsumer consumer) {
+        IConnection conn = null;
+        if (consumer instanceof PlayEngine) {
+            conn = ((PlayEngine) consumer).getConnection();
+        } else if (consumer instanceof ConnectionConsumer) {
+            conn = ((ConnectionConsumer) consumer).getConnection();
+        }
+        if (conn != null) {
+            log.debug("Closing connection {} of {}", conn.getSessionId(), consumer);
+            conn.closeConnection();
+        }
+    }
+
+}
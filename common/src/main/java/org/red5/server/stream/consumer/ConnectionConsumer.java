@@ -120,6 +120,15 @@ public class ConnectionConsumer implements IPushableConsumer, IPipeConnectionLis
         this.data = dataChannel;
     }
 
+    /**
+     * Returns the connection the messages are written to.
+     *
+     * @return connection or null
+     */
+    public RTMPConnection getConnection() {
+        return conn;
+    }
+
     /** {@inheritDoc} */
     public void pushMessage(IPipe pipe, IMessage message) {
         //log.trace("pushMessage - type: {}", message.getMessageType());
@@ -175,6 +184,7 @@ public class ConnectionConsumer implements IPushableConsumer, IPipeConnectionLis
                         audioData.setHeader(header);
                         audioData.setTimestamp(header.getTimer());
                         audioData.setSourceType(((AudioData) msg).getSourceType());
+                        audioData.setChunkedPayload(((AudioData) msg).getChunkedPayload());
                         audio.write(audioData);
                     } else {
                         log.warn("Audio data was not found");
@@ -188,6 +198,7 @@ public class ConnectionConsumer implements IPushableConsumer, IPipeConnectionLis
                         videoData.setHeader(header);
                         videoData.setTimestamp(header.getTimer());
                         videoData.setSourceType(((VideoData) msg).getSourceType());
+                        videoData.setChunkedPayload(((VideoData) msg).getChunkedPayload());
                         video.write(videoData);
                     } else {
                         log.warn("Video data was not found");
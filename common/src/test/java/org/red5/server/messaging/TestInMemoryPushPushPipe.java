@@ -0,0 +1,290 @@
+package org.red5.server.messaging;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.junit.After;
+import org.junit.Test;
+import org.red5.server.api.stream.consumer.IFileConsumer;
+import org.red5.server.messaging.InMemoryPushPushPipe.OverflowPolicy;
+import org.red5.server.net.rtmp.event.AudioData;
+import org.red5.server.net.rtmp.event.IRTMPEvent;
+import org.red5.server.net.rtmp.event.VideoData;
+import org.red5.server.stream.StreamQueueStrategy;
+import org.red5.server.stream.message.RTMPMessage;
+
+public class TestInMemoryPushPushPipe {
+
+    private ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSlowConsumerDoesNotBlock() throws Exception {
+        InMemoryPushPushPipe pipe = pipe(16, OverflowPolicy.DROP_TO_KEYFRAME);
+        CountDownLatch release = new CountDownLatch(1);
+        Consumer slow = new Consumer(release), fast = new Consumer(null);
+        pipe.subscribe(slow, null);
+        pipe.subscribe(fast, null);
+        for (int i = 0; i < 100; i++) {
+            pipe.pushMessage(video(i, i % 10 == 0 ? 0x17 : 0x27));
+            // paced like a live stream, so only the blocked consumer falls behind
+            Thread.sleep(1);
+        }
+        assertTrue(fast.await(100));
+        assertTrue(pipe.getQueueDepth(slow) <= 16);
+        assertTrue(pipe.getDroppedMessages(slow) > 0);
+        release.countDown();
+        assertTrue(slow.await(100 - (int) pipe.getDroppedMessages(slow)));
+        // order is kept and the first frame after a gap is a key frame
+        int last = -1;
+        for (int i = 0; i < slow.received.size(); i++) {
+            int timestamp = slow.received.get(i);
+            assertTrue(timestamp > last);
+            if (i > 0 && timestamp != last + 1) {
+                assertEquals(0, timestamp % 10);
+            }
+            last = timestamp;
+        }
+    }
+
+    @Test
+    public void testDisconnectOnOverflow() throws Exception {
+        InMemoryPushPushPipe pipe = pipe(4, OverflowPolicy.DISCONNECT);
+        CountDownLatch release = new CountDownLatch(1);
+        Consumer slow = new Consumer(release);
+        pipe.subscribe(slow, null);
+        for (int i = 0; i < 10; i++) {
+            pipe.pushMessage(video(i, 0x27));
+        }
+        // unsubscribed on the executor, not on the pushing thread
+        for (int i = 0; i < 100 && pipe.getConsumers().contains(slow); i++) {
+            Thread.sleep(10);
+        }
+        assertFalse(pipe.getConsumers().contains(slow));
+        assertEquals(0, pipe.getQueueDepth(slow));
+        release.countDown();
+    }
+
+    @Test
+    public void testDroppedKeyframeSkipsToNext() throws Exception {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            InMemoryPushPushPipe pipe = pipe(4, OverflowPolicy.DROP_TO_KEYFRAME);
+            pipe.setExecutor(single);
+            Consumer consumer = new Consumer(null);
+            pipe.subscribe(consumer, null);
+            // hold the only thread until the queue is full
+            CountDownLatch gate = new CountDownLatch(1);
+            single.execute(() -> {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            // audio is never dropped to make room, so the key frame does not fit
+            for (int i = 0; i < 4; i++) {
+                pipe.pushMessage(audio(i));
+            }
+            pipe.pushMessage(video(4, 0x17));
+            gate.countDown();
+            assertTrue(consumer.await(4));
+            // the inter frame depends on the dropped key frame
+            pipe.pushMessage(video(5, 0x27));
+            pipe.pushMessage(video(6, 0x17));
+            assertTrue(consumer.await(5));
+            assertEquals(6, (int) consumer.received.get(4));
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDrainInBatches() throws Exception {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            InMemoryPushPushPipe pipe = pipe(64, OverflowPolicy.DROP_TO_KEYFRAME);
+            pipe.setExecutor(single);
+            pipe.setDrainBatchSize(4);
+            List<Consumer> deliveries = new CopyOnWriteArrayList<>();
+            Consumer first = new Consumer(null, deliveries), second = new Consumer(null, deliveries);
+            pipe.subscribe(first, null);
+            pipe.subscribe(second, null);
+            // hold the only thread until both queues are filled
+            CountDownLatch gate = new CountDownLatch(1);
+            single.execute(() -> {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            for (int i = 0; i < 20; i++) {
+                pipe.pushMessage(video(i, i == 0 ? 0x17 : 0x27));
+            }
+            gate.countDown();
+            assertTrue(first.await(20));
+            assertTrue(second.await(20));
+            // the first consumer gave the thread back after a batch
+            assertEquals(first, deliveries.get(3));
+            assertEquals(second, deliveries.get(4));
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRecordingIsLossless() throws Exception {
+        InMemoryPushPushPipe pipe = pipe(4, OverflowPolicy.DISCONNECT);
+        CountDownLatch release = new CountDownLatch(1);
+        Consumer recorder = new Recorder(release);
+        pipe.subscribe(recorder, null);
+        for (int i = 0; i < 20; i++) {
+            pipe.pushMessage(video(i, 0x27));
+        }
+        // neither dropped nor disconnected
+        assertTrue(pipe.getConsumers().contains(recorder));
+        assertEquals(0, pipe.getDroppedMessages(recorder));
+        release.countDown();
+        assertTrue(recorder.await(20));
+    }
+
+    @Test
+    public void testUnsubscribeRemovesQueue() throws Exception {
+        InMemoryPushPushPipe pipe = pipe(16, OverflowPolicy.DROP_TO_KEYFRAME);
+        Consumer consumer = new Consumer(new CountDownLatch(1));
+        pipe.subscribe(consumer, null);
+        pipe.pushMessage(video(0, 0x17));
+        pipe.unsubscribe(consumer);
+        pipe.pushMessage(video(1, 0x27));
+        assertTrue(pipe.getQueueDepths().isEmpty());
+    }
+
+    @Test
+    public void testQueuedMessageOutlivesProviderRelease() throws Exception {
+        InMemoryPushPushPipe pipe = pipe(16, OverflowPolicy.DROP_TO_KEYFRAME);
+        CountDownLatch release = new CountDownLatch(1);
+        Consumer recorder = new Recorder(release);
+        pipe.subscribe(recorder, null);
+        List<VideoData> events = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            RTMPMessage message = video(i, i == 0 ? 0x17 : 0x27);
+            pipe.pushMessage(message);
+            // the provider releases the event once the push returns, like BaseRTMPHandler does
+            VideoData event = (VideoData) message.getBody();
+            event.release();
+            events.add(event);
+        }
+        release.countDown();
+        assertTrue(recorder.await(5));
+        for (int i = 0; i < 5; i++) {
+            assertArrayEquals(new byte[] { (byte) (i == 0 ? 0x17 : 0x27), 1, 0, 0, 0 }, recorder.payloads.get(i));
+        }
+        // released by the queue after delivery
+        for (VideoData event : events) {
+            assertNull(event.getData());
+        }
+    }
+
+    private InMemoryPushPushPipe pipe(int maxQueueSize, OverflowPolicy overflowPolicy) {
+        InMemoryPushPushPipe pipe = new InMemoryPushPushPipe();
+        pipe.setMaxQueueSize(maxQueueSize);
+        pipe.setOverflowPolicy(overflowPolicy);
+        pipe.setQueueStrategy(StreamQueueStrategy.INSTANCE);
+        pipe.setExecutor(executor);
+        return pipe;
+    }
+
+    private static RTMPMessage audio(int timestamp) {
+        return RTMPMessage.build(new AudioData(IoBuffer.wrap(new byte[] { (byte) 0xaf, 1, 0 })), timestamp);
+    }
+
+    private static RTMPMessage video(int timestamp, int flags) {
+        return RTMPMessage.build(new VideoData(IoBuffer.wrap(new byte[] { (byte) flags, 1, 0, 0, 0 })), timestamp);
+    }
+
+    private static class Consumer implements IPushableConsumer {
+
+        final List<Integer> received = new CopyOnWriteArrayList<>();
+
+        final List<byte[]> payloads = new CopyOnWriteArrayList<>();
+
+        final CountDownLatch release;
+
+        final List<Consumer> deliveries;
+
+        Consumer(CountDownLatch release) {
+            this(release, null);
+        }
+
+        Consumer(CountDownLatch release, List<Consumer> deliveries) {
+            this.release = release;
+            this.deliveries = deliveries;
+        }
+
+        public void pushMessage(IPipe pipe, IMessage message) {
+            try {
+                if (release != null) {
+                    release.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            IRTMPEvent body = ((RTMPMessage) message).getBody();
+            IoBuffer data = body instanceof VideoData ? ((VideoData) body).getData() : ((AudioData) body).getData();
+            if (data != null) {
+                byte[] payload = new byte[data.remaining()];
+                data.duplicate().get(payload);
+                payloads.add(payload);
+            } else {
+                payloads.add(null);
+            }
+            received.add(body.getTimestamp());
+            if (deliveries != null) {
+                deliveries.add(this);
+            }
+        }
+
+        public void onOOBControlMessage(IMessageComponent source, IPipe pipe, OOBControlMessage oobCtrlMsg) {
+        }
+
+        boolean await(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (received.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            return received.size() == count;
+        }
+
+    }
+
+    private static class Recorder extends Consumer implements IFileConsumer {
+
+        Recorder(CountDownLatch release) {
+            super(release);
+        }
+
+        public void setAudioDecoderConfiguration(IRTMPEvent audioConfig) {
+        }
+
+        public void setVideoDecoderConfiguration(IRTMPEvent videoConfig) {
+        }
+
+    }
+
+}
@@ -2,9 +2,22 @@ package org.red5.server.net.rtmp;
 
 import static org.junit.Assert.*;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.red5.server.net.rtmp.event.Ping;
+import org.red5.server.net.rtmp.message.Header;
+import org.red5.server.net.rtmp.message.Packet;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
 import static org.red5.server.net.rtmp.RTMPConnection.MAX_RESERVED_STREAMS;
 
 public class TestRTMPConnection {
@@ -222,4 +235,65 @@ public class TestRTMPConnection {
     //		fail("Not yet implemented");
     //	}
 
+
+    @Test
+    public void testSharedReceiveDispatch() throws Exception {
+        final int connections = 200, packetsPerConnection = 10;
+        // single handling thread so the handling order is the dispatch order
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(connections * packetsPerConnection);
+        executor.initialize();
+        ForkJoinPool dispatcher = new ForkJoinPool(4, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        final CountDownLatch latch = new CountDownLatch(connections * packetsPerConnection);
+        final Map<String, List<Integer>> received = new ConcurrentHashMap<>();
+        IRTMPHandler handler = new IRTMPHandler() {
+
+            public void connectionOpened(RTMPConnection conn) {
+            }
+
+            public void messageReceived(RTMPConnection conn, Packet packet) throws Exception {
+                received.computeIfAbsent(conn.getSessionId(), k -> new CopyOnWriteArrayList<>()).add(((Ping) packet.getMessage()).getValue2().intValue());
+                latch.countDown();
+            }
+
+            public void messageSent(RTMPConnection conn, Packet packet) {
+            }
+
+            public void connectionClosed(RTMPConnection conn) {
+            }
+
+        };
+        try {
+            int threadsBefore = Thread.activeCount();
+            RTMPConnection[] conns = new RTMPConnection[connections];
+            for (int i = 0; i < connections; i++) {
+                conns[i] = new RTMPMinaConnection();
+                conns[i].setHandler(handler);
+                conns[i].setExecutor(executor);
+                conns[i].setReceiveDispatchExecutor(dispatcher);
+            }
+            for (int p = 0; p < packetsPerConnection; p++) {
+                for (RTMPConnection conn : conns) {
+                    conn.handleMessageReceived(new Packet(new Header(), new Ping(Ping.PING_CLIENT, p)));
+                }
+            }
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            // no thread per connection, only the pool threads
+            assertTrue(Thread.activeCount() - threadsBefore < 16);
+            // packets are handled in the order received, per connection
+            assertEquals(connections, received.size());
+            for (List<Integer> values : received.values()) {
+                assertEquals(packetsPerConnection, values.size());
+                for (int p = 0; p < packetsPerConnection; p++) {
+                    assertEquals(p, values.get(p).intValue());
+                }
+            }
+        } finally {
+            dispatcher.shutdown();
+            executor.shutdown();
+        }
+    }
+
 }
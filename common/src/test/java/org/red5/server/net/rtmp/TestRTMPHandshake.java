@@ -0,0 +1,76 @@
+package org.red5.server.net.rtmp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.security.KeyPair;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.junit.Test;
+
+public class TestRTMPHandshake {
+
+    @Test
+    public void testHMAC() throws Exception {
+        RTMPHandshake handshake = new TestHandshake();
+        Random rnd = new Random(42);
+        byte[] message = new byte[1536];
+        rnd.nextBytes(message);
+        // a key shorter than the key length is zero padded
+        byte[] key = new byte[100];
+        rnd.nextBytes(key);
+        Mac mac = Mac.getInstance("HmacSHA256");
+        for (int i = 0; i < 3; i++) {
+            int offset = i * 100;
+            byte[] digest = new byte[40];
+            handshake.calculateHMAC_SHA256(message, offset, 1000, key, RTMPHandshake.KEY_LENGTH, digest, 8);
+            mac.init(new SecretKeySpec(Arrays.copyOf(key, RTMPHandshake.KEY_LENGTH), "HmacSHA256"));
+            mac.update(message, offset, 1000);
+            assertArrayEquals(mac.doFinal(), Arrays.copyOfRange(digest, 8, 40));
+            // key longer than the key length
+            handshake.calculateHMAC_SHA256(message, offset, 1000, RTMPHandshake.GENUINE_FMS_KEY, 36, digest, 0);
+            mac.init(new SecretKeySpec(Arrays.copyOf(RTMPHandshake.GENUINE_FMS_KEY, 36), "HmacSHA256"));
+            mac.update(message, offset, 1000);
+            assertArrayEquals(mac.doFinal(), Arrays.copyOf(digest, 32));
+        }
+    }
+
+    @Test
+    public void testKeyPairs() {
+        RTMPHandshake handshake = new TestHandshake();
+        KeyPair first = handshake.generateKeyPair();
+        assertNotNull(first);
+        assertNotNull(handshake.keyAgreement);
+        // key pairs are never handed out twice
+        KeyPair second = handshake.generateKeyPair();
+        assertNotEquals(first.getPublic(), second.getPublic());
+        assertFalse(Arrays.equals(handshake.getPublicKey(first), handshake.getPublicKey(second)));
+    }
+
+    private static class TestHandshake extends RTMPHandshake {
+
+        @Override
+        protected void createHandshakeBytes() {
+            handshakeBytes = new byte[1536];
+        }
+
+        @Override
+        public boolean validate(byte[] handshake) {
+            return true;
+        }
+
+        @Override
+        public IoBuffer doHandshake(IoBuffer input) {
+            return null;
+        }
+
+    }
+
+}
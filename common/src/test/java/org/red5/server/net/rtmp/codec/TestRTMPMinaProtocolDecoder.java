@@ -0,0 +1,115 @@
+package org.red5.server.net.rtmp.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.session.DummySession;
+import org.apache.mina.filter.codec.AbstractProtocolDecoderOutput;
+import org.junit.After;
+import org.junit.Test;
+import org.red5.server.api.Red5;
+import org.red5.server.net.IConnectionManager;
+import org.red5.server.net.rtmp.RTMPConnection;
+import org.red5.server.net.rtmp.RTMPMinaConnection;
+import org.red5.server.net.rtmp.event.VideoData;
+import org.red5.server.net.rtmp.message.Constants;
+import org.red5.server.net.rtmp.message.Header;
+import org.red5.server.net.rtmp.message.Packet;
+
+public class TestRTMPMinaProtocolDecoder {
+
+    @After
+    public void tearDown() {
+        Red5.setConnectionLocal(null);
+    }
+
+    @Test
+    public void testDecodeSplitReads() throws Exception {
+        byte[] first = payload(1000, 1), second = payload(300, 2);
+        IoBuffer encoded = IoBuffer.allocate(2048).setAutoExpand(true);
+        encoded.put(encode(first, 1000));
+        encoded.put(encode(second, 1040));
+        encoded.flip();
+        // feed the data in reads which end inside chunk headers and chunk bodies
+        RTMPConnection conn = new RTMPMinaConnection();
+        conn.getState().setState(RTMP.STATE_CONNECTED);
+        DummySession session = session(conn);
+        RTMPMinaProtocolDecoder decoder = new RTMPMinaProtocolDecoder();
+        AbstractProtocolDecoderOutput out = new AbstractProtocolDecoderOutput() {
+
+            public void flush(org.apache.mina.core.filterchain.IoFilter.NextFilter nextFilter, org.apache.mina.core.session.IoSession session) {
+            }
+
+        };
+        int[] reads = { 5, 128, 1, 700, 13, 200 };
+        for (int length : reads) {
+            decoder.decode(session, read(encoded, length), out);
+        }
+        decoder.decode(session, read(encoded, encoded.remaining()), out);
+        List<Object> decoded = new ArrayList<>(out.getMessageQueue());
+        assertEquals(2, decoded.size());
+        assertArrayEquals(first, data((Packet) decoded.get(0)));
+        assertArrayEquals(second, data((Packet) decoded.get(1)));
+        assertEquals(1040, ((Packet) decoded.get(1)).getMessage().getTimestamp());
+    }
+
+    private static IoBuffer read(IoBuffer encoded, int length) {
+        // incoming buffers start at an offset, like a slice of a larger read buffer
+        IoBuffer in = IoBuffer.allocate(length + 16);
+        in.position(16);
+        byte[] bytes = new byte[length];
+        encoded.get(bytes);
+        in.put(bytes);
+        in.flip();
+        in.position(16);
+        return in.slice();
+    }
+
+    private static byte[] data(Packet packet) {
+        IoBuffer data = ((VideoData) packet.getMessage()).getData();
+        byte[] result = new byte[data.remaining()];
+        data.get(result);
+        return result;
+    }
+
+    private static byte[] payload(int length, int seed) {
+        byte[] payload = new byte[length];
+        // avc interframe
+        payload[0] = 0x27;
+        for (int i = 1; i < length; i++) {
+            payload[i] = (byte) (i * seed);
+        }
+        return payload;
+    }
+
+    private static byte[] encode(byte[] payload, int timestamp) {
+        RTMPConnection conn = new RTMPMinaConnection();
+        Red5.setConnectionLocal(conn);
+        Header header = new Header();
+        header.setChannelId(6);
+        header.setStreamId(1);
+        header.setDataType(Constants.TYPE_VIDEO_DATA);
+        header.setTimer(timestamp);
+        IoBuffer out = new RTMPProtocolEncoder().encodePacket(new Packet(header, new VideoData(IoBuffer.wrap(payload))));
+        Red5.setConnectionLocal(null);
+        byte[] result = new byte[out.remaining()];
+        out.get(result);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static DummySession session(RTMPConnection conn) {
+        IConnectionManager<RTMPConnection> connManager = (IConnectionManager<RTMPConnection>) Proxy.newProxyInstance(IConnectionManager.class.getClassLoader(), new Class<?>[] { IConnectionManager.class }, (proxy, method, args) -> "getConnectionBySessionId".equals(method.getName()) ? conn : null);
+        DummySession session = new DummySession();
+        session.setAttribute(RTMPConnection.RTMP_SESSION_ID, conn.getSessionId());
+        session.setAttribute(RTMPConnection.RTMP_CONN_MANAGER, new WeakReference<>(connManager));
+        return session;
+    }
+
+}
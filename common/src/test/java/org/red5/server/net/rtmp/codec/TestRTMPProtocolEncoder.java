@@ -0,0 +1,140 @@
+package org.red5.server.net.rtmp.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.TreeSet;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.junit.After;
+import org.junit.Test;
+import org.red5.server.api.IConnection.Encoding;
+import org.red5.server.api.Red5;
+import org.red5.server.net.rtmp.RTMPConnection;
+import org.red5.server.net.rtmp.RTMPMinaConnection;
+import org.red5.server.net.rtmp.event.VideoData;
+import org.red5.server.net.rtmp.message.ChunkedPayload;
+import org.red5.server.net.rtmp.message.Constants;
+import org.red5.server.net.rtmp.message.Header;
+import org.red5.server.net.rtmp.message.Packet;
+import org.red5.server.so.FlexSharedObjectMessage;
+import org.red5.server.so.ISharedObjectEvent;
+import org.red5.server.so.SharedObjectEvent;
+import org.red5.server.so.SharedObjectMessage;
+import org.red5.server.so.SharedObjectUpdate;
+
+public class TestRTMPProtocolEncoder {
+
+    private static final int CHANNEL_ID = 6;
+
+    @After
+    public void tearDown() {
+        Red5.setConnectionLocal(null);
+    }
+
+    @Test
+    public void testEncodePacketChunks() {
+        byte[] payload = payload(1000);
+        for (int chunkSize : new int[] { 128, 999, 1000, 4096 }) {
+            byte[] encoded = encode(payload, chunkSize, null);
+            assertArrayEquals(expected(payload, chunkSize), encoded);
+        }
+    }
+
+    @Test
+    public void testEncodePacketSharedChunks() {
+        byte[] payload = payload(5000);
+        ChunkedPayload chunkedPayload = new ChunkedPayload();
+        for (int chunkSize : new int[] { 128, 4096 }) {
+            byte[] expected = expected(payload, chunkSize);
+            // two subscribers, the second uses the chunks created for the first
+            assertArrayEquals(expected, encode(payload, chunkSize, chunkedPayload));
+            assertArrayEquals(expected, encode(payload, chunkSize, chunkedPayload));
+        }
+        assertEquals(2, chunkedPayload.size());
+    }
+
+    @Test
+    public void testEncodeSharedObjectUpdate() {
+        TreeSet<ISharedObjectEvent> events = new TreeSet<>();
+        for (int i = 0; i < 50; i++) {
+            events.add(new SharedObjectEvent(ISharedObjectEvent.Type.CLIENT_UPDATE_DATA, "attribute" + i, "value of attribute " + i));
+        }
+        SharedObjectUpdate update = new SharedObjectUpdate("so", 3, false, events);
+        for (Encoding encoding : new Encoding[] { Encoding.AMF0, Encoding.AMF3 }) {
+            byte[] expected = encode(encoding, 128, events, null);
+            // two listeners, the second uses the body and chunks created for the first
+            assertArrayEquals(expected, encode(encoding, 128, events, update));
+            assertNotNull(update.getBody(encoding));
+            assertArrayEquals(expected, encode(encoding, 128, events, update));
+            assertEquals(1, update.getChunkedPayload(encoding).size());
+        }
+    }
+
+    private static byte[] encode(Encoding encoding, int chunkSize, TreeSet<ISharedObjectEvent> events, SharedObjectUpdate update) {
+        RTMPConnection conn = new RTMPMinaConnection();
+        conn.getState().setEncoding(encoding);
+        conn.getState().setWriteChunkSize(chunkSize);
+        Red5.setConnectionLocal(conn);
+        SharedObjectMessage message = encoding == Encoding.AMF3 ? new FlexSharedObjectMessage("so", 3, false) : new SharedObjectMessage("so", 3, false);
+        message.addEvents(events);
+        message.setUpdate(update);
+        Header header = new Header();
+        header.setChannelId(3);
+        header.setDataType(message.getDataType());
+        IoBuffer out = new RTMPProtocolEncoder().encodePacket(new Packet(header, message));
+        byte[] result = new byte[out.remaining()];
+        out.get(result);
+        return result;
+    }
+
+    private static byte[] payload(int length) {
+        byte[] payload = new byte[length];
+        // avc interframe
+        payload[0] = 0x27;
+        for (int i = 1; i < length; i++) {
+            payload[i] = (byte) i;
+        }
+        return payload;
+    }
+
+    private static byte[] encode(byte[] payload, int chunkSize, ChunkedPayload chunkedPayload) {
+        RTMPConnection conn = new RTMPMinaConnection();
+        conn.getState().setWriteChunkSize(chunkSize);
+        Red5.setConnectionLocal(conn);
+        VideoData video = new VideoData(IoBuffer.wrap(payload).asReadOnlyBuffer());
+        video.setChunkedPayload(chunkedPayload);
+        Header header = new Header();
+        header.setChannelId(CHANNEL_ID);
+        header.setStreamId(1);
+        header.setDataType(Constants.TYPE_VIDEO_DATA);
+        header.setTimer(1000);
+        IoBuffer out = new RTMPProtocolEncoder().encodePacket(new Packet(header, video));
+        byte[] result = new byte[out.remaining()];
+        out.get(result);
+        return result;
+    }
+
+    private static byte[] expected(byte[] payload, int chunkSize) {
+        IoBuffer out = IoBuffer.allocate(payload.length).setAutoExpand(true);
+        // type 0 header
+        out.put((byte) CHANNEL_ID);
+        out.put(new byte[] { 0, 0x03, (byte) 0xe8 });
+        out.put(new byte[] { (byte) (payload.length >> 16), (byte) (payload.length >> 8), (byte) payload.length });
+        out.put(Constants.TYPE_VIDEO_DATA);
+        out.put(new byte[] { 1, 0, 0, 0 });
+        for (int pos = 0; pos < payload.length; pos += chunkSize) {
+            if (pos > 0) {
+                // type 3 header
+                out.put((byte) (0xc0 | CHANNEL_ID));
+            }
+            out.put(payload, pos, Math.min(chunkSize, payload.length - pos));
+        }
+        out.flip();
+        byte[] result = new byte[out.remaining()];
+        out.get(result);
+        return result;
+    }
+
+}
@@ -0,0 +1,52 @@
+package org.red5.server.net.rtmp.message;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.junit.Test;
+import org.red5.server.net.rtmp.RTMPUtils;
+
+public class TestChunkedPayload {
+
+    @Test
+    public void testChunksMatchPerChunkEncoding() {
+        byte[] payload = new byte[1000];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+        for (int channelId : new int[] { 6, 64, 400 }) {
+            for (int chunkSize : new int[] { 128, 500, 999, 1000 }) {
+                ChunkedPayload chunkedPayload = new ChunkedPayload();
+                IoBuffer data = IoBuffer.wrap(payload);
+                byte[] chunks = chunkedPayload.getChunks(data, channelId, chunkSize);
+                // position must be left alone
+                assertEquals(0, data.position());
+                assertArrayEquals(chunkPerChunk(payload, channelId, chunkSize), chunks);
+                // second request is served from the cache
+                assertSame(chunks, chunkedPayload.getChunks(data, channelId, chunkSize));
+            }
+        }
+    }
+
+    private static byte[] chunkPerChunk(byte[] payload, int channelId, int chunkSize) {
+        IoBuffer data = IoBuffer.wrap(payload);
+        IoBuffer out = IoBuffer.allocate(payload.length).setAutoExpand(true);
+        boolean first = true;
+        do {
+            if (!first) {
+                RTMPUtils.encodeHeaderByte(out, Constants.HEADER_CONTINUE, channelId);
+            }
+            first = false;
+            byte[] buf = new byte[Math.min(chunkSize, data.remaining())];
+            data.get(buf);
+            out.put(buf);
+        } while (data.hasRemaining());
+        out.flip();
+        byte[] result = new byte[out.remaining()];
+        out.get(result);
+        return result;
+    }
+
+}
@@ -0,0 +1,58 @@
+package org.red5.server.net.rtmpe;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.junit.Test;
+
+public class TestRTMPEUtils {
+
+    private static final byte[] KEY = "0123456789abcdef".getBytes();
+
+    private static Cipher cipher(int mode) throws Exception {
+        Cipher cipher = Cipher.getInstance("RC4");
+        cipher.init(mode, new SecretKeySpec(KEY, "RC4"));
+        return cipher;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Random rnd = new Random(7);
+        Cipher reference = cipher(Cipher.ENCRYPT_MODE);
+        Cipher out = cipher(Cipher.ENCRYPT_MODE);
+        Cipher in = cipher(Cipher.DECRYPT_MODE);
+        for (int size : new int[] { 1, 128, 4096, 65536 }) {
+            byte[] plain = new byte[size];
+            rnd.nextBytes(plain);
+            // skip a header, the remaining bytes are encrypted
+            IoBuffer message = IoBuffer.allocate(size + 12);
+            message.position(12);
+            message.put(plain);
+            message.flip();
+            message.position(12);
+            IoBuffer encrypted = RTMPEUtils.encrypt(out, message);
+            assertFalse(message.hasRemaining());
+            assertEquals(size, encrypted.remaining());
+            byte[] expected = reference.update(plain);
+            assertArrayEquals(expected, Arrays.copyOfRange(encrypted.array(), encrypted.position(), encrypted.limit()));
+            // decrypt in place, on a direct buffer for the larger messages
+            IoBuffer received = IoBuffer.allocate(size, size > 4096);
+            received.put(encrypted);
+            received.flip();
+            IoBuffer decrypted = RTMPEUtils.decrypt(in, received);
+            assertEquals(size, decrypted.remaining());
+            byte[] result = new byte[size];
+            decrypted.get(result);
+            assertArrayEquals(plain, result);
+        }
+    }
+
+}
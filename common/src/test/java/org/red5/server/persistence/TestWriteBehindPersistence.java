@@ -0,0 +1,98 @@
+package org.red5.server.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.red5.server.api.persistence.IPersistable;
+import org.red5.server.so.SharedObject;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+public class TestWriteBehindPersistence {
+
+    private ThreadPoolTaskScheduler scheduler;
+
+    private CountingPersistence store;
+
+    @Before
+    public void setUp() {
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        store = new CountingPersistence();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testCoalescing() throws Exception {
+        WriteBehindPersistence.Statistics statistics = new WriteBehindPersistence.Statistics();
+        WriteBehindPersistence writeBehind = new WriteBehindPersistence(store, scheduler, 200, 100, statistics);
+        SharedObject so = new SharedObject("test", "/app", true, writeBehind);
+        for (int i = 0; i < 50; i++) {
+            so.setAttribute("counter", i);
+        }
+        assertEquals(0, store.saves.get());
+        assertEquals(1, statistics.getBacklog());
+        // written once after the window
+        long deadline = System.currentTimeMillis() + 5000;
+        while (store.saves.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, store.saves.get());
+        assertEquals(50, statistics.getSaveRequests());
+        assertEquals(50d, statistics.getCoalescingRatio(), 0d);
+        assertEquals(0, statistics.getBacklog());
+        assertSame(so, writeBehind.load("SHARED_OBJECT/app/test"));
+    }
+
+    @Test
+    public void testMaxPendingAndClose() {
+        WriteBehindPersistence.Statistics statistics = new WriteBehindPersistence.Statistics();
+        WriteBehindPersistence writeBehind = new WriteBehindPersistence(store, scheduler, 60000, 4, statistics);
+        for (int i = 0; i < 4; i++) {
+            new SharedObject("test" + i, "/app", true, writeBehind).setAttribute("value", i);
+        }
+        assertEquals(0, store.saves.get());
+        // the fifth object exceeds the bound and the caller saves the backlog
+        new SharedObject("test4", "/app", true, writeBehind).setAttribute("value", 4);
+        assertEquals(5, store.saves.get());
+        new SharedObject("test5", "/app", true, writeBehind).setAttribute("value", 5);
+        assertEquals(1, writeBehind.getPendingCount());
+        writeBehind.notifyClose();
+        assertEquals(6, store.saves.get());
+        assertTrue(store.closed);
+    }
+
+    private static class CountingPersistence extends RamPersistence {
+
+        final AtomicInteger saves = new AtomicInteger();
+
+        volatile boolean closed;
+
+        CountingPersistence() {
+            super(new PathMatchingResourcePatternResolver());
+        }
+
+        @Override
+        public boolean save(IPersistable object) {
+            saves.incrementAndGet();
+            return super.save(object);
+        }
+
+        @Override
+        public void notifyClose() {
+            closed = true;
+        }
+
+    }
+
+}
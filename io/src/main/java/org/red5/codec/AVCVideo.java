@@ -49,7 +49,6 @@ public class AVCVideo extends AbstractVideo {
     private void softReset() {
         keyframes.clear();
         interframes.clear();
-        numInterframes.set(0);
     }
 
     /** {@inheritDoc} */
@@ -99,8 +98,8 @@ public class AVCVideo extends AbstractVideo {
                                 // if its a new keyframe, clear keyframe and interframe collections
                                 softReset();
                             }
-                            // store keyframe
-                            keyframes.add(new FrameData(data));
+                            // store keyframe, sharing the payload
+                            keyframes.add(FrameData.share(data, timestamp));
                             break;
                         case 0: // configuration
                             //log.trace("Decoder configuration");
@@ -117,17 +116,8 @@ public class AVCVideo extends AbstractVideo {
                     }
                     // rewind
                     data.rewind();
-                    try {
-                        int lastInterframe = numInterframes.getAndIncrement();
-                        //log.trace("Buffering interframe #{}", lastInterframe);
-                        if (lastInterframe < interframes.size()) {
-                            interframes.get(lastInterframe).setData(data);
-                        } else {
-                            interframes.add(new FrameData(data));
-                        }
-                    } catch (Throwable e) {
-                        log.warn("Failed to buffer interframe", e);
-                    }
+                    // store interframe, sharing the payload
+                    interframes.add(FrameData.share(data, timestamp));
                     //log.trace("Interframes: {}", interframes.size());
                 }
             } else {
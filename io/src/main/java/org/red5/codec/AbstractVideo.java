@@ -1,7 +1,6 @@
 package org.red5.codec;
 
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.mina.core.buffer.IoBuffer;
 import org.red5.io.IoConstants;
@@ -21,17 +20,12 @@ public class AbstractVideo implements IVideoStreamCodec, IoConstants {
     /**
      * Storage for frames buffered since last key frame
      */
-    protected final CopyOnWriteArrayList<FrameData> interframes = new CopyOnWriteArrayList<>();
-
-    /**
-     * Number of frames buffered since last key frame
-     */
-    protected final AtomicInteger numInterframes = new AtomicInteger(0);
+    protected GOPCache interframes = new GOPCache();
 
     /**
      * Whether or not to buffer interframes
      */
-    protected boolean bufferInterframes = false;
+    protected boolean bufferInterframes;
 
     @Override
     public VideoCodec getCodec() {
@@ -95,16 +89,19 @@ public class AbstractVideo implements IVideoStreamCodec, IoConstants {
     /** {@inheritDoc} */
     @Override
     public int getNumInterframes() {
-        return numInterframes.get();
+        return interframes.size();
     }
 
     /** {@inheritDoc} */
     @Override
     public FrameData getInterframe(int index) {
-        if (index < numInterframes.get()) {
-            return interframes.get(index);
-        }
-        return null;
+        return interframes.get(index);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public FrameData[] getInterframes() {
+        return interframes.getFrames();
     }
 
     public boolean isBufferInterframes() {
@@ -115,4 +112,16 @@ public class AbstractVideo implements IVideoStreamCodec, IoConstants {
         this.bufferInterframes = bufferInterframes;
     }
 
+    /**
+     * Replaces the interframe cache with one of the given limits, before any data has been added.
+     *
+     * @param maxFrames
+     *            maximum number of cached frames
+     * @param maxBytes
+     *            maximum number of cached bytes
+     */
+    public void setGOPCacheLimits(int maxFrames, int maxBytes) {
+        interframes = new GOPCache(maxFrames, maxBytes);
+    }
+
 }
@@ -0,0 +1,102 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.codec;
+
+import java.util.Arrays;
+
+import org.red5.codec.IVideoStreamCodec.FrameData;
+
+/**
+ * Bounded cache of the interframes received since the last keyframe of a stream. The frames reference the stream payloads rather than copies of them, and the slots are
+ * reused from one group of pictures to the next. Once the frame or byte limit is reached, the rest of the group is not cached; a partial group is still decodable from its
+ * keyframe, a group with holes is not.
+ */
+public class GOPCache {
+
+    /**
+     * Default maximum number of cached frames
+     */
+    public static final int DEFAULT_MAX_FRAMES = 300;
+
+    /**
+     * Default maximum number of cached bytes
+     */
+    public static final int DEFAULT_MAX_BYTES = 8 * 1024 * 1024;
+
+    private final FrameData[] frames;
+
+    private final int maxBytes;
+
+    private int count;
+
+    private int bytes;
+
+    // limit reached, nothing is added until the next keyframe
+    private boolean full;
+
+    public GOPCache() {
+        this(DEFAULT_MAX_FRAMES, DEFAULT_MAX_BYTES);
+    }
+
+    public GOPCache(int maxFrames, int maxBytes) {
+        this.frames = new FrameData[maxFrames];
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Adds a frame to the current group.
+     *
+     * @param frame
+     *            frame data
+     * @return true if the frame was cached, false if the group has outgrown the limits
+     */
+    public synchronized boolean add(FrameData frame) {
+        if (!full) {
+            int size = frame.getSize();
+            if (count < frames.length && bytes + size <= maxBytes) {
+                frames[count++] = frame;
+                bytes += size;
+                return true;
+            }
+            full = true;
+        }
+        return false;
+    }
+
+    /**
+     * Drops the cached frames, called when a new group starts.
+     */
+    public synchronized void clear() {
+        Arrays.fill(frames, 0, count, null);
+        count = 0;
+        bytes = 0;
+        full = false;
+    }
+
+    public synchronized FrameData get(int index) {
+        return index < count ? frames[index] : null;
+    }
+
+    /**
+     * Returns the cached frames in decoding order.
+     *
+     * @return cached frames
+     */
+    public synchronized FrameData[] getFrames() {
+        return Arrays.copyOf(frames, count);
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized int getBytes() {
+        return bytes;
+    }
+
+}
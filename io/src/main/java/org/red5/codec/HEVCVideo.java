@@ -48,7 +48,6 @@ public class HEVCVideo extends AbstractVideo {
     private void softReset() {
         keyframes.clear();
         interframes.clear();
-        numInterframes.set(0);
     }
 
     /** {@inheritDoc} */
@@ -98,8 +97,8 @@ public class HEVCVideo extends AbstractVideo {
                                 // if its a new keyframe, clear keyframe and interframe collections
                                 softReset();
                             }
-                            // store keyframe
-                            keyframes.add(new FrameData(data));
+                            // store keyframe, sharing the payload
+                            keyframes.add(FrameData.share(data, timestamp));
                             break;
                         case 0: // configuration
                             if (isDebug) {
@@ -118,17 +117,8 @@ public class HEVCVideo extends AbstractVideo {
                     }
                     // rewind
                     data.rewind();
-                    try {
-                        int lastInterframe = numInterframes.getAndIncrement();
-                        //log.trace("Buffering interframe #{}", lastInterframe);
-                        if (lastInterframe < interframes.size()) {
-                            interframes.get(lastInterframe).setData(data);
-                        } else {
-                            interframes.add(new FrameData(data));
-                        }
-                    } catch (Throwable e) {
-                        log.warn("Failed to buffer interframe", e);
-                    }
+                    // store interframe, sharing the payload
+                    interframes.add(FrameData.share(data, timestamp));
                     //log.trace("Interframes: {}", interframes.size());
                 }
             } else {
@@ -7,7 +7,10 @@
 
 package org.red5.codec;
 
+import java.util.Arrays;
+
 import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.buffer.SimpleBufferAllocator;
 
 /**
  * Represents a Video codec and its associated decoder configuration.
@@ -118,6 +121,24 @@ public interface IVideoStreamCodec {
      */
     FrameData getInterframe(int index);
 
+    /**
+     * Returns the interframes collected since the last keyframe, in decoding order.
+     *
+     * @return array of interframe data
+     */
+    default FrameData[] getInterframes() {
+        int count = getNumInterframes();
+        FrameData[] result = new FrameData[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = getInterframe(i);
+            if (result[i] == null) {
+                // collection was reset while reading
+                return Arrays.copyOf(result, i);
+            }
+        }
+        return result;
+    }
+
     /**
      * Holder for video frame data.
      */
@@ -125,6 +146,13 @@ public interface IVideoStreamCodec {
 
         private byte[] frame;
 
+        /**
+         * Read-only view of a payload shared with the live stream, used instead of a copy
+         */
+        private IoBuffer shared;
+
+        private int timestamp;
+
         public FrameData() {
         }
 
@@ -132,6 +160,43 @@ public interface IVideoStreamCodec {
             setData(data);
         }
 
+        /**
+         * Creates frame data which references the given payload instead of copying it. The payload must not be modified afterwards, which holds for the data of received
+         * stream events. Releasing an event frees its payload, which only leaves the content intact for heap buffers of the non-pooling allocator; direct and pooled
+         * payloads may be handed out again while the frame is still cached, so they are copied.
+         *
+         * @param data
+         *            data, from position 0 to its limit
+         * @param timestamp
+         *            frame timestamp
+         * @return frame data
+         */
+        public static FrameData share(IoBuffer data, int timestamp) {
+            FrameData frameData = new FrameData();
+            if (isShareable(data)) {
+                IoBuffer view = data.asReadOnlyBuffer();
+                view.position(0);
+                frameData.shared = view;
+            } else {
+                IoBuffer source = data.duplicate();
+                source.position(0);
+                frameData.setData(source);
+            }
+            frameData.timestamp = timestamp;
+            return frameData;
+        }
+
+        /**
+         * Returns whether the content of the payload stays untouched once its event is released, which is the case when freeing it does not return it to a pool.
+         *
+         * @param data
+         *            payload
+         * @return true if a view of the payload may be kept
+         */
+        private static boolean isShareable(IoBuffer data) {
+            return !data.isDirect() && IoBuffer.getAllocator() instanceof SimpleBufferAllocator;
+        }
+
         /**
          * Makes a copy of the incoming bytes and places them in an IoBuffer. No flip or rewind is performed on the source data.
          *
@@ -142,13 +207,33 @@ public interface IVideoStreamCodec {
             if (frame != null) {
                 frame = null;
             }
+            shared = null;
             frame = new byte[data.limit()];
             data.get(frame);
         }
 
         public IoBuffer getFrame() {
+            if (shared != null) {
+                return shared.duplicate();
+            }
             return frame == null ? null : IoBuffer.wrap(frame).asReadOnlyBuffer();
         }
 
+        /**
+         * Returns the size of the frame in bytes.
+         *
+         * @return frame size
+         */
+        public int getSize() {
+            if (shared != null) {
+                return shared.limit();
+            }
+            return frame == null ? 0 : frame.length;
+        }
+
+        public int getTimestamp() {
+            return timestamp;
+        }
+
     }
 }
@@ -0,0 +1,371 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.red5.io.flv.IKeyFrameDataAnalyzer.KeyFrameMeta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Keyframe metadata cache storing the keyframe index of a file in a binary <code>.kfm</code> file next to it, and keeping recently used indexes in memory.
+ * <p>
+ * The binary file has a fixed 48 byte header followed by the positions as longs and the timestamps as ints, big-endian, so it is read with a single read and bulk
+ * copies. Both the file and the memory entries record the modification time and length of the media file and are ignored once it changes. Lookups do not lock; the
+ * memory used by the entries is bounded in bytes and evicted with the CLOCK approximation of LRU. Indexes saved in the XML format of {@link FileKeyFrameMetaCache} are
+ * converted when first read.
+ *
+ * @author The Red5 Project
+ */
+@ManagedResource(objectName = "org.red5.server:name=keyFrameMetaCache,type=BinaryKeyFrameMetaCache")
+public class BinaryKeyFrameMetaCache implements IKeyFrameMetaCache, KeyFrameMetaCacheMXBean {
+
+    private static Logger log = LoggerFactory.getLogger(BinaryKeyFrameMetaCache.class);
+
+    /**
+     * File name extension of the binary index
+     */
+    public static final String EXTENSION = ".kfm";
+
+    // "R5KF"
+    private static final int MAGIC = 0x52354b46;
+
+    private static final short VERSION = 1;
+
+    private static final int HEADER_LENGTH = 48;
+
+    private static final short FLAG_AUDIO_ONLY = 0x01;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // entries in insertion order for eviction, removed entries stay until the hand passes them
+    private final Queue<Entry> clock = new ConcurrentLinkedQueue<>();
+
+    // removed entries still in the clock
+    private final AtomicInteger removedInClock = new AtomicInteger();
+
+    private final AtomicLong cachedBytes = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+
+    private final FileKeyFrameMetaCache legacyCache = new FileKeyFrameMetaCache();
+
+    private long maxCacheBytes = 32 * 1024 * 1024;
+
+    /** {@inheritDoc} */
+    @Override
+    public KeyFrameMeta loadKeyFrameMeta(File file) {
+        String path = file.getAbsolutePath();
+        long modified = file.lastModified();
+        long length = file.length();
+        Entry entry = entries.get(path);
+        if (entry != null) {
+            if (entry.modified == modified && entry.length == length) {
+                entry.referenced = true;
+                hits.increment();
+                return entry.meta;
+            }
+            log.debug("Keyframe metadata is out of date for {}", path);
+            remove(entry);
+        }
+        misses.increment();
+        KeyFrameMeta meta = readIndex(file, modified, length);
+        if (meta == null) {
+            meta = legacyCache.loadKeyFrameMeta(file);
+            if (meta != null) {
+                log.debug("Converting keyframe metadata of {}", path);
+                writeIndex(file, meta, modified, length);
+            }
+        }
+        if (meta != null) {
+            add(new Entry(path, meta, modified, length));
+        }
+        return meta;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void removeKeyFrameMeta(File file) {
+        Entry entry = entries.get(file.getAbsolutePath());
+        if (entry != null) {
+            remove(entry);
+        }
+        File indexFile = new File(file.getAbsolutePath() + EXTENSION);
+        if (indexFile.exists() && !indexFile.delete()) {
+            log.warn("Keyframe index was not deleted - {}", indexFile);
+            indexFile.deleteOnExit();
+        }
+        legacyCache.removeKeyFrameMeta(file);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void saveKeyFrameMeta(File file, KeyFrameMeta meta) {
+        if (meta.positions.length == 0) {
+            // Don't store empty meta informations
+            return;
+        }
+        long modified = file.lastModified();
+        long length = file.length();
+        writeIndex(file, meta, modified, length);
+        add(new Entry(file.getAbsolutePath(), meta, modified, length));
+    }
+
+    private KeyFrameMeta readIndex(File file, long modified, long length) {
+        Path indexPath = new File(file.getAbsolutePath() + EXTENSION).toPath();
+        if (!Files.exists(indexPath)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_LENGTH || size > Integer.MAX_VALUE) {
+                log.debug("Keyframe index is truncated - {}", indexPath);
+                return null;
+            }
+            // small enough to read at once, a mapping would only be copied out of
+            ByteBuffer buf = ByteBuffer.allocate((int) size);
+            while (buf.hasRemaining()) {
+                if (channel.read(buf) < 0) {
+                    log.debug("Keyframe index is truncated - {}", indexPath);
+                    return null;
+                }
+            }
+            if (buf.getInt(0) != MAGIC || buf.getShort(4) != VERSION) {
+                log.debug("Unknown keyframe index format - {}", indexPath);
+                return null;
+            }
+            if (buf.getLong(8) != modified || buf.getLong(16) != length) {
+                // File has changed in the meantime
+                return null;
+            }
+            int count = buf.getInt(40);
+            if (size != HEADER_LENGTH + count * 12L) {
+                log.debug("Keyframe index is truncated - {}", indexPath);
+                return null;
+            }
+            KeyFrameMeta meta = new KeyFrameMeta();
+            meta.audioOnly = (buf.getShort(6) & FLAG_AUDIO_ONLY) != 0;
+            meta.duration = buf.getLong(24);
+            meta.videoCodecId = buf.getInt(32);
+            meta.audioCodecId = buf.getInt(36);
+            meta.positions = new long[count];
+            meta.timestamps = new int[count];
+            buf.position(HEADER_LENGTH);
+            buf.asLongBuffer().get(meta.positions);
+            buf.position(HEADER_LENGTH + count * 8);
+            buf.asIntBuffer().get(meta.timestamps);
+            return meta;
+        } catch (IOException e) {
+            log.warn("Could not read keyframe index {}", indexPath, e);
+        }
+        return null;
+    }
+
+    private void writeIndex(File file, KeyFrameMeta meta, long modified, long length) {
+        int count = meta.positions.length;
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_LENGTH + count * 12);
+        buf.putInt(MAGIC);
+        buf.putShort(VERSION);
+        buf.putShort(meta.audioOnly ? FLAG_AUDIO_ONLY : 0);
+        buf.putLong(modified);
+        buf.putLong(length);
+        buf.putLong(meta.duration);
+        buf.putInt(meta.videoCodecId);
+        buf.putInt(meta.audioCodecId);
+        buf.putInt(count);
+        buf.putInt(0);
+        buf.asLongBuffer().put(meta.positions);
+        buf.position(HEADER_LENGTH + count * 8);
+        buf.asIntBuffer().put(meta.timestamps);
+        buf.rewind();
+        Path indexPath = new File(file.getAbsolutePath() + EXTENSION).toPath();
+        Path tmpPath = new File(file.getAbsolutePath() + EXTENSION + ".tmp").toPath();
+        try {
+            try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buf.hasRemaining()) {
+                    channel.write(buf);
+                }
+            }
+            // readers never see a partially written index
+            try {
+                Files.move(tmpPath, indexPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpPath, indexPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            log.error("Could not save keyframe index {}", indexPath, e);
+        }
+    }
+
+    private void add(Entry entry) {
+        Entry previous = entries.put(entry.path, entry);
+        if (previous != null) {
+            retire(previous);
+        }
+        clock.offer(entry);
+        cachedBytes.addAndGet(entry.bytes);
+        if (cachedBytes.get() > maxCacheBytes) {
+            evict();
+        }
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.path, entry);
+        retire(entry);
+    }
+
+    /**
+     * Marks an entry which is still in the clock as removed; the hand drops it when it passes. Removed entries are swept out at once when they outnumber the live ones, so
+     * a cache which never fills up does not collect them.
+     */
+    private void retire(Entry entry) {
+        if (entry.removed.compareAndSet(false, true)) {
+            cachedBytes.addAndGet(-entry.bytes);
+            if (removedInClock.incrementAndGet() > entries.size()) {
+                synchronized (clock) {
+                    int swept = 0;
+                    for (Iterator<Entry> it = clock.iterator(); it.hasNext();) {
+                        if (it.next().removed.get()) {
+                            it.remove();
+                            swept++;
+                        }
+                    }
+                    removedInClock.addAndGet(-swept);
+                }
+            }
+        }
+    }
+
+    /**
+     * Evicts entries until the cache is within its size limit; an entry used since the hand last passed it gets a second chance.
+     */
+    private void evict() {
+        synchronized (clock) {
+            Entry entry;
+            while (cachedBytes.get() > maxCacheBytes && (entry = clock.poll()) != null) {
+                if (entry.removed.get()) {
+                    removedInClock.decrementAndGet();
+                } else if (entry.referenced) {
+                    entry.referenced = false;
+                    clock.offer(entry);
+                } else if (entry.removed.compareAndSet(false, true)) {
+                    entries.remove(entry.path, entry);
+                    cachedBytes.addAndGet(-entry.bytes);
+                    evictions.increment();
+                    log.trace("Evicted keyframe metadata of {}", entry.path);
+                } else {
+                    // removed while the hand was on it
+                    removedInClock.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (clock) {
+            Entry entry;
+            while ((entry = clock.poll()) != null) {
+                if (entry.removed.compareAndSet(false, true)) {
+                    entries.remove(entry.path, entry);
+                    cachedBytes.addAndGet(-entry.bytes);
+                } else {
+                    removedInClock.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+    @Override
+    public long getCachedBytes() {
+        return cachedBytes.get();
+    }
+
+    @Override
+    public long getMaxCacheBytes() {
+        return maxCacheBytes;
+    }
+
+    /**
+     * Sets the maximum memory used by the cached entries.
+     *
+     * @param maxCacheBytes
+     *            size in bytes
+     */
+    public void setMaxCacheBytes(long maxCacheBytes) {
+        this.maxCacheBytes = maxCacheBytes;
+    }
+
+    private static final class Entry {
+
+        final String path;
+
+        final KeyFrameMeta meta;
+
+        final long modified;
+
+        final long length;
+
+        final long bytes;
+
+        // set on use, cleared when the clock hand passes
+        volatile boolean referenced;
+
+        // set once the entry no longer counts towards the cache
+        final AtomicBoolean removed = new AtomicBoolean();
+
+        Entry(String path, KeyFrameMeta meta, long modified, long length) {
+            this.path = path;
+            this.meta = meta;
+            this.modified = modified;
+            this.length = length;
+            this.bytes = 96 + path.length() * 2 + meta.positions.length * 12L;
+        }
+
+    }
+
+}
@@ -8,8 +8,8 @@
 package org.red5.io;
 
 /**
- * Buffer types (auto, direct or heap).
+ * Buffer types (auto, direct, heap or mapped).
  */
 public enum BufferType {
-    AUTO, DIRECT, HEAP
+    AUTO, DIRECT, HEAP, MAPPED
 }
\ No newline at end of file
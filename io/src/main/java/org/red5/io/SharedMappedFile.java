@@ -0,0 +1,275 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A file mapped read-only into memory, shared by all the readers of the same file. The file is mapped in regions of a fixed size, so files
+ * larger than 2GB can be mapped as well; the readers get views of the regions, which share the page cache instead of each of them copying
+ * the file into a buffer of its own. The instances are reference counted, the file is unmapped once the last reader has released it and the
+ * views handed out have been collected.
+ *
+ * Files which are still being written are supported as long as they only grow: {@link #refresh()} maps the data appended since. A file
+ * must not be truncated while it is mapped. A file replaced at the same path, as a recording does when it moves the previous file aside, gets a
+ * mapping of its own; the readers of the previous file keep theirs.
+ *
+ * @author The Red5 Project
+ */
+public final class SharedMappedFile {
+
+    private static Logger log = LoggerFactory.getLogger(SharedMappedFile.class);
+
+    /**
+     * Size of the regions the files are mapped in
+     */
+    private static final int REGION_SIZE = Integer.getInteger("mapped.region_size", 64 * 1024 * 1024);
+
+    /**
+     * Mapped files by canonical path, an entry is replaced when the file at the path is no longer the one mapped
+     */
+    private static final Map<String, SharedMappedFile> files = new HashMap<>();
+
+    private final String path;
+
+    private final RandomAccessFile raf;
+
+    private final FileChannel channel;
+
+    /**
+     * Identity of the mapped file, null where the file system has none
+     */
+    private final Object fileKey;
+
+    private final FileTime creationTime;
+
+    /**
+     * Number of readers holding the file, guarded by the files map
+     */
+    private int references;
+
+    private volatile MappedByteBuffer[] regions = new MappedByteBuffer[0];
+
+    /**
+     * Mapped size, written after the regions
+     */
+    private volatile long size;
+
+    private SharedMappedFile(String path, BasicFileAttributes attributes) throws IOException {
+        this.path = path;
+        fileKey = attributes.fileKey();
+        creationTime = attributes.creationTime();
+        raf = new RandomAccessFile(path, "r");
+        channel = raf.getChannel();
+        try {
+            refresh();
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the mapping of the given file, mapping it if no other reader holds it. Each call has to be matched by a call to
+     * {@link #release()}.
+     *
+     * @param file
+     *            file to map
+     * @return shared mapping of the file
+     * @throws IOException
+     *             if the file cannot be opened or mapped
+     */
+    public static SharedMappedFile acquire(File file) throws IOException {
+        String path = file.getCanonicalPath();
+        BasicFileAttributes attributes = Files.readAttributes(Paths.get(path), BasicFileAttributes.class);
+        synchronized (files) {
+            SharedMappedFile mapped = files.get(path);
+            if (mapped != null && !mapped.isFile(attributes)) {
+                // the file was replaced, the readers of the previous one release it themselves
+                log.debug("{} was replaced, mapping it again", path);
+                files.remove(path);
+                mapped = null;
+            }
+            if (mapped == null) {
+                mapped = new SharedMappedFile(path, attributes);
+                files.put(path, mapped);
+                log.debug("Mapped {} size: {}", path, mapped.size);
+            }
+            mapped.references++;
+            return mapped;
+        }
+    }
+
+    /**
+     * Releases the mapping; the file is closed once no reader holds it anymore.
+     */
+    public void release() {
+        synchronized (files) {
+            if (references > 0 && --references == 0) {
+                files.remove(path, this);
+                try {
+                    raf.close();
+                } catch (IOException e) {
+                    log.warn("Exception closing {}", path, e);
+                }
+                log.debug("Released {}", path);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the given attributes belong to the mapped file. The file key is compared where the file system provides one, otherwise
+     * the creation time; a file smaller than the mapped size is not the mapped file either.
+     *
+     * @param attributes
+     *            attributes of the file at the path
+     * @return true if the file at the path is the mapped one
+     */
+    private boolean isFile(BasicFileAttributes attributes) {
+        if (fileKey != null) {
+            return fileKey.equals(attributes.fileKey());
+        }
+        return Objects.equals(creationTime, attributes.creationTime()) && attributes.size() >= size;
+    }
+
+    /**
+     * Maps the data appended to the file since it was mapped or last refreshed.
+     *
+     * @return true if the mapped size changed
+     * @throws IOException
+     *             if the file cannot be mapped
+     */
+    public synchronized boolean refresh() throws IOException {
+        long current = channel.size();
+        if (current == size) {
+            return false;
+        }
+        MappedByteBuffer[] old = regions;
+        if (current < size) {
+            log.warn("{} was truncated from {} to {} bytes", path, size, current);
+            old = new MappedByteBuffer[0];
+        }
+        int count = (int) ((current + REGION_SIZE - 1) / REGION_SIZE);
+        MappedByteBuffer[] updated = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            // regions mapped completely are kept, the last one is mapped again with the appended data
+            if (i < old.length && old[i].capacity() == REGION_SIZE) {
+                updated[i] = old[i];
+            } else {
+                long position = (long) i * REGION_SIZE;
+                updated[i] = channel.map(MapMode.READ_ONLY, position, Math.min(REGION_SIZE, current - position));
+            }
+        }
+        regions = updated;
+        size = current;
+        return true;
+    }
+
+    /**
+     * Returns the mapped size of the file.
+     *
+     * @return size in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns a read-only view from the given position to the end of the region it lies in. If fewer than the requested number of bytes
+     * are left in the region, the bytes are copied from the following regions instead.
+     *
+     * @param position
+     *            position in the file
+     * @param length
+     *            number of bytes the view has to contain, as far as the file is mapped
+     * @return view starting at the position
+     */
+    public ByteBuffer view(long position, int length) {
+        final long mapped = size;
+        final MappedByteBuffer[] current = regions;
+        if (position < 0 || position > mapped) {
+            throw new IndexOutOfBoundsException("Position " + position + " outside of " + mapped);
+        }
+        length = (int) Math.min(length, mapped - position);
+        int index = (int) (position / REGION_SIZE);
+        int offset = (int) (position % REGION_SIZE);
+        if (index == current.length || offset + length > current[index].capacity()) {
+            return copy(current, index, offset, length);
+        }
+        ByteBuffer buf = current[index].duplicate();
+        buf.position(offset);
+        return buf.slice();
+    }
+
+    /**
+     * Returns a read-only slice of the file, without copying unless it spans two regions.
+     *
+     * @param position
+     *            position in the file
+     * @param length
+     *            length of the slice
+     * @return slice of the file
+     */
+    public ByteBuffer slice(long position, int length) {
+        final long mapped = size;
+        final MappedByteBuffer[] current = regions;
+        if (position < 0 || length < 0 || position + length > mapped) {
+            throw new IndexOutOfBoundsException("Slice " + position + "+" + length + " outside of " + mapped);
+        }
+        int index = (int) (position / REGION_SIZE);
+        int offset = (int) (position % REGION_SIZE);
+        if (length == 0 || offset + length > current[index].capacity()) {
+            return copy(current, index, offset, length);
+        }
+        ByteBuffer buf = current[index].duplicate();
+        buf.position(offset);
+        buf.limit(offset + length);
+        return buf.slice();
+    }
+
+    private static ByteBuffer copy(MappedByteBuffer[] current, int index, int offset, int length) {
+        ByteBuffer copy = ByteBuffer.allocate(length);
+        while (copy.hasRemaining()) {
+            ByteBuffer src = current[index++].duplicate();
+            src.position(offset);
+            src.limit(offset + Math.min(src.remaining(), copy.remaining()));
+            copy.put(src);
+            offset = 0;
+        }
+        copy.flip();
+        return copy;
+    }
+
+    /**
+     * Returns the number of readers holding the file.
+     *
+     * @return number of references
+     */
+    public int getReferences() {
+        synchronized (files) {
+            return references;
+        }
+    }
+
+}
@@ -7,9 +7,7 @@
 
 package org.red5.io.amf;
 
-import java.beans.PropertyDescriptor;
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.lang.reflect.Type;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -21,20 +19,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.Vector;
 
-import org.apache.commons.beanutils.BeanUtils;
-import org.apache.commons.beanutils.BeanUtilsBean;
-import org.apache.commons.beanutils.PropertyUtilsBean;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.mina.core.buffer.IoBuffer;
 import org.red5.io.amf3.ByteArray;
 import org.red5.io.object.BaseInput;
+import org.red5.io.object.BeanCodec;
 import org.red5.io.object.DataTypes;
 import org.red5.io.object.Deserializer;
 import org.red5.io.object.RecordSet;
 import org.red5.io.object.RecordSetPage;
 import org.red5.io.utils.ArrayUtils;
-import org.red5.io.utils.ConversionUtils;
 import org.red5.io.utils.ObjectMap;
 import org.red5.io.utils.XMLUtils;
 import org.slf4j.Logger;
@@ -382,7 +377,7 @@ public class Input extends BaseInput implements org.red5.io.object.Input {
                 log.error("Class creation is not allowed {}", className);
             } else {
                 clazz = Thread.currentThread().getContextClassLoader().loadClass(className);
-                instance = clazz.newInstance();
+                instance = BeanCodec.forClass(clazz).newInstance();
             }
         } catch (InstantiationException iex) {
             try {
@@ -407,34 +402,19 @@ public class Input extends BaseInput implements org.red5.io.object.Input {
      *            Input as bean
      * @return Decoded object
      */
-    @SuppressWarnings({ "unchecked", "rawtypes" })
     protected Object readBean(Object bean) {
         log.debug("readBean: {}", bean);
         storeReference(bean);
-        Class theClass = bean.getClass();
+        BeanCodec codec = BeanCodec.forClass(bean.getClass());
         while (hasMoreProperties()) {
             String name = readPropertyName();
-            Type type = getPropertyType(bean, name);
+            Type type = codec.getPropertyType(name);
             log.debug("property: {} type: {}", name, type);
             Object property = Deserializer.deserialize(this, type);
             log.debug("val: {}", property);
-            // log.debug("val: "+property.getClass().getName());
             if (property != null) {
-                try {
-                    if (type instanceof Class) {
-                        Class t = (Class) type;
-                        if (!t.isAssignableFrom(property.getClass())) {
-                            property = ConversionUtils.convert(property, t);
-                        }
-                    }
-                    final Field field = theClass.getField(name);
-                    field.set(bean, property);
-                } catch (Exception ex2) {
-                    try {
-                        BeanUtils.setProperty(bean, name, property);
-                    } catch (Exception ex) {
-                        log.error("Error mapping property: {} ({})", name, property);
-                    }
+                if (!codec.setProperty(bean, name, property)) {
+                    log.error("Error mapping property: {} ({})", name, property);
                 }
             } else {
                 log.debug("Skipping null property: {}", name);
@@ -633,26 +613,7 @@ public class Input extends BaseInput implements org.red5.io.object.Input {
     }
 
     protected Type getPropertyType(Object instance, String propertyName) {
-        try {
-            if (instance != null) {
-                Field field = instance.getClass().getField(propertyName);
-                return field.getGenericType();
-            } else {
-                // instance is null for anonymous class, use default type
-            }
-        } catch (NoSuchFieldException e1) {
-            try {
-                BeanUtilsBean beanUtilsBean = BeanUtilsBean.getInstance();
-                PropertyUtilsBean propertyUtils = beanUtilsBean.getPropertyUtils();
-                PropertyDescriptor propertyDescriptor = propertyUtils.getPropertyDescriptor(instance, propertyName);
-                return propertyDescriptor.getReadMethod().getGenericReturnType();
-            } catch (Exception e2) {
-                // nothing
-            }
-        } catch (Exception e) {
-            // ignore other exceptions
-        }
-        // return Object class type by default
-        return Object.class;
+        // instance is null for anonymous class, use default type
+        return instance != null ? BeanCodec.forClass(instance.getClass()).getPropertyType(propertyName) : Object.class;
     }
 }
@@ -15,17 +15,15 @@ import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
 import java.util.TimeZone;
 import java.util.Vector;
 
 import org.apache.commons.beanutils.BeanMap;
 import org.apache.mina.core.buffer.IoBuffer;
-import org.red5.annotations.Anonymous;
 import org.red5.io.amf3.ByteArray;
 import org.red5.io.object.BaseOutput;
+import org.red5.io.object.BeanCodec;
 import org.red5.io.object.RecordSet;
 import org.red5.io.object.Serializer;
 import org.red5.io.utils.XMLUtils;
@@ -51,12 +49,6 @@ public class Output extends BaseOutput implements org.red5.io.object.Output {
 
     private static Cache stringCache;
 
-    private static Cache serializeCache;
-
-    private static Cache fieldCache;
-
-    private static Cache getterCache;
-
     private static CacheManager cacheManager;
 
     private static CacheManager getCacheManager() {
@@ -78,9 +70,6 @@ public class Output extends BaseOutput implements org.red5.io.object.Output {
     private static CacheManager constructDefault() {
         CacheManager manager = CacheManager.getInstance();
         manager.addCacheIfAbsent("org.red5.io.amf.Output.stringCache");
-        manager.addCacheIfAbsent("org.red5.io.amf.Output.getterCache");
-        manager.addCacheIfAbsent("org.red5.io.amf.Output.fieldCache");
-        manager.addCacheIfAbsent("org.red5.io.amf.Output.serializeCache");
         return manager;
     }
 
@@ -287,117 +276,56 @@ public class Output extends BaseOutput implements org.red5.io.object.Output {
     }
 
     /** {@inheritDoc} */
-    @SuppressWarnings({ "rawtypes" })
     @Override
     public void writeObject(Object object) {
         if (!checkWriteReference(object)) {
             storeReference(object);
-            // create new map out of bean properties
-            BeanMap beanMap = new BeanMap(object);
-            // set of bean attributes
-            Set attrs = beanMap.keySet();
-            log.trace("Bean map keys: {}", attrs);
-            if (attrs.size() == 0 || (attrs.size() == 1 && beanMap.containsKey("class"))) {
-                // beanMap is empty or can only access "class" attribute, skip it
+            BeanCodec codec = BeanCodec.forClass(object.getClass());
+            if (!codec.hasBeanProperties()) {
+                // no bean properties beside "class", write the public fields
                 writeArbitraryObject(object);
                 return;
             }
-            // write out either start of object marker for class name or "empty" start of object marker
-            Class<?> objectClass = object.getClass();
-            if (!objectClass.isAnnotationPresent(Anonymous.class)) {
-                buf.put(AMF.TYPE_CLASS_OBJECT);
-                putString(buf, Serializer.getClassName(objectClass));
-            } else {
-                buf.put(AMF.TYPE_OBJECT);
-            }
-            // if (object instanceof ICustomSerializable) {
-            //     ((ICustomSerializable) object).serialize(this);
-            //     buf.put(AMF.END_OF_OBJECT_SEQUENCE);
-            //     return;
-            // }
-            // Iterate thru entries and write out property names with separators
-            for (Object key : attrs) {
-                String fieldName = key.toString();
-                log.debug("Field name: {} class: {}", fieldName, objectClass);
-                Field field = getField(objectClass, fieldName);
-                Method getter = getGetter(objectClass, beanMap, fieldName);
-                // Check if the Field corresponding to the getter/setter pair is transient
-                if (!serializeField(objectClass, fieldName, field, getter)) {
-                    continue;
-                }
-                putString(buf, fieldName);
-                Serializer.serialize(this, field, getter, object, beanMap.get(key));
-            }
-            // write out end of object mark
-            buf.put(AMF.END_OF_OBJECT_SEQUENCE);
+            writeTypedObject(codec, object);
         }
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Returns whether a property is serialized.
+     *
+     * @deprecated typed objects are written as planned by their {@link BeanCodec}, which applies these rules once per class; this method is no longer called while
+     *             writing, override {@link #writeObject(Object)} to change which properties are written
+     */
+    @Deprecated
     protected boolean serializeField(Class<?> objectClass, String keyName, Field field, Method getter) {
-        // to prevent, NullPointerExceptions, get the element first and check if it's null
-        Element element = getSerializeCache().get(objectClass);
-        Map<String, Boolean> serializeMap = (element == null ? null : (Map<String, Boolean>) element.getObjectValue());
-        if (serializeMap == null) {
-            serializeMap = new HashMap<>();
-            getSerializeCache().put(new Element(objectClass, serializeMap));
-        }
-        boolean serialize;
-        if (getSerializeCache().isKeyInCache(keyName)) {
-            serialize = serializeMap.get(keyName);
-        } else {
-            serialize = Serializer.serializeField(keyName, field, getter);
-            serializeMap.put(keyName, serialize);
-        }
-        return serialize;
+        return Serializer.serializeField(keyName, field, getter);
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Returns the field of a property declared by the class or one of its superclasses.
+     *
+     * @deprecated properties are looked up by {@link BeanCodec}; this method is no longer called while writing
+     */
+    @Deprecated
     protected Field getField(Class<?> objectClass, String keyName) {
-        //again, to prevent null pointers, check if the element exists first.
-        Element element = getFieldCache().get(objectClass);
-        Map<String, Field> fieldMap = (element == null ? null : (Map<String, Field>) element.getObjectValue());
-        if (fieldMap == null) {
-            fieldMap = new HashMap<String, Field>();
-            getFieldCache().put(new Element(objectClass, fieldMap));
-        }
-        Field field = null;
-        if (fieldMap.containsKey(keyName)) {
-            field = fieldMap.get(keyName);
-        } else {
-            for (Class<?> clazz = objectClass; !clazz.equals(Object.class); clazz = clazz.getSuperclass()) {
-                Field[] fields = clazz.getDeclaredFields();
-                if (fields.length > 0) {
-                    for (Field fld : fields) {
-                        if (fld.getName().equals(keyName)) {
-                            field = fld;
-                            break;
-                        }
-                    }
+        for (Class<?> clazz = objectClass; !clazz.equals(Object.class); clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (field.getName().equals(keyName)) {
+                    return field;
                 }
             }
-            fieldMap.put(keyName, field);
         }
-        return field;
+        return null;
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Returns the getter of a property.
+     *
+     * @deprecated properties are looked up by {@link BeanCodec}; this method is no longer called while writing
+     */
+    @Deprecated
     protected Method getGetter(Class<?> objectClass, BeanMap beanMap, String keyName) {
-        //check element to prevent null pointer
-        Element element = getGetterCache().get(objectClass);
-        Map<String, Method> getterMap = (element == null ? null : (Map<String, Method>) element.getObjectValue());
-        if (getterMap == null) {
-            getterMap = new HashMap<String, Method>();
-            getGetterCache().put(new Element(objectClass, getterMap));
-        }
-        Method getter;
-        if (getterMap.containsKey(keyName)) {
-            getter = getterMap.get(keyName);
-        } else {
-            getter = beanMap.getReadMethod(keyName);
-            getterMap.put(keyName, getter);
-        }
-        return getter;
+        return beanMap.getReadMethod(keyName);
     }
 
     /** {@inheritDoc} */
@@ -427,36 +355,28 @@ public class Output extends BaseOutput implements org.red5.io.object.Output {
      */
     protected void writeArbitraryObject(Object object) {
         log.debug("writeObject");
-        // If we need to serialize class information...
-        Class<?> objectClass = object.getClass();
-        if (!objectClass.isAnnotationPresent(Anonymous.class)) {
-            // Write out start object marker for class name
+        writeTypedObject(BeanCodec.forClass(object.getClass()), object);
+    }
+
+    /**
+     * Writes the serializable properties of a typed object, as planned by its codec.
+     *
+     * @param codec
+     *            codec for the object class
+     * @param object
+     *            Object to write
+     */
+    private void writeTypedObject(BeanCodec codec, Object object) {
+        // write out either start of object marker for class name or "empty" start of object marker
+        if (!codec.isAnonymous()) {
             buf.put(AMF.TYPE_CLASS_OBJECT);
-            putString(buf, Serializer.getClassName(objectClass));
+            putString(buf, codec.getEncodedClassName());
         } else {
-            // Write out start object marker without class name
             buf.put(AMF.TYPE_OBJECT);
         }
-        // Iterate thru fields of an object to build "name-value" map from it
-        for (Field field : objectClass.getFields()) {
-            String fieldName = field.getName();
-            log.debug("Field: {} class: {}", field, objectClass);
-            // Check if the Field corresponding to the getter/setter pair is transient
-            if (!serializeField(objectClass, fieldName, field, null)) {
-                continue;
-            }
-            Object value;
-            try {
-                // Get field value
-                value = field.get(object);
-            } catch (IllegalAccessException err) {
-                // Swallow on private and protected properties access exception
-                continue;
-            }
-            // Write out prop name
-            putString(buf, fieldName);
-            // Write out
-            Serializer.serialize(this, field, null, object, value);
+        for (BeanCodec.Property property : codec.getProperties()) {
+            putString(buf, property.getEncodedName());
+            Serializer.serialize(this, property.getField(), property.getGetter(), object, property.get(object));
         }
         // write out end of object marker
         buf.put(AMF.END_OF_OBJECT_SEQUENCE);
@@ -537,7 +457,18 @@ public class Output extends BaseOutput implements org.red5.io.object.Output {
      *            String to write
      */
     public static void putString(IoBuffer buf, String string) {
-        final byte[] encoded = encodeString(string);
+        putString(buf, encodeString(string));
+    }
+
+    /**
+     * Write out an already encoded string
+     *
+     * @param buf
+     *            Byte buffer to write to
+     * @param encoded
+     *            UTF-8 encoded string
+     */
+    protected static void putString(IoBuffer buf, byte[] encoded) {
         if (encoded.length < AMF.LONG_STRING_LENGTH) {
             // write unsigned short
             buf.put((byte) ((encoded.length >> 8) & 0xff));
@@ -592,33 +523,9 @@ public class Output extends BaseOutput implements org.red5.io.object.Output {
         return stringCache;
     }
 
-    protected static Cache getSerializeCache() {
-        if (serializeCache == null) {
-            serializeCache = getCacheManager().getCache("org.red5.io.amf.Output.serializeCache");
-        }
-        return serializeCache;
-    }
-
-    protected static Cache getFieldCache() {
-        if (fieldCache == null) {
-            fieldCache = getCacheManager().getCache("org.red5.io.amf.Output.fieldCache");
-        }
-        return fieldCache;
-    }
-
-    protected static Cache getGetterCache() {
-        if (getterCache == null) {
-            getterCache = getCacheManager().getCache("org.red5.io.amf.Output.getterCache");
-        }
-        return getterCache;
-    }
-
     public static void destroyCache() {
         if (cacheManager != null) {
             cacheManager.shutdown();
-            fieldCache = null;
-            getterCache = null;
-            serializeCache = null;
             stringCache = null;
         }
     }
@@ -9,8 +9,6 @@ package org.red5.io.amf3;
 
 import java.io.IOException;
 import java.lang.reflect.Array;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.nio.ByteBuffer;
@@ -31,13 +29,12 @@ import java.util.Vector;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
-import org.apache.commons.beanutils.BeanUtils;
 import org.apache.mina.core.buffer.IoBuffer;
 import org.red5.io.amf.AMF;
+import org.red5.io.object.BeanCodec;
 import org.red5.io.object.DataTypes;
 import org.red5.io.object.Deserializer;
 import org.red5.io.utils.ArrayUtils;
-import org.red5.io.utils.ConversionUtils;
 import org.red5.io.utils.ObjectMap;
 import org.red5.io.utils.XMLUtils;
 import org.slf4j.Logger;
@@ -131,14 +128,8 @@ public class Input extends org.red5.io.amf.Input {
         public void resolveProperties(Object result) {
             if (properties != null) {
                 for (PendingProperty prop : properties) {
-                    try {
-                        prop.klass.getField(prop.name).set(prop.obj, result);
-                    } catch (Exception e) {
-                        try {
-                            BeanUtils.setProperty(prop.obj, prop.name, result);
-                        } catch (Exception ex) {
-                            log.warn("Error mapping property: {} ({})", prop.name, result);
-                        }
+                    if (!BeanCodec.forClass(prop.klass).setProperty(prop.obj, prop.name, result)) {
+                        log.warn("Error mapping property: {} ({})", prop.name, result);
                     }
                 }
                 properties.clear();
@@ -809,7 +800,8 @@ public class Input extends org.red5.io.amf.Input {
                 result = newInstance(className);
                 if (result != null) {
                     storeReference(tempRefId, result);
-                    Class resultClass = result.getClass();
+                    Class<?> resultClass = result.getClass();
+                    BeanCodec codec = BeanCodec.forClass(resultClass);
                     pending.resolveProperties(result);
                     for (Map.Entry<String, Object> entry : properties.entrySet()) {
                         // Resolve circular references
@@ -824,23 +816,8 @@ public class Input extends org.red5.io.amf.Input {
                             continue;
                         }
                         if (value != null) {
-                            try {
-                                final Field field = resultClass.getField(key);
-                                final Class fieldType = field.getType();
-                                if (!fieldType.isAssignableFrom(value.getClass())) {
-                                    value = ConversionUtils.convert(value, fieldType);
-                                } else if (value instanceof Enum) {
-                                    value = Enum.valueOf(fieldType, value.toString());
-                                }
-                                field.set(result, value);
-                            } catch (Exception e) {
-                                try {
-                                    BeanUtils.setProperty(result, key, value);
-                                } catch (IllegalAccessException ex) {
-                                    log.warn("Error mapping key: {} value: {}", key, value);
-                                } catch (InvocationTargetException ex) {
-                                    log.warn("Error mapping key: {} value: {}", key, value);
-                                }
+                            if (!codec.setProperty(result, key, value)) {
+                                log.warn("Error mapping key: {} value: {}", key, value);
                             }
                         } else {
                             if (log.isDebugEnabled()) {
@@ -29,6 +29,7 @@ import org.red5.io.IStreamableFile;
 import org.red5.io.ITag;
 import org.red5.io.ITagReader;
 import org.red5.io.IoConstants;
+import org.red5.io.SharedMappedFile;
 import org.red5.io.amf.Input;
 import org.red5.io.amf.Output;
 import org.red5.io.flv.FLVHeader;
@@ -68,6 +69,16 @@ public class FLVReader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
 
     private long channelSize;
 
+    /**
+     * Mapping of the file shared with the other readers, when the buffer type is mapped
+     */
+    private SharedMappedFile mapped;
+
+    /**
+     * Position in the file of the mapped input buffer
+     */
+    private long mappedPosition;
+
     /**
      * Keyframe metadata
      */
@@ -154,10 +165,14 @@ public class FLVReader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
             log.debug("{}", org.apache.commons.lang3.builder.ToStringBuilder.reflectionToString(this));
         }
         this.file = f;
-        this.fis = new FileInputStream(f);
         this.generateMetadata = generateMetadata;
-        channel = fis.getChannel();
-        channelSize = channel.size();
+        if (bufferType == BufferType.MAPPED) {
+            mapped = SharedMappedFile.acquire(f);
+        } else {
+            this.fis = new FileInputStream(f);
+            channel = fis.getChannel();
+            channelSize = channel.size();
+        }
         in = null;
         fillBuffer();
         postInitialize();
@@ -216,6 +231,9 @@ public class FLVReader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
      * @return Number of remaining bytes
      */
     private long getRemainingBytes() {
+        if (mapped != null) {
+            return mapped.getSize() - getCurrentPosition();
+        }
         if (in != null) {
             if (!useLoadBuf) {
                 return in.remaining();
@@ -240,6 +258,9 @@ public class FLVReader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
      */
     @Override
     public long getTotalBytes() {
+        if (mapped != null) {
+            return mapped.getSize();
+        }
         if (!useLoadBuf) {
             return in.capacity();
         }
@@ -258,6 +279,9 @@ public class FLVReader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
      */
     private long getCurrentPosition() {
         long pos;
+        if (mapped != null) {
+            return in != null ? mappedPosition + in.position() : mappedPosition;
+        }
         if (!useLoadBuf) {
             return in.position();
         }
@@ -284,6 +308,16 @@ public class FLVReader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
         if (pos == Long.MAX_VALUE) {
             pos = file.length();
         }
+        if (mapped != null) {
+            if (in != null && pos >= mappedPosition && pos <= mappedPosition + in.limit()) {
+                in.position((int) (pos - mappedPosition));
+            } else {
+                // the view is created on the next read
+                in = null;
+                mappedPosition = pos;
+            }
+            return;
+        }
         if (!useLoadBuf) {
             in.position((int) pos);
             return;
@@ -328,6 +362,10 @@ public class FLVReader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
      *            Whether to reload or append
      */
     private void fillBuffer(long amount, boolean reload) {
+        if (mapped != null) {
+            fillMappedBuffer((int) Math.min(amount, bufferSize));
+            return;
+        }
         try {
             if (amount > bufferSize) {
                 amount = bufferSize;
@@ -369,6 +407,59 @@ public class FLVReader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
         }
     }
 
+    /**
+     * Points the input buffer to a view of the shared mapping, unless it already holds the amount of bytes. The view reaches to the end of
+     * the mapped region, so the following reads do not need a new one.
+     *
+     * @param amount
+     *            The amount of bytes in buffer after returning, as far as the file is mapped
+     */
+    private void fillMappedBuffer(int amount) {
+        if (in != null) {
+            if (in.remaining() >= amount) {
+                return;
+            }
+            mappedPosition += in.position();
+        }
+        try {
+            if (mapped.getSize() - mappedPosition < amount) {
+                // the file may still be written
+                mapped.refresh();
+            }
+        } catch (IOException e) {
+            log.warn("Error refreshing mapping of {}", file.getName(), e);
+        }
+        in = IoBuffer.wrap(mapped.view(mappedPosition, amount));
+    }
+
+    /**
+     * Returns whether the next tag has been written completely, refreshing the mapping if it has not been mapped yet.
+     *
+     * @return true if a complete tag is available at the current position
+     */
+    private boolean isMappedTagAvailable() {
+        long pos = getCurrentPosition();
+        if (isMappedTagAvailable(pos)) {
+            return true;
+        }
+        try {
+            return mapped.refresh() && isMappedTagAvailable(pos);
+        } catch (IOException e) {
+            log.warn("Error refreshing mapping of {}", file.getName(), e);
+            return false;
+        }
+    }
+
+    private boolean isMappedTagAvailable(long pos) {
+        long available = mapped.getSize() - pos;
+        // previous tag size (4 bytes) + flv tag header size (11 bytes)
+        if (available < 15) {
+            return false;
+        }
+        int bodySize = IOUtils.readUnsignedMediumInt(mapped.slice(pos + 5, 3));
+        return available >= 15 + bodySize;
+    }
+
     /**
      * Post-initialization hook, reads keyframe metadata and decodes header (if any).
      */
@@ -397,7 +488,7 @@ public class FLVReader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
     }
 
     /**
-     * Getter for buffer type (auto, direct or heap).
+     * Getter for buffer type (auto, direct, heap or mapped).
      *
      * @return Value for property 'bufferType'
      */
@@ -409,6 +500,8 @@ public class FLVReader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
                 return "direct";
             case HEAP:
                 return "heap";
+            case MAPPED:
+                return "mapped";
             default:
                 return null;
         }
@@ -431,6 +524,10 @@ public class FLVReader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
                 //Get a direct buffer from buffer pool
                 FLVReader.bufferType = BufferType.DIRECT;
                 break;
+            case -1081360845: //mapped
+                //Share a read-only mapping of the file between the readers
+                FLVReader.bufferType = BufferType.MAPPED;
+                break;
             case 3005871: //auto
                 //Let MINA choose
             default:
@@ -544,6 +641,9 @@ public class FLVReader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
     public boolean hasMoreTags() {
         try {
             lock.lockInterruptibly();
+            if (mapped != null) {
+                return isMappedTagAvailable();
+            }
             return getRemainingBytes() > 4;
         } catch (InterruptedException e) {
             log.warn("Exception acquiring lock", e);
@@ -612,6 +712,10 @@ public class FLVReader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
         ITag tag = null;
         try {
             lock.lockInterruptibly();
+            if (mapped != null && !isMappedTagAvailable()) {
+                log.debug("Tag at {} has not been written completely", getCurrentPosition());
+                return null;
+            }
             long oldPos = getCurrentPosition();
             tag = readTagHeader();
             if (tag != null) {
@@ -627,56 +731,65 @@ public class FLVReader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
                     }
                 }
                 int bodySize = tag.getBodySize();
-                IoBuffer body = IoBuffer.allocate(bodySize, false);
-                // XXX Paul: this assists in 'properly' handling damaged FLV files
-                long newPosition = getCurrentPosition() + bodySize;
-                if (newPosition <= getTotalBytes()) {
-                    int limit;
-                    while (getCurrentPosition() < newPosition) {
-                        fillBuffer(newPosition - getCurrentPosition());
-                        if (getCurrentPosition() + in.remaining() > newPosition) {
-                            limit = in.limit();
-                            in.limit((int) (newPosition - getCurrentPosition()) + in.position());
-                            body.put(in);
-                            in.limit(limit);
-                        } else {
-                            body.put(in);
+                IoBuffer body;
+                if (mapped != null) {
+                    // a view of the mapping shared with the other readers, nothing is copied
+                    long pos = getCurrentPosition();
+                    body = IoBuffer.wrap(mapped.slice(pos, bodySize));
+                    setCurrentPosition(pos + bodySize);
+                    tag.setBody(body);
+                } else {
+                    body = IoBuffer.allocate(bodySize, false);
+                    // XXX Paul: this assists in 'properly' handling damaged FLV files
+                    long newPosition = getCurrentPosition() + bodySize;
+                    if (newPosition <= getTotalBytes()) {
+                        int limit;
+                        while (getCurrentPosition() < newPosition) {
+                            fillBuffer(newPosition - getCurrentPosition());
+                            if (getCurrentPosition() + in.remaining() > newPosition) {
+                                limit = in.limit();
+                                in.limit((int) (newPosition - getCurrentPosition()) + in.position());
+                                body.put(in);
+                                in.limit(limit);
+                            } else {
+                                body.put(in);
+                            }
                         }
+                        body.flip();
+                        tag.setBody(body);
                     }
-                    body.flip();
-                    tag.setBody(body);
                 }
                 // now that we have a tag body, check that config has been sent for codecs that require them
-                if (body.array().length > 0) {
-                    int firstByte = body.array()[0] & 0xff;
+                if (body.limit() > 0) {
+                    int firstByte = body.get(0) & 0xff;
                     if (((firstByte & ITag.MASK_SOUND_FORMAT) >> 4) == AudioCodec.AAC.getId()) {
                         // read second byte to see if its config data
-                        if (body.array()[1] != 0 && !audioConfigRead.get()) {
+                        if (body.get(1) != 0 && !audioConfigRead.get()) {
                             log.debug("Skipping AAC since config has not beean read yet");
                             body.clear();
                             body.free();
                             tag = null;
-                        } else if (body.array()[1] == 0 && audioConfigRead.compareAndSet(false, true)) {
+                        } else if (body.get(1) == 0 && audioConfigRead.compareAndSet(false, true)) {
                             log.debug("AAC config read");
                         }
                     } else if ((firstByte & ITag.MASK_VIDEO_CODEC) == VideoCodec.AVC.getId()) {
                         // read second byte to see if its config data
-                        if (body.array()[1] != 0 && !videoConfigRead.get()) {
+                        if (body.get(1) != 0 && !videoConfigRead.get()) {
                             log.debug("Skipping AVC since config has not beean read yet");
                             body.clear();
                             body.free();
                             tag = null;
-                        } else if (body.array()[1] == 0 && videoConfigRead.compareAndSet(false, true)) {
+                        } else if (body.get(1) == 0 && videoConfigRead.compareAndSet(false, true)) {
                             log.debug("AVC config read");
                         }
                     } else if ((firstByte & ITag.MASK_VIDEO_CODEC) == VideoCodec.HEVC.getId()) {
                         // read second byte to see if its config data
-                        if (body.array()[1] != 0 && !videoConfigRead.get()) {
+                        if (body.get(1) != 0 && !videoConfigRead.get()) {
                             log.debug("Skipping HEVC since config has not beean read yet");
                             body.clear();
                             body.free();
                             tag = null;
-                        } else if (body.array()[1] == 0 && videoConfigRead.compareAndSet(false, true)) {
+                        } else if (body.get(1) == 0 && videoConfigRead.compareAndSet(false, true)) {
                             log.debug("HEVC config read");
                         }
                     } else {
@@ -713,6 +826,10 @@ public class FLVReader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
                 in.free();
                 in = null;
             }
+            if (mapped != null) {
+                mapped.release();
+                mapped = null;
+            }
             if (channel != null) {
                 try {
                     channel.close();
@@ -11,7 +11,10 @@ import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -42,6 +45,7 @@ import org.red5.io.amf.Output;
 import org.red5.io.flv.FLVHeader;
 import org.red5.io.flv.IFLV;
 import org.red5.io.object.Deserializer;
+import org.red5.io.utils.BufferUtils;
 import org.red5.io.utils.IOUtils;
 import org.red5.media.processor.IPostProcessor;
 import org.slf4j.Logger;
@@ -70,6 +74,16 @@ public class FLVWriter implements ITagWriter {
      */
     private final static int TAG_HEADER_LENGTH = 11;
 
+    /**
+     * Length of the file information in the .info file; eight ints
+     */
+    private final static int INFO_LENGTH = 32;
+
+    /**
+     * Size of the buffer used to copy stream data when the channels don't support direct transfer
+     */
+    private final static int TRANSFER_BUFFER_SIZE = 64 * 1024;
+
     /**
      * For now all recorded streams carry a stream id of 0.
      */
@@ -188,6 +202,15 @@ public class FLVWriter implements ITagWriter {
     // offset in previous flv to skip when appending
     private long appendOffset = HEADER_LENGTH + 4L;
 
+    // memory mapped .info file, the file information is updated in place without a write per tag
+    private MappedByteBuffer infoBuffer;
+
+    // minimum time in milliseconds between flushes of the .info file to disk
+    private long infoSyncInterval = 1000L;
+
+    // time of the last .info flush
+    private long lastInfoSync;
+
     /**
      * Creates writer implementation with for a given file
      *
@@ -851,6 +874,7 @@ public class FLVWriter implements ITagWriter {
         if (!finalized.get()) {
             log.debug("Finalizing {}", filePath);
             try {
+                releaseInfoFile();
                 // read file info if it exists
                 File tmpFile = new File(filePath + ".info");
                 if (tmpFile.exists()) {
@@ -889,8 +913,8 @@ public class FLVWriter implements ITagWriter {
                 // write the metadata with the final duration
                 writeMetadataTag(duration * 0.001d, videoCodecId, audioCodecId);
                 log.debug("Pos post meta: {}", fileChannel.position());
-                // create a transfer buffer
-                ByteBuffer dst = ByteBuffer.allocate(1024);
+                // create a transfer buffer, only used when the channels are not file channels
+                ByteBuffer dst = ByteBuffer.allocate(TRANSFER_BUFFER_SIZE);
                 // when appending, read original stream data first and put it at the front
                 if (append) {
                     Path prevFlv = Paths.get(filePath.replace(".flv", ".old"));
@@ -899,27 +923,13 @@ public class FLVWriter implements ITagWriter {
                         SeekableByteChannel prevChannel = Files.newByteChannel(prevFlv, StandardOpenOption.READ);
                         // skip the flv header, prev tag size, and possibly metadata
                         prevChannel.position(appendOffset);
-                        int read = -1, wrote;
-                        boolean showfirsttag = true;
-                        do {
-                            read = prevChannel.read(dst);
-                            log.trace("Read: {} bytes", read);
-                            if (read > 0) {
-                                dst.flip();
-                                // inspect the byte to make sure its a valid type
-                                if (showfirsttag) {
-                                    showfirsttag = false;
-                                    dst.mark();
-                                    log.debug("Tag type: {}", (dst.get() & 31));
-                                    dst.reset();
-                                }
-                                wrote = fileChannel.write(dst);
-                                log.trace("Wrote: {} bytes", wrote);
-                                bytesTransferred += wrote;
-                            }
-                            dst.compact();
-                        } while (read > 0);
-                        dst.clear();
+                        if (log.isDebugEnabled() && prevChannel.read(dst) > 0) {
+                            dst.flip();
+                            log.debug("Tag type: {}", (dst.get() & 31));
+                            dst.clear();
+                            prevChannel.position(appendOffset);
+                        }
+                        bytesTransferred += transfer(prevChannel, fileChannel, dst);
                         prevChannel.close();
                         // remove the previous flv
                         Files.deleteIfExists(prevFlv);
@@ -934,19 +944,7 @@ public class FLVWriter implements ITagWriter {
                 // set the data file the beginning
                 dataChannel.position(0L);
                 // transfer / write data file into final flv
-                int read = -1, wrote;
-                do {
-                    read = dataChannel.read(dst);
-                    log.trace("Read: {} bytes", read);
-                    if (read > 0) {
-                        dst.flip();
-                        wrote = fileChannel.write(dst);
-                        log.trace("Wrote: {} bytes", wrote);
-                        bytesTransferred += wrote;
-                    }
-                    dst.compact();
-                } while (read > 0);
-                dst.clear();
+                bytesTransferred += transfer(dataChannel, fileChannel, dst);
                 dataChannel.close();
                 // get final position
                 long length = fileChannel.position();
@@ -1003,6 +1001,44 @@ public class FLVWriter implements ITagWriter {
         return bytesTransferred;
     }
 
+    /**
+     * Copies the source channel from its current position to the end into the destination channel. File channels are copied with transferTo, which lets the kernel move the
+     * data without passing it through the heap; other channels are copied through the given buffer.
+     *
+     * @param src
+     *            source channel
+     * @param dst
+     *            destination channel
+     * @param buf
+     *            transfer buffer
+     * @return number of bytes copied
+     * @throws IOException
+     */
+    private static long transfer(SeekableByteChannel src, SeekableByteChannel dst, ByteBuffer buf) throws IOException {
+        long transferred = 0L;
+        if (src instanceof FileChannel && dst instanceof FileChannel) {
+            FileChannel in = (FileChannel) src;
+            long position = in.position(), size = in.size();
+            while (position < size) {
+                long count = in.transferTo(position, size - position, (FileChannel) dst);
+                if (count <= 0) {
+                    break;
+                }
+                position += count;
+                transferred += count;
+            }
+            in.position(position);
+        } else {
+            while (src.read(buf) > 0 || buf.position() > 0) {
+                buf.flip();
+                transferred += dst.write(buf);
+                buf.compact();
+            }
+        }
+        log.trace("Transferred: {} bytes", transferred);
+        return transferred;
+    }
+
     /**
      * Read flv file information from pre-finalization file.
      *
@@ -1035,24 +1071,48 @@ public class FLVWriter implements ITagWriter {
     }
 
     /**
-     * Write or update flv file information into the pre-finalization file.
+     * Write or update flv file information into the pre-finalization file. The file is memory mapped, so an update is a few memory writes; the operating system keeps the
+     * page if the process dies and the page is flushed to disk at most every sync interval.
      */
-    private void updateInfoFile() {
-        try (RandomAccessFile infoFile = new RandomAccessFile(filePath + ".info", "rw")) {
-            infoFile.writeInt(audioCodecId);
-            infoFile.writeInt(videoCodecId);
-            infoFile.writeInt(duration);
+    private synchronized void updateInfoFile() {
+        try {
+            if (infoBuffer == null) {
+                try (FileChannel infoChannel = FileChannel.open(Paths.get(filePath + ".info"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    infoBuffer = infoChannel.map(MapMode.READ_WRITE, 0, INFO_LENGTH);
+                }
+            }
+            infoBuffer.putInt(0, audioCodecId);
+            infoBuffer.putInt(4, videoCodecId);
+            infoBuffer.putInt(8, duration);
             // additional props
-            infoFile.writeInt(audioDataSize);
-            infoFile.writeInt(soundRate);
-            infoFile.writeInt(soundSize);
-            infoFile.writeInt(soundType ? 1 : 0);
-            infoFile.writeInt(videoDataSize);
+            infoBuffer.putInt(12, audioDataSize);
+            infoBuffer.putInt(16, soundRate);
+            infoBuffer.putInt(20, soundSize);
+            infoBuffer.putInt(24, soundType ? 1 : 0);
+            infoBuffer.putInt(28, videoDataSize);
+            long now = System.currentTimeMillis();
+            if (now - lastInfoSync >= infoSyncInterval) {
+                lastInfoSync = now;
+                infoBuffer.force();
+            }
         } catch (Exception e) {
             log.warn("Exception writing flv file information data", e);
         }
     }
 
+    /**
+     * Flushes and unmaps the memory mapped .info file, so it can be deleted or reused once the recording is finalized. Synchronized with the updates, since
+     * writing to an unmapped buffer crashes the process.
+     */
+    private synchronized void releaseInfoFile() {
+        if (infoBuffer != null) {
+            MappedByteBuffer buffer = infoBuffer;
+            infoBuffer = null;
+            buffer.force();
+            BufferUtils.unmap(buffer);
+        }
+    }
+
     /**
      * Ends the writing process, then merges the data file with the flv file header and metadata.
      */
@@ -1163,6 +1223,16 @@ public class FLVWriter implements ITagWriter {
         this.audioDataSize = audioDataSize;
     }
 
+    /**
+     * Sets the minimum time between flushes of the .info file to disk. The file is always current for the operating system, this limits what a power failure can lose.
+     *
+     * @param infoSyncInterval
+     *            interval in milliseconds
+     */
+    public void setInfoSyncInterval(long infoSyncInterval) {
+        this.infoSyncInterval = infoSyncInterval;
+    }
+
     private final class FLVFinalizer implements Runnable {
 
         @Override
@@ -0,0 +1,349 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.io.mp4;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.red5.io.IoConstants;
+
+/**
+ * Sample table of an MP4 file, sorted by time and stored as primitive arrays instead of one {@link MP4Frame} per sample. An index is immutable once built, so one instance
+ * is shared by all the readers of a file; indexes are cached by file with a bound on their total size.
+ *
+ * @author The Red5 Project
+ */
+public class MP4SampleIndex {
+
+    /**
+     * Maximum total size in bytes of the cached indexes
+     */
+    private static final long MAX_CACHE_BYTES = Long.getLong("mp4.index.cache.max_bytes", 64L * 1024 * 1024);
+
+    private static final byte FLAG_KEYFRAME = 0x40;
+
+    private static final byte MASK_TYPE = 0x3f;
+
+    // indexes by file key, least recently used first
+    private static final LinkedHashMap<String, MP4SampleIndex> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static long cacheBytes;
+
+    private final long[] offsets;
+
+    private final int[] sizes;
+
+    private final double[] times;
+
+    // data type in the lower bits, keyframe flag
+    private final byte[] flags;
+
+    // timestamps and positions of the video keyframes
+    private final int[] seekPoints;
+
+    private final long[] seekPositions;
+
+    private MP4SampleIndex(long[] offsets, int[] sizes, double[] times, byte[] flags, int[] seekPoints, long[] seekPositions) {
+        this.offsets = offsets;
+        this.sizes = sizes;
+        this.times = times;
+        this.flags = flags;
+        this.seekPoints = seekPoints;
+        this.seekPositions = seekPositions;
+    }
+
+    /**
+     * Returns the cached index for the given file, if any.
+     *
+     * @param file
+     *            media file
+     * @return index or null
+     */
+    public static MP4SampleIndex get(File file) {
+        synchronized (cache) {
+            return cache.get(key(file));
+        }
+    }
+
+    /**
+     * Caches the index for the given file, evicting the least recently used indexes when the cache grows beyond its size limit.
+     *
+     * @param file
+     *            media file
+     * @param index
+     *            index
+     */
+    public static void put(File file, MP4SampleIndex index) {
+        synchronized (cache) {
+            MP4SampleIndex previous = cache.put(key(file), index);
+            if (previous != null) {
+                cacheBytes -= previous.getMemorySize();
+            }
+            cacheBytes += index.getMemorySize();
+            for (Iterator<MP4SampleIndex> it = cache.values().iterator(); it.hasNext() && cacheBytes > MAX_CACHE_BYTES;) {
+                MP4SampleIndex eldest = it.next();
+                if (eldest != index) {
+                    cacheBytes -= eldest.getMemorySize();
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all cached indexes.
+     */
+    public static void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+            cacheBytes = 0;
+        }
+    }
+
+    // a changed file gets a new key
+    private static String key(File file) {
+        return file.getAbsolutePath() + ':' + file.length() + ':' + file.lastModified();
+    }
+
+    public int size() {
+        return offsets.length;
+    }
+
+    public long getOffset(int index) {
+        return offsets[index];
+    }
+
+    public int getSize(int index) {
+        return sizes[index];
+    }
+
+    /**
+     * Returns the time of the sample in seconds.
+     *
+     * @param index
+     *            sample index
+     * @return time in seconds
+     */
+    public double getTime(int index) {
+        return times[index];
+    }
+
+    public byte getType(int index) {
+        return (byte) (flags[index] & MASK_TYPE);
+    }
+
+    public boolean isKeyFrame(int index) {
+        return (flags[index] & FLAG_KEYFRAME) != 0;
+    }
+
+    /**
+     * Returns the timestamps in milliseconds of the video keyframes, or null if the video track has no sync samples.
+     *
+     * @return keyframe timestamps
+     */
+    public int[] getSeekPoints() {
+        return seekPoints;
+    }
+
+    /**
+     * Returns the file positions of the video keyframes, in the order of {@link #getSeekPoints()}.
+     *
+     * @return keyframe positions
+     */
+    public long[] getSeekPositions() {
+        return seekPositions;
+    }
+
+    /**
+     * Returns the approximate heap size of the index.
+     *
+     * @return size in bytes
+     */
+    public long getMemorySize() {
+        long size = offsets.length * (8L + 4L + 8L + 1L);
+        if (seekPoints != null) {
+            size += seekPoints.length * (4L + 8L);
+        }
+        return size;
+    }
+
+    /**
+     * Collects the samples of the audio and video tracks, each in time order, and merges them into an index.
+     */
+    public static class Builder {
+
+        private final Track video = new Track(), audio = new Track();
+
+        private int[] seekPoints;
+
+        private long[] seekPositions;
+
+        private int seekCount = -1;
+
+        /**
+         * Adds the next video sample.
+         *
+         * @param offset
+         *            file position
+         * @param size
+         *            size in bytes
+         * @param time
+         *            time in seconds
+         * @param keyFrame
+         *            whether or not the sample is a keyframe
+         */
+        public void addVideo(long offset, int size, double time, boolean keyFrame) {
+            video.add(offset, size, time, (byte) (IoConstants.TYPE_VIDEO | (keyFrame ? FLAG_KEYFRAME : 0)));
+        }
+
+        /**
+         * Adds the next audio sample.
+         *
+         * @param offset
+         *            file position
+         * @param size
+         *            size in bytes
+         * @param time
+         *            time in seconds
+         */
+        public void addAudio(long offset, int size, double time) {
+            audio.add(offset, size, time, IoConstants.TYPE_AUDIO);
+        }
+
+        /**
+         * Adds a video keyframe as seek point.
+         *
+         * @param timestamp
+         *            timestamp in milliseconds
+         * @param position
+         *            file position
+         */
+        public void addSeekPoint(int timestamp, long position) {
+            hasSeekPoints();
+            if (seekCount == seekPoints.length) {
+                int length = Math.max(64, seekCount * 2);
+                seekPoints = Arrays.copyOf(seekPoints, length);
+                seekPositions = Arrays.copyOf(seekPositions, length);
+            }
+            seekPoints[seekCount] = timestamp;
+            seekPositions[seekCount++] = position;
+            updateSeekPoint(timestamp, position);
+        }
+
+        /**
+         * Moves the seek points with the given timestamp to a later video sample rounding to the same millisecond.
+         *
+         * @param timestamp
+         *            timestamp in milliseconds
+         * @param position
+         *            file position
+         */
+        public void updateSeekPoint(int timestamp, long position) {
+            for (int i = seekCount - 1; i >= 0 && seekPoints[i] == timestamp; i--) {
+                seekPositions[i] = position;
+            }
+        }
+
+        /**
+         * Marks the video track as having sync samples, so the seek points are not null even if no keyframe has been added.
+         */
+        public void hasSeekPoints() {
+            if (seekCount < 0) {
+                seekPoints = new int[0];
+                seekPositions = new long[0];
+                seekCount = 0;
+            }
+        }
+
+        /**
+         * Merges the tracks by time, then file position, into a new index.
+         *
+         * @return index
+         */
+        public MP4SampleIndex build() {
+            int count = video.count + audio.count;
+            long[] offsets = new long[count];
+            int[] sizes = new int[count];
+            double[] times = new double[count];
+            byte[] flags = new byte[count];
+            int v = 0, a = 0;
+            for (int i = 0; i < count; i++) {
+                Track track;
+                int t;
+                if (a >= audio.count || (v < video.count && compare(video, v, audio, a) <= 0)) {
+                    track = video;
+                    t = v++;
+                } else {
+                    track = audio;
+                    t = a++;
+                }
+                offsets[i] = track.offsets[t];
+                sizes[i] = track.sizes[t];
+                times[i] = track.times[t];
+                flags[i] = track.flags[t];
+            }
+            int[] points = seekCount < 0 ? null : Arrays.copyOf(seekPoints, seekCount);
+            long[] positions = seekCount < 0 ? null : Arrays.copyOf(seekPositions, seekCount);
+            return new MP4SampleIndex(offsets, sizes, times, flags, points, positions);
+        }
+
+        private static int compare(Track first, int i, Track second, int j) {
+            int result = Double.compare(first.times[i], second.times[j]);
+            return result != 0 ? result : Long.compare(first.offsets[i], second.offsets[j]);
+        }
+
+    }
+
+    /**
+     * Growable sample arrays of a single track.
+     */
+    private static class Track {
+
+        long[] offsets = new long[1024];
+
+        int[] sizes = new int[1024];
+
+        double[] times = new double[1024];
+
+        byte[] flags = new byte[1024];
+
+        int count;
+
+        void add(long offset, int size, double time, byte flag) {
+            if (count == offsets.length) {
+                int length = count * 2;
+                offsets = Arrays.copyOf(offsets, length);
+                sizes = Arrays.copyOf(sizes, length);
+                times = Arrays.copyOf(times, length);
+                flags = Arrays.copyOf(flags, length);
+            }
+            offsets[count] = offset;
+            sizes[count] = size;
+            times[count] = time;
+            flags[count++] = flag;
+        }
+
+    }
+
+    /**
+     * Returns a map of the cached indexes for diagnostics.
+     *
+     * @return cached index sizes by file key
+     */
+    public static Map<String, Long> getCachedSizes() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        synchronized (cache) {
+            cache.forEach((key, index) -> result.put(key, index.getMemorySize()));
+        }
+        return result;
+    }
+
+}
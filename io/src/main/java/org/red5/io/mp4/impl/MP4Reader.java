@@ -13,7 +13,6 @@ import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -22,7 +21,6 @@ import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.mina.core.buffer.IoBuffer;
 import org.jcodec.codecs.h264.mp4.AvcCBox;
@@ -65,7 +63,7 @@ import org.red5.io.amf.Output;
 import org.red5.io.flv.IKeyFrameDataAnalyzer;
 import org.red5.io.flv.impl.Tag;
 import org.red5.io.isobmff.atom.ShortEsdsBox;
-import org.red5.io.mp4.MP4Frame;
+import org.red5.io.mp4.MP4SampleIndex;
 import org.red5.io.utils.HexDump;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -112,11 +110,6 @@ public class MP4Reader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
      */
     private SeekableByteChannel dataSource;
 
-    /** Mapping between file position and timestamp in ms. */
-    private HashMap<Integer, Long> timePosMap;
-
-    private HashMap<Integer, Long> samplePosMap;
-
     /** Whether or not the clip contains a video track */
     private boolean hasVideo = false;
 
@@ -186,7 +179,11 @@ public class MP4Reader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
 
     private int prevVideoTS = -1;
 
-    private List<MP4Frame> frames = new ArrayList<>();
+    /** Sample table, shared with the other readers of the file */
+    private MP4SampleIndex frames;
+
+    // set once keyframe meta has been built for an audio only file, all its samples are seekable
+    private boolean audioKeyFrames;
 
     private long audioCount;
 
@@ -200,11 +197,6 @@ public class MP4Reader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
      */
     private LinkedList<ITag> firstTags = new LinkedList<>();
 
-    /**
-     * Container for seek points in the video. These are the time stamps for the key frames or samples.
-     */
-    private LinkedList<Integer> seekPoints;
-
     private final Semaphore lock = new Semaphore(1, true);
 
     /** Constructs a new MP4Reader. */
@@ -230,8 +222,15 @@ public class MP4Reader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
             dataSource = NIOUtils.readableChannel(f);
             // parse the movie
             parseMovie(dataSource);
-            // analyze the samples/chunks and build the keyframe meta data
-            analyzeFrames();
+            // analyze the samples/chunks and build the keyframe meta data, unless another reader already did
+            frames = MP4SampleIndex.get(f);
+            if (frames == null) {
+                analyzeFrames();
+                MP4SampleIndex.put(f, frames);
+            } else {
+                log.debug("Using cached sample index - frames: {}", frames.size());
+                releaseSampleTables();
+            }
             // add meta data
             firstTags.add(createFileMeta());
             // create / add the pre-streaming (decoder config) tags
@@ -808,7 +807,7 @@ public class MP4Reader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
      */
     @Override
     public boolean hasMoreTags() {
-        return currentFrame < frames.size();
+        return frames != null && currentFrame < frames.size();
     }
 
     /**
@@ -878,9 +877,14 @@ public class MP4Reader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
         // position of the moov atom
         //props.put("moovposition", moovOffset);
         //props.put("chapters", ""); //this is for f4b - books
+        int[] seekPoints = frames != null ? frames.getSeekPoints() : null;
         if (seekPoints != null) {
-            log.debug("Seekpoint list size: {}", seekPoints.size());
-            props.put("seekpoints", seekPoints);
+            log.debug("Seekpoint list size: {}", seekPoints.length);
+            List<Integer> seekPointList = new ArrayList<>(seekPoints.length);
+            for (int seekPoint : seekPoints) {
+                seekPointList.add(seekPoint);
+            }
+            props.put("seekpoints", seekPointList);
         }
         //tags will only appear if there is an "ilst" atom in the file
         //props.put("tags", "");
@@ -1009,7 +1013,7 @@ public class MP4Reader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
             log.trace("Read tag - prevFrameSize {} audio: {} video: {}", new Object[] { prevFrameSize, audioCount, videoCount });
         }
         // ensure there are frames before proceeding
-        if (!frames.isEmpty()) {
+        if (frames != null && frames.size() > 0) {
             try {
                 lock.acquire();
                 //log.debug("Read tag");
@@ -1020,16 +1024,13 @@ public class MP4Reader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
                     return firstTags.removeFirst();
                 }
                 //get the current frame
-                MP4Frame frame = frames.get(currentFrame);
-                if (frame != null) {
-                    log.debug("Playback #{} {}", currentFrame, frame);
-                    int sampleSize = frame.getSize();
-                    int time = (int) Math.round(frame.getTime() * 1000.0);
-                    log.debug("Read tag - time: {}", time);
-                    long samplePos = frame.getOffset();
-                    log.debug("Read tag - samplePos {}", samplePos);
+                if (currentFrame < frames.size()) {
+                    int sampleSize = frames.getSize(currentFrame);
+                    int time = (int) Math.round(frames.getTime(currentFrame) * 1000.0);
+                    long samplePos = frames.getOffset(currentFrame);
                     // determine frame type and packet body padding
-                    byte type = frame.getType();
+                    byte type = frames.getType(currentFrame);
+                    log.debug("Playback #{} type: {} time: {} samplePos: {}", currentFrame, type, time, samplePos);
                     // assume video type
                     int pad = 5;
                     if (type == TYPE_AUDIO) {
@@ -1040,7 +1041,7 @@ public class MP4Reader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
                     try {
                         // prefix is different for keyframes
                         if (type == TYPE_VIDEO) {
-                            if (frame.isKeyFrame()) {
+                            if (frames.isKeyFrame(currentFrame)) {
                                 //log.debug("Writing keyframe prefix");
                                 data.put(PREFIX_VIDEO_KEYFRAME);
                             } else {
@@ -1104,21 +1105,13 @@ public class MP4Reader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
      */
     public void analyzeFrames() {
         log.debug("Analyzing frames - video samples/chunks: {}", videoSamplesToChunks);
-        // Maps positions, samples, timestamps to one another
-        timePosMap = new HashMap<>();
-        samplePosMap = new HashMap<>();
+        MP4SampleIndex.Builder builder = new MP4SampleIndex.Builder();
         // tag == sample
         int sample = 1;
         // position
         Long pos = null;
         // if audio-only, skip this
         if (videoSamplesToChunks != null) {
-            // handle composite times
-            int compositeIndex = 0;
-            CompositionOffsetsBox.Entry compositeTimeEntry = null;
-            if (compositionTimes != null && !compositionTimes.isEmpty()) {
-                compositeTimeEntry = compositionTimes.remove(0);
-            }
             for (int i = 0; i < videoSamplesToChunks.size(); i++) {
                 SampleToChunkEntry record = videoSamplesToChunks.get(i);
                 long firstChunk = record.getFirst();
@@ -1131,58 +1124,30 @@ public class MP4Reader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
                     long sampleCount = record.getCount(); // record.getSamplesPerChunk();
                     pos = videoChunkOffsets[(int) (chunk - 1)];
                     while (sampleCount > 0) {
-                        //log.debug("Position: {}", pos);
-                        samplePosMap.put(sample, pos);
                         // calculate ts
                         double ts = (videoSampleDuration * (sample - 1)) / videoTimeScale;
                         // check to see if the sample is a keyframe
                         boolean keyframe = false;
                         // some files appear not to have sync samples
                         if (syncSamples != null) {
-                            keyframe = ArrayUtils.contains(syncSamples, sample);
-                            if (seekPoints == null) {
-                                seekPoints = new LinkedList<>();
-                            }
+                            // sync samples are in ascending order
+                            keyframe = Arrays.binarySearch(syncSamples, sample) >= 0;
+                            builder.hasSeekPoints();
                             // get the timestamp
                             int frameTs = (int) Math.round(ts * 1000.0);
                             // add each key frames timestamp to the seek points list
                             if (keyframe) {
-                                seekPoints.add(frameTs);
+                                builder.addSeekPoint(frameTs, pos);
+                            } else {
+                                builder.updateSeekPoint(frameTs, pos);
                             }
-                            timePosMap.put(frameTs, pos);
                         } else {
                             log.debug("No sync samples available");
                         }
                         // size of the sample
                         int size = (int) videoSamples[sample - 1];
-                        // create a frame
-                        MP4Frame frame = new MP4Frame();
-                        frame.setKeyFrame(keyframe);
-                        frame.setOffset(pos);
-                        frame.setSize(size);
-                        frame.setTime(ts);
-                        frame.setType(TYPE_VIDEO);
-                        // set time offset value from composition records
-                        if (compositeTimeEntry != null) {
-                            // how many samples have this offset
-                            int consecutiveSamples = compositeTimeEntry.getCount();
-                            frame.setTimeOffset(compositeTimeEntry.getOffset());
-                            // increment our count
-                            compositeIndex++;
-                            if (compositeIndex - consecutiveSamples == 0) {
-                                // ensure there are still times available
-                                if (!compositionTimes.isEmpty()) {
-                                    // get the next one
-                                    compositeTimeEntry = compositionTimes.remove(0);
-                                }
-                                // reset
-                                compositeIndex = 0;
-                            }
-                            log.debug("Composite sample #{} {}", sample, frame);
-                        }
-                        // add the frame
-                        frames.add(frame);
-                        log.debug("Sample #{} {}", sample, frame);
+                        builder.addVideo(pos, size, ts, keyframe);
+                        log.trace("Sample #{} pos: {} size: {} time: {} keyframe: {}", sample, pos, size, ts, keyframe);
                         // inc and dec stuff
                         pos += size;
                         sampleCount--;
@@ -1190,7 +1155,6 @@ public class MP4Reader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
                     }
                 }
             }
-            log.debug("Sample position map (video): {}", samplePosMap);
         }
         // if video-only, skip this
         if (audioSamplesToChunks != null) {
@@ -1250,14 +1214,7 @@ public class MP4Reader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
                         }
                         // set audio sample size
                         size = (int) (size != 0 ? size : audioSampleSize);
-                        // create a frame
-                        MP4Frame frame = new MP4Frame();
-                        frame.setOffset(pos);
-                        frame.setSize(size);
-                        frame.setTime(ts);
-                        frame.setType(TYPE_AUDIO);
-                        frames.add(frame);
-                        //log.debug("Sample #{} {}", sample, frame);
+                        builder.addAudio(pos, size, ts);
                         // update counts
                         pos += size;
                         sampleCount--;
@@ -1266,11 +1223,16 @@ public class MP4Reader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
                 }
             }
         }
-        // sort the frames
-        Collections.sort(frames);
+        // merge the tracks, each is already in time order
+        frames = builder.build();
         log.debug("Frames count: {}", frames.size());
-        //log.debug("Frames: {}", frames);
-        //release some memory
+        releaseSampleTables();
+    }
+
+    /**
+     * Releases the sample tables read from the movie box, once the sample index exists.
+     */
+    private void releaseSampleTables() {
         if (audioSamplesToChunks != null) {
             audioChunkOffsets = null;
             audioSamplesToChunks = null;
@@ -1295,24 +1257,23 @@ public class MP4Reader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
         log.debug("Position: {}", pos);
         log.debug("Current frame: {}", currentFrame);
         int len = frames.size();
-        MP4Frame frame = null;
         for (int f = 0; f < len; f++) {
-            frame = frames.get(f);
-            long offset = frame.getOffset();
+            long offset = frames.getOffset(f);
+            boolean keyFrame = audioKeyFrames || frames.isKeyFrame(f);
             //look for pos to match frame offset or grab the first keyframe
             //beyond the offset
-            if (pos == offset || (offset > pos && frame.isKeyFrame())) {
+            if (pos == offset || (offset > pos && keyFrame)) {
                 //ensure that it is a keyframe
-                if (!frame.isKeyFrame()) {
+                if (!keyFrame) {
                     log.debug("Frame #{} was not a key frame, so trying again..", f);
                     continue;
                 }
-                log.info("Frame #{} found for seek: {}", f, frame);
-                createPreStreamingTags((int) (frame.getTime() * 1000), true);
+                log.info("Frame #{} found for seek at {}", f, offset);
+                createPreStreamingTags((int) (frames.getTime(f) * 1000), true);
                 currentFrame = f;
                 break;
             }
-            prevVideoTS = (int) (frame.getTime() * 1000);
+            prevVideoTS = (int) (frames.getTime(f) * 1000);
         }
         //
         log.debug("Setting current frame: {}", currentFrame);
@@ -1330,10 +1291,8 @@ public class MP4Reader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
             } catch (IOException e) {
                 log.error("Channel close {}", e);
             } finally {
-                if (frames != null) {
-                    frames.clear();
-                    frames = null;
-                }
+                // the index itself stays cached for the other readers
+                frames = null;
             }
         }
     }
@@ -1356,24 +1315,21 @@ public class MP4Reader implements IoConstants, ITagReader, IKeyFrameDataAnalyzer
         result.audioOnly = hasAudio && !hasVideo;
         result.duration = duration;
         if (result.audioOnly) {
-            result.positions = new long[frames.size()];
-            result.timestamps = new int[frames.size()];
+            int count = frames.size();
+            result.positions = new long[count];
+            result.timestamps = new int[count];
             result.audioOnly = true;
-            for (int i = 0; i < result.positions.length; i++) {
-                frames.get(i).setKeyFrame(true);
-                result.positions[i] = frames.get(i).getOffset();
-                result.timestamps[i] = (int) Math.round(frames.get(i).getTime() * 1000.0);
+            for (int i = 0; i < count; i++) {
+                result.positions[i] = frames.getOffset(i);
+                result.timestamps[i] = (int) Math.round(frames.getTime(i) * 1000.0);
             }
+            // every audio sample is a seek point
+            audioKeyFrames = true;
         } else {
+            int[] seekPoints = frames.getSeekPoints();
             if (seekPoints != null) {
-                int seekPointCount = seekPoints.size();
-                result.positions = new long[seekPointCount];
-                result.timestamps = new int[seekPointCount];
-                for (int idx = 0; idx < seekPointCount; idx++) {
-                    final Integer ts = seekPoints.get(idx);
-                    result.positions[idx] = timePosMap.get(ts);
-                    result.timestamps[idx] = ts;
-                }
+                result.positions = frames.getSeekPositions().clone();
+                result.timestamps = seekPoints.clone();
             } else {
                 log.warn("Seek points array was null");
             }
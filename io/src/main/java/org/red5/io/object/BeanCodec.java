@@ -0,0 +1,433 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.io.object;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.beanutils.BeanUtils;
+import org.apache.commons.lang3.ClassUtils;
+import org.red5.annotations.Anonymous;
+import org.red5.io.utils.ConversionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serialization plan for a typed object, built once per class and shared by the AMF0 and AMF3 inputs and outputs. Properties are resolved
+ * to method handles when the codec is created, so encoding and decoding a typed object needs neither introspection nor cache lookups.
+ * <br>
+ * A class exposing readable bean properties is written as those properties, otherwise as its public fields; in both cases the
+ * <code>class</code> property, transient fields and members annotated with {@link org.red5.annotations.DontSerialize} are skipped.
+ *
+ * @author The Red5 Project
+ */
+public final class BeanCodec {
+
+    private static final Logger log = LoggerFactory.getLogger(BeanCodec.class);
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+    private static final ClassValue<BeanCodec> codecs = new ClassValue<BeanCodec>() {
+        @Override
+        protected BeanCodec computeValue(Class<?> type) {
+            return new BeanCodec(type);
+        }
+    };
+
+    private final Class<?> type;
+
+    private final String className;
+
+    private final byte[] encodedClassName;
+
+    private final boolean anonymous;
+
+    private final boolean beanProperties;
+
+    private final Property[] properties;
+
+    private final Map<String, Property> propertiesByName;
+
+    private final MethodHandle constructor;
+
+    /**
+     * Returns the codec for the given class, creating it on first use.
+     *
+     * @param type
+     *            class of the objects to encode or decode
+     * @return codec
+     */
+    public static BeanCodec forClass(Class<?> type) {
+        return codecs.get(type);
+    }
+
+    private BeanCodec(Class<?> type) {
+        this.type = type;
+        className = Serializer.getClassName(type);
+        encodedClassName = className.getBytes(StandardCharsets.UTF_8);
+        anonymous = type.isAnnotationPresent(Anonymous.class);
+        // bean properties, keyed the same way as a BeanMap so they are written in the same order
+        Map<String, Property> byName = new HashMap<>();
+        boolean hasReadable = false;
+        try {
+            BeanInfo info = Introspector.getBeanInfo(type);
+            for (PropertyDescriptor descriptor : info.getPropertyDescriptors()) {
+                String name = descriptor.getName();
+                if ("class".equals(name)) {
+                    continue;
+                }
+                Property property = new Property(name);
+                Method getter = descriptor.getReadMethod();
+                if (getter != null) {
+                    hasReadable = true;
+                    property.field = findField(type, name);
+                    property.getter = getter;
+                    property.genericType = getter.getGenericReturnType();
+                    property.reader = unreflect(getter);
+                }
+                Method setter = descriptor.getWriteMethod();
+                if (setter != null) {
+                    property.setWriter(setter.getParameterTypes()[0], unreflect(setter));
+                }
+                byName.put(name, property);
+            }
+        } catch (IntrospectionException e) {
+            log.warn("Introspection failed for {}", type, e);
+        }
+        beanProperties = hasReadable;
+        List<Property> serialized = new ArrayList<>();
+        if (beanProperties) {
+            for (Property property : byName.values()) {
+                if (property.getter != null && Serializer.serializeField(property.name, property.field, property.getter)) {
+                    serialized.add(property);
+                }
+            }
+        }
+        // public fields take precedence over accessors for the declared type and for writes
+        for (Field field : type.getFields()) {
+            Property property = byName.computeIfAbsent(field.getName(), Property::new);
+            property.genericType = field.getGenericType();
+            if (!Modifier.isFinal(field.getModifiers())) {
+                property.setWriter(field.getType(), unreflectSetter(field));
+            }
+            if (!beanProperties && property.field == null && Serializer.serializeField(property.name, field, null)) {
+                property.field = field;
+                property.reader = unreflectGetter(field);
+                // fields that cannot be read are left out
+                if (property.reader != null) {
+                    serialized.add(property);
+                }
+            }
+        }
+        properties = serialized.toArray(new Property[serialized.size()]);
+        propertiesByName = byName;
+        constructor = findConstructor(type);
+    }
+
+    /**
+     * Returns the class this codec handles.
+     *
+     * @return class
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * Returns the class name written for the objects of this class, taking {@link org.red5.annotations.RemoteClass} aliases into account.
+     *
+     * @return class name
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Returns the UTF-8 encoded class name.
+     *
+     * @return encoded class name
+     */
+    public byte[] getEncodedClassName() {
+        return encodedClassName;
+    }
+
+    /**
+     * Returns whether the class is annotated with {@link Anonymous} and must be written without its class name.
+     *
+     * @return true if anonymous
+     */
+    public boolean isAnonymous() {
+        return anonymous;
+    }
+
+    /**
+     * Returns whether the class exposes readable bean properties; when it does not, its public fields are serialized instead.
+     *
+     * @return true if the serialized properties are bean properties
+     */
+    public boolean hasBeanProperties() {
+        return beanProperties;
+    }
+
+    /**
+     * Returns the properties to serialize, in write order. The returned array must not be modified.
+     *
+     * @return serialized properties
+     */
+    public Property[] getProperties() {
+        return properties;
+    }
+
+    /**
+     * Returns the declared type of a property, used to pick the target type when deserializing its value.
+     *
+     * @param name
+     *            property name
+     * @return property type or Object if the property is unknown
+     */
+    public Type getPropertyType(String name) {
+        Property property = propertiesByName.get(name);
+        return property != null ? property.genericType : Object.class;
+    }
+
+    /**
+     * Sets a property on a bean of this class, converting the value to the property type when needed. Names without a field or setter
+     * are handed to BeanUtils, which also covers nested and mapped property names.
+     *
+     * @param bean
+     *            bean
+     * @param name
+     *            property name
+     * @param value
+     *            value to set
+     * @return true if the property was set or silently ignored as unknown, false if mapping the value failed
+     */
+    public boolean setProperty(Object bean, String name, Object value) {
+        Property property = propertiesByName.get(name);
+        if (property != null && property.set(bean, value)) {
+            return true;
+        }
+        try {
+            BeanUtils.setProperty(bean, name, value);
+            return true;
+        } catch (Exception e) {
+            log.debug("Error mapping property: {} of {}", name, type, e);
+        }
+        return false;
+    }
+
+    /**
+     * Creates a new instance through the default constructor.
+     *
+     * @return new instance
+     * @throws InstantiationException
+     *             if the class has no usable default constructor or the constructor failed
+     */
+    public Object newInstance() throws InstantiationException {
+        if (constructor == null) {
+            throw new InstantiationException(type.getName());
+        }
+        try {
+            return (Object) constructor.invokeExact();
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            InstantiationException ex = new InstantiationException(type.getName());
+            ex.initCause(t);
+            throw ex;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BeanCodec [type=" + type.getName() + ", properties=" + properties.length + "]";
+    }
+
+    /**
+     * Returns the field with the given name declared by the class or one of its superclasses.
+     */
+    private static Field findField(Class<?> type, String name) {
+        for (Class<?> clazz = type; clazz != null && !clazz.equals(Object.class); clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (field.getName().equals(name)) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static MethodHandle findConstructor(Class<?> type) {
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers()) || type.isArray() || type.isPrimitive()) {
+            return null;
+        }
+        try {
+            Constructor<?> ctor = type.getDeclaredConstructor();
+            return lookup(ctor).unreflectConstructor(ctor).asType(CONSTRUCTOR_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException | SecurityException e) {
+            return null;
+        }
+    }
+
+    private static MethodHandle unreflect(Method method) {
+        try {
+            MethodHandle handle = lookup(method).unreflect(method).asFixedArity();
+            return (Modifier.isStatic(method.getModifiers()) ? MethodHandles.dropArguments(handle, 0, Object.class) : handle).asType(method.getParameterCount() == 0 ? GETTER_TYPE : SETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            log.debug("No access to {}", method);
+        }
+        return null;
+    }
+
+    private static MethodHandle unreflectGetter(Field field) {
+        try {
+            MethodHandle handle = lookup(field).unreflectGetter(field);
+            return (Modifier.isStatic(field.getModifiers()) ? MethodHandles.dropArguments(handle, 0, Object.class) : handle).asType(GETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            log.debug("No access to {}", field);
+        }
+        return null;
+    }
+
+    private static MethodHandle unreflectSetter(Field field) {
+        try {
+            MethodHandle handle = lookup(field).unreflectSetter(field);
+            return (Modifier.isStatic(field.getModifiers()) ? MethodHandles.dropArguments(handle, 0, Object.class) : handle).asType(SETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            log.debug("No access to {}", field);
+        }
+        return null;
+    }
+
+    /**
+     * Public members of public classes go through the public lookup; anything else, such as a public getter on a package-private class,
+     * is made accessible first.
+     */
+    private static MethodHandles.Lookup lookup(Member member) {
+        if (Modifier.isPublic(member.getModifiers()) && Modifier.isPublic(member.getDeclaringClass().getModifiers())) {
+            return MethodHandles.publicLookup();
+        }
+        ((AccessibleObject) member).trySetAccessible();
+        return MethodHandles.lookup();
+    }
+
+    /**
+     * A serialized or writable property of a typed object.
+     */
+    public static final class Property {
+
+        private final String name;
+
+        private final byte[] encodedName;
+
+        private Field field;
+
+        private Method getter;
+
+        private Type genericType = Object.class;
+
+        private MethodHandle reader;
+
+        private Class<?> writeType;
+
+        private MethodHandle writer;
+
+        private Property(String name) {
+            this.name = name;
+            this.encodedName = name.getBytes(StandardCharsets.UTF_8);
+        }
+
+        private void setWriter(Class<?> writeType, MethodHandle writer) {
+            if (writer != null) {
+                this.writeType = ClassUtils.primitiveToWrapper(writeType);
+                this.writer = writer;
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the UTF-8 encoded property name.
+         *
+         * @return encoded name
+         */
+        public byte[] getEncodedName() {
+            return encodedName;
+        }
+
+        public Field getField() {
+            return field;
+        }
+
+        public Method getGetter() {
+            return getter;
+        }
+
+        /**
+         * Reads the property value.
+         *
+         * @param bean
+         *            bean to read from
+         * @return value or null if it could not be read
+         */
+        public Object get(Object bean) {
+            if (reader != null) {
+                try {
+                    return (Object) reader.invokeExact(bean);
+                } catch (Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    log.warn("Error reading property: {} of {}", name, bean.getClass(), t);
+                }
+            }
+            return null;
+        }
+
+        private boolean set(Object bean, Object value) {
+            if (writer != null) {
+                try {
+                    if (value != null && !writeType.isInstance(value)) {
+                        value = ConversionUtils.convert(value, writeType);
+                    }
+                    writer.invokeExact(bean, value);
+                    return true;
+                } catch (Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    log.debug("Error setting property: {} of {}", name, bean.getClass(), t);
+                }
+            }
+            return false;
+        }
+
+    }
+
+}
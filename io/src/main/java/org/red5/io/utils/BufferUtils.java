@@ -7,6 +7,13 @@
 
 package org.red5.io.utils;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
 import org.apache.mina.core.buffer.IoBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,6 +29,41 @@ public class BufferUtils {
 
     private static Logger log = LoggerFactory.getLogger(BufferUtils.class);
 
+    // Unsafe.invokeCleaner bound to the Unsafe instance, null if the runtime does not provide it
+    private static final MethodHandle invokeCleaner = lookupInvokeCleaner();
+
+    private static MethodHandle lookupInvokeCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup().findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class)).bindTo(field.get(null));
+        } catch (Throwable t) {
+            log.debug("Mapped buffers cannot be unmapped explicitly", t);
+            return null;
+        }
+    }
+
+    /**
+     * Unmaps a mapped buffer right away instead of when it is collected, so the file can be deleted or renamed afterwards, which Windows
+     * refuses while a mapping exists. The buffer and any views of it must not be accessed afterwards.
+     *
+     * @param buffer
+     *            mapped buffer
+     * @return true if the buffer was unmapped, false if it is left to the garbage collector
+     */
+    public static boolean unmap(MappedByteBuffer buffer) {
+        if (buffer != null && invokeCleaner != null) {
+            try {
+                invokeCleaner.invokeExact((ByteBuffer) buffer);
+                return true;
+            } catch (Throwable t) {
+                log.warn("Exception unmapping buffer", t);
+            }
+        }
+        return false;
+    }
+
     /**
      * Writes a Medium Int to the output buffer
      *
@@ -0,0 +1,109 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.codec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.junit.Test;
+import org.red5.codec.IVideoStreamCodec.FrameData;
+
+public class GOPCacheTest {
+
+    @Test
+    public void testLimits() {
+        GOPCache cache = new GOPCache(4, 100);
+        assertTrue(cache.add(FrameData.share(frame(0x27, 40), 1)));
+        assertTrue(cache.add(FrameData.share(frame(0x27, 40), 2)));
+        // byte limit reached, the rest of the group is skipped
+        assertFalse(cache.add(FrameData.share(frame(0x27, 40), 3)));
+        assertFalse(cache.add(FrameData.share(frame(0x27, 2), 4)));
+        assertEquals(2, cache.size());
+        assertEquals(80, cache.getBytes());
+        cache.clear();
+        assertEquals(0, cache.size());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(cache.add(FrameData.share(frame(0x27, 2), i)));
+        }
+        // frame limit reached
+        assertFalse(cache.add(FrameData.share(frame(0x27, 2), 4)));
+        assertEquals(4, cache.getFrames().length);
+        assertNull(cache.get(4));
+    }
+
+    @Test
+    public void testSharedInterframes() {
+        AVCVideo video = new AVCVideo();
+        video.setBufferInterframes(true);
+        IoBuffer key = frame(0x17, 64);
+        assertTrue(video.addData(key, 1000));
+        IoBuffer[] inter = new IoBuffer[10];
+        for (int i = 0; i < inter.length; i++) {
+            inter[i] = frame(0x27, 64);
+            assertTrue(video.addData(inter[i], 1040 + i * 40));
+        }
+        FrameData[] frames = video.getInterframes();
+        assertEquals(10, frames.length);
+        for (int i = 0; i < frames.length; i++) {
+            assertEquals(1040 + i * 40, frames[i].getTimestamp());
+            IoBuffer frame = frames[i].getFrame();
+            assertEquals(inter[i], frame);
+            // payload is shared with the stream data, not copied
+            inter[i].put(5, (byte) 99);
+            assertEquals(99, frame.get(5));
+        }
+        assertEquals(1000, video.getKeyframes()[0].getTimestamp());
+        // a new keyframe starts a new group
+        assertTrue(video.addData(frame(0x17, 64), 2000));
+        assertEquals(0, video.getNumInterframes());
+    }
+
+    @Test
+    public void testConfiguredLimits() {
+        AVCVideo video = new AVCVideo();
+        // off unless the stream turns it on
+        assertFalse(video.isBufferInterframes());
+        video.setBufferInterframes(true);
+        video.setGOPCacheLimits(3, 1024);
+        assertTrue(video.addData(frame(0x17, 64), 1000));
+        for (int i = 0; i < 5; i++) {
+            video.addData(frame(0x27, 64), 1040 + i * 40);
+        }
+        assertEquals(3, video.getNumInterframes());
+    }
+
+    @Test
+    public void testDirectPayloadIsCopied() {
+        IoBuffer direct = IoBuffer.allocate(64, true);
+        direct.put(frame(0x27, 64));
+        direct.flip();
+        FrameData frameData = FrameData.share(direct, 40);
+        assertEquals(64, frameData.getSize());
+        assertEquals(40, frameData.getTimestamp());
+        // releasing the event may hand the buffer out again
+        direct.clear();
+        direct.put(5, (byte) 99);
+        IoBuffer frame = frameData.getFrame();
+        assertEquals(frame(0x27, 64), frame);
+    }
+
+    private static IoBuffer frame(int flags, int length) {
+        IoBuffer data = IoBuffer.allocate(length);
+        data.put((byte) flags);
+        data.put((byte) 0x01);
+        for (int i = 2; i < length; i++) {
+            data.put((byte) (i + flags));
+        }
+        data.flip();
+        return data;
+    }
+
+}
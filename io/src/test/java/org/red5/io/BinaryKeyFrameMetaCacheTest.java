@@ -0,0 +1,138 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package org.red5.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Test;
+import org.red5.io.flv.IKeyFrameDataAnalyzer.KeyFrameMeta;
+
+public class BinaryKeyFrameMetaCacheTest {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        File f = File.createTempFile("red5", "BinaryMetaCacheTest");
+        f.deleteOnExit();
+        BinaryKeyFrameMetaCache cache = new BinaryKeyFrameMetaCache();
+        cache.saveKeyFrameMeta(f, meta(3));
+        // a new cache has to read the index file
+        BinaryKeyFrameMetaCache other = new BinaryKeyFrameMetaCache();
+        KeyFrameMeta meta = other.loadKeyFrameMeta(f);
+        assertNotNull(meta);
+        assertArrayEquals(new long[] { -666, 0, 666 }, meta.positions);
+        assertArrayEquals(new int[] { 0, 666, 666 * 2 }, meta.timestamps);
+        assertEquals(1332, meta.duration);
+        assertEquals(7, meta.videoCodecId);
+        assertFalse(meta.audioOnly);
+        assertEquals(1, other.getMisses());
+        assertSame(meta, other.loadKeyFrameMeta(f));
+        assertEquals(1, other.getHits());
+        // modified media invalidates both the entry and the file
+        assertTrue(f.setLastModified(f.lastModified() - 10000));
+        assertNull(other.loadKeyFrameMeta(f));
+        assertEquals(0, other.getEntryCount());
+        cache.removeKeyFrameMeta(f);
+        assertFalse(new File(f.getAbsolutePath() + BinaryKeyFrameMetaCache.EXTENSION).exists());
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        BinaryKeyFrameMetaCache cache = new BinaryKeyFrameMetaCache();
+        // entry sizes include the path, so the names must all have the same length
+        File dir = Files.createTempDirectory("red5").toFile();
+        dir.deleteOnExit();
+        File[] files = new File[4];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = createFile(dir, "media" + i);
+            cache.saveKeyFrameMeta(files[i], meta(1000));
+        }
+        long entryBytes = cache.getCachedBytes() / files.length;
+        cache.setMaxCacheBytes(entryBytes * 3);
+        // the first file is used, so the second one is evicted
+        assertNotNull(cache.loadKeyFrameMeta(files[0]));
+        File added = createFile(dir, "media" + files.length);
+        cache.saveKeyFrameMeta(added, meta(1000));
+        assertEquals(2, cache.getEvictions());
+        assertTrue(cache.getCachedBytes() <= cache.getMaxCacheBytes());
+        long misses = cache.getMisses();
+        assertNotNull(cache.loadKeyFrameMeta(files[0]));
+        assertEquals(misses, cache.getMisses());
+        // evicted entries are read back from disk
+        assertNotNull(cache.loadKeyFrameMeta(files[1]));
+        assertEquals(misses + 1, cache.getMisses());
+        for (File file : files) {
+            cache.removeKeyFrameMeta(file);
+        }
+        cache.removeKeyFrameMeta(added);
+    }
+
+    @Test
+    public void testReplacedEntries() throws IOException {
+        File f = File.createTempFile("red5", "BinaryMetaCacheTest");
+        f.deleteOnExit();
+        BinaryKeyFrameMetaCache cache = new BinaryKeyFrameMetaCache();
+        cache.saveKeyFrameMeta(f, meta(10));
+        long entryBytes = cache.getCachedBytes();
+        // replaced entries no longer count, whether or not the hand has passed them
+        for (int i = 0; i < 100; i++) {
+            cache.saveKeyFrameMeta(f, meta(10));
+        }
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(entryBytes, cache.getCachedBytes());
+        cache.setMaxCacheBytes(entryBytes);
+        cache.saveKeyFrameMeta(f, meta(10));
+        assertEquals(0, cache.getEvictions());
+        assertNotNull(cache.loadKeyFrameMeta(f));
+        cache.removeKeyFrameMeta(f);
+        assertEquals(0, cache.getCachedBytes());
+    }
+
+    @Test
+    public void testLegacyConversion() throws IOException {
+        File f = File.createTempFile("red5", "BinaryMetaCacheTest");
+        f.deleteOnExit();
+        new FileKeyFrameMetaCache().saveKeyFrameMeta(f, meta(3));
+        BinaryKeyFrameMetaCache cache = new BinaryKeyFrameMetaCache();
+        KeyFrameMeta meta = cache.loadKeyFrameMeta(f);
+        assertNotNull(meta);
+        assertArrayEquals(new int[] { 0, 666, 666 * 2 }, meta.timestamps);
+        assertTrue(new File(f.getAbsolutePath() + BinaryKeyFrameMetaCache.EXTENSION).exists());
+        cache.removeKeyFrameMeta(f);
+        assertFalse(new File(f.getAbsolutePath() + ".meta").exists());
+    }
+
+    private static KeyFrameMeta meta(int count) {
+        KeyFrameMeta meta = new KeyFrameMeta();
+        meta.positions = new long[count];
+        meta.timestamps = new int[count];
+        for (int i = 0; i < count; i++) {
+            meta.positions[i] = (i - 1) * 666L;
+            meta.timestamps[i] = i * 666;
+        }
+        meta.duration = (count - 1) * 666L;
+        meta.videoCodecId = 7;
+        return meta;
+    }
+
+    private static File createFile(File dir, String name) throws IOException {
+        File file = new File(dir, name);
+        assertTrue(file.createNewFile());
+        file.deleteOnExit();
+        return file;
+    }
+
+}
@@ -0,0 +1,52 @@
+package org.red5.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+public class SharedMappedFileTest {
+
+    @Test
+    public void testReplacedFile() throws Exception {
+        File file = File.createTempFile("replaced", ".flv");
+        File old = new File(file.getPath() + ".old");
+        try {
+            Files.write(file.toPath(), "first".getBytes(StandardCharsets.US_ASCII));
+            SharedMappedFile first = SharedMappedFile.acquire(file);
+            assertSame(first, SharedMappedFile.acquire(file));
+            assertEquals(2, first.getReferences());
+            // a recording moves the file aside and writes a new one at the same path
+            assertTrue(file.renameTo(old));
+            Files.write(file.toPath(), "second".getBytes(StandardCharsets.US_ASCII));
+            SharedMappedFile second = SharedMappedFile.acquire(file);
+            assertNotSame(first, second);
+            assertEquals("second", toString(second.slice(0, (int) second.getSize())));
+            // the readers of the previous file keep its mapping
+            assertEquals("first", toString(first.slice(0, (int) first.getSize())));
+            first.release();
+            first.release();
+            assertEquals(0, first.getReferences());
+            // releasing the previous file leaves the new mapping shared
+            assertSame(second, SharedMappedFile.acquire(file));
+            assertEquals(2, second.getReferences());
+            second.release();
+            second.release();
+            assertEquals(0, second.getReferences());
+        } finally {
+            file.delete();
+            old.delete();
+        }
+    }
+
+    private static String toString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.remaining()];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+}
@@ -3,12 +3,18 @@ package org.red5.io.flv.impl;
 import static org.junit.Assert.*;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.apache.mina.core.buffer.IoBuffer;
 import org.junit.Test;
 import org.red5.io.ITag;
+import org.red5.io.SharedMappedFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -129,4 +135,92 @@ public class FLVReaderTest {
         }
     }
 
+    @Test
+    public void testFLVReaderMapped() throws Exception {
+        log.info("\n testFLVReaderMapped");
+        File file = Paths.get("target/test-classes/fixtures/h264_aac.flv").toFile();
+        List<byte[]> expected = readBodies(new FLVReader(file, false));
+        assertTrue(expected.size() > 1);
+        FLVReader.setBufferType("mapped");
+        try {
+            assertEquals("mapped", FLVReader.getBufferType());
+            FLVReader first = new FLVReader(file, false);
+            FLVReader second = new FLVReader(file, false);
+            // both readers share the mapping
+            SharedMappedFile mapped = SharedMappedFile.acquire(file);
+            assertEquals(3, mapped.getReferences());
+            mapped.release();
+            List<byte[]> bodies = readBodies(first);
+            assertEquals(expected.size(), bodies.size());
+            for (int i = 0; i < bodies.size(); i++) {
+                assertArrayEquals(expected.get(i), bodies.get(i));
+            }
+            assertEquals(1, mapped.getReferences());
+            assertEquals(expected.size(), readBodies(second).size());
+            assertEquals(0, mapped.getReferences());
+        } finally {
+            FLVReader.setBufferType("auto");
+        }
+    }
+
+    @Test
+    public void testFLVReaderMappedGrowingFile() throws Exception {
+        log.info("\n testFLVReaderMappedGrowingFile");
+        File file = Paths.get("target/test-classes/fixtures/h264_aac.flv").toFile();
+        List<byte[]> expected = readBodies(new FLVReader(file, false));
+        assertTrue(expected.size() > 1);
+        byte[] data = Files.readAllBytes(file.toPath());
+        File growing = File.createTempFile("growing", ".flv");
+        growing.deleteOnExit();
+        FLVReader.setBufferType("mapped");
+        try (FileOutputStream out = new FileOutputStream(growing)) {
+            // the file ends in the middle of a tag
+            int written = data.length / 3;
+            out.write(data, 0, written);
+            out.flush();
+            FLVReader reader = new FLVReader(growing, false);
+            List<byte[]> bodies = new ArrayList<>();
+            while (written < data.length) {
+                while (reader.hasMoreTags()) {
+                    ITag tag = reader.readTag();
+                    if (tag != null) {
+                        bodies.add(toArray(tag.getBody()));
+                    }
+                }
+                // the incomplete tag is not returned
+                assertNull(reader.readTag());
+                int length = Math.min(data.length - written, 100000);
+                out.write(data, written, length);
+                out.flush();
+                written += length;
+            }
+            bodies.addAll(readBodies(reader));
+            assertEquals(expected.size(), bodies.size());
+            for (int i = 0; i < bodies.size(); i++) {
+                assertArrayEquals(expected.get(i), bodies.get(i));
+            }
+        } finally {
+            FLVReader.setBufferType("auto");
+            growing.delete();
+        }
+    }
+
+    private static List<byte[]> readBodies(FLVReader reader) {
+        List<byte[]> bodies = new ArrayList<>();
+        while (reader.hasMoreTags()) {
+            ITag tag = reader.readTag();
+            if (tag != null) {
+                bodies.add(toArray(tag.getBody()));
+            }
+        }
+        reader.close();
+        return bodies;
+    }
+
+    private static byte[] toArray(IoBuffer buf) {
+        byte[] arr = new byte[buf.remaining()];
+        buf.get(arr);
+        return arr;
+    }
+
 }
@@ -0,0 +1,62 @@
+package org.red5.io.flv.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.junit.Test;
+import org.red5.io.ITag;
+
+public class FLVWriterTest {
+
+    @Test
+    public void testRepairFromInfoFile() throws Exception {
+        Path dir = Files.createTempDirectory("flvwriter");
+        Path path = dir.resolve("test.flv");
+        FLVWriter writer = new FLVWriter(path, false);
+        int lastTagSize = 0;
+        for (int i = 0; i < 20; i++) {
+            // mp3 44khz 16bit stereo and sorenson keyframes
+            byte flags = (byte) (i % 2 == 0 ? 0x2f : 0x12);
+            byte type = i % 2 == 0 ? ITag.TYPE_AUDIO : ITag.TYPE_VIDEO;
+            IoBuffer body = IoBuffer.wrap(new byte[] { flags, 1, 2, 3, 4, 5, 6, 7 });
+            assertTrue(writer.writeTag(new Tag(type, i * 40, 8, body, lastTagSize)));
+            lastTagSize = 8 + 11;
+        }
+        // the writer is not closed, like after a crash; the info file must be current
+        File info = new File(path + ".info");
+        assertTrue(info.exists());
+        try (RandomAccessFile infoFile = new RandomAccessFile(info, "r")) {
+            assertEquals(2, infoFile.readInt());
+            assertEquals(2, infoFile.readInt());
+            assertEquals(760, infoFile.readInt());
+            assertEquals(80, infoFile.readInt());
+            assertEquals(44100, infoFile.readInt());
+            assertEquals(16, infoFile.readInt());
+            assertEquals(1, infoFile.readInt());
+            assertEquals(80, infoFile.readInt());
+        }
+        assertTrue(FLVWriter.repair(path + ".ser", null, null));
+        assertFalse(info.exists());
+        FLVReader reader = new FLVReader(path.toFile());
+        int tags = 0;
+        while (reader.hasMoreTags()) {
+            ITag tag = reader.readTag();
+            if (tag.getDataType() != ITag.TYPE_METADATA) {
+                tags++;
+            }
+        }
+        reader.close();
+        assertEquals(20, tags);
+        assertEquals(760, reader.getDuration());
+        Files.deleteIfExists(path);
+        Files.deleteIfExists(dir);
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.io.mp4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+import org.red5.io.ITag;
+import org.red5.io.IoConstants;
+import org.red5.io.mp4.impl.MP4Reader;
+
+public class MP4SampleIndexTest {
+
+    @Test
+    public void testMerge() {
+        MP4SampleIndex.Builder builder = new MP4SampleIndex.Builder();
+        builder.addVideo(100, 10, 0.0, true);
+        builder.addSeekPoint(0, 100);
+        builder.addVideo(300, 10, 0.04, false);
+        builder.addAudio(200, 5, 0.0);
+        builder.addAudio(400, 5, 0.023);
+        MP4SampleIndex index = builder.build();
+        assertEquals(4, index.size());
+        // ordered by time, then offset
+        assertEquals(100, index.getOffset(0));
+        assertEquals(200, index.getOffset(1));
+        assertEquals(400, index.getOffset(2));
+        assertEquals(300, index.getOffset(3));
+        assertEquals(IoConstants.TYPE_VIDEO, index.getType(0));
+        assertTrue(index.isKeyFrame(0));
+        assertEquals(IoConstants.TYPE_AUDIO, index.getType(1));
+        assertFalse(index.isKeyFrame(3));
+        assertArrayEquals(new int[] { 0 }, index.getSeekPoints());
+        assertArrayEquals(new long[] { 100 }, index.getSeekPositions());
+    }
+
+    @Test
+    public void testSharedByReaders() throws Exception {
+        MP4SampleIndex.clearCache();
+        File file = new File("target/test-classes/fixtures/mov_h264.mp4");
+        MP4Reader first = new MP4Reader(file);
+        MP4SampleIndex index = MP4SampleIndex.get(file);
+        assertEquals(1, MP4SampleIndex.getCachedSizes().size());
+        MP4Reader second = new MP4Reader(file);
+        assertSame(index, MP4SampleIndex.get(file));
+        assertArrayEquals(first.analyzeKeyFrames().positions, second.analyzeKeyFrames().positions);
+        // readers keep their own position
+        int tags = 0;
+        while (first.hasMoreTags() && tags < 50) {
+            first.readTag();
+            tags++;
+        }
+        ITag tag = second.readTag();
+        assertEquals(ITag.TYPE_METADATA, tag.getDataType());
+        first.close();
+        assertTrue(second.hasMoreTags());
+        second.close();
+    }
+
+}
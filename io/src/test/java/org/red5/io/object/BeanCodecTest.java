@@ -0,0 +1,156 @@
+package org.red5.io.object;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.red5.annotations.Anonymous;
+import org.red5.annotations.DontSerialize;
+
+public class BeanCodecTest {
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        Deserializer.loadBlackList();
+    }
+
+    @Test
+    public void testBeanProperties() {
+        BeanCodec codec = BeanCodec.forClass(Bean.class);
+        assertSame(codec, BeanCodec.forClass(Bean.class));
+        assertTrue(codec.hasBeanProperties());
+        assertFalse(codec.isAnonymous());
+        assertEquals(Bean.class.getName(), codec.getClassName());
+        // class, the transient field and the @DontSerialize getter are skipped
+        assertEquals(new HashSet<>(Arrays.asList("count", "name", "tags")), names(codec));
+        assertEquals(Integer.TYPE, codec.getPropertyType("count"));
+        assertEquals(Object.class, codec.getPropertyType("unknown"));
+    }
+
+    @Test
+    public void testPublicFields() {
+        BeanCodec codec = BeanCodec.forClass(Fields.class);
+        assertFalse(codec.hasBeanProperties());
+        assertTrue(codec.isAnonymous());
+        assertEquals(new HashSet<>(Arrays.asList("x", "label")), names(codec));
+        Fields fields = new Fields();
+        assertTrue(codec.setProperty(fields, "x", 12.0d));
+        assertTrue(codec.setProperty(fields, "label", "a"));
+        assertEquals(12, fields.x);
+        assertEquals("a", fields.label);
+    }
+
+    @Test
+    public void testSetAndGet() throws Exception {
+        BeanCodec codec = BeanCodec.forClass(Bean.class);
+        Bean bean = (Bean) codec.newInstance();
+        // numbers arrive as doubles and are converted to the setter type
+        assertTrue(codec.setProperty(bean, "count", 3.0d));
+        assertTrue(codec.setProperty(bean, "name", "bean"));
+        // unknown properties are ignored
+        assertTrue(codec.setProperty(bean, "unknown", "value"));
+        assertEquals(3, bean.getCount());
+        for (BeanCodec.Property property : codec.getProperties()) {
+            if ("name".equals(property.getName())) {
+                assertEquals("bean", property.get(bean));
+            } else if ("tags".equals(property.getName())) {
+                assertNull(property.get(bean));
+            }
+        }
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Bean in = new Bean();
+        in.setCount(7);
+        in.setName("round trip");
+        in.setTags(Arrays.asList("a", "b"));
+        in.secret = "secret";
+        for (boolean amf3 : new boolean[] { false, true }) {
+            IoBuffer buf = IoBuffer.allocate(256).setAutoExpand(true);
+            Serializer.serialize(amf3 ? new org.red5.io.amf3.Output(buf) : new org.red5.io.amf.Output(buf), in);
+            buf.flip();
+            Bean out = Deserializer.deserialize(amf3 ? new org.red5.io.amf3.Input(buf) : new org.red5.io.amf.Input(buf), Bean.class);
+            assertEquals(7, out.getCount());
+            assertEquals("round trip", out.getName());
+            assertEquals(in.getTags(), out.getTags());
+            assertNull(out.secret);
+        }
+    }
+
+    private static Set<String> names(BeanCodec codec) {
+        return Arrays.stream(codec.getProperties()).map(BeanCodec.Property::getName).collect(Collectors.toSet());
+    }
+
+    public static class Bean {
+
+        private int count;
+
+        private String name;
+
+        private List<String> tags;
+
+        private transient String secret;
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+
+        public String getSecret() {
+            return secret;
+        }
+
+        public void setSecret(String secret) {
+            this.secret = secret;
+        }
+
+        @DontSerialize
+        public String getDisplayName() {
+            return name + " (" + count + ")";
+        }
+
+    }
+
+    @Anonymous
+    public static class Fields {
+
+        public int x;
+
+        public String label;
+
+        public transient String ignored;
+
+    }
+
+}
@@ -0,0 +1,34 @@
+package org.red5.io.utils;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Test;
+
+public class BufferUtilsTest {
+
+    @Test
+    public void testUnmap() throws Exception {
+        File file = File.createTempFile("unmap", ".info");
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(MapMode.READ_WRITE, 0, 32);
+        }
+        buffer.putInt(0, 1234);
+        buffer.force();
+        assertTrue(BufferUtils.unmap(buffer));
+        // the file is no longer held by a mapping
+        File renamed = new File(file.getPath() + ".old");
+        assertTrue(file.renameTo(renamed));
+        assertEquals(1234, ByteBuffer.wrap(Files.readAllBytes(renamed.toPath())).getInt());
+        assertTrue(renamed.delete());
+    }
+
+}
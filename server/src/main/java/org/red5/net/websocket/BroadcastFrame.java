@@ -0,0 +1,224 @@
+/*
+ * RED5 Open Source Flash Server - https://github.com/red5 Copyright 2006-2018 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.net.websocket;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import javax.websocket.Extension;
+import javax.websocket.Extension.Parameter;
+
+import org.apache.tomcat.websocket.Constants;
+
+/**
+ * A message encoded and framed once to be written to many connections. The frame is built on first use for each {@link Encoding}, so connections which negotiated
+ * the same extensions share the same bytes.
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc7692">rfc7692</a>
+ *
+ * @author The Red5 Project
+ */
+public final class BroadcastFrame {
+
+    /**
+     * Frame variant suiting the extensions negotiated by a client.
+     */
+    public static enum Encoding {
+        /**
+         * Uncompressed frame, also valid when per-message deflate was negotiated
+         */
+        PLAIN,
+        /**
+         * Compressed frame for clients which negotiated per-message deflate without server context takeover
+         */
+        DEFLATE,
+        /**
+         * Frames cannot be shared, the message is sent through the session
+         */
+        NONE
+    }
+
+    private static final String PER_MESSAGE_DEFLATE = "permessage-deflate";
+
+    // trailer of a sync flushed deflate block, removed from the message as per rfc7692
+    private static final byte[] EOM_BYTES = new byte[] { 0, 0, -1, -1 };
+
+    private final byte opCode;
+
+    private final String text;
+
+    private final byte[] payload;
+
+    private volatile ByteBuffer plain, deflated;
+
+    private BroadcastFrame(byte opCode, String text, byte[] payload) {
+        this.opCode = opCode;
+        this.text = text;
+        this.payload = payload;
+    }
+
+    /**
+     * Creates a text frame, the text is encoded once.
+     *
+     * @param text
+     *            message
+     * @return frame
+     */
+    public static BroadcastFrame text(String text) {
+        return new BroadcastFrame(Constants.OPCODE_TEXT, text, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates a binary frame. The array is not copied and must not be modified afterwards.
+     *
+     * @param data
+     *            message
+     * @return frame
+     */
+    public static BroadcastFrame binary(byte[] data) {
+        return new BroadcastFrame(Constants.OPCODE_BINARY, null, data);
+    }
+
+    /**
+     * Returns the frame variant for the extensions negotiated by a client.
+     *
+     * @param extensions
+     *            negotiated extensions
+     * @return encoding
+     */
+    public static Encoding getEncoding(List<Extension> extensions) {
+        if (extensions == null || extensions.isEmpty()) {
+            return Encoding.PLAIN;
+        }
+        if (extensions.size() == 1 && PER_MESSAGE_DEFLATE.equals(extensions.get(0).getName())) {
+            boolean noContextTakeover = false;
+            for (Parameter param : extensions.get(0).getParameters()) {
+                switch (param.getName()) {
+                    case "server_no_context_takeover":
+                        noContextTakeover = true;
+                        break;
+                    case "server_max_window_bits":
+                        // a smaller window than the deflater's is not shared
+                        if (!"15".equals(param.getValue())) {
+                            return Encoding.PLAIN;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            // with context takeover the compression depends on the messages sent before, send uncompressed instead
+            return noContextTakeover ? Encoding.DEFLATE : Encoding.PLAIN;
+        }
+        return Encoding.NONE;
+    }
+
+    /**
+     * Returns the frame for the given encoding, as a buffer of its own which shares the bytes with the other connections.
+     *
+     * @param encoding
+     *            PLAIN or DEFLATE
+     * @return frame
+     */
+    public ByteBuffer getFrame(Encoding encoding) {
+        ByteBuffer frame;
+        if (encoding == Encoding.DEFLATE && payload.length > 0) {
+            if ((frame = deflated) == null) {
+                synchronized (this) {
+                    if ((frame = deflated) == null) {
+                        deflated = frame = frame(true, deflate(payload));
+                    }
+                }
+            }
+        } else {
+            if ((frame = plain) == null) {
+                synchronized (this) {
+                    if ((frame = plain) == null) {
+                        plain = frame = frame(false, payload);
+                    }
+                }
+            }
+        }
+        return frame.duplicate();
+    }
+
+    public boolean isText() {
+        return opCode == Constants.OPCODE_TEXT;
+    }
+
+    /**
+     * Returns the text of a text frame.
+     *
+     * @return text or null for a binary frame
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Returns the message, UTF-8 encoded for a text frame.
+     *
+     * @return payload
+     */
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public int getLength() {
+        return payload.length;
+    }
+
+    private ByteBuffer frame(boolean compressed, byte[] data) {
+        int length = data.length;
+        int headerLength = length < 126 ? 2 : (length <= 0xffff ? 4 : 10);
+        ByteBuffer frame = ByteBuffer.allocate(headerLength + length);
+        // final fragment, rsv1 marks a compressed message
+        frame.put((byte) (0x80 | (compressed ? 0x40 : 0) | opCode));
+        // server frames are not masked
+        if (length < 126) {
+            frame.put((byte) length);
+        } else if (length <= 0xffff) {
+            frame.put((byte) 126);
+            frame.putShort((short) length);
+        } else {
+            frame.put((byte) 127);
+            frame.putLong(length);
+        }
+        frame.put(data);
+        frame.flip();
+        return frame.asReadOnlyBuffer();
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 16);
+            byte[] buf = new byte[Math.max(64, Math.min(data.length, 8192))];
+            int count;
+            do {
+                count = deflater.deflate(buf, 0, buf.length, Deflater.SYNC_FLUSH);
+                out.write(buf, 0, count);
+            } while (count == buf.length);
+            byte[] compressed = out.toByteArray();
+            int length = compressed.length;
+            if (length >= EOM_BYTES.length && compressed[length - 4] == EOM_BYTES[0] && compressed[length - 3] == EOM_BYTES[1] && compressed[length - 2] == EOM_BYTES[2] && compressed[length - 1] == EOM_BYTES[3]) {
+                length -= EOM_BYTES.length;
+            }
+            byte[] result = new byte[length];
+            System.arraycopy(compressed, 0, result, 0, length);
+            return result;
+        } finally {
+            deflater.end();
+        }
+    }
+
+}
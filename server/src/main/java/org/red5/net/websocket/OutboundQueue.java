@@ -0,0 +1,245 @@
+/*
+ * RED5 Open Source Flash Server - https://github.com/red5 Copyright 2006-2018 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.net.websocket;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.red5.net.websocket.WebSocketConnection.OverflowPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded outbound queue of a WebSocket connection. Only one drain task is scheduled on the writer at a time, so the messages are written in the order they were sent.
+ * Each run hands one batch of up to the coalesce size in bytes to the {@link Sink}; the task is submitted again once the batch was written, so a busy connection
+ * takes turns with the others instead of holding a writer thread until its queue is empty.
+ *
+ * @author The Red5 Project
+ */
+final class OutboundQueue implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboundQueue.class);
+
+    /**
+     * Receiver of the queued messages of a connection.
+     */
+    interface Sink {
+
+        /**
+         * Returns whether the messages can still be written.
+         *
+         * @return true if the session is open
+         */
+        boolean isOpen();
+
+        /**
+         * Starts writing a batch of messages, called on the writer. The write must not wait for the socket; done is run once the batch was written or failed.
+         *
+         * @param batch
+         *            messages in the order they were queued
+         * @param done
+         *            callback for when the write completed
+         */
+        void write(List<Outbound> batch, Runnable done);
+
+        /**
+         * Called on the writer when the queue overflowed with the {@link OverflowPolicy#CLOSE} policy.
+         */
+        void overflow();
+
+    }
+
+    /**
+     * Message waiting in the outbound queue.
+     */
+    static final class Outbound {
+
+        final Object payload;
+
+        // size of the payload in bytes
+        final int length;
+
+        final long queued = System.nanoTime();
+
+        Outbound(Object payload, int length) {
+            this.payload = payload;
+            this.length = length;
+        }
+
+    }
+
+    private final String id;
+
+    private final Sink sink;
+
+    private final ArrayDeque<Outbound> messages = new ArrayDeque<>();
+
+    final AtomicLong dropped = new AtomicLong();
+
+    final AtomicLong sent = new AtomicLong();
+
+    // total and maximum time between queueing and writing in nanoseconds
+    final AtomicLong latency = new AtomicLong(), maxLatency = new AtomicLong();
+
+    // a drain task is scheduled or running
+    private boolean scheduled;
+
+    OutboundQueue(String id, Sink sink) {
+        this.id = id;
+        this.sink = sink;
+    }
+
+    /**
+     * Queues a message and schedules the drain task if it is not scheduled yet.
+     *
+     * @param payload
+     *            String, byte array or {@link BroadcastFrame}
+     * @param length
+     *            size of the payload in bytes
+     */
+    void offer(Object payload, int length) {
+        boolean close = false;
+        synchronized (messages) {
+            if (messages.size() >= WebSocketConnection.getOutboundQueueSize()) {
+                switch (WebSocketConnection.getOverflowPolicy()) {
+                    case DROP_OLDEST:
+                        messages.poll();
+                        dropped.incrementAndGet();
+                        break;
+                    case DROP_NEWEST:
+                        dropped.incrementAndGet();
+                        return;
+                    case CLOSE:
+                        dropped.addAndGet(messages.size() + 1);
+                        messages.clear();
+                        close = true;
+                        break;
+                }
+            }
+            if (!close) {
+                messages.add(new Outbound(payload, length));
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+        }
+        if (close) {
+            log.warn("Outbound queue full, closing {}", id);
+            try {
+                // closing writes the close frame, which must not happen on the sending thread either
+                WebSocketConnection.getWriter().execute(sink::overflow);
+            } catch (Throwable t) {
+                log.warn("Close could not be scheduled for {}", id, t);
+            }
+            return;
+        }
+        try {
+            WebSocketConnection.getWriter().execute(this);
+        } catch (Throwable t) {
+            log.warn("Outbound queue could not be scheduled for {}", id, t);
+            synchronized (messages) {
+                scheduled = false;
+            }
+        }
+    }
+
+    int size() {
+        synchronized (messages) {
+            return messages.size();
+        }
+    }
+
+    void clear() {
+        synchronized (messages) {
+            messages.clear();
+        }
+    }
+
+    public void run() {
+        final List<Outbound> batch = new ArrayList<>();
+        synchronized (messages) {
+            // take the queued messages up to the coalesce size, at least one
+            int coalesceBytes = WebSocketConnection.getCoalesceBytes();
+            int bytes = 0;
+            Outbound next;
+            while ((next = messages.peek()) != null && (batch.isEmpty() || bytes + next.length <= coalesceBytes)) {
+                batch.add(messages.poll());
+                bytes += next.length;
+            }
+            if (batch.isEmpty()) {
+                scheduled = false;
+                return;
+            }
+        }
+        if (sink.isOpen()) {
+            sink.write(batch, () -> {
+                final long now = System.nanoTime();
+                for (Outbound message : batch) {
+                    long elapsed = now - message.queued;
+                    latency.addAndGet(elapsed);
+                    maxLatency.accumulateAndGet(elapsed, Math::max);
+                }
+                sent.addAndGet(batch.size());
+                reschedule();
+            });
+        } else {
+            dropped.addAndGet(batch.size());
+            reschedule();
+        }
+    }
+
+    /**
+     * Submits the drain task again if messages were queued meanwhile, otherwise the next offer schedules it.
+     */
+    private void reschedule() {
+        synchronized (messages) {
+            if (messages.isEmpty()) {
+                scheduled = false;
+                return;
+            }
+        }
+        try {
+            WebSocketConnection.getWriter().execute(this);
+        } catch (Throwable t) {
+            log.warn("Outbound queue could not be scheduled for {}", id, t);
+            synchronized (messages) {
+                scheduled = false;
+            }
+        }
+    }
+
+    /**
+     * Returns the size of a string encoded as UTF-8 without encoding it.
+     *
+     * @param data
+     *            text
+     * @return size in bytes
+     */
+    static int utf8Length(CharSequence data) {
+        int length = data.length(), bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = data.charAt(i);
+            if (Character.isSurrogate(c)) {
+                // a surrogate pair is 4 bytes for 2 chars, a lone surrogate is replaced by a single byte
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(data.charAt(i + 1))) {
+                    bytes += 2;
+                    i++;
+                }
+            } else if (c >= 0x800) {
+                bytes += 2;
+            } else if (c >= 0x80) {
+                bytes++;
+            }
+        }
+        return bytes;
+    }
+
+}
@@ -10,7 +10,9 @@ package org.red5.net.websocket;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.lang.ref.WeakReference;
+import java.net.SocketTimeoutException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -18,7 +20,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -29,14 +35,20 @@ import javax.websocket.CloseReason;
 import javax.websocket.CloseReason.CloseCode;
 import javax.websocket.CloseReason.CloseCodes;
 import javax.websocket.Extension;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
 import javax.websocket.Session;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.tomcat.websocket.Constants;
 import org.apache.tomcat.websocket.WsSession;
+import org.red5.net.websocket.BroadcastFrame.Encoding;
+import org.red5.net.websocket.OutboundQueue.Outbound;
+import org.red5.net.websocket.server.WsRemoteEndpointImplServer;
 import org.red5.server.AttributeStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
 /**
  * WebSocketConnection <br>
@@ -59,6 +71,38 @@ public class WebSocketConnection extends AttributeStore implements Comparable<We
 
     private static long sendTimeout = 8000L, readTimeout = 30000L;
 
+    /**
+     * Action taken when the outbound queue of a connection is full.
+     */
+    public static enum OverflowPolicy {
+        /**
+         * Drop the oldest queued message to make room
+         */
+        DROP_OLDEST,
+        /**
+         * Drop the message being sent
+         */
+        DROP_NEWEST,
+        /**
+         * Close the connection
+         */
+        CLOSE
+    }
+
+    // maximum number of messages queued for a connection, 0 sends on the calling thread
+    private static int outboundQueueSize = 256;
+
+    private static OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+    // queued messages are written together until they add up to this many bytes
+    private static int coalesceBytes = 8192;
+
+    // number of threads writing the queued messages of all connections
+    private static int writerThreads = Runtime.getRuntime().availableProcessors() * 2;
+
+    // writer shared by all connections, starts the writes of the outbound queues; created on first use
+    private static volatile Executor writer;
+
     private static final AtomicLongFieldUpdater<WebSocketConnection> readBytesUpdater = AtomicLongFieldUpdater.newUpdater(WebSocketConnection.class, "readBytes");
 
     private static final AtomicLongFieldUpdater<WebSocketConnection> writeBytesUpdater = AtomicLongFieldUpdater.newUpdater(WebSocketConnection.class, "writtenBytes");
@@ -68,6 +112,12 @@ public class WebSocketConnection extends AttributeStore implements Comparable<We
     // associated websocket session
     private final WsSession wsSession;
 
+    // remote endpoint of the session, writes the broadcast frames
+    private WsRemoteEndpointImplServer remoteEndpoint;
+
+    // broadcast frame variant suiting the negotiated extensions
+    private final Encoding frameEncoding;
+
     // reference to the scope for manager access
     private WeakReference<WebSocketScope> scope;
 
@@ -108,6 +158,9 @@ public class WebSocketConnection extends AttributeStore implements Comparable<We
     // send future for when async is enabled
     private Future<Void> sendFuture;
 
+    // messages waiting for the writer
+    private final OutboundQueue outbound;
+
     public WebSocketConnection(WebSocketScope scope, Session session) {
         log.debug("New WebSocket - scope: {} session: {}", scope, session);
         // set the scope for ease of use later
@@ -129,6 +182,21 @@ public class WebSocketConnection extends AttributeStore implements Comparable<We
         }
         hashCode = wsSessionId.hashCode();
         log.info("ws id: {} hashCode: {}", wsSessionId, hashCode);
+        outbound = new OutboundQueue(wsSessionId, new OutboundQueue.Sink() {
+
+            public boolean isOpen() {
+                return wsSession.isOpen();
+            }
+
+            public void write(List<Outbound> batch, Runnable done) {
+                new BatchWriter(batch, done).run();
+            }
+
+            public void overflow() {
+                close(CloseCodes.TRY_AGAIN_LATER, "Outbound queue full");
+            }
+
+        });
         // get extensions
         List<Extension> extList = session.getNegotiatedExtensions();
         if (extList != null) {
@@ -136,8 +204,9 @@ public class WebSocketConnection extends AttributeStore implements Comparable<We
                 extensions.put(extension.getName(), extension);
             });
         }
+        frameEncoding = BroadcastFrame.getEncoding(extList);
         if (isDebug) {
-            log.debug("extensions: {}", extensions);
+            log.debug("extensions: {} frame encoding: {}", extensions, frameEncoding);
         }
         // get querystring
         String queryString = session.getQueryString();
@@ -167,6 +236,10 @@ public class WebSocketConnection extends AttributeStore implements Comparable<We
         // add the timeouts to the user props
         userProps.put(Constants.READ_IDLE_TIMEOUT_MS, readTimeout);
         userProps.put(Constants.WRITE_IDLE_TIMEOUT_MS, sendTimeout);
+        // blocking sends give up after the send timeout
+        userProps.put(Constants.BLOCKING_SEND_TIMEOUT_PROPERTY, sendTimeout);
+        // the queued messages are written through the async remote, which fails the write of a stalled client after the send timeout
+        wsSession.getAsyncRemote().setSendTimeout(sendTimeout);
         // set the close timeout to 5 seconds
         userProps.put(Constants.SESSION_CLOSE_TIMEOUT_PROPERTY, TimeUnit.SECONDS.toMillis(5));
         if (isDebug) {
@@ -194,6 +267,10 @@ public class WebSocketConnection extends AttributeStore implements Comparable<We
         if (StringUtils.isNotBlank(data)) {
             // attempt send only if the session is not closed
             if (!wsSession.isClosed()) {
+                if (outboundQueueSize > 0) {
+                    outbound.offer(data, OutboundQueue.utf8Length(data));
+                    return;
+                }
                 try {
                     if (useAsync) {
                         if (sendFuture != null && !sendFuture.isDone()) {
@@ -209,13 +286,13 @@ public class WebSocketConnection extends AttributeStore implements Comparable<We
                             }
                         }
                         synchronized (wsSessionId) {
-                            int lengthToWrite = data.getBytes().length;
+                            int lengthToWrite = OutboundQueue.utf8Length(data);
                             sendFuture = wsSession.getAsyncRemote().sendText(data);
                             updateWriteBytes(lengthToWrite);
                         }
                     } else {
                         synchronized (wsSessionId) {
-                            int lengthToWrite = data.getBytes().length;
+                            int lengthToWrite = OutboundQueue.utf8Length(data);
                             wsSession.getBasicRemote().sendText(data);
                             updateWriteBytes(lengthToWrite);
                         }
@@ -242,6 +319,10 @@ public class WebSocketConnection extends AttributeStore implements Comparable<We
             log.debug("send binary: {}", Arrays.toString(buf));
         }
         if (!wsSession.isClosed()) {
+            if (outboundQueueSize > 0) {
+                outbound.offer(buf, buf.length);
+                return;
+            }
             try {
                 // send the bytes
                 if (useAsync) {
@@ -274,6 +355,35 @@ public class WebSocketConnection extends AttributeStore implements Comparable<We
         }
     }
 
+    /**
+     * Sends a broadcast frame to the client. The frame is written as is when the negotiated extensions allow it, otherwise its message is sent through the session.
+     *
+     * @param frame
+     *            frame shared with other connections
+     * @return true if the frame was sent or queued, false if the session is closed
+     * @throws IOException
+     */
+    public boolean send(BroadcastFrame frame) throws IOException {
+        if (wsSession.isClosed()) {
+            return false;
+        }
+        if (remoteEndpoint == null || frameEncoding == Encoding.NONE) {
+            if (frame.isText()) {
+                send(frame.getText());
+            } else {
+                send(frame.getPayload());
+            }
+        } else if (outboundQueueSize > 0) {
+            outbound.offer(frame, frame.getLength());
+        } else {
+            synchronized (wsSessionId) {
+                remoteEndpoint.sendFrame(frame.getFrame(frameEncoding), frame.getLength(), sendTimeout);
+                updateWriteBytes(frame.getLength());
+            }
+        }
+        return true;
+    }
+
     /**
      * Sends a ping to the client.
      *
@@ -352,6 +462,8 @@ public class WebSocketConnection extends AttributeStore implements Comparable<We
             } catch (Exception e) {
                 log.debug("Exception closing session", e);
             }
+            // drop the messages not written yet
+            outbound.clear();
             // clean up our props
             attributes.clear();
             if (querystringParameters != null) {
@@ -368,6 +480,43 @@ public class WebSocketConnection extends AttributeStore implements Comparable<We
         }
     }
 
+    /**
+     * Returns the number of messages waiting to be written to the client.
+     *
+     * @return outbound queue depth
+     */
+    public int getOutboundQueueDepth() {
+        return outbound.size();
+    }
+
+    /**
+     * Returns the number of messages dropped because the outbound queue was full.
+     *
+     * @return dropped message count
+     */
+    public long getOutboundDropped() {
+        return outbound.dropped.get();
+    }
+
+    /**
+     * Returns the average time between queueing a message and writing it to the client.
+     *
+     * @return send latency in milliseconds
+     */
+    public double getAverageSendLatency() {
+        long count = outbound.sent.get();
+        return count > 0 ? outbound.latency.get() / (count * 1000000d) : 0d;
+    }
+
+    /**
+     * Returns the longest time between queueing a message and writing it to the client.
+     *
+     * @return send latency in milliseconds
+     */
+    public long getMaxSendLatency() {
+        return TimeUnit.NANOSECONDS.toMillis(outbound.maxLatency.get());
+    }
+
     /**
      * Async send is enabled in non-Windows based systems; this provides a means to override it.
      *
@@ -634,6 +783,96 @@ public class WebSocketConnection extends AttributeStore implements Comparable<We
         WebSocketConnection.sendTimeout = sendTimeout;
     }
 
+    public static int getOutboundQueueSize() {
+        return outboundQueueSize;
+    }
+
+    /**
+     * Sets the maximum number of messages queued for a connection; 0 disables the queue and messages are sent on the calling thread.
+     *
+     * @param outboundQueueSize
+     */
+    public static void setOutboundQueueSize(int outboundQueueSize) {
+        WebSocketConnection.outboundQueueSize = outboundQueueSize;
+    }
+
+    public static OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public static void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        WebSocketConnection.overflowPolicy = overflowPolicy;
+    }
+
+    public static int getCoalesceBytes() {
+        return coalesceBytes;
+    }
+
+    /**
+     * Sets the number of bytes up to which queued messages are written to the client together.
+     *
+     * @param coalesceBytes
+     */
+    public static void setCoalesceBytes(int coalesceBytes) {
+        WebSocketConnection.coalesceBytes = coalesceBytes;
+    }
+
+    public static int getWriterThreads() {
+        return writerThreads;
+    }
+
+    /**
+     * Sets the number of threads writing the queued messages of all connections, takes effect when the writer is created.
+     *
+     * @param writerThreads
+     */
+    public static void setWriterThreads(int writerThreads) {
+        WebSocketConnection.writerThreads = writerThreads;
+    }
+
+    /**
+     * Returns the executor which writes the queued messages of all connections, creating it if needed. The pool has a fixed number of threads; its queue holds at
+     * most one drain task per connection.
+     *
+     * @return writer
+     */
+    static Executor getWriter() {
+        Executor executor = writer;
+        if (executor == null) {
+            synchronized (WebSocketConnection.class) {
+                if ((executor = writer) == null) {
+                    ThreadPoolExecutor pool = new ThreadPoolExecutor(writerThreads, writerThreads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new CustomizableThreadFactory("WebSocketWriter-"));
+                    pool.allowCoreThreadTimeOut(true);
+                    writer = executor = pool;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Sets the executor which writes the queued messages of all connections.
+     *
+     * @param writer
+     */
+    public static void setWriter(Executor writer) {
+        WebSocketConnection.writer = writer;
+    }
+
+    /**
+     * Shuts the writer down, called when the server stops. A writer is created again for messages sent afterwards.
+     */
+    public static void shutdownWriter() {
+        Executor executor;
+        synchronized (WebSocketConnection.class) {
+            executor = writer;
+            writer = null;
+        }
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdownNow();
+        }
+    }
+
     public static long getReadTimeout() {
         return readTimeout;
     }
@@ -663,6 +902,15 @@ public class WebSocketConnection extends AttributeStore implements Comparable<We
         }
     }
 
+    /**
+     * Sets the remote endpoint of the session, which writes the broadcast frames.
+     *
+     * @param remoteEndpoint
+     */
+    public void setRemoteEndpoint(WsRemoteEndpointImplServer remoteEndpoint) {
+        this.remoteEndpoint = remoteEndpoint;
+    }
+
     public WsSession getWsSession() {
         return wsSession != null ? wsSession : null;
     }
@@ -713,6 +961,118 @@ public class WebSocketConnection extends AttributeStore implements Comparable<We
         return hashCode == other.hashCode();
     }
 
+    /**
+     * Writes a batch of queued messages through the async remote. Each send is started when the previous one completed, so no writer thread waits on the socket;
+     * consecutive broadcast frames are gathered into a single write.
+     */
+    private final class BatchWriter implements Runnable, SendHandler {
+
+        private final List<Outbound> batch;
+
+        private final Runnable done;
+
+        // index of the next message to send
+        private int next;
+
+        // bytes of the send in progress
+        private long pending;
+
+        BatchWriter(List<Outbound> batch, Runnable done) {
+            this.batch = batch;
+            this.done = done;
+        }
+
+        /**
+         * Starts the next send, or completes the batch when all were sent.
+         */
+        public void run() {
+            if (next >= batch.size() || !wsSession.isOpen()) {
+                done.run();
+                return;
+            }
+            boolean started;
+            try {
+                synchronized (wsSessionId) {
+                    started = start();
+                }
+            } catch (IllegalStateException e) {
+                // the async remote is still sending a message which was not queued
+                started = false;
+            } catch (Exception e) {
+                log.warn("Send exception {}", wsSessionId, e);
+                done.run();
+                return;
+            }
+            if (!started) {
+                // another message is in progress, try again when the writer gets back to this connection
+                try {
+                    getWriter().execute(this);
+                } catch (Throwable t) {
+                    log.warn("Send could not be scheduled for {}", wsSessionId, t);
+                    done.run();
+                }
+            }
+        }
+
+        private boolean start() {
+            int first = next;
+            Outbound message = batch.get(first);
+            if (message.payload instanceof BroadcastFrame) {
+                List<ByteBuffer> frames = new ArrayList<>();
+                long bytes = 0;
+                int end = first;
+                while (end < batch.size() && batch.get(end).payload instanceof BroadcastFrame) {
+                    BroadcastFrame frame = (BroadcastFrame) batch.get(end++).payload;
+                    frames.add(frame.getFrame(frameEncoding));
+                    bytes += frame.getLength();
+                }
+                // set before the write starts, the handler may be called on another thread before it returns
+                next = end;
+                pending = bytes;
+                if (!remoteEndpoint.sendFramesByCompletion(frames.toArray(new ByteBuffer[frames.size()]), bytes, this)) {
+                    next = first;
+                    return false;
+                }
+                return true;
+            }
+            next = first + 1;
+            try {
+                if (message.payload instanceof String) {
+                    pending = message.length;
+                    wsSession.getAsyncRemote().sendText((String) message.payload, this);
+                } else {
+                    byte[] data = (byte[]) message.payload;
+                    pending = data.length;
+                    wsSession.getAsyncRemote().sendBinary(ByteBuffer.wrap(data), this);
+                }
+            } catch (IllegalStateException e) {
+                next = first;
+                throw e;
+            }
+            return true;
+        }
+
+        public void onResult(SendResult result) {
+            if (result.isOK()) {
+                updateWriteBytes(pending);
+                run();
+                return;
+            }
+            Throwable t = result.getException();
+            if (t instanceof SocketTimeoutException || (t != null && t.getCause() instanceof SocketTimeoutException)) {
+                log.warn("Send timed out, closing {}", wsSessionId);
+                // the client stopped reading, the rest of the queue would time out as well
+                outbound.clear();
+                done.run();
+                close(CloseCodes.TRY_AGAIN_LATER, "Send timed out");
+            } else {
+                log.warn("Send exception {}", wsSessionId, t);
+                done.run();
+            }
+        }
+
+    }
+
     @Override
     public String toString() {
         if (wsSessionId != null) {
@@ -135,6 +135,8 @@ public class WebSocketPlugin extends Red5Plugin {
         });
         managerMap.clear();
         executor.shutdownNow();
+        // stop the threads writing the queued websocket messages
+        WebSocketConnection.shutdownWriter();
     }
 
     /**
@@ -340,6 +342,22 @@ public class WebSocketPlugin extends Red5Plugin {
         log.info("allowedOrigins: {}", Arrays.toString(WebSocketPlugin.allowedOrigins));
     }
 
+    public void setOutboundQueueSize(int outboundQueueSize) {
+        WebSocketConnection.setOutboundQueueSize(outboundQueueSize);
+    }
+
+    public void setOverflowPolicy(String overflowPolicy) {
+        WebSocketConnection.setOverflowPolicy(WebSocketConnection.OverflowPolicy.valueOf(overflowPolicy));
+    }
+
+    public void setCoalesceBytes(int coalesceBytes) {
+        WebSocketConnection.setCoalesceBytes(coalesceBytes);
+    }
+
+    public void setWriterThreads(int writerThreads) {
+        WebSocketConnection.setWriterThreads(writerThreads);
+    }
+
     /**
      * Returns an new instance of the configurator.
      *
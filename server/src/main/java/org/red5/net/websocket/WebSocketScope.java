@@ -210,6 +210,51 @@ public class WebSocketScope implements InitializingBean, DisposableBean {
         }
     }
 
+    /**
+     * Sends a text message to every connection on the scope. The message is encoded and framed once.
+     *
+     * @param message
+     *            text message
+     * @return number of connections the message was sent to
+     */
+    public int broadcast(String message) {
+        return broadcast(BroadcastFrame.text(message));
+    }
+
+    /**
+     * Sends a binary message to every connection on the scope. The message is framed once.
+     *
+     * @param message
+     *            binary message
+     * @return number of connections the message was sent to
+     */
+    public int broadcast(byte[] message) {
+        return broadcast(BroadcastFrame.binary(message));
+    }
+
+    /**
+     * Sends a frame to every connection on the scope. Connections which negotiated the same extensions get the same frame bytes.
+     *
+     * @param frame
+     *            broadcast frame
+     * @return number of connections the frame was sent to
+     */
+    public int broadcast(BroadcastFrame frame) {
+        int count = 0;
+        for (WebSocketConnection conn : conns) {
+            if (conn.isConnected()) {
+                try {
+                    if (conn.send(frame)) {
+                        count++;
+                    }
+                } catch (Exception e) {
+                    log.warn("Broadcast to {} failed", conn.getWsSessionId(), e);
+                }
+            }
+        }
+        return count;
+    }
+
     /**
      * Add new listener on scope.
      *
@@ -356,6 +356,34 @@ public class WebSocketScopeManager {
         return scope;
     }
 
+    /**
+     * Sends a text message to every connection on the scope with the given path. The message is encoded and framed once.
+     *
+     * @param path
+     *            scope path
+     * @param message
+     *            text message
+     * @return number of connections the message was sent to
+     */
+    public int broadcast(String path, String message) {
+        WebSocketScope scope = scopes.get(path);
+        return scope != null ? scope.broadcast(message) : 0;
+    }
+
+    /**
+     * Sends a binary message to every connection on the scope with the given path. The message is framed once.
+     *
+     * @param path
+     *            scope path
+     * @param message
+     *            binary message
+     * @return number of connections the message was sent to
+     */
+    public int broadcast(String path, byte[] message) {
+        WebSocketScope scope = scopes.get(path);
+        return scope != null ? scope.broadcast(message) : 0;
+    }
+
     /**
      * Notifies listeners of scope lifecycle events.
      *
@@ -152,6 +152,8 @@ public class WsHttpUpgradeHandler implements InternalHttpUpgradeHandler {
             WebSocketScope scope = (WebSocketScope) endpointConfig.getUserProperties().get(WSConstants.WS_SCOPE);
             // create a ws connection instance
             WebSocketConnection conn = new WebSocketConnection(scope, wsSession);
+            // broadcast frames are written to the remote endpoint directly
+            conn.setRemoteEndpoint(wsRemoteEndpointServer);
             // set ip and port
             conn.setAttribute(WSConstants.WS_HEADER_REMOTE_IP, socketWrapper.getRemoteAddr());
             conn.setAttribute(WSConstants.WS_HEADER_REMOTE_PORT, socketWrapper.getRemotePort());
@@ -82,6 +82,69 @@ public class WsRemoteEndpointImplServer extends WsRemoteEndpointImplBase {
         }
     }
 
+    /**
+     * Writes a complete frame built elsewhere, such as a broadcast frame shared by many sessions. The frame bypasses the transformations of this endpoint and waits
+     * for the message being sent through the endpoint to complete, it must not be written while a fragmented message is in progress.
+     *
+     * @param frame
+     *            frame to write
+     * @param payloadLength
+     *            length of the message in the frame
+     * @param timeout
+     *            milliseconds to wait for the endpoint and the write
+     * @throws IOException
+     *             if the write failed or timed out
+     */
+    public void sendFrame(ByteBuffer frame, long payloadLength, long timeout) throws IOException {
+        final long timeoutExpiry = System.currentTimeMillis() + timeout;
+        try {
+            if (!acquireMessagePartInProgressSemaphore((byte) (frame.get(frame.position()) & 0x0f), timeoutExpiry)) {
+                throw new SocketTimeoutException();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        try {
+            SendResult[] result = new SendResult[1];
+            // blocking writes call the handler before returning
+            doWrite(sr -> result[0] = sr, timeoutExpiry, frame);
+            if (!result[0].isOK()) {
+                Throwable t = result[0].getException();
+                throw t instanceof IOException ? (IOException) t : new IOException(t);
+            }
+            updateStats(payloadLength);
+        } finally {
+            messagePartInProgress.release();
+        }
+    }
+
+    /**
+     * Starts writing complete frames built elsewhere without waiting for the write; the handler is called once the frames were written or the write failed, as with
+     * the async remote. Like {@link #sendFrame(ByteBuffer, long, long)} the frames bypass the transformations of this endpoint.
+     *
+     * @param frames
+     *            frames to write in a single write
+     * @param payloadLength
+     *            length of the messages in the frames
+     * @param handler
+     *            called when the write completed
+     * @return true if the write was started, false if another message is in progress
+     */
+    public boolean sendFramesByCompletion(ByteBuffer[] frames, long payloadLength, SendHandler handler) {
+        if (!messagePartInProgress.tryAcquire()) {
+            return false;
+        }
+        doWrite(sr -> {
+            messagePartInProgress.release();
+            if (sr.isOK()) {
+                updateStats(payloadLength);
+            }
+            handler.onResult(sr);
+        }, -1, frames);
+        return true;
+    }
+
     @Override
     protected void updateStats(long payloadLength) {
         upgradeInfo.addMsgsSent(1);
@@ -156,11 +156,8 @@ public class RTMPEIoFilter extends IoFilterAdapter {
                                 if (isDebug) {
                                     log.debug("Decrypting message: {}", message);
                                 }
-                                byte[] encrypted = new byte[message.remaining()];
-                                message.get(encrypted);
-                                message.free();
-                                byte[] plain = cipher.update(encrypted);
-                                IoBuffer messageDecrypted = IoBuffer.wrap(plain);
+                                // the read buffer is ours, decrypt it in place
+                                IoBuffer messageDecrypted = RTMPEUtils.decrypt(cipher, message);
                                 if (isDebug) {
                                     log.debug("Receiving decrypted message: {}", messageDecrypted);
                                 }
@@ -196,12 +193,9 @@ public class RTMPEIoFilter extends IoFilterAdapter {
                 if (isDebug) {
                     log.debug("Encrypting message: {}", message);
                 }
-                byte[] plain = new byte[message.remaining()];
-                message.get(plain);
-                message.free();
                 // encrypt and write
-                byte[] encrypted = cipher.update(plain);
-                IoBuffer messageEncrypted = IoBuffer.wrap(encrypted);
+                IoBuffer messageEncrypted = RTMPEUtils.encrypt(cipher, message);
+                message.free();
                 if (isDebug) {
                     log.debug("Writing encrypted message: {}", messageEncrypted);
                 }
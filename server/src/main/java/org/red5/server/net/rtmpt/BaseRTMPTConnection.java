@@ -7,15 +7,14 @@
 
 package org.red5.server.net.rtmpt;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
-import org.apache.commons.lang3.ArrayUtils;
 import org.apache.mina.core.buffer.IoBuffer;
 import org.red5.server.api.Red5;
 import org.red5.server.net.rtmp.RTMPConnection;
@@ -38,6 +37,11 @@ public abstract class BaseRTMPTConnection extends RTMPConnection {
 
     private static final Logger log = LoggerFactory.getLogger(BaseRTMPTConnection.class);
 
+    /**
+     * Maximum number of pending messages returned at a time
+     */
+    private static final int MAX_FOLDED_MESSAGES = 164;
+
     /**
      * Protocol decoder
      */
@@ -73,6 +77,11 @@ public abstract class BaseRTMPTConnection extends RTMPConnection {
      */
     protected transient volatile LinkedBlockingQueue<PendingData> pendingOutMessages = new LinkedBlockingQueue<PendingData>(8192);
 
+    /**
+     * Callbacks of the requests held until outgoing messages are available
+     */
+    private final transient ConcurrentLinkedQueue<Runnable> pendingWaiters = new ConcurrentLinkedQueue<>();
+
     /**
      * Maximum incoming messages to process at a time per client
      */
@@ -106,6 +115,8 @@ public abstract class BaseRTMPTConnection extends RTMPConnection {
     @Override
     public void closeConnection() {
         closing = true;
+        // answer the held requests
+        notifyPendingWaiters();
         if (!pendingOutMessages.isEmpty()) {
             if (log.isTraceEnabled()) {
                 log.trace("Clearing pending messages out: {}", pendingOutMessages.size());
@@ -209,19 +220,7 @@ public abstract class BaseRTMPTConnection extends RTMPConnection {
                 if (data != null) {
                     // add to pending
                     log.debug("Adding outgoing message packet");
-                    PendingData pendingData = new PendingData(data, packet);
-                    try {
-                        int attempt = 0;
-                        while (!pendingOutMessages.offer(pendingData, maxQueueOfferTime, TimeUnit.MILLISECONDS)) {
-                            log.trace("Packet was not added to out queue");
-                            attempt++;
-                            if (attempt >= maxQueueOfferAttempts) {
-                                break;
-                            }
-                        }
-                    } catch (InterruptedException ex) {
-                        log.warn("Offering packet to out queue failed", ex);
-                    }
+                    offerPendingData(new PendingData(data, packet));
                 } else {
                     log.warn("Response buffer was null after encoding");
                 }
@@ -242,7 +241,16 @@ public abstract class BaseRTMPTConnection extends RTMPConnection {
         if (log.isDebugEnabled()) {
             log.debug("write - io buffer: {}", packet);
         }
-        PendingData pendingData = new PendingData(packet);
+        offerPendingData(new PendingData(packet));
+    }
+
+    /**
+     * Adds data to the outgoing queue and wakes up the requests waiting for it.
+     *
+     * @param pendingData
+     *            encoded data
+     */
+    private void offerPendingData(PendingData pendingData) {
         try {
             int attempt = 0;
             while (!pendingOutMessages.offer(pendingData, maxQueueOfferTime, TimeUnit.MILLISECONDS)) {
@@ -253,7 +261,50 @@ public abstract class BaseRTMPTConnection extends RTMPConnection {
                 }
             }
         } catch (InterruptedException ex) {
-            log.warn("Offering io buffer to out queue failed", ex);
+            log.warn("Offering packet to out queue failed", ex);
+        }
+        if (!pendingWaiters.isEmpty()) {
+            notifyPendingWaiters();
+        }
+    }
+
+    /**
+     * Registers a callback which is run once, when outgoing messages become available or the connection closes. It runs right away if either is already the
+     * case. The callback runs on the thread which wrote the message, so it should hand the work off.
+     *
+     * @param waiter
+     *            callback
+     */
+    public void addPendingMessagesWaiter(Runnable waiter) {
+        pendingWaiters.add(waiter);
+        // a message offered before the callback was added
+        if (!pendingOutMessages.isEmpty() || closing) {
+            notifyPendingWaiters();
+        }
+    }
+
+    /**
+     * Removes a callback which has not been run yet.
+     *
+     * @param waiter
+     *            callback
+     * @return true if the callback was removed before it was run
+     */
+    public boolean removePendingMessagesWaiter(Runnable waiter) {
+        return pendingWaiters.remove(waiter);
+    }
+
+    /**
+     * Runs and removes the registered callbacks.
+     */
+    private void notifyPendingWaiters() {
+        Runnable waiter;
+        while ((waiter = pendingWaiters.poll()) != null) {
+            try {
+                waiter.run();
+            } catch (Exception e) {
+                log.warn("Exception notifying a held request", e);
+            }
         }
     }
 
@@ -263,23 +314,12 @@ public abstract class BaseRTMPTConnection extends RTMPConnection {
         if (!pendingOutMessages.isEmpty()) {
             int available = pendingOutMessages.size();
             // create list to hold outgoing data
-            LinkedList<PendingData> sendList = new LinkedList<PendingData>();
-            pendingOutMessages.drainTo(sendList, Math.min(164, available));
+            List<PendingData> sendList = new ArrayList<PendingData>(Math.min(MAX_FOLDED_MESSAGES, available));
+            pendingOutMessages.drainTo(sendList, MAX_FOLDED_MESSAGES);
             result = IoBuffer.allocate(targetSize).setAutoExpand(true);
             for (PendingData pendingMessage : sendList) {
                 result.put(pendingMessage.getBuffer());
-                Packet packet = pendingMessage.getPacket();
-                if (packet != null) {
-                    try {
-                        handler.messageSent(this, packet);
-                        // mark packet as being written
-                        writingMessage(packet);
-                    } catch (Exception e) {
-                        log.error("Could not notify stream subsystem about sent message", e);
-                    }
-                } else {
-                    log.trace("Pending message did not have a packet");
-                }
+                notifySent(pendingMessage.getPacket());
             }
             sendList.clear();
             result.flip();
@@ -291,6 +331,49 @@ public abstract class BaseRTMPTConnection extends RTMPConnection {
         return result;
     }
 
+    /**
+     * Returns the pending messages as the buffers they were encoded to, to be written one after the other without being folded into a single buffer.
+     *
+     * @return buffers containing the data to send or null if no messages are pending
+     */
+    protected List<IoBuffer> drainPendingMessages() {
+        List<IoBuffer> result = null;
+        if (!pendingOutMessages.isEmpty()) {
+            int available = pendingOutMessages.size();
+            List<PendingData> sendList = new ArrayList<PendingData>(Math.min(MAX_FOLDED_MESSAGES, available));
+            pendingOutMessages.drainTo(sendList, MAX_FOLDED_MESSAGES);
+            result = new ArrayList<IoBuffer>(sendList.size());
+            for (PendingData pendingMessage : sendList) {
+                result.add(pendingMessage.getBuffer());
+                notifySent(pendingMessage.getPacket());
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Send buffers: {}", result.size());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Notifies the handler about a message handed to the client.
+     *
+     * @param packet
+     *            sent packet or null for raw data
+     */
+    private void notifySent(Packet packet) {
+        if (packet != null) {
+            try {
+                handler.messageSent(this, packet);
+                // mark packet as being written
+                writingMessage(packet);
+            } catch (Exception e) {
+                log.error("Could not notify stream subsystem about sent message", e);
+            }
+        } else {
+            log.trace("Pending message did not have a packet");
+        }
+    }
+
     public void setDecoder(RTMPProtocolDecoder decoder) {
         this.decoder = (RTMPTProtocolDecoder) decoder;
     }
@@ -324,7 +407,7 @@ public abstract class BaseRTMPTConnection extends RTMPConnection {
     }
 
     /**
-     * Holder for data destined for a requester that is not ready to be sent.
+     * Holder for data destined for a requester that is not ready to be sent. The encoded buffer is kept as is, it is not written to by anyone else once encoded.
      */
     private static class PendingData {
 
@@ -332,33 +415,22 @@ public abstract class BaseRTMPTConnection extends RTMPConnection {
         private final Packet packet;
 
         // encoded packet data
-        private final byte[] byteBuffer;
+        private final IoBuffer buffer;
 
         private PendingData(IoBuffer buffer, Packet packet) {
-            int size = buffer.limit();
-            this.byteBuffer = new byte[size];
-            buffer.get(byteBuffer);
+            this.buffer = buffer.slice();
             this.packet = packet;
             if (log.isTraceEnabled()) {
-                log.trace("Buffer: {}", Arrays.toString(ArrayUtils.subarray(byteBuffer, 0, 32)));
+                log.trace("Buffer: {}", buffer.getHexDump(32));
             }
         }
 
         private PendingData(IoBuffer buffer) {
-            int size = buffer.limit();
-            this.byteBuffer = new byte[size];
-            buffer.get(byteBuffer);
-            this.packet = null;
-            if (log.isTraceEnabled()) {
-                log.trace("Buffer: {}", Arrays.toString(ArrayUtils.subarray(byteBuffer, 0, 32)));
-            }
+            this(buffer, null);
         }
 
-        public byte[] getBuffer() {
-            if (log.isTraceEnabled()) {
-                log.trace("Get buffer: {}", Arrays.toString(ArrayUtils.subarray(byteBuffer, 0, 32)));
-            }
-            return byteBuffer;
+        public IoBuffer getBuffer() {
+            return buffer;
         }
 
         public Packet getPacket() {
@@ -367,10 +439,7 @@ public abstract class BaseRTMPTConnection extends RTMPConnection {
 
         @SuppressWarnings("unused")
         public int getBufferSize() {
-            if (byteBuffer != null) {
-                return byteBuffer.length;
-            }
-            return 0;
+            return buffer.remaining();
         }
 
     }
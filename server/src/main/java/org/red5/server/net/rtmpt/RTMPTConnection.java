@@ -7,6 +7,7 @@
 
 package org.red5.server.net.rtmpt;
 
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.servlet.http.HttpServletRequest;
@@ -240,6 +241,32 @@ public class RTMPTConnection extends BaseRTMPTConnection {
      */
     @Override
     public IoBuffer getPendingMessages(int targetSize) {
+        updatePollingDelay();
+        return foldPendingMessages(targetSize);
+    }
+
+    /**
+     * Return any pending messages as the buffers they were encoded to.
+     *
+     * @return buffers containing the data to send or null if no messages are pending
+     */
+    public List<IoBuffer> getPendingMessageBuffers() {
+        updatePollingDelay();
+        return drainPendingMessages();
+    }
+
+    /**
+     * Resets the polling delay to its minimum, for a client which was held for the idle timeout already.
+     */
+    public void resetPollingDelay() {
+        noPendingMessages = 0;
+        pollingDelay = INITIAL_POLLING_DELAY;
+    }
+
+    /**
+     * Adjusts the polling delay; it increases while the client polls without messages pending.
+     */
+    private void updatePollingDelay() {
         if (log.isTraceEnabled()) {
             log.trace("Pending messages out: {}", pendingOutMessages.size());
         }
@@ -259,7 +286,6 @@ public class RTMPTConnection extends BaseRTMPTConnection {
                 }
             }
         }
-        return foldPendingMessages(targetSize);
     }
 
     /**
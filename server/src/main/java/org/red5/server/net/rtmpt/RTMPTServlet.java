@@ -10,8 +10,12 @@ package org.red5.server.net.rtmpt;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServlet;
@@ -75,6 +79,16 @@ public class RTMPTServlet extends HttpServlet {
      */
     private static int targetResponseSize = Short.MAX_VALUE + 1;
 
+    /**
+     * Write the pending messages to the response straight from the buffers they were encoded to, instead of folding them into one buffer first.
+     */
+    private static boolean zeroCopy = Boolean.valueOf(System.getProperty("rtmpt.zero_copy", "false"));
+
+    /**
+     * Maximum time in milliseconds an idle request is held open while no messages are pending, 0 answers right away. Holding needs async support on the servlet.
+     */
+    private static long idleTimeout = Long.getLong("rtmpt.idle_timeout", 0L);
+
     /**
      * Reference to RTMPT handler;
      */
@@ -226,6 +240,45 @@ public class RTMPTServlet extends HttpServlet {
         buffer = null;
     }
 
+    /**
+     * Return raw data to the client, writing the buffers one after the other.
+     *
+     * @param conn
+     *            RTMP connection
+     * @param buffers
+     *            Raw data as byte buffers
+     * @param resp
+     *            Servlet response
+     * @throws IOException
+     *             I/O exception
+     */
+    protected void returnMessage(RTMPTConnection conn, List<IoBuffer> buffers, HttpServletResponse resp) throws IOException {
+        log.trace("returnMessage {}", buffers);
+        int length = 0;
+        for (IoBuffer buffer : buffers) {
+            length += buffer.remaining();
+        }
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setHeader("Connection", "Keep-Alive");
+        resp.setHeader("Cache-Control", "no-cache");
+        resp.setContentType(CONTENT_TYPE);
+        int contentLength = length + 1;
+        resp.setContentLength(contentLength);
+        ServletOutputStream output = resp.getOutputStream();
+        byte pollingDelay = conn.getPollingDelay();
+        log.debug("Sending {} bytes in {} buffers; polling delay: {}", length, buffers.size(), pollingDelay);
+        output.write(pollingDelay);
+        for (IoBuffer buffer : buffers) {
+            if (buffer.hasArray()) {
+                // straight from the encoded bytes into the response
+                output.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            } else {
+                ServletUtils.copy(buffer.asInputStream(), output);
+            }
+        }
+        conn.updateWrittenBytes(contentLength);
+    }
+
     /**
      * Sets the request info for the current request. Request info contains the session id and request number gathered from the incoming
      * request. The URI is in this form /[method]/[session id]/[request number] ie. /send/CAFEBEEF01/7
@@ -270,11 +323,21 @@ public class RTMPTServlet extends HttpServlet {
      */
     protected void returnPendingMessages(RTMPTConnection conn, HttpServletResponse resp) {
         log.debug("returnPendingMessages {}", conn);
-        // grab any pending outgoing data
-        IoBuffer data = conn.getPendingMessages(targetResponseSize);
-        if (data != null) {
+        // grab any pending outgoing data, either as encoded or folded into one buffer
+        List<IoBuffer> buffers = null;
+        IoBuffer data = null;
+        if (zeroCopy) {
+            buffers = conn.getPendingMessageBuffers();
+        } else {
+            data = conn.getPendingMessages(targetResponseSize);
+        }
+        if (buffers != null || data != null) {
             try {
-                returnMessage(conn, data, resp);
+                if (buffers != null) {
+                    returnMessage(conn, buffers, resp);
+                } else {
+                    returnMessage(conn, data, resp);
+                }
             } catch (Exception ex) {
                 // using "Exception" is meant to catch any exception that would occur when doing a write
                 // this can be an IOException or a container specific one like ClientAbortException from catalina
@@ -501,6 +564,11 @@ public class RTMPTServlet extends HttpServlet {
         if (conn != null) {
             conn.dataReceived();
             conn.updateReadBytes(req.getContentLength());
+            // hold the request until there is something to return, without keeping the container thread
+            if (idleTimeout > 0 && conn.getPendingMessages() == 0 && !conn.isClosing() && req.isAsyncSupported()) {
+                holdIdleRequest(conn, req);
+                return;
+            }
             // return pending
             returnPendingMessages(conn, resp);
         } else {
@@ -508,6 +576,65 @@ public class RTMPTServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Holds an idle request open until messages are pending, the connection closes or the idle timeout expires. The request is put in async mode, so no container
+     * thread waits meanwhile; the response is written on a container thread once the connection has data.
+     *
+     * @param conn
+     *            RTMPT connection
+     * @param req
+     *            Servlet request
+     */
+    private void holdIdleRequest(final RTMPTConnection conn, HttpServletRequest req) {
+        final AsyncContext async = req.startAsync();
+        async.setTimeout(idleTimeout);
+        // the request is answered once, either by the connection or by the timeout
+        final AtomicBoolean answered = new AtomicBoolean();
+        final Runnable waiter = () -> {
+            if (answered.compareAndSet(false, true)) {
+                // called on the thread writing to the connection, the response is written by the container
+                async.start(() -> {
+                    try {
+                        returnPendingMessages(conn, (HttpServletResponse) async.getResponse());
+                    } finally {
+                        async.complete();
+                    }
+                });
+            }
+        };
+        async.addListener(new AsyncListener() {
+
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                conn.removePendingMessagesWaiter(waiter);
+                if (answered.compareAndSet(false, true)) {
+                    // the client was held for the timeout already, have it come back straight away
+                    conn.resetPollingDelay();
+                    returnPendingMessages(conn, (HttpServletResponse) event.getSuppliedResponse());
+                    event.getAsyncContext().complete();
+                }
+            }
+
+            @Override
+            public void onError(AsyncEvent event) throws IOException {
+                log.debug("Held idle request failed", event.getThrowable());
+                conn.removePendingMessagesWaiter(waiter);
+                answered.set(true);
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) throws IOException {
+                conn.removePendingMessagesWaiter(waiter);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) throws IOException {
+            }
+
+        });
+        conn.addPendingMessagesWaiter(waiter);
+    }
+
     /**
      * Main entry point for the servlet.
      *
@@ -694,6 +821,28 @@ public class RTMPTServlet extends HttpServlet {
         RTMPTServlet.targetResponseSize = targetResponseSize;
     }
 
+    /**
+     * Sets whether the pending messages are written to the response straight from the buffers they were encoded to.
+     *
+     * @param zeroCopy
+     *            true to write the encoded buffers, false to fold them into one buffer first
+     */
+    public void setZeroCopy(boolean zeroCopy) {
+        RTMPTServlet.zeroCopy = zeroCopy;
+    }
+
+    /**
+     * Sets the maximum time an idle request is held open while no messages are pending. A held request is answered as soon as a message is written to the
+     * connection, sparing the client its polls for nothing. Held requests are async and do not occupy a container thread; requests which cannot be
+     * made async are answered right away.
+     *
+     * @param idleTimeout
+     *            timeout in milliseconds, 0 to answer idle requests right away
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        RTMPTServlet.idleTimeout = idleTimeout;
+    }
+
     /**
      * @return the enforceContentTypeCheck
      */
@@ -0,0 +1,691 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.server.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.red5.io.amf.Input;
+import org.red5.io.amf.Output;
+import org.red5.io.object.Deserializer;
+import org.red5.io.object.Serializer;
+import org.red5.server.api.IContext;
+import org.red5.server.api.persistence.IJournalPersistenceStore;
+import org.red5.server.api.persistence.IPersistable;
+import org.red5.server.api.scheduling.IScheduledJob;
+import org.red5.server.api.scheduling.ISchedulingService;
+import org.red5.server.api.scope.IScope;
+import org.red5.server.so.SharedObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+
+/**
+ * File-based persistence which appends the attribute changes of shared objects to a journal per object, instead of rewriting the whole
+ * object on every save. When an object is loaded the journal is replayed on top of its last snapshot; once the journal has grown larger
+ * than the snapshot it is compacted into a new snapshot in the background. Other persistable objects are written as snapshots only.
+ * <br>
+ * Journal records are written as a length, a CRC32 of the record, the record type, the sequence number of the save, the attribute name
+ * and, for a set record, the AMF0 encoded value. A record cut short by a crash ends the replay.
+ *
+ * @author The Red5 Project
+ */
+public class JournalPersistence extends RamPersistence implements IJournalPersistenceStore {
+
+    private Logger log = LoggerFactory.getLogger(JournalPersistence.class);
+
+    /**
+     * Record type of a set attribute
+     */
+    private static final byte RECORD_SET = 1;
+
+    /**
+     * Record type of a removed attribute
+     */
+    private static final byte RECORD_DELETE = 2;
+
+    /**
+     * Size of the length and checksum in front of a record
+     */
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    /**
+     * Scheduler for persistence job.
+     */
+    private ISchedulingService schedulingService;
+
+    /**
+     * Journals with records or snapshots waiting to be written.
+     */
+    private ConcurrentLinkedQueue<Journal> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Journals keyed by object id.
+     */
+    private ConcurrentMap<String, Journal> journals = new ConcurrentHashMap<>();
+
+    /**
+     * Files path
+     */
+    private String path = "persistence";
+
+    /**
+     * Directory of the files, resolved once
+     */
+    private File directory;
+
+    /**
+     * File extension for snapshots
+     */
+    private String snapshotExtension = ".snapshot";
+
+    /**
+     * File extension for journals
+     */
+    private String journalExtension = ".journal";
+
+    /**
+     * File extension of objects written by {@link FilePersistence}, which are read when there is no snapshot yet
+     */
+    private String legacyExtension = ".red5";
+
+    /**
+     * Interval to write journal records in milliseconds.
+     */
+    private int persistenceInterval = 10000;
+
+    /**
+     * Journal size in bytes below which the journal is not compacted.
+     */
+    private long compactionThreshold = 64 * 1024;
+
+    /**
+     * Journal size relative to the snapshot size above which the journal is compacted.
+     */
+    private double compactionRatio = 1.0d;
+
+    /**
+     * Name of the job for writing journals.
+     */
+    private String storeJobName;
+
+    /**
+     * Create journal persistence object from given resource pattern resolver
+     *
+     * @param resolver
+     *            Resource pattern resolver and loader
+     */
+    public JournalPersistence(ResourcePatternResolver resolver) {
+        super(resolver);
+        setPath(path);
+    }
+
+    /**
+     * Create journal persistence object for given scope
+     *
+     * @param scope
+     *            Scope
+     */
+    public JournalPersistence(IScope scope) {
+        super(scope);
+        setPath(path);
+        IContext ctx = scope.getContext();
+        if (ctx.hasBean(ISchedulingService.BEAN_NAME)) {
+            schedulingService = (ISchedulingService) ctx.getBean(ISchedulingService.BEAN_NAME);
+        } else {
+            // try the parent
+            schedulingService = (ISchedulingService) scope.getParent().getContext().getBean(ISchedulingService.BEAN_NAME);
+        }
+        // add the job
+        storeJobName = schedulingService.addScheduledJob(persistenceInterval, new JournalPersistenceJob());
+    }
+
+    /**
+     * Setter for file path, resolved against the resources of this store.
+     *
+     * @param path
+     *            New path
+     */
+    public void setPath(String path) {
+        log.debug("Set path: {}", path);
+        try {
+            Resource resource = resources.getResource(path);
+            if (resource.exists() || resource.isFile()) {
+                directory = resource.getFile().getAbsoluteFile();
+            } else {
+                // not created yet and not resolvable to a file, such as a class path resource
+                directory = new File(resources.getResource("/").getFile(), path).getAbsoluteFile();
+            }
+            log.debug("Persistence directory: {}", directory);
+            this.path = path;
+        } catch (IOException err) {
+            log.error("I/O exception thrown when setting file path to {}", path, err);
+            throw new RuntimeException(err);
+        }
+    }
+
+    /**
+     * @return the persistenceInterval
+     */
+    public int getPersistenceInterval() {
+        return persistenceInterval;
+    }
+
+    /**
+     * @param persistenceInterval
+     *            the persistenceInterval to set
+     */
+    public void setPersistenceInterval(int persistenceInterval) {
+        this.persistenceInterval = persistenceInterval;
+    }
+
+    /**
+     * @param compactionThreshold
+     *            journal size in bytes below which the journal is not compacted
+     */
+    public void setCompactionThreshold(long compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * @param compactionRatio
+     *            journal size relative to the snapshot size above which the journal is compacted
+     */
+    public void setCompactionRatio(double compactionRatio) {
+        this.compactionRatio = compactionRatio;
+    }
+
+    /**
+     * Returns the journal for the given object id, creating it if needed.
+     *
+     * @param id
+     *            object id
+     * @return journal
+     */
+    private Journal getJournal(String id) {
+        return journals.computeIfAbsent(id, Journal::new);
+    }
+
+    /** {@inheritDoc} */
+    public void attributeChanged(IPersistable object, String name, Object value) {
+        if (object instanceof SharedObject) {
+            // encode now, the value may be modified in place before the object is saved
+            byte[] data = value != null ? encode(value) : null;
+            Journal journal = getJournal(getObjectId(object));
+            synchronized (journal) {
+                journal.changes.put(name, data);
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean save(IPersistable object) {
+        if (super.save(object)) {
+            Journal journal = getJournal(getObjectId(object));
+            journal.object = object;
+            synchronized (journal) {
+                if (object instanceof SharedObject) {
+                    if (!journal.changes.isEmpty()) {
+                        journal.addRecords();
+                    }
+                } else {
+                    journal.snapshotRequired = true;
+                }
+            }
+            if (journal.queued.compareAndSet(false, true)) {
+                queue.add(journal);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public IPersistable load(String name) {
+        log.debug("load - name: {}", name);
+        IPersistable result = super.load(name);
+        if (result != null) {
+            // Object has already been loaded
+            return result;
+        }
+        return doLoad(name, null);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean load(IPersistable object) {
+        log.debug("load - name: {}", object);
+        if (object.isPersistent()) {
+            // already loaded
+            return true;
+        }
+        return (doLoad(getObjectId(object), object) != null);
+    }
+
+    /**
+     * Loads the object with the given id from its snapshot and journal.
+     *
+     * @param id
+     *            object id
+     * @param object
+     *            Object to attach to or null to create it
+     * @return Persistable object or null if it could not be loaded
+     */
+    private IPersistable doLoad(String id, IPersistable object) {
+        Journal journal = getJournal(id);
+        synchronized (journal.io) {
+            File file = journal.snapshotFile;
+            boolean legacy = !file.exists();
+            if (legacy) {
+                file = new File(directory, id + legacyExtension);
+                if (!file.exists()) {
+                    log.debug("No persistent data found for {}", id);
+                    return null;
+                }
+            }
+            IPersistable result = object;
+            try {
+                IoBuffer buf = IoBuffer.wrap(Files.readAllBytes(file.toPath()));
+                long sequence = legacy ? 0L : buf.getLong();
+                Input in = new Input(buf);
+                String className = Deserializer.deserialize(in, String.class);
+                if (result == null) {
+                    result = (IPersistable) Class.forName(className).getDeclaredConstructor().newInstance();
+                } else if (!result.getClass().getName().equals(className)) {
+                    log.error("The classes differ: {} != {}", result.getClass().getName(), className);
+                    return null;
+                }
+                if (result instanceof SharedObject) {
+                    String name = Deserializer.deserialize(in, String.class);
+                    Map<String, Object> attributes = new LinkedHashMap<>(Deserializer.<Map<String, Object>> deserialize(in, Map.class));
+                    sequence = replay(journal, sequence, attributes);
+                    // hand the object its state in the format it serializes itself
+                    IoBuffer state = IoBuffer.allocate(buf.capacity()).setAutoExpand(true);
+                    Output out = new Output(state);
+                    Serializer.serialize(out, name);
+                    Serializer.serialize(out, attributes);
+                    state.flip();
+                    result.deserialize(new Input(state));
+                } else {
+                    result.deserialize(in);
+                }
+                synchronized (journal) {
+                    journal.sequence = sequence;
+                }
+                journal.snapshotSize = legacy ? 0L : file.length();
+                journal.hasSnapshot = !legacy;
+            } catch (Exception e) {
+                log.error("Could not load persistent object {} from {}", id, file, e);
+                return null;
+            }
+            if (object == null) {
+                result.setPath(getObjectPath(id, result.getName()));
+            }
+            if (result.getStore() != this) {
+                result.setStore(this);
+            }
+            journal.object = result;
+            super.save(result);
+            log.debug("Loaded persistent object {} from {}", result, file);
+            return result;
+        }
+    }
+
+    /**
+     * Applies the journal records newer than the snapshot to the attributes. A journal cut short by a crash is truncated after its last
+     * complete record.
+     *
+     * @param journal
+     *            journal
+     * @param sequence
+     *            sequence number the snapshot was written at
+     * @param attributes
+     *            attributes of the snapshot
+     * @return sequence number of the last record or the snapshot
+     * @throws IOException
+     *             on read error
+     */
+    private long replay(Journal journal, long sequence, Map<String, Object> attributes) throws IOException {
+        File file = journal.journalFile;
+        if (!file.exists()) {
+            journal.journalSize = 0L;
+            return sequence;
+        }
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        IoBuffer buf = IoBuffer.wrap(bytes);
+        CRC32 crc = new CRC32();
+        long last = sequence;
+        int replayed = 0;
+        while (buf.remaining() > RECORD_HEADER_SIZE) {
+            int length = buf.getInt(buf.position());
+            int checksum = buf.getInt(buf.position() + 4);
+            int start = buf.position() + RECORD_HEADER_SIZE;
+            if (length < 11 || length > bytes.length - start) {
+                break;
+            }
+            crc.reset();
+            crc.update(bytes, start, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            buf.position(start);
+            byte type = buf.get();
+            long recordSequence = buf.getLong();
+            byte[] name = new byte[buf.getUnsignedShort()];
+            buf.get(name);
+            // records up to the sequence of the snapshot are part of it
+            if (recordSequence > sequence) {
+                String key = new String(name, StandardCharsets.UTF_8);
+                if (type == RECORD_DELETE) {
+                    attributes.remove(key);
+                } else {
+                    IoBuffer value = buf.getSlice(start + length - buf.position());
+                    attributes.put(key, Deserializer.deserialize(new Input(value), Object.class));
+                }
+                last = recordSequence;
+                replayed++;
+            }
+            buf.position(start + length);
+        }
+        if (buf.hasRemaining()) {
+            log.warn("Discarding {} bytes at the end of journal {}", buf.remaining(), file);
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(buf.position());
+            }
+        }
+        journal.journalSize = buf.position();
+        log.debug("Replayed {} journal records of {}", replayed, file);
+        return last;
+    }
+
+    /**
+     * Writes the pending records or a snapshot of the given journal.
+     *
+     * @param journal
+     *            journal
+     */
+    private void flush(Journal journal) {
+        journal.queued.set(false);
+        IPersistable object = journal.object;
+        if (object == null) {
+            return;
+        }
+        synchronized (journal.io) {
+            if (journal.removed) {
+                return;
+            }
+            IoBuffer records;
+            boolean snapshot;
+            long sequence;
+            synchronized (journal) {
+                records = journal.records;
+                journal.records = null;
+                snapshot = journal.snapshotRequired || !journal.hasSnapshot;
+                journal.snapshotRequired = false;
+                sequence = journal.sequence;
+            }
+            try {
+                if (snapshot) {
+                    // like file persistence, an empty shared object is not written until it has a snapshot
+                    if (journal.hasSnapshot || !(object instanceof SharedObject) || !((SharedObject) object).getAttributes().isEmpty()) {
+                        writeSnapshot(journal, object, sequence);
+                    }
+                } else if (records != null) {
+                    records.flip();
+                    try (FileChannel channel = FileChannel.open(journal.journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                        while (records.hasRemaining()) {
+                            journal.journalSize += channel.write(records.buf());
+                        }
+                    }
+                    if (journal.journalSize > Math.max(compactionThreshold, (long) (journal.snapshotSize * compactionRatio))) {
+                        log.debug("Compacting journal of {} at {} bytes", journal.id, journal.journalSize);
+                        writeSnapshot(journal, object, sequence);
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Could not write persistent object {}", journal.id, e);
+                // the next attempt writes the whole object
+                synchronized (journal) {
+                    journal.snapshotRequired = true;
+                }
+                if (journal.queued.compareAndSet(false, true)) {
+                    queue.add(journal);
+                }
+            } finally {
+                if (records != null) {
+                    records.free();
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a snapshot of the object and removes the journal which it replaces.
+     *
+     * @param journal
+     *            journal
+     * @param object
+     *            persistable object
+     * @param sequence
+     *            sequence number of the last saved changes
+     * @throws IOException
+     *             on write error
+     */
+    private void writeSnapshot(Journal journal, IPersistable object, long sequence) throws IOException {
+        IoBuffer buf = IoBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8192, journal.snapshotSize) + 8192);
+        buf.setAutoExpand(true);
+        try {
+            buf.putLong(sequence);
+            Output out = new Output(buf);
+            out.writeString(object.getClass().getName());
+            object.serialize(out);
+            buf.flip();
+            if (!journal.directoryCreated) {
+                Files.createDirectories(journal.snapshotFile.getParentFile().toPath());
+                journal.directoryCreated = true;
+            }
+            File tmp = new File(journal.snapshotFile.getPath() + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buf.hasRemaining()) {
+                    channel.write(buf.buf());
+                }
+                channel.force(false);
+            }
+            Files.move(tmp.toPath(), journal.snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journal.snapshotSize = buf.limit();
+            journal.hasSnapshot = true;
+            // every record written so far is part of the snapshot
+            Files.deleteIfExists(journal.journalFile.toPath());
+            journal.journalSize = 0L;
+            log.debug("Stored snapshot of {} at sequence {}", journal.id, sequence);
+        } finally {
+            buf.free();
+        }
+    }
+
+    /**
+     * Encodes an attribute value.
+     *
+     * @param value
+     *            value
+     * @return AMF0 encoded value
+     */
+    private static byte[] encode(Object value) {
+        IoBuffer buf = IoBuffer.allocate(64);
+        buf.setAutoExpand(true);
+        Serializer.serialize(new Output(buf), value);
+        buf.flip();
+        byte[] data = new byte[buf.limit()];
+        buf.get(data);
+        buf.free();
+        return data;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean remove(String name) {
+        super.remove(name);
+        Journal journal = journals.remove(name);
+        if (journal == null) {
+            journal = new Journal(name);
+        }
+        synchronized (journal.io) {
+            journal.removed = true;
+            try {
+                Files.deleteIfExists(journal.journalFile.toPath());
+                Files.deleteIfExists(journal.snapshotFile.toPath());
+                Files.deleteIfExists(new File(directory, name + legacyExtension).toPath());
+            } catch (IOException err) {
+                log.warn("Could not remove persistent object {}", name, err);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean remove(IPersistable object) {
+        return remove(getObjectId(object));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void notifyClose() {
+        // stop the job
+        if (storeJobName != null) {
+            schedulingService.removeScheduledJob(storeJobName);
+            storeJobName = null;
+        }
+        // write any pending records
+        persist();
+        super.notifyClose();
+    }
+
+    /**
+     * Writes the pending records and snapshots now, without waiting for the job or closing the store.
+     */
+    void sync() {
+        persist();
+    }
+
+    private void persist() {
+        Journal journal = null;
+        while ((journal = queue.poll()) != null) {
+            try {
+                flush(journal);
+            } catch (Throwable e) {
+                log.error("Error while saving {} in {}", journal.id, this, e);
+            }
+        }
+    }
+
+    /**
+     * Snapshot and journal files of a persistable object, along with its changes which have not been written yet. The changes are guarded by
+     * the journal itself, the files by its io lock.
+     */
+    private final class Journal {
+
+        final String id;
+
+        final File snapshotFile;
+
+        final File journalFile;
+
+        final Object io = new Object();
+
+        final AtomicBoolean queued = new AtomicBoolean();
+
+        volatile IPersistable object;
+
+        // attribute changes since the last save, null for removed attributes
+        final Map<String, byte[]> changes = new LinkedHashMap<>();
+
+        // records of saved changes which are not written yet
+        IoBuffer records;
+
+        // sequence number of the last save with changes
+        long sequence;
+
+        boolean snapshotRequired;
+
+        // file state, accessed with the io lock held
+        boolean hasSnapshot;
+
+        boolean directoryCreated;
+
+        boolean removed;
+
+        long snapshotSize;
+
+        long journalSize;
+
+        Journal(String id) {
+            this.id = id;
+            snapshotFile = new File(directory, id + snapshotExtension);
+            journalFile = new File(directory, id + journalExtension);
+        }
+
+        /**
+         * Turns the changes into records with the next sequence number.
+         */
+        void addRecords() {
+            long recordSequence = ++sequence;
+            if (records == null) {
+                records = IoBuffer.allocate(256, false);
+                records.setAutoExpand(true);
+            }
+            CRC32 crc = new CRC32();
+            for (Map.Entry<String, byte[]> entry : changes.entrySet()) {
+                byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                byte[] value = entry.getValue();
+                int start = records.position();
+                records.skip(RECORD_HEADER_SIZE);
+                records.put(value != null ? RECORD_SET : RECORD_DELETE);
+                records.putLong(recordSequence);
+                records.putUnsignedShort(name.length);
+                records.put(name);
+                if (value != null) {
+                    records.put(value);
+                }
+                int length = records.position() - start - RECORD_HEADER_SIZE;
+                crc.reset();
+                crc.update(records.array(), records.arrayOffset() + start + RECORD_HEADER_SIZE, length);
+                records.putInt(start, length);
+                records.putInt(start + 4, (int) crc.getValue());
+            }
+            changes.clear();
+        }
+
+    }
+
+    private final class JournalPersistenceJob implements IScheduledJob {
+
+        public void execute(ISchedulingService svc) {
+            persist();
+        }
+
+    }
+
+}
@@ -59,8 +59,23 @@ public class BroadcastScope extends BasicScope implements IBroadcastScope, IPipe
      *            Scope name
      */
     public BroadcastScope(IScope parent, String name) {
+        this(parent, name, new InMemoryPushPushPipe());
+    }
+
+    /**
+     * Creates broadcast scope using the given pipe
+     *
+     * @param parent
+     *            Parent scope
+     * @param name
+     *            Scope name
+     * @param pipe
+     *            Push pipe to consumers
+     */
+    public BroadcastScope(IScope parent, String name, InMemoryPushPushPipe pipe) {
         super(parent, ScopeType.BROADCAST, name, false);
-        pipe = new InMemoryPushPushPipe(this);
+        this.pipe = pipe;
+        pipe.addPipeConnectionListener(this);
         keepOnDisconnect = true;
     }
 
@@ -141,6 +156,15 @@ public class BroadcastScope extends BasicScope implements IBroadcastScope, IPipe
         return pipe.getConsumers();
     }
 
+    /**
+     * Getter for the number of messages queued for each consumer, empty unless the pipe delivers asynchronously
+     *
+     * @return Queued message count by consumer
+     */
+    public Map<IConsumer, Integer> getConsumerQueueDepths() {
+        return pipe.getQueueDepths();
+    }
+
     /**
      * Send out-of-band ("special") control message
      *
@@ -265,6 +289,11 @@ public class BroadcastScope extends BasicScope implements IBroadcastScope, IPipe
             }
         }
         this.clientBroadcastStream = clientBroadcastStream;
+        // index the aliases the stream was given before it was attached
+        IScope parent = getParent();
+        if (parent instanceof Scope) {
+            ((Scope) parent).addStreamAliases(this);
+        }
     }
 
     /*
@@ -0,0 +1,252 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.server.stream;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.red5.logging.Red5LoggerFactory;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Pacing service based on a hashed timing wheel. A single timer thread advances the wheel one slot per tick and hands the tasks which are due to the worker threads;
+ * tasks which are not due yet cost nothing but their slot. Tasks due further away than one turn of the wheel stay in their slot for the following turns.
+ *
+ * @author The Red5 Project
+ */
+public class PacingService implements IPacingService, InitializingBean, DisposableBean {
+
+    private static Logger log = Red5LoggerFactory.getLogger(PacingService.class);
+
+    /**
+     * Duration of a tick in milliseconds
+     */
+    private int tickDuration = 10;
+
+    /**
+     * Number of slots of the wheel, rounded up to a power of two
+     */
+    private int wheelSize = 512;
+
+    /**
+     * Number of threads running the tasks
+     */
+    private int workerThreads = Runtime.getRuntime().availableProcessors();
+
+    private ScheduledExecutorService timer;
+
+    private ExecutorService workers;
+
+    /**
+     * Tasks scheduled since the last tick, moved to the wheel by the timer thread
+     */
+    private final ConcurrentLinkedQueue<PacedTask> scheduled = new ConcurrentLinkedQueue<>();
+
+    // the fields below are only accessed by the timer thread
+
+    private ArrayDeque<PacedTask>[] wheel;
+
+    private int mask;
+
+    private long tickNanos;
+
+    private long startTime;
+
+    private long tick;
+
+    /** {@inheritDoc} */
+    @SuppressWarnings("unchecked")
+    public void afterPropertiesSet() throws Exception {
+        int size = Integer.highestOneBit(Math.max(wheelSize - 1, 1)) << 1;
+        wheel = new ArrayDeque[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+        mask = size - 1;
+        tickNanos = TimeUnit.MILLISECONDS.toNanos(tickDuration);
+        startTime = System.nanoTime();
+        workers = Executors.newFixedThreadPool(workerThreads, new CustomizableThreadFactory("PacingWorker-"));
+        timer = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("PacingTimer-"));
+        timer.scheduleAtFixedRate(this::tick, tickDuration, tickDuration, TimeUnit.MILLISECONDS);
+        log.debug("Pacing with {} slots of {} ms and {} workers", size, tickDuration, workerThreads);
+    }
+
+    /** {@inheritDoc} */
+    public void destroy() throws Exception {
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+            workers = null;
+        }
+        scheduled.clear();
+    }
+
+    /** {@inheritDoc} */
+    public IPacedTask schedule(Runnable task, long delay) {
+        PacedTask pacedTask = new PacedTask(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(delay, 0L)));
+        scheduled.add(pacedTask);
+        return pacedTask;
+    }
+
+    /**
+     * Advances the wheel up to the current time and runs the tasks which are due.
+     */
+    void tick() {
+        try {
+            final long now = System.nanoTime();
+            // the timer may have fallen behind, catch up with the slots in between
+            final long target = (now - startTime) / tickNanos;
+            transferScheduled();
+            while (tick < target) {
+                tick++;
+                expire(wheel[(int) (tick & mask)], tick);
+            }
+        } catch (Throwable t) {
+            // an exception would cancel the timer
+            log.warn("Exception on pacing tick", t);
+        }
+    }
+
+    /**
+     * Puts the newly scheduled tasks into the slot of the tick they are due at, the next tick at the earliest.
+     */
+    private void transferScheduled() {
+        PacedTask task;
+        while ((task = scheduled.poll()) != null) {
+            if (task.isCancelled()) {
+                continue;
+            }
+            long elapsed = task.deadline - startTime;
+            // round up, a task does not run before it is due
+            task.tick = Math.max((elapsed + tickNanos - 1) / tickNanos, tick + 1);
+            wheel[(int) (task.tick & mask)].add(task);
+        }
+    }
+
+    private void expire(ArrayDeque<PacedTask> slot, long currentTick) {
+        for (Iterator<PacedTask> it = slot.iterator(); it.hasNext();) {
+            PacedTask task = it.next();
+            if (task.isCancelled()) {
+                it.remove();
+            } else if (task.tick <= currentTick) {
+                it.remove();
+                if (task.expire()) {
+                    try {
+                        workers.execute(task);
+                    } catch (RejectedExecutionException e) {
+                        log.debug("Task rejected, service is shutting down");
+                    }
+                }
+            }
+        }
+    }
+
+    public int getTickDuration() {
+        return tickDuration;
+    }
+
+    /**
+     * Sets the duration of a tick, which is the precision the tasks are run with.
+     *
+     * @param tickDuration
+     *            duration in milliseconds
+     */
+    public void setTickDuration(int tickDuration) {
+        this.tickDuration = Math.max(tickDuration, 1);
+    }
+
+    public int getWheelSize() {
+        return wheelSize;
+    }
+
+    /**
+     * Sets the number of slots of the wheel. One turn of the wheel should cover the usual delays; tasks due later are checked again once per turn.
+     *
+     * @param wheelSize
+     *            number of slots
+     */
+    public void setWheelSize(int wheelSize) {
+        this.wheelSize = wheelSize;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    /**
+     * Sets the number of threads running the tasks.
+     *
+     * @param workerThreads
+     *            number of threads
+     */
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = Math.max(workerThreads, 1);
+    }
+
+    private static final class PacedTask implements IPacedTask, Runnable {
+
+        private static final int WAITING = 0, CANCELLED = 1, EXPIRED = 2;
+
+        private final Runnable task;
+
+        private final long deadline;
+
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        /**
+         * Tick the task is due at, set by the timer thread
+         */
+        private long tick;
+
+        PacedTask(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /** {@inheritDoc} */
+        public boolean cancel() {
+            return state.compareAndSet(WAITING, CANCELLED);
+        }
+
+        /** {@inheritDoc} */
+        public long getDeadline() {
+            return deadline;
+        }
+
+        boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        boolean expire() {
+            return state.compareAndSet(WAITING, EXPIRED);
+        }
+
+        public void run() {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log.warn("Exception running paced task {}", task, t);
+            }
+        }
+
+    }
+
+}
@@ -12,6 +12,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import org.red5.logging.Red5LoggerFactory;
 import org.red5.server.api.scope.IBroadcastScope;
@@ -26,6 +27,8 @@ import org.red5.server.api.stream.IStreamableFileFactory;
 import org.red5.server.messaging.IMessageInput;
 import org.red5.server.messaging.IPipe;
 import org.red5.server.messaging.InMemoryPullPullPipe;
+import org.red5.server.messaging.InMemoryPushPushPipe;
+import org.red5.server.messaging.InMemoryPushPushPipe.OverflowPolicy;
 import org.red5.server.scope.BasicScope;
 import org.red5.server.scope.BroadcastScope;
 import org.red5.server.scope.Scope;
@@ -40,6 +43,18 @@ public class ProviderService implements IProviderService {
     // whether or not to support FCS/FMS/AMS live-wait (default to off)
     private boolean liveWaitSupport;
 
+    // executor for queued delivery to live consumers, synchronous delivery when null
+    private Executor consumerExecutor;
+
+    // maximum number of messages queued per live consumer
+    private int consumerQueueSize = 256;
+
+    // action taken when a live consumer queue is full
+    private OverflowPolicy consumerOverflowPolicy = OverflowPolicy.DROP_DISPOSABLE;
+
+    // maximum number of messages delivered to a live consumer before its drain task is rescheduled
+    private int consumerDrainBatchSize = 32;
+
     /** {@inheritDoc} */
     public INPUT_TYPE lookupProviderInput(IScope scope, String name, int type) {
         INPUT_TYPE result = INPUT_TYPE.NOT_FOUND;
@@ -80,7 +95,7 @@ public class ProviderService implements IProviderService {
                 // re-check if another thread already created the scope
                 broadcastScope = scope.getBroadcastScope(name);
                 if (broadcastScope == null) {
-                    broadcastScope = new BroadcastScope(scope, name);
+                    broadcastScope = createBroadcastScope(scope, name);
                     scope.addChildScope(broadcastScope);
                 }
             }
@@ -126,7 +141,7 @@ public class ProviderService implements IProviderService {
         IBroadcastScope broadcastScope = scope.getBroadcastScope(name);
         if (broadcastScope == null) {
             log.debug("Creating a new scope");
-            broadcastScope = new BroadcastScope(scope, name);
+            broadcastScope = createBroadcastScope(scope, name);
             if (scope.addChildScope(broadcastScope)) {
                 log.debug("Broadcast scope added");
             } else {
@@ -233,6 +248,27 @@ public class ProviderService implements IProviderService {
         return file;
     }
 
+    /**
+     * Creates a broadcast scope, its pipe delivers through per-consumer queues if a consumer executor is configured.
+     *
+     * @param scope
+     *            parent scope
+     * @param name
+     *            stream name
+     * @return broadcast scope
+     */
+    private BroadcastScope createBroadcastScope(IScope scope, String name) {
+        InMemoryPushPushPipe pipe = new InMemoryPushPushPipe();
+        if (consumerExecutor != null) {
+            pipe.setMaxQueueSize(consumerQueueSize);
+            pipe.setOverflowPolicy(consumerOverflowPolicy);
+            pipe.setDrainBatchSize(consumerDrainBatchSize);
+            pipe.setQueueStrategy(StreamQueueStrategy.INSTANCE);
+            pipe.setExecutor(consumerExecutor);
+        }
+        return new BroadcastScope(scope, name, pipe);
+    }
+
     /** {@inheritDoc} */
     public boolean isLiveWaitSupport() {
         return liveWaitSupport;
@@ -243,4 +279,43 @@ public class ProviderService implements IProviderService {
         this.liveWaitSupport = liveWaitSupport;
     }
 
+    public Executor getConsumerExecutor() {
+        return consumerExecutor;
+    }
+
+    /**
+     * Sets the executor which delivers live stream messages to subscribers. Each subscriber then has its own bounded queue, so a slow subscriber no longer holds up the
+     * publisher or the other subscribers.
+     *
+     * @param consumerExecutor
+     *            executor shared by all broadcast scopes
+     */
+    public void setConsumerExecutor(Executor consumerExecutor) {
+        this.consumerExecutor = consumerExecutor;
+    }
+
+    public int getConsumerQueueSize() {
+        return consumerQueueSize;
+    }
+
+    public void setConsumerQueueSize(int consumerQueueSize) {
+        this.consumerQueueSize = consumerQueueSize;
+    }
+
+    public int getConsumerDrainBatchSize() {
+        return consumerDrainBatchSize;
+    }
+
+    public void setConsumerDrainBatchSize(int consumerDrainBatchSize) {
+        this.consumerDrainBatchSize = consumerDrainBatchSize;
+    }
+
+    public OverflowPolicy getConsumerOverflowPolicy() {
+        return consumerOverflowPolicy;
+    }
+
+    public void setConsumerOverflowPolicy(OverflowPolicy consumerOverflowPolicy) {
+        this.consumerOverflowPolicy = consumerOverflowPolicy;
+    }
+
 }
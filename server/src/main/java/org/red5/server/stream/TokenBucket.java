@@ -0,0 +1,286 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.server.stream;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free token bucket. Instead of a thread adding tokens periodically, the tokens earned since the last refill are added whenever the bucket is used. A bucket may
+ * have a parent, the tokens are then taken from every bucket up to the root and given back if one of them runs short. A bucket without a speed does not limit, it only
+ * passes the requests on to its parent.
+ *
+ * @author The Red5 Project
+ */
+public class TokenBucket implements ITokenBucket {
+
+    private final TokenBucketService service;
+
+    private final TokenBucket parent;
+
+    private final long capacity;
+
+    /**
+     * Tokens per millisecond, 0 for a bucket which does not limit
+     */
+    private final double speed;
+
+    private final double tokensPerNano;
+
+    private final AtomicLong tokens;
+
+    /**
+     * Time up to which the earned tokens were added
+     */
+    private final AtomicLong refilled = new AtomicLong(System.nanoTime());
+
+    /**
+     * Incremented on reset, wakes up the blocked acquisitions
+     */
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Creates a token bucket which starts full.
+     *
+     * @param service
+     *            service which calls back the non-blocking acquisitions
+     * @param parent
+     *            parent bucket or null
+     * @param capacity
+     *            maximum number of tokens
+     * @param speed
+     *            tokens per millisecond, 0 or less for a bucket which does not limit
+     */
+    TokenBucket(TokenBucketService service, TokenBucket parent, long capacity, double speed) {
+        this.service = service;
+        this.parent = parent;
+        if (speed > 0) {
+            this.capacity = Math.max(capacity, 1L);
+            this.speed = speed;
+        } else {
+            this.capacity = Long.MAX_VALUE;
+            this.speed = 0;
+        }
+        this.tokensPerNano = this.speed / TimeUnit.MILLISECONDS.toNanos(1);
+        this.tokens = new AtomicLong(this.capacity);
+    }
+
+    /** {@inheritDoc} */
+    public boolean acquireToken(long tokenCount, long wait) {
+        if (acquire(tokenCount)) {
+            return true;
+        }
+        if (wait == 0) {
+            return false;
+        }
+        final int gen = generation.get();
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(wait);
+        final long park = TimeUnit.MILLISECONDS.toNanos(service.getTickInterval());
+        do {
+            if (wait > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                LockSupport.parkNanos(this, Math.min(park, remaining));
+            } else {
+                LockSupport.parkNanos(this, park);
+            }
+            if (Thread.currentThread().isInterrupted() || gen != generation.get()) {
+                return false;
+            }
+        } while (!acquire(tokenCount));
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    public boolean acquireTokenNonblocking(long tokenCount, ITokenBucketCallback callback) {
+        if (acquire(tokenCount)) {
+            return true;
+        }
+        if (callback != null) {
+            waiters.add(new Waiter(tokenCount, callback));
+            service.waiting(this);
+        }
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    public long acquireTokenBestEffort(long upperLimitCount) {
+        // a few attempts as other threads may take the tokens in between
+        for (int attempt = 0; attempt < 3; attempt++) {
+            long count = upperLimitCount;
+            for (TokenBucket bucket = this; bucket != null && count > 0; bucket = bucket.parent) {
+                count = Math.min(count, bucket.available());
+            }
+            if (count <= 0) {
+                return 0;
+            }
+            if (acquire(count)) {
+                return count;
+            }
+        }
+        return 0;
+    }
+
+    /** {@inheritDoc} */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /** {@inheritDoc} */
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Returns the number of tokens in this bucket, not taking the parent buckets into account.
+     *
+     * @return tokens available
+     */
+    public long getAvailable() {
+        return available();
+    }
+
+    /**
+     * Returns the parent of this bucket.
+     *
+     * @return parent bucket or null
+     */
+    public TokenBucket getParent() {
+        return parent;
+    }
+
+    /** {@inheritDoc} */
+    public void reset() {
+        generation.incrementAndGet();
+        Waiter waiter;
+        while ((waiter = waiters.poll()) != null) {
+            waiter.callback.reset(this, waiter.tokenCount);
+        }
+        tokens.set(capacity);
+        refilled.set(System.nanoTime());
+    }
+
+    /**
+     * Calls back the non-blocking acquisitions which can be served now, in the order they were made.
+     *
+     * @return true if acquisitions are still waiting
+     */
+    boolean notifyWaiters() {
+        Iterator<Waiter> it = waiters.iterator();
+        while (it.hasNext()) {
+            Waiter waiter = it.next();
+            if (!canAcquire(waiter.tokenCount)) {
+                return true;
+            }
+            it.remove();
+            waiter.callback.available(this, waiter.tokenCount);
+        }
+        return false;
+    }
+
+    /**
+     * Takes the tokens from this bucket and its parents, or none of them.
+     *
+     * @param tokenCount
+     *            tokens to take
+     * @return true if the tokens were taken
+     */
+    private boolean acquire(long tokenCount) {
+        for (TokenBucket bucket = this; bucket != null; bucket = bucket.parent) {
+            if (!bucket.take(tokenCount)) {
+                // give back what the levels below took
+                for (TokenBucket taken = this; taken != bucket; taken = taken.parent) {
+                    taken.give(tokenCount);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean canAcquire(long tokenCount) {
+        for (TokenBucket bucket = this; bucket != null; bucket = bucket.parent) {
+            if (bucket.speed > 0 && bucket.available() < Math.min(tokenCount, bucket.capacity)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean take(long tokenCount) {
+        if (speed == 0) {
+            return true;
+        }
+        // a request larger than the bucket can never be served at once, it takes a full bucket
+        final long count = Math.min(tokenCount, capacity);
+        refill();
+        long current;
+        do {
+            current = tokens.get();
+            if (current < count) {
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - count));
+        return true;
+    }
+
+    private void give(long tokenCount) {
+        if (speed > 0) {
+            final long count = Math.min(tokenCount, capacity);
+            tokens.accumulateAndGet(count, (current, given) -> Math.min(capacity, current + given));
+        }
+    }
+
+    private long available() {
+        if (speed == 0) {
+            return Long.MAX_VALUE;
+        }
+        refill();
+        return tokens.get();
+    }
+
+    /**
+     * Adds the tokens earned since the last refill. The refill time only advances by the time the added tokens are worth, so the fractions are kept for the next
+     * refill.
+     */
+    private void refill() {
+        final long now = System.nanoTime();
+        final long last = refilled.get();
+        final double earned = (now - last) * tokensPerNano;
+        if (earned >= 1) {
+            final long count = (long) Math.min(earned, capacity);
+            // a full bucket catches up with the clock
+            final long next = count < earned ? now : Math.min(now, last + (long) (count / tokensPerNano));
+            if (refilled.compareAndSet(last, next)) {
+                tokens.accumulateAndGet(count, (current, earnedCount) -> Math.min(capacity, current + earnedCount));
+            }
+        }
+    }
+
+    private static final class Waiter {
+
+        final long tokenCount;
+
+        final ITokenBucketCallback callback;
+
+        Waiter(long tokenCount, ITokenBucketCallback callback) {
+            this.tokenCount = tokenCount;
+            this.callback = callback;
+        }
+
+    }
+
+}
@@ -0,0 +1,292 @@
+/*
+ * RED5 Open Source Media Server - https://github.com/Red5/ Copyright 2006-2023 by respective authors (see below). All rights reserved. Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless
+ * required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.red5.server.stream;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.red5.logging.Red5LoggerFactory;
+import org.red5.server.api.IConnection;
+import org.red5.server.api.persistence.IPersistable;
+import org.red5.server.api.scheduling.ISchedulingService;
+import org.red5.server.api.scope.IScope;
+import org.red5.server.api.stream.IClientStream;
+import org.red5.server.util.ScopeUtils;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Token bucket service with hierarchical limits: the bucket of a stream is chained to the bucket of its connection, the buckets of its scopes and the bucket of the
+ * server. The bandwidths of the levels are configured in bits per second, 0 leaves a level unlimited; scopes get the default scope bandwidth at the application level
+ * unless a limit was set for them. The buckets refill themselves when used, the scheduling service only runs one job which calls back the non-blocking acquisitions.
+ *
+ * @author The Red5 Project
+ */
+public class TokenBucketService implements ITokenBucketService, InitializingBean, DisposableBean {
+
+    private static Logger log = Red5LoggerFactory.getLogger(TokenBucketService.class);
+
+    private static final String BUCKET_ATTRIBUTE = IPersistable.TRANSIENT_PREFIX + "_tokenBucket";
+
+    private ISchedulingService schedulingService;
+
+    private String tickJob;
+
+    /**
+     * Interval at which the waiting acquisitions are checked, in milliseconds
+     */
+    private int tickInterval = 10;
+
+    /**
+     * Duration of traffic a bucket holds, in milliseconds
+     */
+    private long burst = 1000;
+
+    private long serverBandwidth;
+
+    private long scopeBandwidth;
+
+    private long connectionBandwidth;
+
+    private long streamBandwidth;
+
+    private TokenBucket serverBucket;
+
+    /**
+     * Buckets with non-blocking acquisitions waiting for tokens
+     */
+    private final Set<TokenBucket> waiting = ConcurrentHashMap.newKeySet();
+
+    /** {@inheritDoc} */
+    public void afterPropertiesSet() throws Exception {
+        if (serverBandwidth > 0) {
+            serverBucket = newBucket(null, serverBandwidth);
+        }
+        if (schedulingService != null) {
+            tickJob = schedulingService.addScheduledJob(tickInterval, service -> tick());
+        } else {
+            log.warn("No scheduling service, non-blocking token acquisitions will not be called back");
+        }
+        log.debug("Bandwidth limits server: {} scope: {} connection: {} stream: {}", serverBandwidth, scopeBandwidth, connectionBandwidth, streamBandwidth);
+    }
+
+    /** {@inheritDoc} */
+    public void destroy() throws Exception {
+        if (tickJob != null) {
+            schedulingService.removeScheduledJob(tickJob);
+            tickJob = null;
+        }
+        waiting.forEach(TokenBucket::reset);
+        waiting.clear();
+    }
+
+    /** {@inheritDoc} */
+    public ITokenBucket createTokenBucket(long capacity, long speed) {
+        if (capacity <= 0 || speed <= 0) {
+            return null;
+        }
+        return new TokenBucket(this, serverBucket, capacity, speed);
+    }
+
+    /** {@inheritDoc} */
+    public synchronized ITokenBucket createTokenBucket(IClientStream stream) {
+        IConnection conn = stream.getConnection();
+        TokenBucket parent = getConnectionBucket(conn, conn != null && conn.getScope() != null ? conn.getScope() : stream.getScope());
+        if (streamBandwidth > 0) {
+            return newBucket(parent, streamBandwidth);
+        }
+        // the stream gets its own bucket even if it is not limited, so removing it leaves the shared buckets alone
+        return parent != null ? new TokenBucket(this, parent, 0, 0) : null;
+    }
+
+    /** {@inheritDoc} */
+    public void removeTokenBucket(ITokenBucket bucket) {
+        if (bucket != null) {
+            bucket.reset();
+            waiting.remove(bucket);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public synchronized void setScopeLimit(IScope scope, long capacity, long speed) {
+        if (capacity > 0 && speed > 0) {
+            scope.setAttribute(BUCKET_ATTRIBUTE, new TokenBucket(this, getScopeBucket(scope.getParent()), capacity, speed));
+        } else {
+            scope.removeAttribute(BUCKET_ATTRIBUTE);
+        }
+    }
+
+    /**
+     * Returns the bucket shared by the streams of a connection, creating it if needed.
+     *
+     * @param conn
+     *            connection or null
+     * @param scope
+     *            scope of the connection
+     * @return bucket or null if the connection and the levels above are not limited
+     */
+    private TokenBucket getConnectionBucket(IConnection conn, IScope scope) {
+        if (conn == null || connectionBandwidth <= 0) {
+            return getScopeBucket(scope);
+        }
+        TokenBucket bucket = (TokenBucket) conn.getAttribute(BUCKET_ATTRIBUTE);
+        if (bucket == null) {
+            bucket = newBucket(getScopeBucket(scope), connectionBandwidth);
+            conn.setAttribute(BUCKET_ATTRIBUTE, bucket);
+        }
+        return bucket;
+    }
+
+    /**
+     * Returns the bucket of the nearest limited scope, creating the bucket of the application if the default scope bandwidth is set.
+     *
+     * @param scope
+     *            scope or null
+     * @return bucket or null if neither the scopes nor the server are limited
+     */
+    private TokenBucket getScopeBucket(IScope scope) {
+        while (scope != null) {
+            TokenBucket bucket = (TokenBucket) scope.getAttribute(BUCKET_ATTRIBUTE);
+            if (bucket != null) {
+                return bucket;
+            }
+            if (scopeBandwidth > 0 && ScopeUtils.isApp(scope)) {
+                bucket = newBucket(getScopeBucket(scope.getParent()), scopeBandwidth);
+                scope.setAttribute(BUCKET_ATTRIBUTE, bucket);
+                return bucket;
+            }
+            scope = scope.hasParent() ? scope.getParent() : null;
+        }
+        return serverBucket;
+    }
+
+    private TokenBucket newBucket(TokenBucket parent, long bandwidth) {
+        // bits per second to bytes per millisecond
+        double speed = bandwidth / 8000d;
+        return new TokenBucket(this, parent, (long) (speed * burst), speed);
+    }
+
+    /**
+     * Registers a bucket having non-blocking acquisitions waiting.
+     *
+     * @param bucket
+     *            bucket
+     */
+    void waiting(TokenBucket bucket) {
+        waiting.add(bucket);
+    }
+
+    /**
+     * Calls back the waiting acquisitions which can be served.
+     */
+    void tick() {
+        if (!waiting.isEmpty()) {
+            for (Iterator<TokenBucket> it = waiting.iterator(); it.hasNext();) {
+                TokenBucket bucket = it.next();
+                if (!bucket.notifyWaiters()) {
+                    it.remove();
+                    // an acquisition may have been added meanwhile
+                    if (bucket.notifyWaiters()) {
+                        waiting.add(bucket);
+                    }
+                }
+            }
+        }
+    }
+
+    public void setSchedulingService(ISchedulingService schedulingService) {
+        this.schedulingService = schedulingService;
+    }
+
+    public int getTickInterval() {
+        return tickInterval;
+    }
+
+    /**
+     * Sets the interval at which the waiting acquisitions are checked.
+     *
+     * @param tickInterval
+     *            interval in milliseconds
+     */
+    public void setTickInterval(int tickInterval) {
+        this.tickInterval = tickInterval;
+    }
+
+    public long getBurst() {
+        return burst;
+    }
+
+    /**
+     * Sets the duration of traffic the buckets hold, traffic below the bandwidth may be sent in bursts of this length.
+     *
+     * @param burst
+     *            burst in milliseconds
+     */
+    public void setBurst(long burst) {
+        this.burst = burst;
+    }
+
+    public long getServerBandwidth() {
+        return serverBandwidth;
+    }
+
+    /**
+     * Sets the bandwidth of all streams of the server.
+     *
+     * @param serverBandwidth
+     *            bits per second, 0 for unlimited
+     */
+    public void setServerBandwidth(long serverBandwidth) {
+        this.serverBandwidth = serverBandwidth;
+    }
+
+    public long getScopeBandwidth() {
+        return scopeBandwidth;
+    }
+
+    /**
+     * Sets the default bandwidth of the streams of an application.
+     *
+     * @param scopeBandwidth
+     *            bits per second, 0 for unlimited
+     */
+    public void setScopeBandwidth(long scopeBandwidth) {
+        this.scopeBandwidth = scopeBandwidth;
+    }
+
+    public long getConnectionBandwidth() {
+        return connectionBandwidth;
+    }
+
+    /**
+     * Sets the bandwidth of the streams of a connection.
+     *
+     * @param connectionBandwidth
+     *            bits per second, 0 for unlimited
+     */
+    public void setConnectionBandwidth(long connectionBandwidth) {
+        this.connectionBandwidth = connectionBandwidth;
+    }
+
+    public long getStreamBandwidth() {
+        return streamBandwidth;
+    }
+
+    /**
+     * Sets the bandwidth of a stream.
+     *
+     * @param streamBandwidth
+     *            bits per second, 0 for unlimited
+     */
+    public void setStreamBandwidth(long streamBandwidth) {
+        this.streamBandwidth = streamBandwidth;
+    }
+
+}
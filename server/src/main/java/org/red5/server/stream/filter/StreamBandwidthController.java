@@ -19,7 +19,11 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Controls stream bandwidth
+ *
+ * @deprecated pulls with a thread per stream and does not limit the bandwidth; the play engine paces its output against the buckets of the
+ *             {@link org.red5.server.stream.ITokenBucketService}
  */
+@Deprecated
 public class StreamBandwidthController implements IFilter, IPipeConnectionListener, Runnable {
 
     /**
@@ -561,8 +561,8 @@ public class TomcatLoader extends LoaderBase implements InitializingBean, Dispos
             // get common context
             ApplicationContext common = (ApplicationContext) applicationContext.getBean("red5.common");
             Server server = (Server) common.getBean("red5.server");
-            // instance the plugin
-            WebSocketPlugin plugin = new WebSocketPlugin();
+            // use the configured plugin bean if there is one, otherwise instance the plugin
+            WebSocketPlugin plugin = applicationContext.containsBean("websocket.plugin") ? (WebSocketPlugin) applicationContext.getBean("websocket.plugin") : new WebSocketPlugin();
             plugin.setApplicationContext(applicationContext);
             plugin.setServer(server);
             // register it
@@ -105,6 +105,8 @@ public class RTMPSLoader extends RTMPTLoader {
         StandardWrapper wrapper = new StandardWrapper();
         wrapper.setServletName("RTMPTServlet");
         wrapper.setServletClass("org.red5.server.net.rtmpt.RTMPTServlet");
+        // idle requests are held without a container thread
+        wrapper.setAsyncSupported(true);
         ctx.addChild(wrapper);
 
         // add servlet mappings
@@ -122,6 +122,8 @@ public class RTMPTLoader extends TomcatLoader {
         StandardWrapper wrapper = (StandardWrapper) ctx.createWrapper();
         wrapper.setServletName("RTMPTServlet");
         wrapper.setServletClass("org.red5.server.net.rtmpt.RTMPTServlet");
+        // idle requests are held without a container thread
+        wrapper.setAsyncSupported(true);
         ctx.addChild(wrapper);
 
         // add servlet mappings
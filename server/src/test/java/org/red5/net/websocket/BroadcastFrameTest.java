@@ -0,0 +1,114 @@
+package org.red5.net.websocket;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Inflater;
+
+import javax.websocket.Extension;
+import javax.websocket.Extension.Parameter;
+
+import org.junit.Test;
+import org.red5.net.websocket.BroadcastFrame.Encoding;
+
+public class BroadcastFrameTest {
+
+    @Test
+    public void testFrames() {
+        for (int length : new int[] { 0, 125, 126, 65535, 65536 }) {
+            byte[] data = new byte[length];
+            Arrays.fill(data, (byte) 'a');
+            BroadcastFrame frame = BroadcastFrame.binary(data);
+            ByteBuffer buf = frame.getFrame(Encoding.PLAIN);
+            // final binary frame, not masked
+            assertEquals((byte) 0x82, buf.get());
+            int len = buf.get();
+            if (len == 126) {
+                len = buf.getShort() & 0xffff;
+            } else if (len == 127) {
+                len = (int) buf.getLong();
+            }
+            assertEquals(length, len);
+            assertEquals(length, buf.remaining());
+            // every connection gets a buffer of its own
+            assertNotSame(buf, frame.getFrame(Encoding.PLAIN));
+            assertEquals(0, frame.getFrame(Encoding.PLAIN).position());
+        }
+    }
+
+    @Test
+    public void testDeflate() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            sb.append("chat message ").append(i).append(' ');
+        }
+        String text = sb.toString();
+        ByteBuffer buf = BroadcastFrame.text(text).getFrame(Encoding.DEFLATE);
+        // final compressed text frame
+        assertEquals((byte) 0xc1, buf.get());
+        int len = buf.get();
+        if (len == 126) {
+            len = buf.getShort() & 0xffff;
+        }
+        assertEquals(len, buf.remaining());
+        byte[] compressed = new byte[len + 4];
+        buf.get(compressed, 0, len);
+        // restore the trailer as the client does
+        compressed[len + 2] = (byte) 0xff;
+        compressed[len + 3] = (byte) 0xff;
+        Inflater inflater = new Inflater(true);
+        inflater.setInput(compressed);
+        byte[] result = new byte[text.length() * 2];
+        int count = inflater.inflate(result);
+        inflater.end();
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), Arrays.copyOf(result, count));
+    }
+
+    @Test
+    public void testEncoding() {
+        assertEquals(Encoding.PLAIN, BroadcastFrame.getEncoding(null));
+        assertEquals(Encoding.PLAIN, BroadcastFrame.getEncoding(Collections.emptyList()));
+        assertEquals(Encoding.PLAIN, BroadcastFrame.getEncoding(extensions("permessage-deflate", "client_max_window_bits", "15")));
+        assertEquals(Encoding.DEFLATE, BroadcastFrame.getEncoding(extensions("permessage-deflate", "server_no_context_takeover", null)));
+        assertEquals(Encoding.PLAIN, BroadcastFrame.getEncoding(extensions("permessage-deflate", "server_no_context_takeover", null, "server_max_window_bits", "10")));
+        assertEquals(Encoding.NONE, BroadcastFrame.getEncoding(extensions("x-custom")));
+    }
+
+    private static List<Extension> extensions(String name, String... params) {
+        List<Parameter> parameters = new ArrayList<>();
+        for (int i = 0; i < params.length; i += 2) {
+            String paramName = params[i], value = params[i + 1];
+            parameters.add(new Parameter() {
+
+                public String getName() {
+                    return paramName;
+                }
+
+                public String getValue() {
+                    return value;
+                }
+
+            });
+        }
+        Extension extension = new Extension() {
+
+            public String getName() {
+                return name;
+            }
+
+            public List<Parameter> getParameters() {
+                return parameters;
+            }
+
+        };
+        return Collections.singletonList(extension);
+    }
+
+}
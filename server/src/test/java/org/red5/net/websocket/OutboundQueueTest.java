@@ -0,0 +1,240 @@
+package org.red5.net.websocket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.red5.net.websocket.OutboundQueue.Outbound;
+import org.red5.net.websocket.WebSocketConnection.OverflowPolicy;
+
+public class OutboundQueueTest {
+
+    // drain tasks scheduled on the writer, run by the tests
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    private int queueSize, coalesceBytes;
+
+    private OverflowPolicy overflowPolicy;
+
+    @Before
+    public void setUp() {
+        queueSize = WebSocketConnection.getOutboundQueueSize();
+        overflowPolicy = WebSocketConnection.getOverflowPolicy();
+        coalesceBytes = WebSocketConnection.getCoalesceBytes();
+        WebSocketConnection.setWriter(tasks::add);
+    }
+
+    @After
+    public void tearDown() {
+        WebSocketConnection.setOutboundQueueSize(queueSize);
+        WebSocketConnection.setOverflowPolicy(overflowPolicy);
+        WebSocketConnection.setCoalesceBytes(coalesceBytes);
+        WebSocketConnection.shutdownWriter();
+    }
+
+    @Test
+    public void testDropOldest() {
+        WebSocketConnection.setOutboundQueueSize(3);
+        WebSocketConnection.setOverflowPolicy(OverflowPolicy.DROP_OLDEST);
+        Recorder sink = new Recorder();
+        OutboundQueue queue = offer(new OutboundQueue("test", sink), 5);
+        assertEquals(3, queue.size());
+        assertEquals(2, queue.dropped.get());
+        runTasks();
+        assertEquals(Arrays.asList(2, 3, 4), sink.payloads());
+        assertEquals(3, queue.sent.get());
+    }
+
+    @Test
+    public void testDropNewest() {
+        WebSocketConnection.setOutboundQueueSize(3);
+        WebSocketConnection.setOverflowPolicy(OverflowPolicy.DROP_NEWEST);
+        Recorder sink = new Recorder();
+        OutboundQueue queue = offer(new OutboundQueue("test", sink), 5);
+        assertEquals(2, queue.dropped.get());
+        runTasks();
+        assertEquals(Arrays.asList(0, 1, 2), sink.payloads());
+    }
+
+    @Test
+    public void testClose() {
+        WebSocketConnection.setOutboundQueueSize(3);
+        WebSocketConnection.setOverflowPolicy(OverflowPolicy.CLOSE);
+        Recorder sink = new Recorder();
+        OutboundQueue queue = offer(new OutboundQueue("test", sink), 4);
+        assertEquals(0, queue.size());
+        assertEquals(4, queue.dropped.get());
+        runTasks();
+        assertEquals(1, sink.overflows.get());
+        assertTrue(sink.payloads().isEmpty());
+    }
+
+    @Test
+    public void testClosedSession() {
+        Recorder sink = new Recorder();
+        sink.open = false;
+        OutboundQueue queue = offer(new OutboundQueue("test", sink), 3);
+        runTasks();
+        assertTrue(sink.payloads().isEmpty());
+        assertEquals(3, queue.dropped.get());
+    }
+
+    @Test
+    public void testCoalescing() {
+        WebSocketConnection.setCoalesceBytes(10);
+        Recorder sink = new Recorder();
+        OutboundQueue queue = new OutboundQueue("test", sink);
+        int[] lengths = { 4, 4, 4, 12, 1 };
+        for (int i = 0; i < lengths.length; i++) {
+            queue.offer(i, lengths[i]);
+        }
+        // one drain task for the whole queue
+        assertEquals(1, tasks.size());
+        // a run writes a single batch and submits the task again for the rest
+        tasks.remove(0).run();
+        assertEquals(Arrays.asList(2), sink.batchSizes);
+        assertEquals(1, tasks.size());
+        runTasks();
+        // batches stay within the coalesce size, a larger message goes alone
+        assertEquals(Arrays.asList(2, 1, 1, 1), sink.batchSizes);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), sink.payloads());
+    }
+
+    @Test
+    public void testWriteCompletion() {
+        WebSocketConnection.setCoalesceBytes(1);
+        List<Runnable> pending = new ArrayList<>();
+        Recorder sink = new Recorder() {
+
+            @Override
+            public void write(List<Outbound> batch, Runnable done) {
+                batches.add(new ArrayList<>(batch));
+                pending.add(done);
+            }
+
+        };
+        OutboundQueue queue = offer(new OutboundQueue("test", sink), 3);
+        runTasks();
+        // the next batch waits until the write of the first one completed
+        assertEquals(Arrays.asList(0), sink.payloads());
+        assertEquals(0, queue.sent.get());
+        pending.remove(0).run();
+        assertEquals(1, queue.sent.get());
+        assertEquals(1, tasks.size());
+        runTasks();
+        pending.remove(0).run();
+        runTasks();
+        pending.remove(0).run();
+        assertTrue(tasks.isEmpty());
+        assertEquals(Arrays.asList(0, 1, 2), sink.payloads());
+        assertEquals(3, queue.sent.get());
+    }
+
+    @Test
+    public void testOrdering() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        WebSocketConnection.setWriter(executor);
+        try {
+            int connections = 20, messages = 500;
+            // room for every message, so nothing is dropped
+            WebSocketConnection.setOutboundQueueSize(messages);
+            CountDownLatch done = new CountDownLatch(connections * messages);
+            AtomicInteger outOfOrder = new AtomicInteger();
+            List<OutboundQueue> queues = new ArrayList<>();
+            for (int c = 0; c < connections; c++) {
+                queues.add(new OutboundQueue("test" + c, new Recorder() {
+
+                    int last = -1;
+
+                    @Override
+                    public void write(List<Outbound> batch, Runnable written) {
+                        for (Outbound message : batch) {
+                            int sequence = (Integer) message.payload;
+                            if (sequence != last + 1) {
+                                outOfOrder.incrementAndGet();
+                            }
+                            last = sequence;
+                            done.countDown();
+                        }
+                        written.run();
+                    }
+
+                }));
+            }
+            for (int m = 0; m < messages; m++) {
+                for (OutboundQueue queue : queues) {
+                    queue.offer(m, 100);
+                }
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(0, outOfOrder.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testUtf8Length() {
+        for (String text : new String[] { "", "abc", "caf\u00e9", "\u20ac 10", "\ud83d\ude00 smile", "lone \ud83d surrogate", "\ude00" }) {
+            assertEquals(text, text.getBytes(StandardCharsets.UTF_8).length, OutboundQueue.utf8Length(text));
+        }
+    }
+
+    private OutboundQueue offer(OutboundQueue queue, int count) {
+        for (int i = 0; i < count; i++) {
+            queue.offer(i, 1);
+        }
+        return queue;
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    private static class Recorder implements OutboundQueue.Sink {
+
+        final List<List<Outbound>> batches = new ArrayList<>();
+
+        final List<Integer> batchSizes = new ArrayList<>();
+
+        final AtomicInteger overflows = new AtomicInteger();
+
+        boolean open = true;
+
+        public boolean isOpen() {
+            return open;
+        }
+
+        public void write(List<Outbound> batch, Runnable done) {
+            batches.add(new ArrayList<>(batch));
+            batchSizes.add(batch.size());
+            done.run();
+        }
+
+        public void overflow() {
+            overflows.incrementAndGet();
+        }
+
+        List<Object> payloads() {
+            List<Object> payloads = new ArrayList<>();
+            batches.forEach(batch -> batch.forEach(message -> payloads.add(message.payload)));
+            return payloads;
+        }
+
+    }
+
+}
@@ -0,0 +1,64 @@
+package org.red5.server.net.rtmpt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.junit.Test;
+
+public class RTMPTConnectionTest {
+
+    @Test
+    public void testPendingMessageBuffers() {
+        RTMPTConnection conn = new RTMPTConnection();
+        assertNull(conn.getPendingMessageBuffers());
+        byte[] first = new byte[] { 1, 2, 3 };
+        byte[] second = new byte[] { 4, 5 };
+        conn.writeRaw(IoBuffer.wrap(first));
+        // the buffer is kept from its position, as encoded
+        IoBuffer buf = IoBuffer.wrap(new byte[] { 9, 4, 5 });
+        buf.get();
+        conn.writeRaw(buf);
+        List<IoBuffer> buffers = conn.getPendingMessageBuffers();
+        assertEquals(2, buffers.size());
+        assertArrayEquals(first, toArray(buffers.get(0)));
+        assertArrayEquals(second, toArray(buffers.get(1)));
+        assertEquals(0, conn.getPendingMessages());
+    }
+
+    @Test
+    public void testPendingMessagesWaiter() {
+        RTMPTConnection conn = new RTMPTConnection();
+        AtomicInteger notified = new AtomicInteger();
+        Runnable waiter = notified::incrementAndGet;
+        conn.addPendingMessagesWaiter(waiter);
+        assertEquals(0, notified.get());
+        // a message written meanwhile answers the held request, once
+        conn.writeRaw(IoBuffer.wrap(new byte[] { 1 }));
+        conn.writeRaw(IoBuffer.wrap(new byte[] { 2 }));
+        assertEquals(1, notified.get());
+        assertFalse(conn.removePendingMessagesWaiter(waiter));
+        // messages are pending already, the request is answered right away
+        conn.addPendingMessagesWaiter(waiter);
+        assertEquals(2, notified.get());
+        // a request which timed out is no longer answered
+        conn.getPendingMessageBuffers();
+        conn.addPendingMessagesWaiter(waiter);
+        assertTrue(conn.removePendingMessagesWaiter(waiter));
+        conn.writeRaw(IoBuffer.wrap(new byte[] { 3 }));
+        assertEquals(2, notified.get());
+    }
+
+    private static byte[] toArray(IoBuffer buf) {
+        byte[] arr = new byte[buf.remaining()];
+        buf.get(arr);
+        return arr;
+    }
+
+}
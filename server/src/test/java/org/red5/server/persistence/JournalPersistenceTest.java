@@ -0,0 +1,116 @@
+package org.red5.server.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.red5.server.so.SharedObject;
+import org.springframework.core.io.FileSystemResourceLoader;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.util.FileSystemUtils;
+
+public class JournalPersistenceTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("journal").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        FileSystemUtils.deleteRecursively(dir);
+    }
+
+    private JournalPersistence newStore() {
+        JournalPersistence store = new JournalPersistence(new PathMatchingResourcePatternResolver(new FileSystemResourceLoader()));
+        store.setPath("file:" + dir.getAbsolutePath());
+        return store;
+    }
+
+    private static SharedObject newSharedObject(JournalPersistence store) {
+        SharedObject so = new SharedObject("test", "/app", true, store);
+        store.save(so);
+        return so;
+    }
+
+    @Test
+    public void testJournalReplay() {
+        JournalPersistence store = newStore();
+        SharedObject so = newSharedObject(store);
+        so.setAttribute("name", "red5");
+        so.setAttribute("list", Arrays.asList("a", "b"));
+        // the first save with attributes writes the snapshot
+        store.sync();
+        so.setAttribute("count", 3);
+        so.setAttribute("name", "red5 server");
+        so.removeAttribute("list");
+        store.sync();
+        File snapshot = new File(dir, "SHARED_OBJECT/app/test.snapshot");
+        File journal = new File(dir, "SHARED_OBJECT/app/test.journal");
+        assertTrue(snapshot.exists());
+        assertTrue(journal.exists());
+        // a fresh store on the same directory, the first store is still open
+        SharedObject loaded = (SharedObject) newStore().load("SHARED_OBJECT/app/test");
+        assertNotNull(loaded);
+        assertEquals("test", loaded.getName());
+        assertEquals("red5 server", loaded.getAttribute("name"));
+        assertEquals(3, ((Number) loaded.getAttribute("count")).intValue());
+        assertFalse(loaded.hasAttribute("list"));
+        // the later changes are only in the journal
+        assertTrue(journal.delete());
+        loaded = (SharedObject) newStore().load("SHARED_OBJECT/app/test");
+        assertEquals("red5", loaded.getAttribute("name"));
+        assertFalse(loaded.hasAttribute("count"));
+        assertTrue(loaded.hasAttribute("list"));
+    }
+
+    @Test
+    public void testCompaction() {
+        JournalPersistence store = newStore();
+        store.setCompactionThreshold(256);
+        SharedObject so = newSharedObject(store);
+        so.setAttribute("counter", 0);
+        store.sync();
+        File journal = new File(dir, "SHARED_OBJECT/app/test.journal");
+        for (int i = 1; i <= 100; i++) {
+            so.setAttribute("counter", i);
+            store.sync();
+        }
+        // compacted into the snapshot at least once
+        assertTrue(journal.length() < 256);
+        SharedObject loaded = (SharedObject) newStore().load("SHARED_OBJECT/app/test");
+        assertEquals(100, ((Number) loaded.getAttribute("counter")).intValue());
+    }
+
+    @Test
+    public void testTruncatedJournal() throws Exception {
+        JournalPersistence store = newStore();
+        SharedObject so = newSharedObject(store);
+        so.setAttribute("first", "one");
+        store.sync();
+        so.setAttribute("second", "two");
+        store.sync();
+        // a record cut short by a crash
+        File journal = new File(dir, "SHARED_OBJECT/app/test.journal");
+        long length = journal.length();
+        Files.write(journal.toPath(), new byte[] { 0, 0, 0, 40, 1, 2, 3 }, StandardOpenOption.APPEND);
+        SharedObject loaded = (SharedObject) newStore().load("SHARED_OBJECT/app/test");
+        assertEquals("one", loaded.getAttribute("first"));
+        assertEquals("two", loaded.getAttribute("second"));
+        assertEquals(length, journal.length());
+        assertNull(newStore().load("SHARED_OBJECT/app/missing"));
+    }
+
+}
@@ -1,7 +1,9 @@
 package org.red5.server.scope;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
@@ -255,6 +257,46 @@ public class ScopeTest extends AbstractJUnit4SpringContextTests {
         log.info("testScopeCreationTypes-end");
     }
 
+    @Test
+    public void testScopeLookups() {
+        log.info("testScopeLookups");
+        int count = 1000;
+        for (int i = 0; i < count; i++) {
+            assertTrue(appScope.addChildScope(new BroadcastScope(appScope, "live" + i)));
+        }
+        // lookups by type and name
+        assertNotNull(appScope.getBasicScope(ScopeType.BROADCAST, "live500"));
+        assertNotNull(appScope.getBasicScope("live500"));
+        assertNull(appScope.getBasicScope(ScopeType.ROOM, "live500"));
+        assertNull(appScope.getScope("live500"));
+        assertTrue(appScope.hasChildScope("live999"));
+        assertTrue(appScope.getBasicScopeNames(ScopeType.BROADCAST).containsAll(Set.of("live0", "live999")));
+        assertTrue(appScope.getBasicScopeNames(ScopeType.ROOM).contains("room0"));
+        // alias of the stream published in testScopeCreation
+        assertEquals("stream1", appScope.getBasicScope(ScopeType.BROADCAST, "streamA").getName());
+        // alias given before the stream is attached to its scope
+        BroadcastScope stream2 = new BroadcastScope(appScope, "stream2");
+        assertTrue(appScope.addChildScope(stream2));
+        ClientBroadcastStream stream = new ClientBroadcastStream();
+        stream.setScope(appScope);
+        stream.setPublishedName("stream2");
+        assertTrue(stream.addAlias("streamB"));
+        assertNull(appScope.getBasicScope(ScopeType.BROADCAST, "streamB"));
+        stream2.setClientBroadcastStream(stream);
+        assertEquals("stream2", appScope.getBasicScope(ScopeType.BROADCAST, "streamB").getName());
+        appScope.removeChildScope(stream2);
+        assertNull(appScope.getBasicScope(ScopeType.BROADCAST, "streamB"));
+        // removals are reflected in the lookups
+        for (int i = 0; i < count; i++) {
+            appScope.removeChildScope(appScope.getBasicScope(ScopeType.BROADCAST, "live" + i));
+        }
+        assertNull(appScope.getBasicScope(ScopeType.BROADCAST, "live500"));
+        assertFalse(appScope.hasChildScope("live999"));
+        assertFalse(appScope.getBasicScopeNames(ScopeType.BROADCAST).contains("live0"));
+        assertNotNull(appScope.getScope("room0"));
+        log.info("testScopeLookups-end");
+    }
+
     @SuppressWarnings("unused")
     private class Worker implements Callable<Integer> {
 
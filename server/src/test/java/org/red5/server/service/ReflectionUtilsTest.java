@@ -1,12 +1,20 @@
 package org.red5.server.service;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Test;
 import org.red5.server.api.IConnection;
+import org.red5.server.api.service.IPendingServiceCall;
 import org.red5.server.api.service.IServiceCall;
 import org.red5.server.net.rtmp.RTMPMinaConnection;
 import org.slf4j.Logger;
@@ -95,6 +103,32 @@ public class ReflectionUtilsTest {
         }
     }
 
+    @Test
+    public void testDispatchCache() {
+        TestService service = new TestService();
+        ServiceInvoker invoker = new ServiceInvoker();
+        // numbers from AMF are doubles and are converted to the parameter type
+        IPendingServiceCall call = new PendingCall("TestService", "add", new Object[] { 1d, 2d });
+        assertTrue(invoker.invoke(call, service));
+        assertEquals(3, call.getResult());
+        Object[] first = ReflectionUtils.findMethod(null, call, service, "add");
+        Object[] second = ReflectionUtils.findMethod(null, new PendingCall("TestService", "add", new Object[] { 5d, 6d }), service, "add");
+        assertNotNull(first[2]);
+        assertSame(first[2], second[2]);
+        assertArrayEquals(new Object[] { 5, 6 }, (Object[]) second[1]);
+        // exceptions thrown by the method are reported as invocation exceptions
+        call = new PendingCall("TestService", "doFail", new Object[0]);
+        assertFalse(invoker.invoke(call, service));
+        assertEquals(Call.STATUS_INVOCATION_EXCEPTION, call.getStatus());
+        assertTrue(call.getException() instanceof InvocationTargetException);
+        // unknown methods are reported on every call
+        for (int i = 0; i < 2; i++) {
+            call = new PendingCall("TestService", "doesNotExist", new Object[0]);
+            assertFalse(invoker.invoke(call, service));
+            assertEquals(Call.STATUS_METHOD_NOT_FOUND, call.getStatus());
+        }
+    }
+
     private class DummyConnection extends RTMPMinaConnection {
 
     }
@@ -131,6 +165,14 @@ public class ReflectionUtilsTest {
             log.info("doTestWithConn - Connection, String, and Integer: {} {} {}", conn, param0, param1);
         }
 
+        public int add(int a, int b) {
+            return a + b;
+        }
+
+        public void doFail() {
+            throw new IllegalStateException("fail");
+        }
+
         // simple method generically taking an object array
         public void doTestObjectArray(Object[] param) {
             log.info("doTestObjectArray - Object array: {}", Arrays.asList(param));
@@ -0,0 +1,72 @@
+package org.red5.server.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.red5.server.stream.IPacingService.IPacedTask;
+
+public class PacingServiceTest {
+
+    private PacingService service;
+
+    @Before
+    public void setUp() throws Exception {
+        service = new PacingService();
+        service.setTickDuration(5);
+        // a small wheel, so some of the tasks wait for more than one turn
+        service.setWheelSize(8);
+        service.setWorkerThreads(2);
+        service.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        service.destroy();
+    }
+
+    @Test
+    public void testSchedule() throws Exception {
+        final List<Integer> order = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(3);
+        final long start = System.nanoTime();
+        final AtomicInteger early = new AtomicInteger();
+        for (int delay : new int[] { 120, 0, 60 }) {
+            service.schedule(() -> {
+                if (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(delay)) {
+                    early.incrementAndGet();
+                }
+                order.add(delay);
+                done.countDown();
+            }, delay);
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, early.get());
+        assertEquals(0, (int) order.get(0));
+        assertEquals(60, (int) order.get(1));
+        assertEquals(120, (int) order.get(2));
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final AtomicInteger runs = new AtomicInteger();
+        IPacedTask task = service.schedule(runs::incrementAndGet, 50);
+        assertTrue(task.cancel());
+        final CountDownLatch done = new CountDownLatch(1);
+        IPacedTask other = service.schedule(done::countDown, 100);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        // the task ran, it cannot be cancelled anymore
+        assertFalse(other.cancel());
+        assertEquals(0, runs.get());
+    }
+
+}
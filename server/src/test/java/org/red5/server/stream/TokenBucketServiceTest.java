@@ -0,0 +1,100 @@
+package org.red5.server.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.red5.server.scheduling.JDKSchedulingService;
+import org.red5.server.stream.ITokenBucket.ITokenBucketCallback;
+
+public class TokenBucketServiceTest {
+
+    private JDKSchedulingService schedulingService;
+
+    private TokenBucketService service;
+
+    @Before
+    public void setUp() throws Exception {
+        schedulingService = new JDKSchedulingService();
+        schedulingService.afterPropertiesSet();
+        service = new TokenBucketService();
+        service.setSchedulingService(schedulingService);
+        service.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        service.destroy();
+        schedulingService.destroy();
+    }
+
+    @Test
+    public void testAcquire() {
+        assertNull(service.createTokenBucket(0, 1));
+        // 1000 tokens refilled at 1 per ms
+        ITokenBucket bucket = service.createTokenBucket(1000, 1);
+        assertTrue(bucket.acquireToken(600, 0));
+        assertFalse(bucket.acquireToken(600, 0));
+        assertTrue(bucket.acquireToken(600, 1000));
+        // the bucket is nearly empty, best effort takes what is left
+        long taken = bucket.acquireTokenBestEffort(1000);
+        assertTrue(taken < 600);
+        // a request larger than the bucket takes a full bucket
+        assertTrue(bucket.acquireToken(5000, 2000));
+    }
+
+    @Test
+    public void testHierarchy() {
+        // a tenant sharing 1000 tokens between two streams, one of them limited to 300
+        TokenBucket scope = new TokenBucket(service, null, 1000, 0.001);
+        TokenBucket first = new TokenBucket(service, scope, 300, 0.001);
+        TokenBucket second = new TokenBucket(service, scope, 0, 0);
+        assertTrue(first.acquireToken(300, 0));
+        assertFalse(first.acquireToken(100, 0));
+        assertEquals(700, scope.getAvailable());
+        // a stream running short at the tenant level gets its own tokens back
+        TokenBucket third = new TokenBucket(service, scope, 1000, 0.001);
+        assertFalse(third.acquireToken(800, 0));
+        assertEquals(1000, third.getAvailable());
+        assertEquals(700, second.acquireTokenBestEffort(1000));
+        assertFalse(second.acquireToken(1, 0));
+        assertEquals(0, scope.getAvailable());
+    }
+
+    @Test
+    public void testCallback() throws Exception {
+        ITokenBucket bucket = service.createTokenBucket(1000, 1);
+        assertTrue(bucket.acquireToken(1000, 0));
+        final CountDownLatch available = new CountDownLatch(1);
+        final AtomicLong reset = new AtomicLong();
+        ITokenBucketCallback callback = new ITokenBucketCallback() {
+
+            public void available(ITokenBucket bucket, long tokenCount) {
+                if (bucket.acquireToken(tokenCount, 0)) {
+                    available.countDown();
+                }
+            }
+
+            public void reset(ITokenBucket bucket, long tokenCount) {
+                reset.addAndGet(tokenCount);
+            }
+
+        };
+        assertFalse(bucket.acquireTokenNonblocking(500, callback));
+        assertTrue(available.await(5, TimeUnit.SECONDS));
+        // waiting acquisitions are dropped when the bucket is removed
+        bucket.acquireTokenBestEffort(1000);
+        assertFalse(bucket.acquireTokenNonblocking(800, callback));
+        service.removeTokenBucket(bucket);
+        assertEquals(800, reset.get());
+    }
+
+}